@@ -1,15 +1,44 @@
 package org.citopt.connde;
 
 import org.citopt.connde.service.cep.engine.core.CEPEngine;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventOverflowPolicy;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackOverflowPolicy;
 import org.citopt.connde.service.cep.engine.esper.EsperCEPEngine;
+import org.citopt.connde.service.cep.engine.esper.ShardedEsperCEPEngine;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 
 /**
  * Configures the CEP engine that is supposed to be used in this application and creates a corresponding bean.
+ * The settings of the engine may be overridden within the config.properties file.
  */
 @Configuration
+@PropertySource(value = "classpath:config.properties", ignoreResourceNotFound = true)
 public class CEPConfiguration {
+    //Whether events are supposed to be checked against their event types before they are processed (debug mode)
+    private static final boolean VALIDATE_EVENTS = false;
+
+    //Property keys and defaults of the settings of the executor for query subscriber callbacks
+    private static final String PROPERTY_CALLBACK_THREADS = "cep.callback.threads";
+    private static final String PROPERTY_CALLBACK_QUEUE_CAPACITY = "cep.callback.queue_capacity";
+    private static final String PROPERTY_CALLBACK_OVERFLOW_POLICY = "cep.callback.overflow_policy";
+    private static final int DEFAULT_CALLBACK_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_CALLBACK_QUEUE_CAPACITY = 10000;
+    private static final CEPCallbackOverflowPolicy DEFAULT_CALLBACK_OVERFLOW_POLICY = CEPCallbackOverflowPolicy.BLOCK;
+
+    //Property keys and defaults of the number of engine shards (one thread each) and their event queues
+    private static final String PROPERTY_NUMBER_SHARDS = "cep.shards";
+    private static final String PROPERTY_SHARD_QUEUE_CAPACITY = "cep.shard.queue_capacity";
+    private static final String PROPERTY_SHARD_OVERFLOW_POLICY = "cep.shard.overflow_policy";
+    private static final int DEFAULT_NUMBER_SHARDS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_SHARD_QUEUE_CAPACITY = 10000;
+    private static final CEPEventOverflowPolicy DEFAULT_SHARD_OVERFLOW_POLICY = CEPEventOverflowPolicy.BLOCK;
+
+    @Autowired
+    private Environment environment;
 
     /**
      * Creates a bean for the CEP engine to use.
@@ -19,6 +48,28 @@ public class CEPConfiguration {
     @Bean(name = "cep_engine")
     public CEPEngine cepEngine() {
         System.out.println("load CEP Engine");
-        return new EsperCEPEngine();
+
+        //Read settings of the callback executor
+        int callbackThreads = environment.getProperty(PROPERTY_CALLBACK_THREADS, Integer.class,
+                DEFAULT_CALLBACK_THREADS);
+        int callbackQueueCapacity = environment.getProperty(PROPERTY_CALLBACK_QUEUE_CAPACITY, Integer.class,
+                DEFAULT_CALLBACK_QUEUE_CAPACITY);
+        CEPCallbackOverflowPolicy callbackOverflowPolicy = environment.getProperty(PROPERTY_CALLBACK_OVERFLOW_POLICY,
+                CEPCallbackOverflowPolicy.class, DEFAULT_CALLBACK_OVERFLOW_POLICY);
+
+        //Read settings of the shards
+        int numberShards = environment.getProperty(PROPERTY_NUMBER_SHARDS, Integer.class, DEFAULT_NUMBER_SHARDS);
+        int shardQueueCapacity = environment.getProperty(PROPERTY_SHARD_QUEUE_CAPACITY, Integer.class,
+                DEFAULT_SHARD_QUEUE_CAPACITY);
+        CEPEventOverflowPolicy shardOverflowPolicy = environment.getProperty(PROPERTY_SHARD_OVERFLOW_POLICY,
+                CEPEventOverflowPolicy.class, DEFAULT_SHARD_OVERFLOW_POLICY);
+
+        //Use a single engine if partitioning does not pay off
+        if (numberShards <= 1) {
+            return new EsperCEPEngine(VALIDATE_EVENTS, callbackThreads, callbackQueueCapacity,
+                    callbackOverflowPolicy);
+        }
+        return new ShardedEsperCEPEngine(numberShards, shardQueueCapacity, shardOverflowPolicy, VALIDATE_EVENTS,
+                callbackThreads, callbackQueueCapacity, callbackOverflowPolicy);
     }
 }
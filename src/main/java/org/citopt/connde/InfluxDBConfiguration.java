@@ -20,6 +20,21 @@ public class InfluxDBConfiguration {
     //Measurements name for value logs
     public static final String MEASUREMENT_NAME = "value_log";
 
+    //Name of the tag that holds the component id of value logs
+    public static final String COMPONENT_TAG_NAME = "component_id";
+
+    //Measurements name and interval for the hourly rollups of value logs
+    public static final String ROLLUP_MEASUREMENT_NAME = "value_log_hourly";
+    public static final String ROLLUP_INTERVAL = "1h";
+    public static final long ROLLUP_INTERVAL_SECONDS = 60 * 60;
+
+    //Name of the continuous query that computes the rollups
+    public static final String ROLLUP_QUERY_NAME = "cq_value_log_hourly";
+
+    //Names of the continuous query and the measurement of previous rollups, which were not grouped by component
+    public static final String LEGACY_ROLLUP_QUERY_NAME = "cq_value_log_1h";
+    public static final String LEGACY_ROLLUP_MEASUREMENT_NAME = "value_log_1h";
+
     //Retention policy
     public static final String RETENTION_POLICY_NAME = "retentionPolicy";
 
@@ -25,6 +25,7 @@ import org.citopt.connde.domain.user.User;
 import org.citopt.connde.repository.AdapterRepository;
 import org.citopt.connde.repository.SensorRepository;
 import org.citopt.connde.service.UserService;
+import org.citopt.connde.service.rules.RuleExecutionStatsService;
 import org.citopt.connde.web.rest.RestDeploymentController;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -180,4 +181,30 @@ public class RestConfiguration extends RepositoryRestConfigurerAdapter {
             }
         };
     }
+
+    /**
+     * Resource processor for rules that merges the execution statistics of the rules which have not been
+     * written to the repository yet, so that the rules are always delivered with up-to-date statistics.
+     *
+     * @param statsService The service that holds the execution statistics
+     * @return The resource processor
+     */
+    @Bean
+    public ResourceProcessor<Resource<Rule>> ruleProcessor(RuleExecutionStatsService statsService) {
+
+        return new ResourceProcessor<Resource<Rule>>() {
+
+            /**
+             * Processing method for rule resources.
+             * @param resource The rule resource to process
+             * @return The processed rule resource
+             */
+            @Override
+            public Resource<Rule> process(Resource<Rule> resource) {
+                //Merge pending execution statistics
+                statsService.merge(resource.getContent());
+                return resource;
+            }
+        };
+    }
 }
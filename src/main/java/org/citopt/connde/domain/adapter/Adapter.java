@@ -3,6 +3,7 @@ package org.citopt.connde.domain.adapter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.citopt.connde.domain.adapter.parameters.Parameter;
 import org.citopt.connde.domain.user_entity.UserEntity;
+import org.citopt.connde.domain.valueLog.ValueLogCompression;
 import org.citopt.connde.exception.InsertFailureException;
 import org.citopt.connde.exception.NotFoundException;
 import org.springframework.data.annotation.Id;
@@ -36,9 +37,12 @@ public class Adapter extends UserEntity {
 
     private List<Parameter> parameters;
 
+    private ValueLogCompression compression;
+
     public Adapter() {
         this.routines = new ArrayList<>();
         this.parameters = new ArrayList<>();
+        this.compression = new ValueLogCompression();
     }
 
     public List<Code> getRoutines() {
@@ -134,4 +138,12 @@ public class Adapter extends UserEntity {
     public void setParameters(List<Parameter> parameters) {
         this.parameters = parameters;
     }
-}
\ No newline at end of file
+
+    public ValueLogCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(ValueLogCompression compression) {
+        this.compression = (compression == null) ? new ValueLogCompression() : compression;
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.persistence.GeneratedValue;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -35,6 +36,8 @@ public class Rule extends UserEntity {
     @DBRef
     private List<RuleAction> actions;
 
+    private RuleExecutionPolicy executionPolicy = null;
+
     @JsonFormat(pattern = "dd.MM.yyyy HH:mm:ss")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Date lastExecution = null;
@@ -48,6 +51,12 @@ public class Rule extends UserEntity {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private RuleExecutionResult lastExecutionResult = RuleExecutionResult.NONE;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private List<RuleActionResult> lastActionResults = new ArrayList<>();
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private int suppressedFirings = 0;
+
     /**
      * Returns the id of the rule.
      *
@@ -206,6 +215,62 @@ public class Rule extends UserEntity {
         this.lastExecutionResult = lastExecutionResult;
     }
 
+    /**
+     * Returns the results of the single actions of the last rule execution.
+     *
+     * @return The list of action results
+     */
+    public List<RuleActionResult> getLastActionResults() {
+        return lastActionResults;
+    }
+
+    /**
+     * Sets the results of the single actions of the last rule execution.
+     *
+     * @param lastActionResults The list of action results to set
+     */
+    public void setLastActionResults(List<RuleActionResult> lastActionResults) {
+        this.lastActionResults = lastActionResults;
+    }
+
+    /**
+     * Returns the execution policy of the rule.
+     *
+     * @return The execution policy; null, if the executions of the rule are not limited
+     */
+    public RuleExecutionPolicy getExecutionPolicy() {
+        return executionPolicy;
+    }
+
+    /**
+     * Sets the execution policy of the rule.
+     *
+     * @param executionPolicy The execution policy to set (may be null)
+     */
+    public void setExecutionPolicy(RuleExecutionPolicy executionPolicy) {
+        this.executionPolicy = executionPolicy;
+    }
+
+    /**
+     * Returns the total number of firings of the trigger that did not cause an own execution of the rule due to
+     * its execution policy.
+     *
+     * @return The number of suppressed firings
+     */
+    public int getSuppressedFirings() {
+        return suppressedFirings;
+    }
+
+    /**
+     * Sets the total number of firings of the trigger that did not cause an own execution of the rule due to
+     * its execution policy.
+     *
+     * @param suppressedFirings The number of suppressed firings to set
+     */
+    public void setSuppressedFirings(int suppressedFirings) {
+        this.suppressedFirings = suppressedFirings;
+    }
+
     /**
      * Returns the name of the trigger of the rule.
      *
@@ -15,6 +15,9 @@ import java.util.Objects;
  */
 @Document
 public class RuleAction extends UserEntity {
+    //Maximum timeout of rule action executions in milliseconds
+    public static final long MAX_TIMEOUT = 5 * 60 * 1000;
+
     @Id
     @GeneratedValue
     private String id;
@@ -26,6 +29,9 @@ public class RuleAction extends UserEntity {
 
     private Map<String, String> parameters;
 
+    //Maximum duration of an execution in milliseconds (0 for the default timeout)
+    private long timeout = 0;
+
     /**
      * Returns the id of the rule action.
      *
@@ -98,6 +104,24 @@ public class RuleAction extends UserEntity {
         this.parameters = parameters;
     }
 
+    /**
+     * Returns the maximum duration of an execution of the rule action, after which the execution is cancelled.
+     *
+     * @return The timeout in milliseconds; 0, if the default timeout applies
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the maximum duration of an execution of the rule action, after which the execution is cancelled.
+     *
+     * @param timeout The timeout in milliseconds to set; 0 for the default timeout
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
     /**
      * Overrides the equals method by only considering the ids of rule actions.
      *
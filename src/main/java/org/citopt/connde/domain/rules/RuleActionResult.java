@@ -0,0 +1,147 @@
+package org.citopt.connde.domain.rules;
+
+/**
+ * Objects of this class represent the result of executing a single action of a rule, consisting of the result
+ * itself, the duration of the execution and whether the execution was cancelled due to its timeout.
+ */
+public class RuleActionResult {
+    //Id and name of the executed action
+    private String actionId;
+    private String actionName;
+
+    //Result of the execution
+    private RuleExecutionResult result = RuleExecutionResult.NONE;
+
+    //Whether the execution was cancelled since it exceeded its timeout
+    private boolean timedOut = false;
+
+    //Duration of the execution in milliseconds
+    private long duration = 0;
+
+    //Message describing the reason of a failure (may be null)
+    private String message = null;
+
+    /**
+     * Creates a new and empty action result.
+     */
+    public RuleActionResult() {
+    }
+
+    /**
+     * Creates a new action result for a given rule action.
+     *
+     * @param action The rule action
+     */
+    public RuleActionResult(RuleAction action) {
+        this.actionId = action.getId();
+        this.actionName = action.getName();
+    }
+
+    /**
+     * Returns the id of the executed action.
+     *
+     * @return The action id
+     */
+    public String getActionId() {
+        return actionId;
+    }
+
+    /**
+     * Sets the id of the executed action.
+     *
+     * @param actionId The action id to set
+     */
+    public void setActionId(String actionId) {
+        this.actionId = actionId;
+    }
+
+    /**
+     * Returns the name of the executed action.
+     *
+     * @return The action name
+     */
+    public String getActionName() {
+        return actionName;
+    }
+
+    /**
+     * Sets the name of the executed action.
+     *
+     * @param actionName The action name to set
+     */
+    public void setActionName(String actionName) {
+        this.actionName = actionName;
+    }
+
+    /**
+     * Returns the result of the execution.
+     *
+     * @return The execution result
+     */
+    public RuleExecutionResult getResult() {
+        return result;
+    }
+
+    /**
+     * Sets the result of the execution.
+     *
+     * @param result The execution result to set
+     */
+    public void setResult(RuleExecutionResult result) {
+        this.result = result;
+    }
+
+    /**
+     * Returns whether the execution was cancelled since it exceeded its timeout.
+     *
+     * @return True, if the execution timed out; false otherwise
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Sets whether the execution was cancelled since it exceeded its timeout.
+     *
+     * @param timedOut True, if the execution timed out; false otherwise
+     */
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * Returns the duration of the execution.
+     *
+     * @return The duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets the duration of the execution.
+     *
+     * @param duration The duration in milliseconds to set
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the message describing the reason of a failure.
+     *
+     * @return The message; null, if no message is available
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the message describing the reason of a failure.
+     *
+     * @param message The message to set
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -7,6 +7,7 @@ import org.citopt.connde.service.rules.execution.ExecutorProvider;
 import org.citopt.connde.service.rules.execution.RuleActionExecutor;
 import org.citopt.connde.service.rules.execution.actuator_action.ActuatorActionExecutor;
 import org.citopt.connde.service.rules.execution.component_deployment.ComponentDeploymentExecutor;
+import org.citopt.connde.service.rules.execution.http_webhook.HttpWebhookExecutor;
 import org.citopt.connde.service.rules.execution.ifttt_webhook.IFTTTWebhookExecutor;
 
 /**
@@ -17,6 +18,7 @@ import org.citopt.connde.service.rules.execution.ifttt_webhook.IFTTTWebhookExecu
 public enum RuleActionType {
     ACTUATOR_ACTION("Actuator action", ActuatorActionExecutor.class),
     IFTTT_WEBHOOK("IFTTT webhook", IFTTTWebhookExecutor.class),
+    HTTP_WEBHOOK("HTTP webhook", HttpWebhookExecutor.class),
     COMPONENT_DEPLOYMENT("Component deployment", ComponentDeploymentExecutor.class);
 
     private String id;
@@ -64,6 +64,12 @@ public class RuleActionValidator implements Validator {
                     "The name is already registered.");
         }
 
+        //Check if timeout is within the allowed range
+        if ((ruleAction.getTimeout() < 0) || (ruleAction.getTimeout() > RuleAction.MAX_TIMEOUT)) {
+            errors.rejectValue("timeout", "ruleAction.timeout.invalid",
+                    "The timeout must be between 0 and " + RuleAction.MAX_TIMEOUT + " milliseconds.");
+        }
+
         //Check if type was provided
         RuleActionType actionType = ruleAction.getType();
         if (actionType == null) {
@@ -0,0 +1,159 @@
+package org.citopt.connde.domain.rules;
+
+/**
+ * Objects of this class represent execution policies of rules that limit how often the actions of a rule are
+ * executed in case its trigger fires repeatedly, e.g. during a threshold excursion. A policy may combine a minimum
+ * interval between executions, a leading or trailing debounce and a maximum number of executions per time window.
+ * Firings that are suppressed by the policy may optionally be coalesced into one later execution.
+ */
+public class RuleExecutionPolicy {
+    //Maximum value of all durations in milliseconds (1 day)
+    public static final long MAX_DURATION = 24 * 60 * 60 * 1000;
+
+    /**
+     * Enumeration of the supported debounce modes.
+     */
+    public enum DebounceMode {
+        //Execute on the first firing of a burst, suppress subsequent firings until the trigger is quiet
+        LEADING,
+        //Execute once the trigger was quiet for the debounce delay, using the last firing of the burst
+        TRAILING
+    }
+
+    //Minimum interval between two executions in milliseconds (0 = no limit)
+    private long minInterval = 0;
+
+    //Debounce delay in milliseconds (0 = no debounce) and debounce mode
+    private long debounceDelay = 0;
+    private DebounceMode debounceMode = DebounceMode.LEADING;
+
+    //Maximum number of executions within a sliding time window (0 = no limit) and window size in milliseconds
+    private int maxExecutions = 0;
+    private long window = 0;
+
+    //Whether suppressed firings are coalesced into one later execution with an aggregated output
+    private boolean coalesce = false;
+
+    /**
+     * Creates a new execution policy that does not limit the executions.
+     */
+    public RuleExecutionPolicy() {
+    }
+
+    /**
+     * Returns whether the policy limits the executions of a rule at all.
+     *
+     * @return True, if the policy is active; false otherwise
+     */
+    public boolean isActive() {
+        return (minInterval > 0) || (debounceDelay > 0) || ((maxExecutions > 0) && (window > 0));
+    }
+
+    /**
+     * Returns the minimum interval between two executions.
+     *
+     * @return The minimum interval in milliseconds
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Sets the minimum interval between two executions.
+     *
+     * @param minInterval The minimum interval in milliseconds to set
+     */
+    public void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Returns the debounce delay.
+     *
+     * @return The debounce delay in milliseconds
+     */
+    public long getDebounceDelay() {
+        return debounceDelay;
+    }
+
+    /**
+     * Sets the debounce delay.
+     *
+     * @param debounceDelay The debounce delay in milliseconds to set
+     */
+    public void setDebounceDelay(long debounceDelay) {
+        this.debounceDelay = debounceDelay;
+    }
+
+    /**
+     * Returns the debounce mode.
+     *
+     * @return The debounce mode
+     */
+    public DebounceMode getDebounceMode() {
+        return debounceMode;
+    }
+
+    /**
+     * Sets the debounce mode.
+     *
+     * @param debounceMode The debounce mode to set
+     */
+    public void setDebounceMode(DebounceMode debounceMode) {
+        this.debounceMode = debounceMode;
+    }
+
+    /**
+     * Returns the maximum number of executions within the time window.
+     *
+     * @return The maximum number of executions
+     */
+    public int getMaxExecutions() {
+        return maxExecutions;
+    }
+
+    /**
+     * Sets the maximum number of executions within the time window.
+     *
+     * @param maxExecutions The maximum number of executions to set
+     */
+    public void setMaxExecutions(int maxExecutions) {
+        this.maxExecutions = maxExecutions;
+    }
+
+    /**
+     * Returns the size of the time window for the maximum number of executions.
+     *
+     * @return The window size in milliseconds
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Sets the size of the time window for the maximum number of executions.
+     *
+     * @param window The window size in milliseconds to set
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Returns whether suppressed firings are coalesced into one later execution.
+     *
+     * @return True, if firings are coalesced; false otherwise
+     */
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Sets whether suppressed firings are coalesced into one later execution.
+     *
+     * @param coalesce True, if firings are supposed to be coalesced; false otherwise
+     */
+    public void setCoalesce(boolean coalesce) {
+        this.coalesce = coalesce;
+    }
+}
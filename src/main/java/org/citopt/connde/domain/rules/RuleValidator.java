@@ -75,5 +75,48 @@ public class RuleValidator implements Validator {
             errors.rejectValue("actions", "rule.actions.empty",
                     "At least one rule action needs to be selected.");
         }
+
+        //Check execution policy if provided
+        RuleExecutionPolicy policy = rule.getExecutionPolicy();
+        if (policy != null) {
+            validatePolicy(policy, errors);
+        }
+    }
+
+    /**
+     * Validates the fields of an execution policy and adds error messages to the errors object accordingly.
+     *
+     * @param policy The execution policy to validate
+     * @param errors The errors object to add the error messages to
+     */
+    private void validatePolicy(RuleExecutionPolicy policy, Errors errors) {
+        //Check durations
+        if ((policy.getMinInterval() < 0) || (policy.getMinInterval() > RuleExecutionPolicy.MAX_DURATION)) {
+            errors.rejectValue("executionPolicy.minInterval", "rule.executionPolicy.minInterval.invalid",
+                    "The minimum interval must be between 0 and " + RuleExecutionPolicy.MAX_DURATION + " ms.");
+        }
+        if ((policy.getDebounceDelay() < 0) || (policy.getDebounceDelay() > RuleExecutionPolicy.MAX_DURATION)) {
+            errors.rejectValue("executionPolicy.debounceDelay", "rule.executionPolicy.debounceDelay.invalid",
+                    "The debounce delay must be between 0 and " + RuleExecutionPolicy.MAX_DURATION + " ms.");
+        }
+        if ((policy.getWindow() < 0) || (policy.getWindow() > RuleExecutionPolicy.MAX_DURATION)) {
+            errors.rejectValue("executionPolicy.window", "rule.executionPolicy.window.invalid",
+                    "The window size must be between 0 and " + RuleExecutionPolicy.MAX_DURATION + " ms.");
+        }
+
+        //Check debounce mode
+        if ((policy.getDebounceDelay() > 0) && (policy.getDebounceMode() == null)) {
+            errors.rejectValue("executionPolicy.debounceMode", "rule.executionPolicy.debounceMode.empty",
+                    "A debounce mode needs to be selected.");
+        }
+
+        //Check maximum number of executions and window
+        if (policy.getMaxExecutions() < 0) {
+            errors.rejectValue("executionPolicy.maxExecutions", "rule.executionPolicy.maxExecutions.invalid",
+                    "The maximum number of executions must not be negative.");
+        } else if ((policy.getMaxExecutions() > 0) && (policy.getWindow() <= 0)) {
+            errors.rejectValue("executionPolicy.window", "rule.executionPolicy.window.empty",
+                    "A window size needs to be provided for the maximum number of executions.");
+        }
     }
 }
@@ -1,25 +1,42 @@
 package org.citopt.connde.domain.testing;
 
-import org.citopt.connde.domain.rules.RuleTrigger;
 import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import javax.persistence.GeneratedValue;
+import java.util.Date;
 import java.util.Set;
 
+/**
+ * Journal entry that records the firing of a rule trigger, consisting of the id of the trigger, the time of the
+ * firing, the output of the CEP engine and the names of the executed rules. The entries are indexed by trigger and
+ * time and expire automatically after a retention period.
+ */
 @Document
+@CompoundIndex(name = "trigger_time", def = "{'tid': 1, 'ts': 1}")
 public class Testing {
+    //Retention period of journal entries in seconds
+    public static final int RETENTION_PERIOD = 30 * 24 * 60 * 60;
+
     @Id
     @GeneratedValue
     private String id;
 
-    @DBRef
-    private RuleTrigger trigger;
+    @Field("tid")
+    private String triggerId;
+
+    @Field("ts")
+    @Indexed(expireAfterSeconds = RETENTION_PERIOD)
+    private Date time;
 
+    @Field("out")
     private CEPOutput output;
 
+    @Field("rules")
     private Set<String> rule;
 
 
@@ -61,21 +78,39 @@ public class Testing {
     }
 
     /**
-     * Returns the rule trigger  of the entry.
+     * Returns the id of the rule trigger of the entry.
+     *
+     * @return rule trigger id
+     */
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    /**
+     * Sets the id of the rule trigger of the entry.
+     *
+     * @param triggerId rule trigger id
+     */
+    public void setTriggerId(String triggerId) {
+        this.triggerId = triggerId;
+    }
+
+    /**
+     * Returns the time at which the rule trigger fired.
      *
-     * @return rule trigger
+     * @return time of the firing
      */
-    public RuleTrigger getTrigger() {
-        return trigger;
+    public Date getTime() {
+        return time;
     }
 
     /**
-     * Sets the rule trigger of the entry.
+     * Sets the time at which the rule trigger fired.
      *
-     * @param trigger rule trigger
+     * @param time time of the firing
      */
-    public void setTrigger(RuleTrigger trigger) {
-        this.trigger = trigger;
+    public void setTime(Date time) {
+        this.time = time;
     }
 
     /**
@@ -41,6 +41,9 @@ public class ValueLog {
     @Column(name = "idref")
     @ApiModelProperty(notes = "ID of the pertaining component", example = "5c97dc2583aeb6078c5ab672", accessMode = ApiModelProperty.AccessMode.READ_ONLY, readOnly = true)
     private String idref;
+    //Tag duplicating the component id, so that value logs can be grouped per component
+    @Column(name = InfluxDBConfiguration.COMPONENT_TAG_NAME, tag = true)
+    private String componentTag;
     @Column(name = "component")
     @ApiModelProperty(notes = "Type of the pertaining component", example = "SENSOR", accessMode = ApiModelProperty.AccessMode.READ_ONLY, readOnly = true)
     private String component; //Component type
@@ -131,6 +134,7 @@ public class ValueLog {
      */
     public void setIdref(String idref) {
         this.idref = idref;
+        this.componentTag = idref;
     }
 
     /**
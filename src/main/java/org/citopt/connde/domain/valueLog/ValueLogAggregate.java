@@ -0,0 +1,206 @@
+package org.citopt.connde.domain.valueLog;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Objects of this class represent aggregates of the value logs of a certain component within one time bucket.
+ * Depending on the fill policy of the underlying query, the aggregate values of empty buckets may be null.
+ */
+@ApiModel(description = "Model for aggregates of component value logs within a time bucket")
+public class ValueLogAggregate {
+    @ApiModelProperty(notes = "Start of the time bucket in epoch seconds", example = "1570633200")
+    private long time;
+
+    @ApiModelProperty(notes = "Mean of the values", example = "27.5")
+    private Double mean;
+
+    @ApiModelProperty(notes = "Smallest value", example = "21.0")
+    private Double min;
+
+    @ApiModelProperty(notes = "Biggest value", example = "30.5")
+    private Double max;
+
+    @ApiModelProperty(notes = "Number of values", example = "3600")
+    private Long count;
+
+    @ApiModelProperty(notes = "Sum of the values", example = "99000.0")
+    private Double sum;
+
+    @ApiModelProperty(notes = "Oldest value", example = "22.0")
+    private Double first;
+
+    @ApiModelProperty(notes = "Most recent value", example = "29.0")
+    private Double last;
+
+    @ApiModelProperty(notes = "Sample standard deviation of the values (only available for summaries)", example = "1.5")
+    private Double standardDeviation;
+
+    /**
+     * Creates a new and empty aggregate.
+     */
+    public ValueLogAggregate() {
+    }
+
+    /**
+     * Returns the start of the time bucket in epoch seconds.
+     *
+     * @return The start time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Sets the start of the time bucket in epoch seconds.
+     *
+     * @param time The start time to set
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns the mean of the values.
+     *
+     * @return The mean
+     */
+    public Double getMean() {
+        return mean;
+    }
+
+    /**
+     * Sets the mean of the values.
+     *
+     * @param mean The mean to set
+     */
+    public void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    /**
+     * Returns the smallest value.
+     *
+     * @return The minimum
+     */
+    public Double getMin() {
+        return min;
+    }
+
+    /**
+     * Sets the smallest value.
+     *
+     * @param min The minimum to set
+     */
+    public void setMin(Double min) {
+        this.min = min;
+    }
+
+    /**
+     * Returns the biggest value.
+     *
+     * @return The maximum
+     */
+    public Double getMax() {
+        return max;
+    }
+
+    /**
+     * Sets the biggest value.
+     *
+     * @param max The maximum to set
+     */
+    public void setMax(Double max) {
+        this.max = max;
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return The count
+     */
+    public Long getCount() {
+        return count;
+    }
+
+    /**
+     * Sets the number of values.
+     *
+     * @param count The count to set
+     */
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    /**
+     * Returns the sum of the values.
+     *
+     * @return The sum
+     */
+    public Double getSum() {
+        return sum;
+    }
+
+    /**
+     * Sets the sum of the values.
+     *
+     * @param sum The sum to set
+     */
+    public void setSum(Double sum) {
+        this.sum = sum;
+    }
+
+    /**
+     * Returns the oldest value.
+     *
+     * @return The first value
+     */
+    public Double getFirst() {
+        return first;
+    }
+
+    /**
+     * Sets the oldest value.
+     *
+     * @param first The first value to set
+     */
+    public void setFirst(Double first) {
+        this.first = first;
+    }
+
+    /**
+     * Returns the most recent value.
+     *
+     * @return The last value
+     */
+    public Double getLast() {
+        return last;
+    }
+
+    /**
+     * Sets the most recent value.
+     *
+     * @param last The last value to set
+     */
+    public void setLast(Double last) {
+        this.last = last;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values, if available.
+     *
+     * @return The standard deviation
+     */
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Sets the sample standard deviation of the values.
+     *
+     * @param standardDeviation The standard deviation to set
+     */
+    public void setStandardDeviation(Double standardDeviation) {
+        this.standardDeviation = standardDeviation;
+    }
+}
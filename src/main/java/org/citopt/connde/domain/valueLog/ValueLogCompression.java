@@ -0,0 +1,112 @@
+package org.citopt.connde.domain.valueLog;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Objects of this class hold the settings for the lossy compression of value logs which are received for components
+ * of a certain adapter. They are embedded into the adapter documents.
+ */
+@ApiModel(description = "Settings for the lossy compression of received value logs")
+public class ValueLogCompression {
+    @ApiModelProperty(notes = "Compression mode to apply", example = "ABSOLUTE_DEADBAND")
+    private ValueLogCompressionMode mode = ValueLogCompressionMode.NONE;
+
+    @ApiModelProperty(notes = "Tolerated deviation (absolute value or fraction of the last value, depending on the mode)", example = "0.5")
+    private double deviation = 0;
+
+    @ApiModelProperty(notes = "Maximum time gap in seconds after which a value log is forced through (0 for no limit)", example = "300")
+    private long maxGap = 0;
+
+    @ApiModelProperty(notes = "Whether the compression is also applied to the events that are sent to the CEP engine", example = "false")
+    private boolean applyToCEP = false;
+
+    /**
+     * Creates a new compression settings object which does not compress at all.
+     */
+    public ValueLogCompression() {
+    }
+
+    /**
+     * Returns the compression mode.
+     *
+     * @return The compression mode
+     */
+    public ValueLogCompressionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the compression mode.
+     *
+     * @param mode The compression mode to set
+     */
+    public void setMode(ValueLogCompressionMode mode) {
+        this.mode = (mode == null) ? ValueLogCompressionMode.NONE : mode;
+    }
+
+    /**
+     * Returns the tolerated deviation of values.
+     *
+     * @return The deviation
+     */
+    public double getDeviation() {
+        return deviation;
+    }
+
+    /**
+     * Sets the tolerated deviation of values.
+     *
+     * @param deviation The deviation to set
+     */
+    public void setDeviation(double deviation) {
+        this.deviation = Math.abs(deviation);
+    }
+
+    /**
+     * Returns the maximum time gap in seconds after which a value log is forced through.
+     *
+     * @return The maximum gap in seconds
+     */
+    public long getMaxGap() {
+        return maxGap;
+    }
+
+    /**
+     * Sets the maximum time gap in seconds after which a value log is forced through.
+     *
+     * @param maxGap The maximum gap in seconds to set (0 for no limit)
+     */
+    public void setMaxGap(long maxGap) {
+        this.maxGap = Math.max(0, maxGap);
+    }
+
+    /**
+     * Returns whether the compression is also applied to events that are sent to the CEP engine.
+     *
+     * @return True, if the compression applies to CEP; false otherwise
+     */
+    public boolean isApplyToCEP() {
+        return applyToCEP;
+    }
+
+    /**
+     * Sets whether the compression is also applied to events that are sent to the CEP engine.
+     *
+     * @param applyToCEP True, if the compression applies to CEP; false otherwise
+     */
+    public void setApplyToCEP(boolean applyToCEP) {
+        this.applyToCEP = applyToCEP;
+    }
+
+    /**
+     * Returns whether the settings actually require any compression.
+     *
+     * @return True, if compression is enabled; false otherwise
+     */
+    @JsonIgnore
+    public boolean isEnabled() {
+        return mode != ValueLogCompressionMode.NONE;
+    }
+}
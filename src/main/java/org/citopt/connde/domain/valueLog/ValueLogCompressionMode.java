@@ -0,0 +1,14 @@
+package org.citopt.connde.domain.valueLog;
+
+/**
+ * Enumeration of lossy compression modes that can be applied to incoming value logs before they are stored.
+ * <p>
+ * NONE: Every value log is passed through
+ * ABSOLUTE_DEADBAND: Value logs are only passed if they differ from the last passed value by more than the deviation
+ * RELATIVE_DEADBAND: Like ABSOLUTE_DEADBAND, but the deviation is interpreted as fraction of the last passed value
+ * SWINGING_DOOR: Swinging door trending; value logs are only passed if they cannot be linearly interpolated
+ * from the neighbouring passed value logs within the deviation
+ */
+public enum ValueLogCompressionMode {
+    NONE, ABSOLUTE_DEADBAND, RELATIVE_DEADBAND, SWINGING_DOOR
+}
@@ -6,6 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -14,4 +15,7 @@ import java.util.List;
 @RepositoryRestResource(collectionResourceRel = "testing", path = "testing")
 public interface TestRepository extends MongoRepository<Testing, String> {
     List<Testing> findAllByTriggerId(@Param("trigger.id") String triggerId);
+
+    List<Testing> findAllByTriggerIdAndTimeBetween(@Param("trigger.id") String triggerId, @Param("from") Date from,
+                                                   @Param("to") Date to);
 }
\ No newline at end of file
@@ -2,8 +2,10 @@ package org.citopt.connde.repository;
 
 import org.citopt.connde.InfluxDBConfiguration;
 import org.citopt.connde.domain.valueLog.ValueLog;
+import org.citopt.connde.domain.valueLog.ValueLogAggregate;
 import org.influxdb.InfluxDB;
 import org.influxdb.dto.Query;
+import org.influxdb.dto.QueryResult;
 import org.influxdb.impl.InfluxDBMapper;
 import org.influxdb.querybuilder.SelectQueryImpl;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import static org.influxdb.querybuilder.BuiltQuery.QueryBuilder.*;
 
@@ -28,6 +34,9 @@ public class ValueLogRepository {
     //Derived mapper for mapping value log objects
     private InfluxDBMapper influxDBMapper;
 
+    //Start of the time range in epoch seconds from which on the hourly rollups are complete (null if unavailable)
+    private volatile Long rollupStart = null;
+
     /**
      * Instantiates the repository by passing a reference to the InfluxDB database bean
      * that is supposed to be used (auto-wired).
@@ -40,6 +49,21 @@ public class ValueLogRepository {
 
         //Create object mapper from influxDB instance
         this.influxDBMapper = new InfluxDBMapper(influxDB);
+
+        //Set up the hourly rollups
+        initializeRollups();
+    }
+
+    /**
+     * Returns the point in time from which on the hourly rollups of the value logs are complete. Rollups are only
+     * computed for value logs that were written since the rollups were set up, since continuous queries are not
+     * applied to older data.
+     *
+     * @return The start of the rollups or null, if no rollups are available
+     */
+    public Instant getRollupStart() {
+        Long start = rollupStart;
+        return (start == null) ? null : Instant.ofEpochSecond(start);
     }
 
     /**
@@ -134,6 +158,292 @@ public class ValueLogRepository {
         return new PageImpl<>(valueLogs, pageable, valueLogs.size());
     }
 
+    /**
+     * Computes aggregates of the value logs that match a certain id reference of a component within a given time
+     * range, grouped by time buckets of a certain duration. The aggregation is performed by the database. Optionally,
+     * the hourly rollups may be used instead of the raw value logs; in this case, the bucket duration must be
+     * a multiple of the rollup interval and the time range must not start before the rollups (see
+     * {@link #getRollupStart()}).
+     *
+     * @param idref      The idref to match
+     * @param from       The inclusive start of the time range
+     * @param to         The exclusive end of the time range
+     * @param bucket     The duration of the time buckets as InfluxQL duration literal (e.g. "1h")
+     * @param fill       The fill policy for empty buckets as InfluxQL fill option (e.g. "none", "previous" or "0")
+     * @param useRollups True, if the hourly rollups are supposed to be used; false otherwise
+     * @return The list of aggregates, one per time bucket
+     */
+    public List<ValueLogAggregate> findAggregatesByIdRef(String idref, Instant from, Instant to, String bucket,
+                                                         String fill, boolean useRollups) {
+        //Sanity checks
+        if ((idref == null) || idref.isEmpty()) {
+            throw new IllegalArgumentException("Idref must not be null or empty.");
+        } else if ((from == null) || (to == null)) {
+            throw new IllegalArgumentException("Time range must not be null.");
+        } else if ((bucket == null) || bucket.isEmpty()) {
+            throw new IllegalArgumentException("Bucket duration must not be null or empty.");
+        } else if ((fill == null) || fill.isEmpty()) {
+            throw new IllegalArgumentException("Fill policy must not be null or empty.");
+        }
+
+        //Build select clause, the rollups need to be aggregated again and are grouped by the component tag
+        String selectClause;
+        String measurementReference;
+        String idrefKey;
+        if (useRollups) {
+            selectClause = "SELECT SUM(\"sum\") / SUM(\"count\") AS mean, MIN(\"min\") AS min, MAX(\"max\") AS max, " +
+                    "SUM(\"count\") AS count, SUM(\"sum\") AS sum, FIRST(\"first\") AS first, LAST(\"last\") AS last";
+            measurementReference = getMeasurementReference(InfluxDBConfiguration.ROLLUP_MEASUREMENT_NAME);
+            idrefKey = InfluxDBConfiguration.COMPONENT_TAG_NAME;
+        } else {
+            selectClause = "SELECT MEAN(value) AS mean, MIN(value) AS min, MAX(value) AS max, COUNT(value) AS count, " +
+                    "SUM(value) AS sum, FIRST(value) AS first, LAST(value) AS last";
+            measurementReference = getMeasurementReference();
+            idrefKey = "idref";
+        }
+
+        //Build query
+        String queryString = selectClause + " FROM " + measurementReference +
+                " WHERE " + idrefKey + "='" + idref.replace("'", "\\'") + "'" +
+                " AND time >= " + from.getEpochSecond() + "s AND time < " + to.getEpochSecond() + "s" +
+                " GROUP BY time(" + bucket + ") fill(" + fill + ")";
+        Query query = new Query(queryString, InfluxDBConfiguration.DATABASE_NAME);
+
+        //Execute query with epoch seconds as time format
+        QueryResult queryResult = influxDB.query(query, TimeUnit.SECONDS);
+
+        //Convert result
+        return toAggregates(queryResult);
+    }
+
+    /**
+     * Computes a single summary aggregate (including the sample standard deviation) of all value logs that match
+     * a certain id reference of a component within an optional time range. The aggregation is performed by
+     * the database.
+     *
+     * @param idref The idref to match
+     * @param from  The inclusive start of the time range (null for unbounded)
+     * @param to    The exclusive end of the time range (null for unbounded)
+     * @return The summary aggregate or null, if no value logs are available
+     */
+    public ValueLogAggregate findSummaryByIdRef(String idref, Instant from, Instant to) {
+        //Sanity check
+        if ((idref == null) || idref.isEmpty()) {
+            throw new IllegalArgumentException("Idref must not be null or empty.");
+        }
+
+        //Build query
+        StringBuilder queryBuilder = new StringBuilder("SELECT MEAN(value) AS mean, MIN(value) AS min, " +
+                "MAX(value) AS max, COUNT(value) AS count, SUM(value) AS sum, FIRST(value) AS first, " +
+                "LAST(value) AS last, STDDEV(value) AS stddev FROM ");
+        queryBuilder.append(getMeasurementReference());
+        queryBuilder.append(" WHERE idref='").append(idref.replace("'", "\\'")).append("'");
+        if (from != null) {
+            queryBuilder.append(" AND time >= ").append(from.getEpochSecond()).append("s");
+        }
+        if (to != null) {
+            queryBuilder.append(" AND time < ").append(to.getEpochSecond()).append("s");
+        }
+        Query query = new Query(queryBuilder.toString(), InfluxDBConfiguration.DATABASE_NAME);
+
+        //Execute query with epoch seconds as time format
+        List<ValueLogAggregate> aggregates = toAggregates(influxDB.query(query, TimeUnit.SECONDS));
+
+        //Check if value logs were available
+        if (aggregates.isEmpty()) {
+            return null;
+        }
+        return aggregates.get(0);
+    }
+
+    /**
+     * Streams the values of all value logs that match a certain id reference of a component within a time range
+     * in ascending order of time to a given consumer. The value logs are retrieved in chunks of a given size, so that
+     * the full series is never materialized in memory.
+     *
+     * @param idref     The idref to match
+     * @param from      The inclusive start of the time range
+     * @param to        The exclusive end of the time range
+     * @param chunkSize The maximum number of value logs to retrieve per query
+     * @param consumer  The consumer that is called with the time (epoch milliseconds) and value of each value log
+     */
+    public void streamValuesByIdRef(String idref, Instant from, Instant to, int chunkSize,
+                                    BiConsumer<Long, Double> consumer) {
+        //Sanity check
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null.");
+        }
+
+        //Pass all values of the cursor to the consumer
+        ValueCursor cursor = openValueCursorByIdRef(idref, from, to, chunkSize);
+        while (cursor.next()) {
+            consumer.accept(cursor.getTime(), cursor.getValue());
+        }
+    }
+
+    /**
+     * Opens a cursor over the values of all value logs that match a certain id reference of a component within
+     * a time range in ascending order of time. The value logs are retrieved lazily in chunks of a given size while
+     * the cursor is advanced, so that the full series is never materialized in memory and multiple series can be
+     * merged by their time.
+     *
+     * @param idref     The idref to match
+     * @param from      The inclusive start of the time range
+     * @param to        The exclusive end of the time range
+     * @param chunkSize The maximum number of value logs to retrieve per query
+     * @return The cursor, positioned before the first value
+     */
+    public ValueCursor openValueCursorByIdRef(String idref, Instant from, Instant to, int chunkSize) {
+        //Sanity checks
+        if ((idref == null) || idref.isEmpty()) {
+            throw new IllegalArgumentException("Idref must not be null or empty.");
+        } else if ((from == null) || (to == null)) {
+            throw new IllegalArgumentException("Time range must not be null.");
+        } else if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+
+        String baseQuery = "SELECT value FROM " + getMeasurementReference() +
+                " WHERE idref='" + idref.replace("'", "\\'") + "' AND time < " + to.toEpochMilli() + "ms";
+
+        return new ValueCursor(baseQuery, from.toEpochMilli(), chunkSize);
+    }
+
+    /**
+     * Cursor over the values of a series of value logs in ascending order of time. The values are retrieved lazily
+     * in chunks; the position within the series is kept as start time and number of already consumed value logs
+     * at this time, so that value logs with equal times are neither skipped nor repeated.
+     */
+    public class ValueCursor {
+        //Query for the series without the cursor conditions
+        private final String baseQuery;
+        private final int chunkSize;
+
+        //Position of the next chunk: start time and number of already consumed value logs at this time
+        private long cursorTime;
+        private int cursorOffset = 0;
+
+        //Rows of the current chunk as times and values
+        private long[] times = new long[0];
+        private double[] values = new double[0];
+        private int index = -1;
+        private int rows = 0;
+        private boolean exhausted = false;
+
+        /**
+         * Creates a new cursor.
+         *
+         * @param baseQuery The query for the series without the cursor conditions
+         * @param startTime The inclusive start time of the series in epoch milliseconds
+         * @param chunkSize The maximum number of value logs to retrieve per query
+         */
+        private ValueCursor(String baseQuery, long startTime, int chunkSize) {
+            this.baseQuery = baseQuery;
+            this.cursorTime = startTime;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Advances the cursor to the next value log of the series and retrieves the next chunk if necessary.
+         *
+         * @return True, if the cursor points to a value log; false, if the end of the series was reached
+         */
+        public boolean next() {
+            while (true) {
+                //Move within the current chunk
+                if (index + 1 < rows) {
+                    index++;
+                    return true;
+                } else if (exhausted) {
+                    return false;
+                }
+                fetchChunk();
+            }
+        }
+
+        /**
+         * Returns the time of the current value log.
+         *
+         * @return The time in epoch milliseconds
+         */
+        public long getTime() {
+            return times[index];
+        }
+
+        /**
+         * Returns the value of the current value log.
+         *
+         * @return The value
+         */
+        public double getValue() {
+            return values[index];
+        }
+
+        /**
+         * Retrieves the next chunk of value logs from the database.
+         */
+        private void fetchChunk() {
+            //Build query for the next chunk
+            Query query = new Query(baseQuery + " AND time >= " + cursorTime + "ms ORDER BY time ASC LIMIT " +
+                    chunkSize + " OFFSET " + cursorOffset, InfluxDBConfiguration.DATABASE_NAME);
+
+            //Execute query with epoch milliseconds as time format
+            QueryResult queryResult = influxDB.query(query, TimeUnit.MILLISECONDS);
+            if (queryResult.hasError()) {
+                throw new IllegalStateException("Value log query failed: " + queryResult.getError());
+            }
+
+            //Collect all rows of the chunk
+            List<Long> chunkTimes = new ArrayList<>(chunkSize);
+            List<Double> chunkValues = new ArrayList<>(chunkSize);
+            int fetchedRows = 0;
+            for (QueryResult.Result result : queryResult.getResults()) {
+                if (result.hasError()) {
+                    throw new IllegalStateException("Value log query failed: " + result.getError());
+                } else if (result.getSeries() == null) {
+                    continue;
+                }
+
+                for (QueryResult.Series series : result.getSeries()) {
+                    int timeIndex = series.getColumns().indexOf("time");
+                    int valueIndex = series.getColumns().indexOf("value");
+
+                    for (List<Object> row : series.getValues()) {
+                        long time = ((Number) row.get(timeIndex)).longValue();
+                        Number value = (Number) row.get(valueIndex);
+                        fetchedRows++;
+
+                        //Advance cursor
+                        if (time == cursorTime) {
+                            cursorOffset++;
+                        } else {
+                            cursorTime = time;
+                            cursorOffset = 1;
+                        }
+
+                        if (value != null) {
+                            chunkTimes.add(time);
+                            chunkValues.add(value.doubleValue());
+                        }
+                    }
+                }
+            }
+
+            //Replace current chunk
+            rows = chunkTimes.size();
+            times = new long[rows];
+            values = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                times[i] = chunkTimes.get(i);
+                values[i] = chunkValues.get(i);
+            }
+            index = -1;
+
+            //Stop if the chunk was incomplete
+            exhausted = fetchedRows < chunkSize;
+        }
+    }
+
     public void deleteByIdRef(String idref) {
         //TODO Does not work
         //Sanity check
@@ -150,6 +460,150 @@ public class ValueLogRepository {
         influxDB.query(query);
     }
 
+    /**
+     * Creates the continuous query that computes the hourly rollups of the value logs per component and determines
+     * the point in time from which on the rollups are complete. Since the rollups of the first hour may only cover
+     * part of the value logs, they are complete from the hour after the first rollup on.
+     */
+    private void initializeRollups() {
+        String database = InfluxDBConfiguration.DATABASE_NAME;
+
+        //Discard previous rollups that were not grouped by component
+        try {
+            influxDB.query(new Query("DROP CONTINUOUS QUERY " + InfluxDBConfiguration.LEGACY_ROLLUP_QUERY_NAME +
+                    " ON " + database, database));
+            influxDB.query(new Query("DROP MEASUREMENT \"" +
+                    InfluxDBConfiguration.LEGACY_ROLLUP_MEASUREMENT_NAME + "\"", database));
+        } catch (Exception ignored) {
+            //Previous rollups do not exist
+        }
+
+        try {
+            //Create continuous query for computing hourly rollups of the value logs
+            QueryResult createResult = influxDB.query(new Query("CREATE CONTINUOUS QUERY " +
+                    InfluxDBConfiguration.ROLLUP_QUERY_NAME + " ON " + database + " BEGIN SELECT MEAN(value) AS mean," +
+                    " MIN(value) AS min, MAX(value) AS max, COUNT(value) AS count, SUM(value) AS sum," +
+                    " FIRST(value) AS first, LAST(value) AS last INTO " +
+                    getMeasurementReference(InfluxDBConfiguration.ROLLUP_MEASUREMENT_NAME) + " FROM " +
+                    getMeasurementReference() + " GROUP BY time(" + InfluxDBConfiguration.ROLLUP_INTERVAL + "), " +
+                    InfluxDBConfiguration.COMPONENT_TAG_NAME + " END", database));
+            checkResult(createResult);
+
+            //Find the first rollup
+            Query firstQuery = new Query("SELECT FIRST(\"count\") FROM " +
+                    getMeasurementReference(InfluxDBConfiguration.ROLLUP_MEASUREMENT_NAME), database);
+            QueryResult firstResult = influxDB.query(firstQuery, TimeUnit.SECONDS);
+            checkResult(firstResult);
+            Long firstRollup = null;
+            for (QueryResult.Result result : firstResult.getResults()) {
+                if (result.getSeries() == null) {
+                    continue;
+                }
+                for (QueryResult.Series series : result.getSeries()) {
+                    for (List<Object> row : series.getValues()) {
+                        firstRollup = ((Number) row.get(series.getColumns().indexOf("time"))).longValue();
+                    }
+                }
+            }
+
+            //Rollups are complete from the hour after the first rollup or, if none exists yet, after the current hour
+            long interval = InfluxDBConfiguration.ROLLUP_INTERVAL_SECONDS;
+            long firstInterval = (firstRollup != null) ? firstRollup :
+                    Math.floorDiv(Instant.now().getEpochSecond(), interval) * interval;
+            rollupStart = firstInterval + interval;
+        } catch (Exception e) {
+            System.err.println("Failed to set up the hourly rollups of value logs: " + e.getMessage());
+            rollupStart = null;
+        }
+    }
+
+    /**
+     * Checks a query result for errors.
+     *
+     * @param queryResult The query result to check
+     * @throws IllegalStateException In case the query failed
+     */
+    private static void checkResult(QueryResult queryResult) {
+        if (queryResult.hasError()) {
+            throw new IllegalStateException(queryResult.getError());
+        }
+        for (QueryResult.Result result : queryResult.getResults()) {
+            if (result.hasError()) {
+                throw new IllegalStateException(result.getError());
+            }
+        }
+    }
+
+    /**
+     * Converts the result of an aggregation query into a list of value log aggregates.
+     *
+     * @param queryResult The query result to convert
+     * @return The resulting list of aggregates
+     */
+    private static List<ValueLogAggregate> toAggregates(QueryResult queryResult) {
+        List<ValueLogAggregate> aggregates = new ArrayList<>();
+
+        //Check for errors
+        if (queryResult.hasError()) {
+            throw new IllegalStateException("Aggregation query failed: " + queryResult.getError());
+        }
+
+        //Iterate over all series of all results
+        for (QueryResult.Result result : queryResult.getResults()) {
+            if (result.hasError()) {
+                throw new IllegalStateException("Aggregation query failed: " + result.getError());
+            } else if (result.getSeries() == null) {
+                continue;
+            }
+
+            for (QueryResult.Series series : result.getSeries()) {
+                List<String> columns = series.getColumns();
+
+                //Iterate over all rows, each representing one time bucket
+                for (List<Object> row : series.getValues()) {
+                    ValueLogAggregate aggregate = new ValueLogAggregate();
+                    for (int i = 0; i < columns.size(); i++) {
+                        Number number = (Number) row.get(i);
+                        Double value = (number == null) ? null : number.doubleValue();
+
+                        switch (columns.get(i)) {
+                            case "time":
+                                aggregate.setTime((number == null) ? 0 : number.longValue());
+                                break;
+                            case "mean":
+                                aggregate.setMean(value);
+                                break;
+                            case "min":
+                                aggregate.setMin(value);
+                                break;
+                            case "max":
+                                aggregate.setMax(value);
+                                break;
+                            case "count":
+                                aggregate.setCount((number == null) ? null : number.longValue());
+                                break;
+                            case "sum":
+                                aggregate.setSum(value);
+                                break;
+                            case "first":
+                                aggregate.setFirst(value);
+                                break;
+                            case "last":
+                                aggregate.setLast(value);
+                                break;
+                            case "stddev":
+                                aggregate.setStandardDeviation(value);
+                                break;
+                        }
+                    }
+                    aggregates.add(aggregate);
+                }
+            }
+        }
+
+        return aggregates;
+    }
+
     /**
      * Returns a string that might be used for referencing measurements within queries to the InfluxDB database. It is
      * a fully qualified name consisting out of the database name, the retention policy name and the measurements name.
@@ -157,8 +611,19 @@ public class ValueLogRepository {
      * @return A string containing the measurement reference
      */
     private static String getMeasurementReference() {
+        return getMeasurementReference(InfluxDBConfiguration.MEASUREMENT_NAME);
+    }
+
+    /**
+     * Returns a string that might be used for referencing a certain measurement of the value log database and
+     * retention policy within queries to the InfluxDB database.
+     *
+     * @param measurementName The name of the measurement
+     * @return A string containing the measurement reference
+     */
+    private static String getMeasurementReference(String measurementName) {
         return "\"" + InfluxDBConfiguration.DATABASE_NAME + "\".\"" +
                 InfluxDBConfiguration.RETENTION_POLICY_NAME + "\".\"" +
-                InfluxDBConfiguration.MEASUREMENT_NAME + "\"";
+                measurementName + "\"";
     }
 }
@@ -3,9 +3,13 @@ package org.citopt.connde.service.cep.engine.core;
 import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
 import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
 import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackLane;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQuery;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -39,6 +43,15 @@ public interface CEPEngine {
      */
     void registerEventType(CEPEventType eventType);
 
+    /**
+     * Unregisters an event type from the CEP engine, e.g. because the component it belongs to was deleted.
+     * In addition, the event type is removed from the query validation. Nothing happens if the event type
+     * has not been registered.
+     *
+     * @param eventTypeName The name of the event type to unregister
+     */
+    void unregisterEventType(String eventTypeName);
+
     /**
      * Sends a given event to the CEP engine so that it can be processed. The type of the event
      * that is supposed to be sent to the engine needs to be registered before.
@@ -48,12 +61,72 @@ public interface CEPEngine {
     void sendEvent(CEPEvent event) throws EventNotRegisteredException;
 
     /**
-     * Validates a given query string and checks whether it is syntactically and semantically valid.
+     * Waits until all events that have been sent to the engine so far have been processed, or until
+     * a given timeout has elapsed.
+     *
+     * @param timeout The maximum time to wait in milliseconds
+     * @return True, if all events have been processed; false, if the timeout elapsed before
+     */
+    boolean awaitEventProcessing(long timeout);
+
+    /**
+     * Switches the clock of the engine from the system time to an external clock that starts at a given time and
+     * is only advanced by {@link #advanceTime(long)}. This allows to process historical events as if they were
+     * received at their original times.
+     *
+     * @param startTime The start time of the external clock in epoch milliseconds
+     */
+    void useExternalTime(long startTime);
+
+    /**
+     * Advances the external clock of the engine to a given time, which fires all timers that are due until then.
+     * Times before the current time of the clock are ignored.
+     *
+     * @param time The new time in epoch milliseconds
+     */
+    void advanceTime(long time);
+
+    /**
+     * Switches the clock of the engine back to the system time. All timers that are due until the current system
+     * time fire.
+     */
+    void useInternalTime();
+
+    /**
+     * Validates a given query string and checks whether it is syntactically and semantically valid. The query may
+     * refer to a given collection of event types in addition to the registered ones. These event types are only
+     * made known to the validation and are not registered at the engine.
      *
      * @param queryString The query string to check
+     * @param eventTypes  The additional event types the query may refer to
      * @return The result of the validation wrapped in a validation object
      */
-    CEPQueryValidation validateQuery(String queryString);
+    CEPQueryValidation validateQuery(String queryString, Collection<CEPEventType> eventTypes);
+
+    /**
+     * Creates a new serial lane at the executor for query subscriber callbacks, so that callbacks that do not
+     * originate from queries of the engine can share the executor with them.
+     *
+     * @return The created lane
+     */
+    CEPCallbackLane createCallbackLane();
+
+    /**
+     * Returns statistics about the execution of query subscriber callbacks, such as the number of pending
+     * callbacks and the callback latencies.
+     *
+     * @return The callback statistics
+     */
+    CEPCallbackStats getCallbackStats();
+
+    /**
+     * Returns metrics about the cost of a certain query, such as the number of processed events, the consumed
+     * CPU time and the output rate.
+     *
+     * @param name The name of the query
+     * @return The metrics of the query
+     */
+    CEPQueryMetrics getQueryMetrics(String name);
 
     /**
      * Returns a list of all names of queries that are currently registered at the engine.
@@ -10,14 +10,13 @@ import java.util.Map;
  * are defined in the dedicated event type object of the same name.
  */
 public abstract class CEPEvent {
-    //Map (field name --> field value) of field values that are part of the event
-    private Map<String, Object> fieldValues;
+    //Map (field name --> field value) of field values that are part of the event (created on demand)
+    private Map<String, Object> fieldValues = null;
 
     /**
      * Creates a new CEP event.
      */
     protected CEPEvent() {
-        this.fieldValues = new HashMap<>();
     }
 
     /**
@@ -27,6 +26,11 @@ public abstract class CEPEvent {
      * @param fieldValue The value to set
      */
     public void addValue(String fieldName, Object fieldValue) {
+        //Create map of field values if necessary
+        if (fieldValues == null) {
+            fieldValues = new HashMap<>();
+        }
+
         //Sanity checks
         if ((fieldName == null) || (fieldName.isEmpty())) {
             throw new IllegalArgumentException("Field name must not be null or empty.");
@@ -41,12 +45,32 @@ public abstract class CEPEvent {
     /**
      * Returns a map (field name --> field value) of field values that have been added to this object.
      *
-     * @return The mao of field values
+     * @return The map of field values
      */
     public Map<String, Object> getFieldValues() {
+        if (fieldValues == null) {
+            fieldValues = new HashMap<>();
+        }
         return fieldValues;
     }
 
+    /**
+     * Returns the values of the fields of this event as an array, ordered according to a given field layout.
+     * Fields for which no value has been added are represented as null. Subclasses with a fixed set of fields
+     * may override this method in order to return the values of these fields directly.
+     *
+     * @param fieldNames The names of the fields in the order in which their values are supposed to be returned
+     * @return The array of field values
+     */
+    public Object[] getFieldValueArray(String[] fieldNames) {
+        Map<String, Object> values = getFieldValues();
+        Object[] valueArray = new Object[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            valueArray[i] = values.get(fieldNames[i]);
+        }
+        return valueArray;
+    }
+
     /**
      * Returns the name of the event type to which this event object refers to. Generally,
      * event objects can be considered as instances of event type objects. The link between event objects
@@ -0,0 +1,11 @@
+package org.citopt.connde.service.cep.engine.core.events;
+
+/**
+ * Enumeration of the policies that may be applied in case the queue of pending events of an engine is full.
+ */
+public enum CEPEventOverflowPolicy {
+    //The new event is dropped and counted as such; windows and patterns may miss events
+    DROP,
+    //The thread that sends the event is blocked until space becomes available (backpressure)
+    BLOCK
+}
@@ -0,0 +1,11 @@
+package org.citopt.connde.service.cep.engine.core.events;
+
+/**
+ * Enumeration of the representations in which events of a certain event type may be passed to the CEP engine.
+ */
+public enum CEPEventRepresentation {
+    //Events are passed as maps (field name --> field value)
+    MAP,
+    //Events are passed as arrays of field values in the order in which the fields were added to the event type
+    OBJECT_ARRAY
+}
@@ -1,8 +1,7 @@
 package org.citopt.connde.service.cep.engine.core.events;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Objects of this class represent definitions of event types that might be registered at the CEP engine.
@@ -14,18 +13,35 @@ public class CEPEventType {
     private String name;
     //Map (field name --> data type) of fields that are part of instances of this event type
     private Map<String, CEPPrimitiveDataTypes> fields;
+    //Representation in which instances of this event type are passed to the engine
+    private CEPEventRepresentation representation = CEPEventRepresentation.MAP;
+
+    //Precompiled field names and reference classes for checking instances (null if not compiled yet)
+    private volatile String[] checkFieldNames = null;
+    private Class[] checkReferenceClasses = null;
 
     /**
-     * Creates a new event type object with a given name.
+     * Creates a new event type object with a given name whose instances are represented as maps.
      *
      * @param name The name of the event type
      */
     public CEPEventType(String name) {
-        //Set name
+        this(name, CEPEventRepresentation.MAP);
+    }
+
+    /**
+     * Creates a new event type object with a given name and a representation for its instances.
+     *
+     * @param name           The name of the event type
+     * @param representation The representation of the instances
+     */
+    public CEPEventType(String name, CEPEventRepresentation representation) {
+        //Set name and representation
         setName(name);
+        setRepresentation(representation);
 
-        //Set empty map of fields
-        this.fields = new HashMap<>();
+        //Set empty map of fields, preserving the order in which fields are added
+        this.fields = new LinkedHashMap<>();
     }
 
     /**
@@ -47,6 +63,10 @@ public class CEPEventType {
 
         //Add name and data type to field map
         fields.put(fieldName, dataType);
+
+        //Invalidate precompiled checker
+        checkFieldNames = null;
+        checkReferenceClasses = null;
     }
 
     /**
@@ -69,25 +89,21 @@ public class CEPEventType {
             return false;
         }
 
+        //Compile checker if necessary
+        if (checkFieldNames == null) {
+            compileChecker();
+        }
+
         //Get field values of the provided event
         Map<String, Object> fieldValues = event.getFieldValues();
 
         //Iterate over all defined fields of this event type
-        Set<String> fieldNames = fields.keySet();
-        for (String fieldName : fieldNames) {
-            //Event object must contain at least fields of the same name as those defined in the event type
-            if (!fieldValues.containsKey(fieldName)) {
-                return false;
-            }
-
+        for (int i = 0; i < checkFieldNames.length; i++) {
             //Get value of the field
-            Object fieldValue = fieldValues.get(fieldName);
-
-            //Get reference class of the field as defined in the corresponding event type
-            Class referenceClass = fields.get(fieldName).getReferenceClass();
+            Object fieldValue = fieldValues.get(checkFieldNames[i]);
 
-            //The value that is set in the event object must match the type as defined in the event type
-            if (!referenceClass.isInstance(fieldValue)) {
+            //Event object must contain a value of the type as defined in the event type for each field
+            if ((fieldValue == null) || (!checkReferenceClasses[i].isInstance(fieldValue))) {
                 return false;
             }
         }
@@ -96,6 +112,25 @@ public class CEPEventType {
         return true;
     }
 
+    /**
+     * Precompiles the field definitions of this event type into arrays of field names and reference classes,
+     * so that instances can be checked without iterating over the field map.
+     */
+    private void compileChecker() {
+        String[] fieldNames = new String[fields.size()];
+        Class[] referenceClasses = new Class[fields.size()];
+
+        int i = 0;
+        for (Map.Entry<String, CEPPrimitiveDataTypes> entry : fields.entrySet()) {
+            fieldNames[i] = entry.getKey();
+            referenceClasses[i] = entry.getValue().getReferenceClass();
+            i++;
+        }
+
+        this.checkReferenceClasses = referenceClasses;
+        this.checkFieldNames = fieldNames;
+    }
+
     /**
      * Returns the name of the event type.
      *
@@ -118,6 +153,42 @@ public class CEPEventType {
         this.name = name;
     }
 
+    /**
+     * Returns the names of all fields of this event type in the order in which they were added. For event types
+     * with an object array representation, this order defines the layout of the arrays.
+     *
+     * @return The array of field names
+     */
+    public String[] getFieldNames() {
+        //Compile checker if necessary
+        if (checkFieldNames == null) {
+            compileChecker();
+        }
+        return checkFieldNames;
+    }
+
+    /**
+     * Returns the representation in which instances of this event type are passed to the engine.
+     *
+     * @return The representation
+     */
+    public CEPEventRepresentation getRepresentation() {
+        return representation;
+    }
+
+    /**
+     * Sets the representation in which instances of this event type are passed to the engine.
+     *
+     * @param representation The representation to set
+     */
+    public void setRepresentation(CEPEventRepresentation representation) {
+        //Sanity check
+        if (representation == null) {
+            throw new IllegalArgumentException("Representation must not be null.");
+        }
+        this.representation = representation;
+    }
+
     /**
      * Returns a map (field name --> data type) of fields that need to be part of instances of this event type.
      *
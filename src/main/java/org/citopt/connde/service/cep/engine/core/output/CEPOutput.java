@@ -1,5 +1,6 @@
 package org.citopt.connde.service.cep.engine.core.output;
 
+import com.espertech.esper.client.EventBean;
 import com.espertech.esper.event.map.MapEventBean;
 
 import java.util.HashMap;
@@ -60,6 +61,14 @@ public class CEPOutput {
                 MapEventBean mapEventBean = (MapEventBean) value;
                 Map propertiesMap = mapEventBean.getProperties();
                 outputMap.put(key, propertiesMap);
+            } else if (value instanceof EventBean) {
+                //Replace other event beans (e.g. object array events) with a map of their properties
+                EventBean eventBean = (EventBean) value;
+                Map<String, Object> propertiesMap = new HashMap<>();
+                for (String propertyName : eventBean.getEventType().getPropertyNames()) {
+                    propertiesMap.put(propertyName, eventBean.get(propertyName));
+                }
+                outputMap.put(key, propertiesMap);
             }
         }
 
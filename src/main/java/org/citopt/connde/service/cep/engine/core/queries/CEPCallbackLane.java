@@ -0,0 +1,16 @@
+package org.citopt.connde.service.cep.engine.core.queries;
+
+/**
+ * Interface for serial lanes of the executor for query subscriber callbacks. The callbacks of a lane are executed
+ * one after another in the order of their submission, while different lanes share the threads of the executor.
+ */
+public interface CEPCallbackLane {
+    /**
+     * Submits a callback for execution within this lane. Depending on the overflow policy of the executor,
+     * the calling thread may be blocked until the callback can be queued.
+     *
+     * @param callback The callback to execute
+     * @return True, if the callback was queued; false, if it was dropped
+     */
+    boolean submit(Runnable callback);
+}
@@ -0,0 +1,11 @@
+package org.citopt.connde.service.cep.engine.core.queries;
+
+/**
+ * Enumeration of the policies that may be applied in case the queue of pending query subscriber callbacks is full.
+ */
+public enum CEPCallbackOverflowPolicy {
+    //The new callback is dropped and counted as such
+    DROP,
+    //The engine thread that delivers the callback is blocked until space becomes available (backpressure)
+    BLOCK
+}
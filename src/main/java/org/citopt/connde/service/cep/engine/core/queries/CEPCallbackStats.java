@@ -0,0 +1,153 @@
+package org.citopt.connde.service.cep.engine.core.queries;
+
+/**
+ * Objects of this class hold statistics about the execution of query subscriber callbacks by a CEP engine, such as
+ * the number of pending callbacks and the callback latencies. They can be used as DTOs in order to retrieve
+ * the statistics to the client.
+ */
+public class CEPCallbackStats {
+    //Queue state
+    private int queueDepth = 0;
+    private int queueCapacity = 0;
+
+    //Callback counters
+    private long executedCallbacks = 0;
+    private long droppedCallbacks = 0;
+    private long failedCallbacks = 0;
+
+    //Latencies (from delivery by the engine until completion of the callback) in milliseconds
+    private double averageLatency = 0;
+    private double maximumLatency = 0;
+
+    /**
+     * Creates a new and empty statistics object.
+     */
+    public CEPCallbackStats() {
+    }
+
+    /**
+     * Returns the number of callbacks that are currently pending for execution.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Sets the number of callbacks that are currently pending for execution.
+     *
+     * @param queueDepth The queue depth
+     */
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Returns the maximum number of callbacks that may be pending for execution.
+     *
+     * @return The queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the maximum number of callbacks that may be pending for execution.
+     *
+     * @param queueCapacity The queue capacity
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Returns the number of callbacks that have been executed.
+     *
+     * @return The number of executed callbacks
+     */
+    public long getExecutedCallbacks() {
+        return executedCallbacks;
+    }
+
+    /**
+     * Sets the number of callbacks that have been executed.
+     *
+     * @param executedCallbacks The number of executed callbacks
+     */
+    public void setExecutedCallbacks(long executedCallbacks) {
+        this.executedCallbacks = executedCallbacks;
+    }
+
+    /**
+     * Returns the number of callbacks that have been dropped due to a full queue.
+     *
+     * @return The number of dropped callbacks
+     */
+    public long getDroppedCallbacks() {
+        return droppedCallbacks;
+    }
+
+    /**
+     * Sets the number of callbacks that have been dropped due to a full queue.
+     *
+     * @param droppedCallbacks The number of dropped callbacks
+     */
+    public void setDroppedCallbacks(long droppedCallbacks) {
+        this.droppedCallbacks = droppedCallbacks;
+    }
+
+    /**
+     * Returns the number of callbacks that terminated with an exception.
+     *
+     * @return The number of failed callbacks
+     */
+    public long getFailedCallbacks() {
+        return failedCallbacks;
+    }
+
+    /**
+     * Sets the number of callbacks that terminated with an exception.
+     *
+     * @param failedCallbacks The number of failed callbacks
+     */
+    public void setFailedCallbacks(long failedCallbacks) {
+        this.failedCallbacks = failedCallbacks;
+    }
+
+    /**
+     * Returns the average latency of the executed callbacks in milliseconds.
+     *
+     * @return The average latency
+     */
+    public double getAverageLatency() {
+        return averageLatency;
+    }
+
+    /**
+     * Sets the average latency of the executed callbacks in milliseconds.
+     *
+     * @param averageLatency The average latency
+     */
+    public void setAverageLatency(double averageLatency) {
+        this.averageLatency = averageLatency;
+    }
+
+    /**
+     * Returns the maximum latency of the executed callbacks in milliseconds.
+     *
+     * @return The maximum latency
+     */
+    public double getMaximumLatency() {
+        return maximumLatency;
+    }
+
+    /**
+     * Sets the maximum latency of the executed callbacks in milliseconds.
+     *
+     * @param maximumLatency The maximum latency
+     */
+    public void setMaximumLatency(double maximumLatency) {
+        this.maximumLatency = maximumLatency;
+    }
+}
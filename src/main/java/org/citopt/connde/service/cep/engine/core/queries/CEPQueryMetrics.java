@@ -0,0 +1,203 @@
+package org.citopt.connde.service.cep.engine.core.queries;
+
+/**
+ * Objects of this class hold metrics about the cost of a certain query within a CEP engine, such as the number
+ * of processed events, the consumed CPU time and the output rate. Totals are accumulated since the registration
+ * of the query, whereas rates refer to the last reporting interval of the engine. They can be used as DTOs
+ * in order to retrieve the metrics to the client.
+ */
+public class CEPQueryMetrics {
+    //Name of the query
+    private String queryName = null;
+
+    //Totals since the registration of the query (times in milliseconds)
+    private long eventsProcessed = 0;
+    private long outputEvents = 0;
+    private double cpuTime = 0;
+    private double wallTime = 0;
+
+    //Rates within the last reporting interval (per second)
+    private double eventRate = 0;
+    private double outputRate = 0;
+    private double cpuLoad = 0;
+
+    //Time of the last report (epoch milliseconds)
+    private long lastUpdate = 0;
+
+    /**
+     * Creates a new and empty metrics object.
+     */
+    public CEPQueryMetrics() {
+    }
+
+    /**
+     * Creates a new and empty metrics object for a certain query.
+     *
+     * @param queryName The name of the query
+     */
+    public CEPQueryMetrics(String queryName) {
+        this.queryName = queryName;
+    }
+
+    /**
+     * Returns the name of the query.
+     *
+     * @return The query name
+     */
+    public String getQueryName() {
+        return queryName;
+    }
+
+    /**
+     * Sets the name of the query.
+     *
+     * @param queryName The query name
+     */
+    public void setQueryName(String queryName) {
+        this.queryName = queryName;
+    }
+
+    /**
+     * Returns the total number of events the query processed.
+     *
+     * @return The number of processed events
+     */
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    /**
+     * Sets the total number of events the query processed.
+     *
+     * @param eventsProcessed The number of processed events
+     */
+    public void setEventsProcessed(long eventsProcessed) {
+        this.eventsProcessed = eventsProcessed;
+    }
+
+    /**
+     * Returns the total number of output events the query produced.
+     *
+     * @return The number of output events
+     */
+    public long getOutputEvents() {
+        return outputEvents;
+    }
+
+    /**
+     * Sets the total number of output events the query produced.
+     *
+     * @param outputEvents The number of output events
+     */
+    public void setOutputEvents(long outputEvents) {
+        this.outputEvents = outputEvents;
+    }
+
+    /**
+     * Returns the total CPU time the query consumed in milliseconds.
+     *
+     * @return The CPU time
+     */
+    public double getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Sets the total CPU time the query consumed in milliseconds.
+     *
+     * @param cpuTime The CPU time
+     */
+    public void setCpuTime(double cpuTime) {
+        this.cpuTime = cpuTime;
+    }
+
+    /**
+     * Returns the total wall time the query consumed in milliseconds.
+     *
+     * @return The wall time
+     */
+    public double getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * Sets the total wall time the query consumed in milliseconds.
+     *
+     * @param wallTime The wall time
+     */
+    public void setWallTime(double wallTime) {
+        this.wallTime = wallTime;
+    }
+
+    /**
+     * Returns the number of processed events per second within the last reporting interval.
+     *
+     * @return The event rate
+     */
+    public double getEventRate() {
+        return eventRate;
+    }
+
+    /**
+     * Sets the number of processed events per second within the last reporting interval.
+     *
+     * @param eventRate The event rate
+     */
+    public void setEventRate(double eventRate) {
+        this.eventRate = eventRate;
+    }
+
+    /**
+     * Returns the number of output events per second within the last reporting interval.
+     *
+     * @return The output rate
+     */
+    public double getOutputRate() {
+        return outputRate;
+    }
+
+    /**
+     * Sets the number of output events per second within the last reporting interval.
+     *
+     * @param outputRate The output rate
+     */
+    public void setOutputRate(double outputRate) {
+        this.outputRate = outputRate;
+    }
+
+    /**
+     * Returns the CPU time in milliseconds per second that the query consumed within the last reporting interval.
+     *
+     * @return The CPU load
+     */
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * Sets the CPU time in milliseconds per second that the query consumed within the last reporting interval.
+     *
+     * @param cpuLoad The CPU load
+     */
+    public void setCpuLoad(double cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+
+    /**
+     * Returns the time of the last metrics report in epoch milliseconds.
+     *
+     * @return The time of the last update
+     */
+    public long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * Sets the time of the last metrics report in epoch milliseconds.
+     *
+     * @param lastUpdate The time of the last update
+     */
+    public void setLastUpdate(long lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+}
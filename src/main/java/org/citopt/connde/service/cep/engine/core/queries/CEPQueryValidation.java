@@ -1,13 +1,18 @@
 package org.citopt.connde.service.cep.engine.core.queries;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Objects of this class represent the output of query validation processes. They consist out of the checked query,
  * a boolean holding the result and an optional error message that describes the problem with the query.
+ * In addition, warnings may be attached that describe potential problems of valid queries.
  */
 public class CEPQueryValidation {
     private String query;
     private boolean isValid;
     private String errorMessage;
+    private List<String> warnings = new ArrayList<>();
 
     /**
      * Creates a new validation object by passing a query and its validation result.
@@ -102,4 +107,35 @@ public class CEPQueryValidation {
     public boolean hasErrorMessage() {
         return this.errorMessage != null;
     }
+
+    /**
+     * Returns the warnings that describe potential problems with the query.
+     *
+     * @return The list of warnings
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Adds a warning that describes a potential problem with the query.
+     *
+     * @param warning The warning to add
+     */
+    public void addWarning(String warning) {
+        //Sanity check
+        if ((warning == null) || warning.isEmpty()) {
+            throw new IllegalArgumentException("Warning must not be null or empty.");
+        }
+        this.warnings.add(warning);
+    }
+
+    /**
+     * Returns whether warnings are available.
+     *
+     * @return True, if warnings are available; false otherwise
+     */
+    public boolean hasWarnings() {
+        return !this.warnings.isEmpty();
+    }
 }
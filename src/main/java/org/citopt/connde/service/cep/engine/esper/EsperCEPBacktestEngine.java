@@ -0,0 +1,177 @@
+package org.citopt.connde.service.cep.engine.esper;
+
+import com.espertech.esper.client.*;
+import com.espertech.esper.client.time.CurrentTimeEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventRepresentation;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
+import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQuerySubscriber;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolated Esper engine for running queries against historical events. In contrast to the regular engine, time
+ * is not taken from the system clock but advanced explicitly by the caller, so that time windows and timers behave
+ * as if the events had been received at their original times, while the events are processed at maximum speed.
+ * Subscribers are notified synchronously on the thread that sends the events or advances the time. Engines of this
+ * kind are supposed to be destroyed after use.
+ */
+public class EsperCEPBacktestEngine {
+    //Prefix for the URIs of the Esper service providers
+    private static final String PROVIDER_URI_PREFIX = "connde-cep-backtest-";
+
+    //Counter for generating unique provider URIs
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    //Internal fields
+    private EPServiceProvider cepService;
+    private EPAdministrator cepAdmin;
+    private EPRuntime cepRuntime;
+
+    //Map (event type name --> event type) of the event types that have been registered at the engine
+    private Map<String, CEPEventType> registeredEventTypes = new HashMap<>();
+
+    //Current time of the engine in epoch milliseconds
+    private long currentTime;
+
+    /**
+     * Creates the engine with an external clock that starts at a given time.
+     *
+     * @param startTime The start time of the clock in epoch milliseconds
+     */
+    public EsperCEPBacktestEngine(long startTime) {
+        //Disable internal timer, so that time is controlled externally
+        Configuration configuration = new Configuration();
+        configuration.getEngineDefaults().getThreading().setInternalTimerEnabled(false);
+
+        //Get and initialize a dedicated CEP service
+        cepService = EPServiceProviderManager.getProvider(PROVIDER_URI_PREFIX + INSTANCE_COUNTER.incrementAndGet(),
+                configuration);
+        cepService.initialize();
+
+        //Get admin and runtime objects
+        cepAdmin = cepService.getEPAdministrator();
+        cepRuntime = cepService.getEPRuntime();
+
+        //Set start time
+        this.currentTime = startTime;
+        cepRuntime.sendEvent(new CurrentTimeEvent(startTime));
+    }
+
+    /**
+     * Registers a new event type at the engine.
+     *
+     * @param eventType The event type to register
+     */
+    public void registerEventType(CEPEventType eventType) {
+        //Sanity checks
+        if (eventType == null) {
+            throw new IllegalArgumentException("Event type object must not be null.");
+        } else if (registeredEventTypes.containsKey(eventType.getName())) {
+            throw new IllegalArgumentException("This event type has already been registered.");
+        }
+
+        cepAdmin.createEPL(EsperCEPEngine.buildSchemaStatement(eventType));
+        registeredEventTypes.put(eventType.getName(), eventType);
+    }
+
+    /**
+     * Creates a query from a given query string and subscribes a subscriber to it that is notified synchronously
+     * in case the query matches.
+     *
+     * @param queryString The query string of the query
+     * @param subscriber  The subscriber to notify
+     */
+    public void createQuery(String queryString, CEPQuerySubscriber subscriber) {
+        //Sanity checks
+        if ((queryString == null) || (queryString.isEmpty())) {
+            throw new IllegalArgumentException("Query string must not be null or empty.");
+        } else if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber must not be null.");
+        }
+
+        //Create statement and notify subscriber directly
+        EPStatement statement = cepAdmin.createEPL(queryString);
+        statement.setSubscriber(new SynchronousDispatcher(subscriber));
+    }
+
+    /**
+     * Advances the clock of the engine to a given time, which fires all timers that are due until then.
+     * Times before the current time are ignored.
+     *
+     * @param time The new time in epoch milliseconds
+     */
+    public void advanceTime(long time) {
+        if (time > currentTime) {
+            currentTime = time;
+            cepRuntime.sendEvent(new CurrentTimeEvent(time));
+        }
+    }
+
+    /**
+     * Sends a given event to the engine at its current time.
+     *
+     * @param event The event to send
+     * @throws EventNotRegisteredException In case the type of the event has not been registered
+     */
+    public void sendEvent(CEPEvent event) throws EventNotRegisteredException {
+        //Look up the matching event type by its name
+        String eventTypeName = event.getEventTypeName();
+        CEPEventType eventType = registeredEventTypes.get(eventTypeName);
+        if (eventType == null) {
+            throw new EventNotRegisteredException("No event type has been registered for event \"" + eventTypeName + "\".");
+        }
+
+        //Send event in the representation of its event type
+        if (eventType.getRepresentation() == CEPEventRepresentation.OBJECT_ARRAY) {
+            cepRuntime.sendEvent(event.getFieldValueArray(eventType.getFieldNames()), eventTypeName);
+        } else {
+            cepRuntime.sendEvent(event.getFieldValues(), eventTypeName);
+        }
+    }
+
+    /**
+     * Returns the current time of the clock of the engine.
+     *
+     * @return The current time in epoch milliseconds
+     */
+    public long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Destroys the engine and releases all its resources.
+     */
+    public void destroy() {
+        cepService.destroy();
+    }
+
+    /**
+     * Dispatcher that converts query results to CEPOutput objects and notifies a subscriber synchronously.
+     */
+    public static class SynchronousDispatcher {
+        private final CEPQuerySubscriber subscriber;
+
+        /**
+         * Creates a new dispatcher for a given subscriber.
+         *
+         * @param subscriber The subscriber to notify
+         */
+        private SynchronousDispatcher(CEPQuerySubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Called in case the query matches the event stream.
+         *
+         * @param resultMap The result of the query
+         */
+        public void update(Map resultMap) {
+            subscriber.onQueryTriggered(new CEPOutput(resultMap));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.citopt.connde.service.cep.engine.esper;
+
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackLane;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackOverflowPolicy;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor for query subscriber callbacks that runs the callbacks on a bounded pool of worker threads, so that
+ * Esper is not blocked. Each query obtains its own serial lane, which guarantees that the callbacks of the query
+ * are executed one after another in the order of their delivery. The total number of pending callbacks is bounded;
+ * in case the limit is reached, new callbacks are either dropped or the delivering thread is blocked, depending
+ * on the configured overflow policy.
+ */
+class EsperCEPCallbackExecutor {
+    //Maximum number of callbacks a lane executes before it yields its worker thread to other lanes
+    private static final int LANE_BATCH_SIZE = 64;
+
+    //Worker threads
+    private final ExecutorService workerPool;
+
+    //Permits for pending callbacks
+    private final Semaphore queuePermits;
+    private final int queueCapacity;
+    private final CEPCallbackOverflowPolicy overflowPolicy;
+
+    //Statistics
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder executedCallbacks = new LongAdder();
+    private final LongAdder droppedCallbacks = new LongAdder();
+    private final LongAdder failedCallbacks = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maximumLatency = new AtomicLong();
+
+    /**
+     * Creates a new callback executor.
+     *
+     * @param numberThreads  The number of worker threads
+     * @param queueCapacity  The maximum number of pending callbacks
+     * @param overflowPolicy The policy to apply in case the maximum number of pending callbacks is reached
+     */
+    EsperCEPCallbackExecutor(int numberThreads, int queueCapacity, CEPCallbackOverflowPolicy overflowPolicy) {
+        //Sanity checks
+        if (numberThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive.");
+        } else if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive.");
+        } else if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy must not be null.");
+        }
+
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.queuePermits = new Semaphore(queueCapacity);
+
+        //Create pool of daemon worker threads
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(numberThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cep-callback-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a new serial lane whose callbacks are executed in order of their submission.
+     *
+     * @return The created lane
+     */
+    Lane createLane() {
+        return new Lane();
+    }
+
+    /**
+     * Returns the current statistics of the executor.
+     *
+     * @return The statistics
+     */
+    CEPCallbackStats getStats() {
+        CEPCallbackStats stats = new CEPCallbackStats();
+        long executed = executedCallbacks.sum();
+
+        stats.setQueueDepth(queueDepth.get());
+        stats.setQueueCapacity(queueCapacity);
+        stats.setExecutedCallbacks(executed);
+        stats.setDroppedCallbacks(droppedCallbacks.sum());
+        stats.setFailedCallbacks(failedCallbacks.sum());
+        stats.setAverageLatency((executed == 0) ? 0 : (totalLatency.sum() / (double) executed) / 1e6);
+        stats.setMaximumLatency(maximumLatency.get() / 1e6);
+        return stats;
+    }
+
+    /**
+     * Obtains a permit for a new pending callback according to the overflow policy.
+     *
+     * @return True, if a permit was obtained; false, if the callback is supposed to be dropped
+     */
+    private boolean acquirePermit() {
+        if (overflowPolicy == CEPCallbackOverflowPolicy.DROP) {
+            return queuePermits.tryAcquire();
+        }
+
+        //Block until a permit becomes available
+        try {
+            queuePermits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Serial lane of callbacks. At most one worker thread executes the callbacks of a lane at a time.
+     */
+    class Lane implements CEPCallbackLane {
+        //Pending callbacks of this lane
+        private final Queue<PendingCallback> pendingCallbacks = new ConcurrentLinkedQueue<>();
+
+        //Whether a worker is currently scheduled for this lane
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * Creates a new lane.
+         */
+        private Lane() {
+        }
+
+        /**
+         * Submits a callback for execution within this lane.
+         *
+         * @param callback The callback to execute
+         * @return True, if the callback was queued; false, if it was dropped
+         */
+        @Override
+        public boolean submit(Runnable callback) {
+            //Obtain permit or drop callback
+            if (!acquirePermit()) {
+                droppedCallbacks.increment();
+                return false;
+            }
+
+            queueDepth.incrementAndGet();
+            pendingCallbacks.add(new PendingCallback(callback, System.nanoTime()));
+            schedule();
+            return true;
+        }
+
+        /**
+         * Schedules the execution of the lane at a worker thread, if not already scheduled.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                workerPool.execute(this::drain);
+            }
+        }
+
+        /**
+         * Executes a batch of pending callbacks of this lane and reschedules the lane if further callbacks remain.
+         */
+        private void drain() {
+            for (int i = 0; i < LANE_BATCH_SIZE; i++) {
+                PendingCallback pendingCallback = pendingCallbacks.poll();
+                if (pendingCallback == null) {
+                    break;
+                }
+                pendingCallback.execute();
+            }
+
+            //Release lane and reschedule it in case callbacks were added in the meantime
+            scheduled.set(false);
+            if (!pendingCallbacks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Callback that waits for its execution, together with the time of its submission.
+     */
+    private class PendingCallback {
+        private final Runnable callback;
+        private final long submissionTime;
+
+        /**
+         * Creates a new pending callback.
+         *
+         * @param callback       The callback to execute
+         * @param submissionTime The submission time in nanoseconds
+         */
+        private PendingCallback(Runnable callback, long submissionTime) {
+            this.callback = callback;
+            this.submissionTime = submissionTime;
+        }
+
+        /**
+         * Executes the callback and updates the statistics.
+         */
+        private void execute() {
+            queueDepth.decrementAndGet();
+            queuePermits.release();
+
+            try {
+                callback.run();
+            } catch (Exception e) {
+                failedCallbacks.increment();
+                System.err.println("Query subscriber callback failed: " + e.getMessage());
+            }
+
+            //Record latency
+            long latency = System.nanoTime() - submissionTime;
+            executedCallbacks.increment();
+            totalLatency.add(latency);
+            maximumLatency.accumulateAndGet(latency, Math::max);
+        }
+    }
+}
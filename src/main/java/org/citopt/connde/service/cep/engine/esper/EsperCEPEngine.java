@@ -1,42 +1,121 @@
 package org.citopt.connde.service.cep.engine.esper;
 
 import com.espertech.esper.client.*;
+import com.espertech.esper.client.metric.StatementMetric;
+import com.espertech.esper.client.time.CurrentTimeEvent;
+import com.espertech.esper.client.time.TimerControlEvent;
 import org.citopt.connde.service.cep.engine.core.CEPEngine;
 import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventRepresentation;
 import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
 import org.citopt.connde.service.cep.engine.core.events.CEPPrimitiveDataTypes;
 import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackLane;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackOverflowPolicy;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This component implements the interface of CEP engines by making use of the
  * CEP engine Esper (http://esper.espertech.com). It provides basic functionality for working with this engine.
  */
 public class EsperCEPEngine implements CEPEngine {
+    //Default settings of the executor for query subscriber callbacks
+    private static final int DEFAULT_CALLBACK_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_CALLBACK_QUEUE_CAPACITY = 10000;
+
+    //Interval between two reports of statement metrics in milliseconds
+    private static final long METRICS_INTERVAL = 10000;
+
     //Internal fields
     private EPServiceProvider cepService;
     private EPAdministrator cepAdmin;
     private EPRuntime cepRuntime;
 
-    //Stores the event types that have been registered at the engine
-    private Set<CEPEventType> registeredEventTypes;
+    //Map (event type name --> event type) of the event types that have been registered at the engine
+    private Map<String, CEPEventType> registeredEventTypes;
+
+    //Map (event type name --> schema statement) of the statements that created the registered event types
+    private Map<String, EPStatement> schemaStatements;
+
+    //Whether sent events are supposed to be checked against their event types (debug mode)
+    private boolean validateEvents;
+
+    //Executor for query subscriber callbacks
+    private EsperCEPCallbackExecutor callbackExecutor;
+
+    //Validator for query strings that works isolated from this engine
+    private EsperCEPQueryValidator queryValidator;
+
+    //Collector for the reported statement metrics
+    private EsperCEPQueryMetricsCollector metricsCollector;
+
+    //Current time of the external clock in epoch milliseconds (-1 = system time is used)
+    private long externalTime = -1;
 
     /**
-     * Creates the component by initializing Esper and the corresponding internal fields.
+     * Creates the component by initializing Esper and the corresponding internal fields. Sent events are
+     * not checked against their event types and the default callback executor settings are used.
      */
     public EsperCEPEngine() {
+        this(false, DEFAULT_CALLBACK_THREADS, DEFAULT_CALLBACK_QUEUE_CAPACITY, CEPCallbackOverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates the component by initializing Esper and the corresponding internal fields.
+     *
+     * @param validateEvents        True, if sent events are supposed to be checked against their event types
+     *                              (debug mode); false otherwise
+     * @param callbackThreads       The number of threads for executing query subscriber callbacks
+     * @param callbackQueueCapacity The maximum number of pending query subscriber callbacks
+     * @param overflowPolicy        The policy to apply if the maximum number of pending callbacks is reached
+     */
+    public EsperCEPEngine(boolean validateEvents, int callbackThreads, int callbackQueueCapacity,
+                          CEPCallbackOverflowPolicy overflowPolicy) {
+        this(null, validateEvents,
+                new EsperCEPCallbackExecutor(callbackThreads, callbackQueueCapacity, overflowPolicy));
+    }
+
+    /**
+     * Creates the component by initializing a certain Esper service provider and the corresponding internal fields.
+     *
+     * @param providerURI      The URI of the Esper service provider to use (null for the default provider)
+     * @param validateEvents   True, if sent events are supposed to be checked against their event types
+     *                         (debug mode); false otherwise
+     * @param callbackExecutor The executor for query subscriber callbacks
+     */
+    EsperCEPEngine(String providerURI, boolean validateEvents, EsperCEPCallbackExecutor callbackExecutor) {
+        this.validateEvents = validateEvents;
+        this.callbackExecutor = callbackExecutor;
+
+        //Enable periodic reporting of statement metrics
+        Configuration configuration = new Configuration();
+        configuration.getEngineDefaults().getMetricsReporting().setEnableMetricsReporting(true);
+        configuration.getEngineDefaults().getMetricsReporting().setStatementInterval(METRICS_INTERVAL);
+
         //Get and initialize CEP service
-        cepService = EPServiceProviderManager.getDefaultProvider();
+        cepService = (providerURI == null) ? EPServiceProviderManager.getDefaultProvider(configuration) :
+                EPServiceProviderManager.getProvider(providerURI, configuration);
         cepService.initialize();
 
         //Get admin and runtime objects
         cepAdmin = cepService.getEPAdministrator();
         cepRuntime = cepService.getEPRuntime();
 
-        //Create empty set of registered event types
-        registeredEventTypes = new HashSet<>();
+        //Create empty map of registered event types
+        registeredEventTypes = new ConcurrentHashMap<>();
+        schemaStatements = new HashMap<>();
+
+        //Create query validator
+        queryValidator = new EsperCEPQueryValidator();
+
+        //Subscribe to the statement metrics
+        metricsCollector = new EsperCEPQueryMetricsCollector(METRICS_INTERVAL);
+        cepAdmin.createEPL("select * from " + StatementMetric.class.getName()).setSubscriber(metricsCollector);
     }
 
     /**
@@ -61,11 +140,14 @@ public class EsperCEPEngine implements CEPEngine {
             throw new IllegalArgumentException("A query with this name is already registered.");
         }
 
+        //Discard metrics of previous queries with the same name
+        metricsCollector.removeMetrics(name);
+
         //Create statement with name and query string
         EPStatement statement = cepAdmin.createEPL(queryString, name);
 
         //Create query object from statement and return
-        return new EsperCEPQuery(statement);
+        return new EsperCEPQuery(statement, callbackExecutor);
     }
 
     /**
@@ -90,7 +172,7 @@ public class EsperCEPEngine implements CEPEngine {
         }
 
         //Create query object from statement and return
-        return new EsperCEPQuery(statement);
+        return new EsperCEPQuery(statement, callbackExecutor);
     }
 
     /**
@@ -99,24 +181,71 @@ public class EsperCEPEngine implements CEPEngine {
      *
      * @param eventType The event type to register
      */
-    public void registerEventType(CEPEventType eventType) {
+    public synchronized void registerEventType(CEPEventType eventType) {
         //Sanity checks
         if (eventType == null) {
             throw new IllegalArgumentException("Event type object must not be null.");
-        } else if (registeredEventTypes.contains(eventType)) {
+        } else if (registeredEventTypes.containsKey(eventType.getName())) {
             throw new IllegalArgumentException("This event type has already been registered.");
         }
 
-        /*
-        Build up a query string containing the event name and its typed fields for registering
-        the event type at the Esper engine.
-         */
+        //Create schema statement for the event type
+        String schemaStatement = buildSchemaStatement(eventType);
+        schemaStatements.put(eventType.getName(), cepAdmin.createEPL(schemaStatement));
+
+        //Add event type to map of registered types and to the schemas of the query validator
+        registeredEventTypes.put(eventType.getName(), eventType);
+        queryValidator.addSchema(eventType.getName(), schemaStatement);
+    }
+
+    /**
+     * Unregisters an event type from the CEP engine and from the query validation. Nothing happens if the event
+     * type has not been registered.
+     *
+     * @param eventTypeName The name of the event type to unregister
+     */
+    @Override
+    public synchronized void unregisterEventType(String eventTypeName) {
+        //Sanity check
+        if ((eventTypeName == null) || eventTypeName.isEmpty()) {
+            throw new IllegalArgumentException("Event type name must not be null or empty.");
+        }
+
+        //Remove event type from the query validation, which may also know unregistered event types
+        queryValidator.removeSchema(eventTypeName);
+        if (registeredEventTypes.remove(eventTypeName) == null) {
+            return;
+        }
+
+        //Destroy schema statement and remove the event type
+        EPStatement schemaStatement = schemaStatements.remove(eventTypeName);
+        if (schemaStatement != null) {
+            schemaStatement.destroy();
+        }
+        try {
+            cepAdmin.getConfiguration().removeEventType(eventTypeName, false);
+        } catch (ConfigurationException e) {
+            System.err.println("Event type \"" + eventTypeName + "\" could not be removed: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Builds up a statement containing the event name and its typed fields for registering a given event type
+     * at an Esper engine.
+     *
+     * @param eventType The event type to build the statement for
+     * @return The schema statement
+     */
+    static String buildSchemaStatement(CEPEventType eventType) {
         //Get fields of event object
         Map<String, CEPPrimitiveDataTypes> eventFields = eventType.getFields();
 
         //Build query
-        StringBuilder queryBuilder = new StringBuilder("Create schema");
+        StringBuilder queryBuilder = new StringBuilder("Create");
+        if (eventType.getRepresentation() == CEPEventRepresentation.OBJECT_ARRAY) {
+            queryBuilder.append(" objectarray");
+        }
+        queryBuilder.append(" schema");
         queryBuilder.append(" ");
         queryBuilder.append(eventType.getName());
         queryBuilder.append("(");
@@ -142,11 +271,7 @@ public class EsperCEPEngine implements CEPEngine {
         //Close query
         queryBuilder.append(")");
 
-        //Create statement for query
-        cepAdmin.createEPL(queryBuilder.toString());
-
-        //Add event type to set of registered types
-        registeredEventTypes.add(eventType);
+        return queryBuilder.toString();
     }
 
     /**
@@ -156,54 +281,160 @@ public class EsperCEPEngine implements CEPEngine {
      * @param event The event to publish
      */
     public void sendEvent(CEPEvent event) throws EventNotRegisteredException {
-        //Iterate over all registered event types and Try to find matching event type
-        CEPEventType matchingEventType = null;
-        for (CEPEventType eventType : registeredEventTypes) {
-            //Check if current event type matches the given event
-            if (eventType.isValidInstance(event)) {
-                matchingEventType = eventType;
-                break;
-            }
-        }
+        //Get event type name only once
+        String eventTypeName = event.getEventTypeName();
+
+        //Look up the matching event type by its name
+        CEPEventType matchingEventType = registeredEventTypes.get(eventTypeName);
 
         //Check if event type could be found
         if (matchingEventType == null) {
-            throw new EventNotRegisteredException("No event type has been registered for event \"" + event.getEventTypeName() + "\".");
+            throw new EventNotRegisteredException("No event type has been registered for event \"" + eventTypeName + "\".");
+        }
+
+        //Check event against its event type in debug mode
+        if (validateEvents && (!matchingEventType.isValidInstance(event))) {
+            throw new EventNotRegisteredException("Event \"" + eventTypeName + "\" does not match its registered event type.");
+        }
+
+        //Send valid event to Esper in the representation of its event type
+        if (matchingEventType.getRepresentation() == CEPEventRepresentation.OBJECT_ARRAY) {
+            cepRuntime.sendEvent(event.getFieldValueArray(matchingEventType.getFieldNames()), eventTypeName);
+        } else {
+            cepRuntime.sendEvent(event.getFieldValues(), eventTypeName);
+        }
+    }
+
+    /**
+     * Waits until all events that have been sent to the engine so far have been processed. Since events
+     * are processed synchronously on the sending threads, this method returns immediately.
+     *
+     * @param timeout The maximum time to wait in milliseconds
+     * @return Always true
+     */
+    @Override
+    public boolean awaitEventProcessing(long timeout) {
+        return true;
+    }
+
+    /**
+     * Switches the clock of the engine from the system time to an external clock that starts at a given time and
+     * is only advanced by {@link #advanceTime(long)}.
+     *
+     * @param startTime The start time of the external clock in epoch milliseconds
+     */
+    @Override
+    public synchronized void useExternalTime(long startTime) {
+        cepRuntime.sendEvent(new TimerControlEvent(TimerControlEvent.ClockType.CLOCK_EXTERNAL));
+        cepRuntime.sendEvent(new CurrentTimeEvent(startTime));
+        externalTime = startTime;
+    }
+
+    /**
+     * Advances the external clock of the engine to a given time, which fires all timers that are due until then.
+     * Times before the current time of the clock are ignored, as well as calls while the system time is used.
+     *
+     * @param time The new time in epoch milliseconds
+     */
+    @Override
+    public synchronized void advanceTime(long time) {
+        if ((externalTime >= 0) && (time > externalTime)) {
+            externalTime = time;
+            cepRuntime.sendEvent(new CurrentTimeEvent(time));
         }
+    }
 
-        //Send valid event to Esper
-        cepRuntime.sendEvent(event.getFieldValues(), event.getEventTypeName());
+    /**
+     * Switches the clock of the engine back to the system time. All timers that are due until the current system
+     * time fire.
+     */
+    @Override
+    public synchronized void useInternalTime() {
+        if (externalTime < 0) {
+            return;
+        }
+
+        //Let the external clock catch up, so that the time does not move backwards
+        advanceTime(System.currentTimeMillis());
+        cepRuntime.sendEvent(new TimerControlEvent(TimerControlEvent.ClockType.CLOCK_INTERNAL));
+        externalTime = -1;
+    }
+
+    /**
+     * Checks whether an event type with a given name has been registered at the engine.
+     *
+     * @param eventTypeName The name of the event type
+     * @return True, if the event type has been registered; false otherwise
+     */
+    boolean isEventTypeRegistered(String eventTypeName) {
+        return registeredEventTypes.containsKey(eventTypeName);
     }
 
     /**
-     * Validates a given query string and checks whether it is syntactically and semantically valid.
+     * Validates a given query string and checks whether it is syntactically and semantically valid. The query
+     * is compiled within an isolated engine that knows the schemas of all registered event types and of the given
+     * event types, so that this engine is not affected by the validation. The given event types are not registered
+     * at this engine. Results are cached until the known schemas change.
      *
      * @param queryString The query string to check
+     * @param eventTypes  The additional event types the query may refer to
      * @return The result of the validation wrapped in a validation object
      */
     @Override
-    public CEPQueryValidation validateQuery(String queryString) {
-        //Sanity check
+    public CEPQueryValidation validateQuery(String queryString, Collection<CEPEventType> eventTypes) {
+        //Sanity checks
         if ((queryString) == null || queryString.isEmpty()) {
             throw new IllegalArgumentException("Query string must not be null or empty.");
+        } else if (eventTypes == null) {
+            throw new IllegalArgumentException("Event types must not be null.");
         }
 
-        //Try to register a temporary statement with this query and check if this fails
-        EPStatement testStatement = null;
-        try {
-            testStatement = cepAdmin.createEPL(queryString);
-        } catch (EPException e) {
-            //Statement creation failed, query is not valid
-            return new CEPQueryValidation(queryString, false, e.getMessage());
-        } finally {
-            //Destroy test statement in every case (if created)
-            if (testStatement != null) {
-                testStatement.destroy();
+        //Make the additional event types known to the validator only
+        for (CEPEventType eventType : eventTypes) {
+            if (!registeredEventTypes.containsKey(eventType.getName())) {
+                queryValidator.addSchema(eventType.getName(), buildSchemaStatement(eventType));
             }
         }
 
-        //Validation successful
-        return new CEPQueryValidation(queryString, true);
+        //Validate query by using the isolated validator
+        return queryValidator.validate(queryString);
+    }
+
+    /**
+     * Creates a new serial lane at the executor for query subscriber callbacks.
+     *
+     * @return The created lane
+     */
+    @Override
+    public CEPCallbackLane createCallbackLane() {
+        return callbackExecutor.createLane();
+    }
+
+    /**
+     * Returns statistics about the execution of query subscriber callbacks, such as the number of pending
+     * callbacks and the callback latencies.
+     *
+     * @return The callback statistics
+     */
+    @Override
+    public CEPCallbackStats getCallbackStats() {
+        return callbackExecutor.getStats();
+    }
+
+    /**
+     * Returns metrics about the cost of a certain query, such as the number of processed events, the consumed
+     * CPU time and the output rate. The metrics are reported by Esper periodically.
+     *
+     * @param name The name of the query
+     * @return The metrics of the query
+     */
+    @Override
+    public CEPQueryMetrics getQueryMetrics(String name) {
+        //Sanity check
+        if ((name == null) || (name.isEmpty())) {
+            throw new IllegalArgumentException("Name must not be null or empty.");
+        }
+        return metricsCollector.getMetrics(name);
     }
 
     /**
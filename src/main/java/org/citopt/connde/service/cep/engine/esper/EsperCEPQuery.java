@@ -12,13 +12,19 @@ public class EsperCEPQuery implements CEPQuery {
     //The dedicated query statement created by the engine
     private EPStatement statement;
 
+    //The executor for subscriber callbacks
+    private EsperCEPCallbackExecutor callbackExecutor;
+
     /**
-     * Creates a new query object by passing a dedicated statement created by the CEP engine.
+     * Creates a new query object by passing a dedicated statement created by the CEP engine and the executor
+     * that is supposed to be used for subscriber callbacks.
      *
-     * @param statement The statement of the query to wrap
+     * @param statement        The statement of the query to wrap
+     * @param callbackExecutor The executor for subscriber callbacks
      */
-    EsperCEPQuery(EPStatement statement) {
+    EsperCEPQuery(EPStatement statement, EsperCEPCallbackExecutor callbackExecutor) {
         setStatement(statement);
+        this.callbackExecutor = callbackExecutor;
     }
 
     /**
@@ -34,8 +40,8 @@ public class EsperCEPQuery implements CEPQuery {
             throw new IllegalArgumentException("Subscriber must not be null.");
         }
 
-        //Create subscriber dispatcher that will notify the subscriber on callback
-        EsperCEPQueryDispatcher dispatcher = new EsperCEPQueryDispatcher(subscriber);
+        //Create subscriber dispatcher with its own lane that will notify the subscriber on callback
+        EsperCEPQueryDispatcher dispatcher = new EsperCEPQueryDispatcher(subscriber, callbackExecutor.createLane());
 
         //Set subscriber
         statement.setSubscriber(dispatcher);
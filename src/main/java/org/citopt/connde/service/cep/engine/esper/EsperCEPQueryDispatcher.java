@@ -6,21 +6,32 @@ import org.citopt.connde.service.cep.engine.core.queries.CEPQuerySubscriber;
 import java.util.Map;
 
 /**
- * Dispatcher for CEP query callbacks that converts the query result to a CEPOutput object, creates a new thread
- * and notifies the subscriber within this thread.
+ * Dispatcher for CEP query callbacks that converts the query result to a CEPOutput object and notifies
+ * the subscriber within a dedicated serial lane of the callback executor, so that Esper is not blocked and
+ * the callbacks of the query are executed in order.
  */
 class EsperCEPQueryDispatcher {
     //The subscriber that should be notified by the dispatcher
     private CEPQuerySubscriber subscriber;
 
+    //The lane of the callback executor in which the subscriber is notified
+    private EsperCEPCallbackExecutor.Lane lane;
+
     /**
      * Creates a new callback dispatcher by passing a dedicated subscriber that is supposed to be
-     * notified in case of a callback.
+     * notified in case of a callback and the lane of the callback executor to use.
      *
      * @param subscriber The subscriber
+     * @param lane       The lane of the callback executor
      */
-    EsperCEPQueryDispatcher(CEPQuerySubscriber subscriber) {
+    EsperCEPQueryDispatcher(CEPQuerySubscriber subscriber, EsperCEPCallbackExecutor.Lane lane) {
         setSubscriber(subscriber);
+
+        //Sanity check
+        if (lane == null) {
+            throw new IllegalArgumentException("Lane must not be null.");
+        }
+        this.lane = lane;
     }
 
     /**
@@ -32,9 +43,8 @@ class EsperCEPQueryDispatcher {
         //Create object from result
         CEPOutput result = new CEPOutput(resultMap);
 
-        //Create new thread so that Esper is not blocked
-        Thread subscriberThread = new Thread(() -> subscriber.onQueryTriggered(result));
-        subscriberThread.start();
+        //Notify subscriber within the lane so that Esper is not blocked
+        lane.submit(() -> subscriber.onQueryTriggered(result));
     }
 
     /**
@@ -0,0 +1,106 @@
+package org.citopt.connde.service.cep.engine.esper;
+
+import com.espertech.esper.client.metric.StatementMetric;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscriber for the statement metrics that are periodically reported by Esper. Each report covers the cost
+ * of a statement since the previous report; the collector accumulates the reports to totals per statement
+ * and derives the rates of the last reporting interval.
+ */
+class EsperCEPQueryMetricsCollector {
+    //Factor for converting nanoseconds to milliseconds
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    //Interval between two reports in milliseconds
+    private final long reportingInterval;
+
+    //Map (statement name --> metrics) of the accumulated metrics of all statements
+    private final Map<String, CEPQueryMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new metrics collector.
+     *
+     * @param reportingInterval The interval between two reports in milliseconds
+     */
+    EsperCEPQueryMetricsCollector(long reportingInterval) {
+        //Sanity check
+        if (reportingInterval <= 0) {
+            throw new IllegalArgumentException("Reporting interval must be positive.");
+        }
+        this.reportingInterval = reportingInterval;
+    }
+
+    /**
+     * Called by Esper in case a new statement metric is reported.
+     *
+     * @param statementMetric The reported statement metric
+     */
+    public void update(StatementMetric statementMetric) {
+        String statementName = statementMetric.getStatementName();
+        double intervalSeconds = reportingInterval / 1000.0;
+        long outputEvents = statementMetric.getNumOutputIStream() + statementMetric.getNumOutputRStream();
+        double cpuTime = statementMetric.getCpuTime() / NANOS_PER_MILLI;
+
+        metrics.compute(statementName, (name, queryMetrics) -> {
+            if (queryMetrics == null) {
+                queryMetrics = new CEPQueryMetrics(name);
+            }
+
+            synchronized (queryMetrics) {
+                //Accumulate totals
+                queryMetrics.setEventsProcessed(queryMetrics.getEventsProcessed() + statementMetric.getNumInput());
+                queryMetrics.setOutputEvents(queryMetrics.getOutputEvents() + outputEvents);
+                queryMetrics.setCpuTime(queryMetrics.getCpuTime() + cpuTime);
+                queryMetrics.setWallTime(queryMetrics.getWallTime() +
+                        statementMetric.getWallTime() / NANOS_PER_MILLI);
+
+                //Derive rates of the last interval
+                queryMetrics.setEventRate(statementMetric.getNumInput() / intervalSeconds);
+                queryMetrics.setOutputRate(outputEvents / intervalSeconds);
+                queryMetrics.setCpuLoad(cpuTime / intervalSeconds);
+                queryMetrics.setLastUpdate(statementMetric.getTimestamp());
+            }
+            return queryMetrics;
+        });
+    }
+
+    /**
+     * Returns a copy of the accumulated metrics of a certain statement.
+     *
+     * @param statementName The name of the statement
+     * @return The metrics of the statement; an empty metrics object, if no metrics were reported yet
+     */
+    CEPQueryMetrics getMetrics(String statementName) {
+        CEPQueryMetrics queryMetrics = metrics.get(statementName);
+        CEPQueryMetrics copy = new CEPQueryMetrics(statementName);
+        if (queryMetrics == null) {
+            return copy;
+        }
+
+        //Copy consistently while the metrics are not updated
+        synchronized (queryMetrics) {
+            copy.setEventsProcessed(queryMetrics.getEventsProcessed());
+            copy.setOutputEvents(queryMetrics.getOutputEvents());
+            copy.setCpuTime(queryMetrics.getCpuTime());
+            copy.setWallTime(queryMetrics.getWallTime());
+            copy.setEventRate(queryMetrics.getEventRate());
+            copy.setOutputRate(queryMetrics.getOutputRate());
+            copy.setCpuLoad(queryMetrics.getCpuLoad());
+            copy.setLastUpdate(queryMetrics.getLastUpdate());
+        }
+        return copy;
+    }
+
+    /**
+     * Discards the metrics of a certain statement, e.g. after the statement was destroyed.
+     *
+     * @param statementName The name of the statement
+     */
+    void removeMetrics(String statementName) {
+        metrics.remove(statementName);
+    }
+}
@@ -0,0 +1,182 @@
+package org.citopt.connde.service.cep.engine.esper;
+
+import com.espertech.esper.client.ConfigurationException;
+import com.espertech.esper.client.EPAdministrator;
+import com.espertech.esper.client.EPException;
+import com.espertech.esper.client.EPServiceProvider;
+import com.espertech.esper.client.EPServiceProviderManager;
+import com.espertech.esper.client.EPStatement;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validator for query strings that compiles the queries within a dedicated Esper service provider which is isolated
+ * from the engine that processes the events. The validator keeps a snapshot of the schemas of all event types
+ * that have been registered at the engine or that were passed for validations, together with a version number
+ * that is incremented whenever the snapshot changes. Validation results are cached by query string and schema
+ * version, so that repeated validations of the same query do not require another compilation as long as the
+ * snapshot does not change.
+ */
+class EsperCEPQueryValidator {
+    //Prefix for the URIs of the isolated Esper service providers
+    private static final String PROVIDER_URI_PREFIX = "connde-cep-validation-";
+
+    //Maximum number of cached validation results
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    //Counter for generating unique provider URIs
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    //Map (event type name --> schema statement) of the schemas of all registered event types
+    private final Map<String, String> schemas = new LinkedHashMap<>();
+
+    //Version of the schema snapshot
+    private volatile long schemaVersion = 0;
+
+    //Admin of the isolated service provider (created on first validation)
+    private EPAdministrator validationAdmin;
+
+    //Map (event type name --> schema statement) of the schemas that have been applied to the isolated provider
+    private final Map<String, EPStatement> appliedSchemas = new HashMap<>();
+
+    //Map (query string --> validation result) of cached validation results
+    private final Map<String, CachedValidation> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new and empty query validator.
+     */
+    EsperCEPQueryValidator() {
+    }
+
+    /**
+     * Adds the schema of an event type to the snapshot of this validator. If the snapshot did not contain this
+     * schema yet, the schema version is incremented, so that previously cached validation results become outdated.
+     *
+     * @param eventTypeName   The name of the event type
+     * @param schemaStatement The statement that creates the schema of the event type
+     */
+    synchronized void addSchema(String eventTypeName, String schemaStatement) {
+        if (!schemaStatement.equals(schemas.put(eventTypeName, schemaStatement))) {
+            schemaVersion++;
+        }
+    }
+
+    /**
+     * Removes the schema of an event type from the snapshot of this validator and increments the schema version,
+     * so that previously cached validation results become outdated.
+     *
+     * @param eventTypeName The name of the event type
+     */
+    synchronized void removeSchema(String eventTypeName) {
+        if (schemas.remove(eventTypeName) != null) {
+            schemaVersion++;
+        }
+    }
+
+    /**
+     * Validates a given query string against the current schema snapshot and checks whether it is syntactically
+     * and semantically valid. Cached results are reused if they belong to the current schema version.
+     *
+     * @param queryString The query string to check
+     * @return The result of the validation wrapped in a validation object
+     */
+    CEPQueryValidation validate(String queryString) {
+        //Check cache for a result that matches the current schema version
+        CachedValidation cachedValidation = cache.get(queryString);
+        if ((cachedValidation == null) || (cachedValidation.schemaVersion != schemaVersion)) {
+            //Compile query and cache the result
+            cachedValidation = compile(queryString);
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.put(queryString, cachedValidation);
+        }
+
+        //Return a copy, since validation objects are mutable
+        return new CEPQueryValidation(queryString, cachedValidation.valid, cachedValidation.errorMessage);
+    }
+
+    /**
+     * Compiles a given query string within the isolated service provider after bringing its schemas up to date
+     * with the snapshot. The statement that results from the compilation is destroyed immediately afterwards.
+     *
+     * @param queryString The query string to compile
+     * @return The result of the compilation, together with the schema version it belongs to
+     */
+    private synchronized CachedValidation compile(String queryString) {
+        //Create isolated service provider on first use
+        if (validationAdmin == null) {
+            EPServiceProvider validationService = EPServiceProviderManager.getProvider(PROVIDER_URI_PREFIX +
+                    INSTANCE_COUNTER.incrementAndGet());
+            validationService.initialize();
+            validationAdmin = validationService.getEPAdministrator();
+        }
+
+        //Remove all schemas from the isolated service provider that were removed from the snapshot
+        Iterator<Map.Entry<String, EPStatement>> iterator = appliedSchemas.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, EPStatement> appliedSchema = iterator.next();
+            if (!schemas.containsKey(appliedSchema.getKey())) {
+                appliedSchema.getValue().destroy();
+                try {
+                    validationAdmin.getConfiguration().removeEventType(appliedSchema.getKey(), true);
+                } catch (ConfigurationException e) {
+                    System.err.println("Event type could not be removed from the validation: " + e.getMessage());
+                }
+                iterator.remove();
+            }
+        }
+
+        //Apply all schemas of the snapshot that are not yet known to the isolated service provider
+        for (Map.Entry<String, String> schema : schemas.entrySet()) {
+            if (!appliedSchemas.containsKey(schema.getKey())) {
+                appliedSchemas.put(schema.getKey(), validationAdmin.createEPL(schema.getValue()));
+            }
+        }
+
+        //Try to create a temporary statement with this query and check if this fails
+        EPStatement testStatement = null;
+        try {
+            testStatement = validationAdmin.createEPL(queryString);
+        } catch (EPException e) {
+            //Statement creation failed, query is not valid
+            return new CachedValidation(schemaVersion, false, e.getMessage());
+        } finally {
+            //Destroy test statement in every case (if created)
+            if (testStatement != null) {
+                testStatement.destroy();
+            }
+        }
+
+        //Validation successful
+        return new CachedValidation(schemaVersion, true, null);
+    }
+
+    /**
+     * Cached result of a validation, bound to the schema version the query was compiled against.
+     */
+    private static class CachedValidation {
+        private final long schemaVersion;
+        private final boolean valid;
+        private final String errorMessage;
+
+        /**
+         * Creates a new cached validation result.
+         *
+         * @param schemaVersion The schema version the query was compiled against
+         * @param valid         True, if the query is valid; false otherwise
+         * @param errorMessage  An error message describing the problem with the query (null if valid)
+         */
+        private CachedValidation(long schemaVersion, boolean valid, String errorMessage) {
+            this.schemaVersion = schemaVersion;
+            this.valid = valid;
+            this.errorMessage = errorMessage;
+        }
+    }
+}
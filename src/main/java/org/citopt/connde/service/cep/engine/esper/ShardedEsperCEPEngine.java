@@ -0,0 +1,643 @@
+package org.citopt.connde.service.cep.engine.esper;
+
+import org.citopt.connde.service.cep.engine.core.CEPEngine;
+import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventOverflowPolicy;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
+import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackLane;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackOverflowPolicy;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This component implements the interface of CEP engines by partitioning the queries over multiple independent
+ * Esper engine instances (shards), each of which processes its events on a dedicated thread. Each event type
+ * is assigned to exactly one shard by its name and is only registered at this shard and an additional shared engine.
+ * Queries whose referenced event types all belong to the same shard are registered at this shard; all other queries
+ * are registered at the shared engine. Events are only delivered to the engines that have registered queries
+ * referencing their event type. While an external clock is used, the clock of an engine is only advanced together
+ * with the events that are delivered to it.
+ */
+public class ShardedEsperCEPEngine implements CEPEngine {
+    //Prefix of the URIs of the Esper service providers
+    private static final String PROVIDER_URI_PREFIX = "connde-cep-";
+
+    //Pattern for identifiers within query strings
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    //Shards and shared engine
+    private final List<Shard> shards;
+    private final Shard sharedShard;
+
+    //Executor for query subscriber callbacks, shared by all engines
+    private final EsperCEPCallbackExecutor callbackExecutor;
+
+    //Policy to apply in case the event queue of a shard is full
+    private final CEPEventOverflowPolicy shardOverflowPolicy;
+
+    //Map (query name --> query registration) of the registered queries
+    private final Map<String, QueryRegistration> queryRegistrations = new ConcurrentHashMap<>();
+
+    //Current time of the external clock in epoch milliseconds (-1 if the system time is used)
+    private volatile long externalTime = -1;
+
+    /**
+     * Creates the component by initializing the shards and the shared engine.
+     *
+     * @param numberShards          The number of shards
+     * @param shardQueueCapacity    The maximum number of events that may be pending per shard
+     * @param shardOverflowPolicy   The policy to apply if the maximum number of pending events of a shard is reached
+     * @param validateEvents        True, if sent events are supposed to be checked against their event types
+     *                              (debug mode); false otherwise
+     * @param callbackThreads       The number of threads for executing query subscriber callbacks
+     * @param callbackQueueCapacity The maximum number of pending query subscriber callbacks
+     * @param overflowPolicy        The policy to apply if the maximum number of pending callbacks is reached
+     */
+    public ShardedEsperCEPEngine(int numberShards, int shardQueueCapacity, CEPEventOverflowPolicy shardOverflowPolicy,
+                                 boolean validateEvents, int callbackThreads, int callbackQueueCapacity,
+                                 CEPCallbackOverflowPolicy overflowPolicy) {
+        //Sanity checks
+        if (numberShards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive.");
+        } else if (shardQueueCapacity <= 0) {
+            throw new IllegalArgumentException("Shard queue capacity must be positive.");
+        } else if (shardOverflowPolicy == null) {
+            throw new IllegalArgumentException("Shard overflow policy must not be null.");
+        }
+
+        this.shardOverflowPolicy = shardOverflowPolicy;
+
+        //Create shared executor for subscriber callbacks
+        this.callbackExecutor = new EsperCEPCallbackExecutor(callbackThreads, callbackQueueCapacity, overflowPolicy);
+
+        //Create shards
+        List<Shard> shardList = new ArrayList<>(numberShards);
+        for (int i = 0; i < numberShards; i++) {
+            shardList.add(new Shard("shard-" + i, shardQueueCapacity, validateEvents));
+        }
+        this.shards = Collections.unmodifiableList(shardList);
+
+        //Create shared engine for queries that span multiple shards
+        this.sharedShard = new Shard("shared", shardQueueCapacity, validateEvents);
+    }
+
+    /**
+     * Creates and registers a new CEP query from a given name and a query string. The query is registered
+     * at the shard of its referenced event types or at the shared engine, if it references event types
+     * of multiple shards. The registered query is then returned as a CEPQuery object.
+     *
+     * @param name        The name of the query to create
+     * @param queryString The query string of the query
+     * @return The CEPQuery object representing the query
+     */
+    @Override
+    public synchronized EsperCEPQuery createQuery(String name, String queryString) {
+        //Sanity checks
+        if ((name == null) || (name.isEmpty())) {
+            throw new IllegalArgumentException("Name must not be null or empty.");
+        } else if ((queryString == null) || (queryString.isEmpty())) {
+            throw new IllegalArgumentException("Query string must not be null or empty.");
+        } else if (queryRegistrations.containsKey(name)) {
+            throw new IllegalArgumentException("A query with this name is already registered.");
+        }
+
+        //Determine referenced event types and the engine to use
+        Set<String> eventTypeNames = getReferencedEventTypes(queryString);
+        Shard shard = selectShard(eventTypeNames);
+
+        //Create query at the selected engine
+        EsperCEPQuery query = shard.engine.createQuery(name, queryString);
+
+        //Remember registration and register interest in the event types
+        QueryRegistration registration = new QueryRegistration(shard, eventTypeNames);
+        queryRegistrations.put(name, registration);
+        shard.addInterest(eventTypeNames);
+
+        return wrapQuery(name, query, registration);
+    }
+
+    /**
+     * Returns a CEPQuery object for a certain query given by its name. If no query with such a name
+     * is registered, null is returned.
+     *
+     * @param name The name of the query for which the CEPQuery object is supposed to be returned
+     * @return A dedicated CEPQuery object representing the query
+     */
+    @Override
+    public EsperCEPQuery getQueryByName(String name) {
+        //Sanity check
+        if ((name == null) || (name.isEmpty())) {
+            throw new IllegalArgumentException("Name must not be null or empty.");
+        }
+
+        //Get registration of the query
+        QueryRegistration registration = queryRegistrations.get(name);
+        if (registration == null) {
+            return null;
+        }
+
+        //Retrieve query from the engine of the registration
+        EsperCEPQuery query = registration.shard.engine.getQueryByName(name);
+        if (query == null) {
+            return null;
+        }
+        return wrapQuery(name, query, registration);
+    }
+
+    /**
+     * Registers a new event type at the shard to which it is assigned and at the shared engine. After that, events
+     * of the new event type might be sent to the engine or used in queries.
+     *
+     * @param eventType The event type to register
+     */
+    @Override
+    public synchronized void registerEventType(CEPEventType eventType) {
+        //Sanity check
+        if (eventType == null) {
+            throw new IllegalArgumentException("Event type object must not be null.");
+        }
+
+        //Register at the engines that may process events of this type
+        getShardOfEventType(eventType.getName()).engine.registerEventType(eventType);
+        sharedShard.engine.registerEventType(eventType);
+    }
+
+    /**
+     * Unregisters an event type from the shard to which it is assigned and from the shared engine. Nothing happens
+     * if the event type has not been registered.
+     *
+     * @param eventTypeName The name of the event type to unregister
+     */
+    @Override
+    public synchronized void unregisterEventType(String eventTypeName) {
+        //Sanity check
+        if ((eventTypeName == null) || eventTypeName.isEmpty()) {
+            throw new IllegalArgumentException("Event type name must not be null or empty.");
+        }
+
+        getShardOfEventType(eventTypeName).engine.unregisterEventType(eventTypeName);
+        sharedShard.engine.unregisterEventType(eventTypeName);
+    }
+
+    /**
+     * Sends a given event to the engines that have registered queries which reference the type of the event.
+     * The event is processed asynchronously by the threads of these engines. The type of the event needs to be
+     * registered before.
+     *
+     * @param event The event to publish
+     */
+    @Override
+    public void sendEvent(CEPEvent event) throws EventNotRegisteredException {
+        //Get event type name only once
+        String eventTypeName = event.getEventTypeName();
+
+        //Check if event type is known
+        if (!sharedShard.engine.isEventTypeRegistered(eventTypeName)) {
+            throw new EventNotRegisteredException("No event type has been registered for event \"" + eventTypeName + "\".");
+        }
+
+        //Deliver event to the shard of its event type and the shared engine, if they are interested in it
+        long time = externalTime;
+        Shard shard = getShardOfEventType(eventTypeName);
+        if (shard.isInterestedIn(eventTypeName)) {
+            shard.submit(event, time);
+        }
+        if (sharedShard.isInterestedIn(eventTypeName)) {
+            sharedShard.submit(event, time);
+        }
+    }
+
+    /**
+     * Waits until all events that have been queued at the shards and the shared engine so far have been
+     * processed, or until a given timeout has elapsed.
+     *
+     * @param timeout The maximum time to wait in milliseconds
+     * @return True, if all events have been processed; false, if the timeout elapsed before
+     */
+    @Override
+    public boolean awaitEventProcessing(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        //Enqueue a marker behind the pending events of every engine
+        List<Shard> allShards = new ArrayList<>(shards);
+        allShards.add(sharedShard);
+        CountDownLatch latch = new CountDownLatch(allShards.size());
+        try {
+            for (Shard shard : allShards) {
+                shard.eventExecutor.execute(latch::countDown);
+            }
+
+            //Wait for all markers to be processed
+            return latch.await(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Switches the clocks of all shards and the shared engine to an external clock that starts at a given time.
+     * The switch is queued behind the pending events of each engine.
+     *
+     * @param startTime The start time of the external clock in epoch milliseconds
+     */
+    @Override
+    public synchronized void useExternalTime(long startTime) {
+        externalTime = startTime;
+        submitToAllShards(engine -> engine.useExternalTime(startTime));
+    }
+
+    /**
+     * Advances the external clock to a given time. No task is queued for this; instead, the engines that receive
+     * subsequent events advance their clocks to this time right before they process the events. Engines that do not
+     * receive any events catch up when the clock is switched back to the system time.
+     *
+     * @param time The new time in epoch milliseconds
+     */
+    @Override
+    public synchronized void advanceTime(long time) {
+        if ((externalTime >= 0) && (time > externalTime)) {
+            externalTime = time;
+        }
+    }
+
+    /**
+     * Switches the clocks of all shards and the shared engine back to the system time. The switch is queued
+     * behind the pending events of each engine.
+     */
+    @Override
+    public synchronized void useInternalTime() {
+        externalTime = -1;
+        submitToAllShards(EsperCEPEngine::useInternalTime);
+    }
+
+    /**
+     * Validates a given query string and checks whether it is syntactically and semantically valid. The given
+     * event types are only made known to the validation and are not registered at any engine.
+     *
+     * @param queryString The query string to check
+     * @param eventTypes  The additional event types the query may refer to
+     * @return The result of the validation wrapped in a validation object
+     */
+    @Override
+    public CEPQueryValidation validateQuery(String queryString, Collection<CEPEventType> eventTypes) {
+        //The shared engine knows all event types
+        return sharedShard.engine.validateQuery(queryString, eventTypes);
+    }
+
+    /**
+     * Creates a new serial lane at the executor for query subscriber callbacks.
+     *
+     * @return The created lane
+     */
+    @Override
+    public CEPCallbackLane createCallbackLane() {
+        return callbackExecutor.createLane();
+    }
+
+    /**
+     * Returns statistics about the execution of query subscriber callbacks, such as the number of pending
+     * callbacks and the callback latencies.
+     *
+     * @return The callback statistics
+     */
+    @Override
+    public CEPCallbackStats getCallbackStats() {
+        return callbackExecutor.getStats();
+    }
+
+    /**
+     * Returns metrics about the cost of a certain query, such as the number of processed events, the consumed
+     * CPU time and the output rate. The metrics are retrieved from the engine at which the query is registered.
+     *
+     * @param name The name of the query
+     * @return The metrics of the query; an empty metrics object, if the query is not registered
+     */
+    @Override
+    public CEPQueryMetrics getQueryMetrics(String name) {
+        //Sanity check
+        if ((name == null) || (name.isEmpty())) {
+            throw new IllegalArgumentException("Name must not be null or empty.");
+        }
+
+        //Get registration of the query
+        QueryRegistration registration = queryRegistrations.get(name);
+        if (registration == null) {
+            return new CEPQueryMetrics(name);
+        }
+        return registration.shard.engine.getQueryMetrics(name);
+    }
+
+    /**
+     * Returns a list of all names of queries that are currently registered at the engine.
+     *
+     * @return The list of names
+     */
+    @Override
+    public List<String> getAllQueryNames() {
+        return new ArrayList<>(queryRegistrations.keySet());
+    }
+
+    /**
+     * Returns the number of events that were dropped since the queue of their shard was full. Events are only
+     * dropped if the DROP overflow policy is used.
+     *
+     * @return The number of dropped events
+     */
+    public long getDroppedEvents() {
+        long droppedEvents = sharedShard.droppedEvents.sum();
+        for (Shard shard : shards) {
+            droppedEvents += shard.droppedEvents.sum();
+        }
+        return droppedEvents;
+    }
+
+    /**
+     * Shuts down the threads of all shards and the shared engine. Pending events are discarded.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.eventExecutor.shutdownNow();
+        }
+        sharedShard.eventExecutor.shutdownNow();
+    }
+
+    /**
+     * Submits a task for the engines of all shards and the shared engine for execution on the threads of the shards.
+     * The calling thread is blocked until the task could be queued at every shard.
+     *
+     * @param task The task to submit
+     */
+    private void submitToAllShards(Consumer<EsperCEPEngine> task) {
+        List<Shard> allShards = new ArrayList<>(shards);
+        allShards.add(sharedShard);
+        for (Shard shard : allShards) {
+            try {
+                shard.eventExecutor.execute(() -> task.accept(shard.engine));
+            } catch (RejectedExecutionException e) {
+                System.err.println("Task could not be queued at " + shard.name + ": " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wraps a query of one of the engines, so that unregistering the query also removes its registration.
+     *
+     * @param name         The name of the query
+     * @param query        The query to wrap
+     * @param registration The registration of the query
+     * @return The wrapped query
+     */
+    private EsperCEPQuery wrapQuery(String name, EsperCEPQuery query, QueryRegistration registration) {
+        return new EsperCEPQuery(query.getStatement(), callbackExecutor) {
+            @Override
+            public void unregister() {
+                super.unregister();
+                removeRegistration(name, registration);
+            }
+        };
+    }
+
+    /**
+     * Removes the registration of a query and the interest of its engine in the referenced event types.
+     *
+     * @param name         The name of the query
+     * @param registration The registration to remove
+     */
+    private synchronized void removeRegistration(String name, QueryRegistration registration) {
+        if (queryRegistrations.remove(name, registration)) {
+            registration.shard.removeInterest(registration.eventTypeNames);
+        }
+    }
+
+    /**
+     * Determines the names of all registered event types that are referenced within a given query string.
+     *
+     * @param queryString The query string to analyze
+     * @return The set of referenced event type names
+     */
+    private Set<String> getReferencedEventTypes(String queryString) {
+        Set<String> eventTypeNames = new HashSet<>();
+
+        //Check all identifiers of the query
+        Matcher matcher = IDENTIFIER_PATTERN.matcher(queryString);
+        while (matcher.find()) {
+            String identifier = matcher.group();
+            if (sharedShard.engine.isEventTypeRegistered(identifier)) {
+                eventTypeNames.add(identifier);
+            }
+        }
+
+        return eventTypeNames;
+    }
+
+    /**
+     * Selects the engine at which a query that references a given set of event types is supposed to be registered.
+     *
+     * @param eventTypeNames The names of the referenced event types
+     * @return The shard of all event types or the shared engine, if the event types belong to different shards
+     */
+    private Shard selectShard(Set<String> eventTypeNames) {
+        Shard selectedShard = null;
+        for (String eventTypeName : eventTypeNames) {
+            Shard shard = getShardOfEventType(eventTypeName);
+            if ((selectedShard != null) && (selectedShard != shard)) {
+                return sharedShard;
+            }
+            selectedShard = shard;
+        }
+        return (selectedShard == null) ? sharedShard : selectedShard;
+    }
+
+    /**
+     * Returns the shard to which a certain event type is assigned.
+     *
+     * @param eventTypeName The name of the event type
+     * @return The shard of the event type
+     */
+    private Shard getShardOfEventType(String eventTypeName) {
+        return shards.get(Math.floorMod(eventTypeName.hashCode(), shards.size()));
+    }
+
+    /**
+     * Registration of a query at one of the engines, together with the event types it references.
+     */
+    private static class QueryRegistration {
+        private final Shard shard;
+        private final Set<String> eventTypeNames;
+
+        /**
+         * Creates a new query registration.
+         *
+         * @param shard          The engine at which the query is registered
+         * @param eventTypeNames The names of the referenced event types
+         */
+        private QueryRegistration(Shard shard, Set<String> eventTypeNames) {
+            this.shard = shard;
+            this.eventTypeNames = eventTypeNames;
+        }
+    }
+
+    /**
+     * Esper engine instance together with the thread on which it processes its events.
+     */
+    private class Shard {
+        //Name of this shard
+        private final String name;
+
+        //The Esper engine of this shard
+        private final EsperCEPEngine engine;
+
+        //Single thread with bounded queue that delivers the events to the engine
+        private final ThreadPoolExecutor eventExecutor;
+
+        //Map (event type name --> number of queries) of event types referenced by queries of this shard
+        private final Map<String, AtomicInteger> interests = new ConcurrentHashMap<>();
+
+        //Number of events that were dropped due to a full queue
+        private final LongAdder droppedEvents = new LongAdder();
+
+        /**
+         * Creates a new shard.
+         *
+         * @param name           The name of the shard
+         * @param queueCapacity  The maximum number of pending events
+         * @param validateEvents True, if sent events are supposed to be checked against their event types
+         */
+        private Shard(String name, int queueCapacity, boolean validateEvents) {
+            this.name = name;
+            this.engine = new EsperCEPEngine(PROVIDER_URI_PREFIX + name, validateEvents, callbackExecutor);
+            this.eventExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "cep-" + name);
+                thread.setDaemon(true);
+                return thread;
+            }, this::handleOverflow);
+        }
+
+        /**
+         * Submits an event for processing on the thread of this shard. If an external clock is used, the clock of
+         * the engine is advanced to the given time right before the event is processed. If the queue of the shard is
+         * full, the calling thread is either blocked until space becomes available or the event is dropped, depending
+         * on the overflow policy.
+         *
+         * @param event The event to submit
+         * @param time  The time of the external clock in epoch milliseconds (-1 if the system time is used)
+         */
+        private void submit(CEPEvent event, long time) {
+            try {
+                eventExecutor.execute(new EventTask(event, time));
+            } catch (RejectedExecutionException e) {
+                droppedEvents.increment();
+            }
+        }
+
+        /**
+         * Handles a task that could not be queued, since the queue of the shard is full. Events are dropped if
+         * requested by the overflow policy; otherwise, the calling thread is blocked until the task can be queued.
+         *
+         * @param task     The task that could not be queued
+         * @param executor The executor of the shard
+         */
+        private void handleOverflow(Runnable task, ThreadPoolExecutor executor) {
+            //Tasks cannot be queued anymore after the shard was shut down
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Shard " + name + " has been shut down.");
+            }
+
+            //Drop the event if requested by the policy
+            if ((task instanceof EventTask) && (shardOverflowPolicy == CEPEventOverflowPolicy.DROP)) {
+                throw new RejectedExecutionException("Event queue of shard " + name + " is full.");
+            }
+
+            //Block until the task can be queued
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for shard " + name + ".", e);
+            }
+        }
+
+        /**
+         * Task that delivers an event to the engine of this shard.
+         */
+        private class EventTask implements Runnable {
+            private final CEPEvent event;
+            private final long time;
+
+            /**
+             * Creates a new event task.
+             *
+             * @param event The event to deliver
+             * @param time  The time of the external clock in epoch milliseconds (-1 if the system time is used)
+             */
+            private EventTask(CEPEvent event, long time) {
+                this.event = event;
+                this.time = time;
+            }
+
+            /**
+             * Advances the clock of the engine if necessary and delivers the event.
+             */
+            @Override
+            public void run() {
+                try {
+                    if (time >= 0) {
+                        engine.advanceTime(time);
+                    }
+                    engine.sendEvent(event);
+                } catch (Exception e) {
+                    System.err.println("Event could not be processed: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Checks whether queries of this shard reference a certain event type.
+         *
+         * @param eventTypeName The name of the event type
+         * @return True, if the event type is referenced; false otherwise
+         */
+        private boolean isInterestedIn(String eventTypeName) {
+            return interests.containsKey(eventTypeName);
+        }
+
+        /**
+         * Registers the interest of a query in a set of event types.
+         *
+         * @param eventTypeNames The names of the event types
+         */
+        private void addInterest(Set<String> eventTypeNames) {
+            for (String eventTypeName : eventTypeNames) {
+                interests.computeIfAbsent(eventTypeName, n -> new AtomicInteger()).incrementAndGet();
+            }
+        }
+
+        /**
+         * Removes the interest of a query in a set of event types.
+         *
+         * @param eventTypeNames The names of the event types
+         */
+        private void removeInterest(Set<String> eventTypeNames) {
+            for (String eventTypeName : eventTypeNames) {
+                interests.computeIfPresent(eventTypeName, (n, count) -> (count.decrementAndGet() <= 0) ? null : count);
+            }
+        }
+    }
+}
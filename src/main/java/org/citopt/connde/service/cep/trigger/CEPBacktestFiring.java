@@ -0,0 +1,45 @@
+package org.citopt.connde.service.cep.trigger;
+
+import java.util.Map;
+
+/**
+ * Objects of this class represent single firings of a rule trigger within a backtest, consisting of the simulated
+ * time of the firing and the output of the trigger query. They can be used as DTOs in order to retrieve
+ * backtest results to the client.
+ */
+public class CEPBacktestFiring {
+    //Simulated time of the firing in epoch milliseconds
+    private long time;
+
+    //Output of the trigger query
+    private Map<Object, Object> output;
+
+    /**
+     * Creates a new firing.
+     *
+     * @param time   The time of the firing in epoch milliseconds
+     * @param output The output of the trigger query
+     */
+    public CEPBacktestFiring(long time, Map<Object, Object> output) {
+        this.time = time;
+        this.output = output;
+    }
+
+    /**
+     * Returns the time of the firing in epoch milliseconds.
+     *
+     * @return The time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the output of the query at the firing.
+     *
+     * @return The output map
+     */
+    public Map<Object, Object> getOutput() {
+        return output;
+    }
+}
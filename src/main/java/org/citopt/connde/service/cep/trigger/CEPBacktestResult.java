@@ -0,0 +1,194 @@
+package org.citopt.connde.service.cep.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Objects of this class hold the result of a backtest of a rule trigger against stored value logs, consisting of
+ * the firings of the trigger and statistics about the backtest. They can be used as DTOs in order to retrieve
+ * the results to the client.
+ */
+public class CEPBacktestResult {
+    //Backtested query and time range (epoch milliseconds)
+    private String query = null;
+    private long startTime = 0;
+    private long endTime = 0;
+
+    //Statistics
+    private long eventsProcessed = 0;
+    private long numberFirings = 0;
+    private boolean truncated = false;
+    private boolean aborted = false;
+    private long duration = 0;
+
+    //Firings of the trigger
+    private List<CEPBacktestFiring> firings = new ArrayList<>();
+
+    /**
+     * Creates a new and empty backtest result.
+     */
+    public CEPBacktestResult() {
+    }
+
+    /**
+     * Returns the query of the backtested trigger.
+     *
+     * @return The query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Sets the query of the backtested trigger.
+     *
+     * @param query The query
+     */
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Returns the start of the backtested time range in epoch milliseconds.
+     *
+     * @return The start time
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets the start of the backtested time range in epoch milliseconds.
+     *
+     * @param startTime The start time
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Returns the end of the backtested time range in epoch milliseconds.
+     *
+     * @return The end time
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Sets the end of the backtested time range in epoch milliseconds.
+     *
+     * @param endTime The end time
+     */
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * Returns the number of value logs that were replayed to the trigger query.
+     *
+     * @return The number of processed events
+     */
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+
+    /**
+     * Sets the number of value logs that were replayed to the trigger query.
+     *
+     * @param eventsProcessed The number of processed events
+     */
+    public void setEventsProcessed(long eventsProcessed) {
+        this.eventsProcessed = eventsProcessed;
+    }
+
+    /**
+     * Returns the total number of firings of the trigger within the time range.
+     *
+     * @return The number of firings
+     */
+    public long getNumberFirings() {
+        return numberFirings;
+    }
+
+    /**
+     * Sets the total number of firings of the trigger within the time range.
+     *
+     * @param numberFirings The number of firings
+     */
+    public void setNumberFirings(long numberFirings) {
+        this.numberFirings = numberFirings;
+    }
+
+    /**
+     * Returns whether the list of firings was truncated, since it exceeded its maximum size.
+     *
+     * @return True, if the list was truncated; false otherwise
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Sets whether the list of firings was truncated, since it exceeded its maximum size.
+     *
+     * @param truncated True, if the list was truncated; false otherwise
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * Returns whether the backtest was aborted before the end of the time range, since it exceeded its maximum duration.
+     *
+     * @return True, if the backtest was aborted; false otherwise
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Sets whether the backtest was aborted before the end of the time range, since it exceeded its maximum duration.
+     *
+     * @param aborted True, if the backtest was aborted; false otherwise
+     */
+    public void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
+    /**
+     * Returns the duration of the backtest in milliseconds.
+     *
+     * @return The duration
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets the duration of the backtest in milliseconds.
+     *
+     * @param duration The duration
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Returns the firings of the trigger in the order of their occurrence.
+     *
+     * @return The list of firings
+     */
+    public List<CEPBacktestFiring> getFirings() {
+        return firings;
+    }
+
+    /**
+     * Sets the firings of the trigger in the order of their occurrence.
+     *
+     * @param firings The list of firings
+     */
+    public void setFirings(List<CEPBacktestFiring> firings) {
+        this.firings = firings;
+    }
+}
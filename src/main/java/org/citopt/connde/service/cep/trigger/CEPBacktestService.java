@@ -0,0 +1,166 @@
+package org.citopt.connde.service.cep.trigger;
+
+import org.citopt.connde.domain.rules.RuleTrigger;
+import org.citopt.connde.repository.ValueLogRepository;
+import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
+import org.citopt.connde.service.cep.engine.esper.EsperCEPBacktestEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Service that backtests rule triggers against the stored value logs of the components their queries refer to.
+ * For each backtest, the trigger query is registered at an isolated CEP engine whose clock is advanced along
+ * the times of the value logs. The value logs of all referenced components are streamed from the repository
+ * in chunks and merged by their time, so that they are never materialized completely and the engine can process
+ * them at maximum speed.
+ */
+@Service
+public class CEPBacktestService {
+    //Maximum length of the backtested time range
+    private static final Duration MAX_TIME_RANGE = Duration.ofDays(366);
+
+    //Maximum number of firings that are returned
+    private static final int MAX_FIRINGS = 10000;
+
+    //Maximum duration of a backtest in milliseconds
+    private static final long MAX_DURATION = 60000;
+
+    //Number of value logs to retrieve per query
+    private static final int CHUNK_SIZE = 10000;
+
+    @Autowired
+    private CEPTriggerService triggerService;
+
+    @Autowired
+    private ValueLogRepository valueLogRepository;
+
+    /**
+     * Backtests a given rule trigger against the stored value logs within a certain time range and determines
+     * the firings that would have occurred.
+     *
+     * @param ruleTrigger The rule trigger to backtest
+     * @param from        The inclusive start of the time range
+     * @param to          The exclusive end of the time range
+     * @return The result of the backtest
+     * @throws IllegalArgumentException In case of invalid parameters or an invalid trigger query
+     */
+    public CEPBacktestResult backtest(RuleTrigger ruleTrigger, Instant from, Instant to) {
+        //Sanity checks
+        if (ruleTrigger == null) {
+            throw new IllegalArgumentException("Rule trigger must not be null.");
+        } else if ((from == null) || (to == null) || (!from.isBefore(to))) {
+            throw new IllegalArgumentException("Time range is invalid.");
+        } else if (Duration.between(from, to).compareTo(MAX_TIME_RANGE) > 0) {
+            throw new IllegalArgumentException("Time range is too long.");
+        }
+
+        //Validate trigger query
+        CEPQueryValidation validation = triggerService.isValidTriggerQuery(ruleTrigger);
+        if (!validation.isValid()) {
+            throw new IllegalArgumentException("Invalid query: " + validation.getErrorMessage());
+        }
+
+        //Determine the components the query refers to
+        String query = ruleTrigger.getQuery();
+        Map<String, String> components = triggerService.resolveReferencedComponents(query);
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("Query does not refer to any components.");
+        }
+
+        //Create result object
+        long startTime = System.currentTimeMillis();
+        CEPBacktestResult result = new CEPBacktestResult();
+        result.setQuery(query);
+        result.setStartTime(from.toEpochMilli());
+        result.setEndTime(to.toEpochMilli());
+
+        //Create isolated engine with external clock
+        EsperCEPBacktestEngine engine = new EsperCEPBacktestEngine(from.toEpochMilli());
+        try {
+            //Register event types and query
+            for (String eventTypeName : components.keySet()) {
+                engine.registerEventType(CEPValueLogEvent.createEventType(eventTypeName));
+            }
+            engine.createQuery(query, output -> {
+                result.setNumberFirings(result.getNumberFirings() + 1);
+                if (result.getFirings().size() < MAX_FIRINGS) {
+                    result.getFirings().add(new CEPBacktestFiring(engine.getCurrentTime(), output.getOutputMap()));
+                } else {
+                    result.setTruncated(true);
+                }
+            });
+
+            //Open one cursor per component and order them by the time of their current value log
+            PriorityQueue<ComponentCursor> cursors = new PriorityQueue<>(
+                    Comparator.comparingLong(cursor -> cursor.valueCursor.getTime()));
+            for (Map.Entry<String, String> component : components.entrySet()) {
+                ComponentCursor cursor = new ComponentCursor(component.getKey(),
+                        valueLogRepository.openValueCursorByIdRef(component.getValue(), from, to, CHUNK_SIZE));
+                if (cursor.valueCursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            //Replay value logs in the order of their time
+            while (!cursors.isEmpty()) {
+                //Abort backtests that take too long
+                if (System.currentTimeMillis() - startTime > MAX_DURATION) {
+                    result.setAborted(true);
+                    break;
+                }
+
+                ComponentCursor cursor = cursors.poll();
+                long time = cursor.valueCursor.getTime();
+
+                //Advance clock and send event
+                engine.advanceTime(time);
+                engine.sendEvent(new CEPValueLogEvent(cursor.eventTypeName, cursor.valueCursor.getValue(),
+                        time / 1000));
+                result.setEventsProcessed(result.getEventsProcessed() + 1);
+
+                //Move cursor to its next value log
+                if (cursor.valueCursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            //Let timers fire until the end of the time range
+            if (!result.isAborted()) {
+                engine.advanceTime(to.toEpochMilli());
+            }
+        } catch (EventNotRegisteredException e) {
+            throw new IllegalStateException("Event could not be replayed: " + e.getMessage(), e);
+        } finally {
+            engine.destroy();
+        }
+
+        result.setDuration(System.currentTimeMillis() - startTime);
+        return result;
+    }
+
+    /**
+     * Cursor over the value logs of a component, together with the name of the event type of the component.
+     */
+    private static class ComponentCursor {
+        private final String eventTypeName;
+        private final ValueLogRepository.ValueCursor valueCursor;
+
+        /**
+         * Creates a new component cursor.
+         *
+         * @param eventTypeName The name of the event type of the component
+         * @param valueCursor   The cursor over the value logs of the component
+         */
+        private ComponentCursor(String eventTypeName, ValueLogRepository.ValueCursor valueCursor) {
+            this.eventTypeName = eventTypeName;
+            this.valueCursor = valueCursor;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.citopt.connde.service.cep.trigger;
+
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQuery;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQuerySubscriber;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trigger query that is evaluated directly on the value logs of a single component instead of the CEP engine.
+ * Queries of the form "SELECT * FROM sensor_x WHERE value > 30", i.e. stateless filters on a single event type
+ * whose select list and where clause only refer to the value and time fields, are compiled into a predicate
+ * (see {@link CEPPredicateCompiler}). For each value log of the component, the predicate is evaluated
+ * on the receiving thread without creating an event object or passing the CEP engine; the output of the query
+ * is only created in case the predicate matches.
+ */
+class CEPFastPathTrigger implements CEPQuery {
+    //Pattern for single-stream filter queries (select list, event type, optional alias, where clause)
+    private static final Pattern QUERY_PATTERN = Pattern.compile(
+            "^\\s*SELECT\\s+(.+?)\\s+FROM\\s+([A-Za-z_$][A-Za-z0-9_$]*)(?:\\s+(?:AS\\s+)?([A-Za-z_$][A-Za-z0-9_$]*))?" +
+                    "\\s+WHERE\\s+(.+?)\\s*;?\\s*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    //Pattern for elements of the select list (field and optional alias)
+    private static final Pattern SELECT_ELEMENT_PATTERN = Pattern.compile(
+            "^\\s*([A-Za-z_$][A-Za-z0-9_$]*(?:\\.[A-Za-z_$][A-Za-z0-9_$]*)?)" +
+                    "(?:\\s+AS\\s+([A-Za-z_$][A-Za-z0-9_$]*))?\\s*$", Pattern.CASE_INSENSITIVE);
+
+    //Name of the event type the query selects from
+    private final String eventTypeName;
+
+    //The compiled where clause
+    private final CEPPredicateCompiler.Predicate predicate;
+
+    //Output names and the fields they refer to (true for the value, false for the time)
+    private final String[] outputNames;
+    private final boolean[] outputValues;
+
+    //The subscriber to notify and the state of the query
+    private volatile CEPQuerySubscriber subscriber = null;
+    private volatile boolean active = true;
+
+    //Statistics
+    private final LongAdder eventsProcessed = new LongAdder();
+    private final LongAdder outputEvents = new LongAdder();
+
+    /**
+     * Creates a new fast path trigger.
+     *
+     * @param eventTypeName The name of the event type the query selects from
+     * @param predicate     The compiled where clause
+     * @param outputNames   The names of the output fields
+     * @param outputValues  For each output field, whether it refers to the value (true) or the time (false)
+     */
+    private CEPFastPathTrigger(String eventTypeName, CEPPredicateCompiler.Predicate predicate, String[] outputNames,
+                               boolean[] outputValues) {
+        this.eventTypeName = eventTypeName;
+        this.predicate = predicate;
+        this.outputNames = outputNames;
+        this.outputValues = outputValues;
+    }
+
+    /**
+     * Compiles a given query string into a fast path trigger, if the query is a stateless filter on a single
+     * event type that only refers to the value and time fields.
+     *
+     * @param query The query string to compile
+     * @return The compiled trigger; null, if the query is not supported by the fast path
+     */
+    static CEPFastPathTrigger fromQuery(String query) {
+        //Sanity check
+        if (query == null) {
+            throw new IllegalArgumentException("Query must not be null.");
+        }
+
+        //Check for single-stream filter query
+        Matcher queryMatcher = QUERY_PATTERN.matcher(query);
+        if (!queryMatcher.matches()) {
+            return null;
+        }
+        String eventTypeName = queryMatcher.group(2);
+        String alias = queryMatcher.group(3);
+        String streamName = (alias == null) ? eventTypeName : alias;
+
+        //Compile where clause
+        CEPPredicateCompiler.Predicate predicate = CEPPredicateCompiler.compile(queryMatcher.group(4), streamName);
+        if (predicate == null) {
+            return null;
+        }
+
+        //Resolve select list
+        String selectList = queryMatcher.group(1).trim();
+        if (selectList.equals("*")) {
+            String[] fieldNames = {CEPValueLogEvent.FIELD_VALUE, CEPValueLogEvent.FIELD_TIME};
+            return new CEPFastPathTrigger(eventTypeName, predicate, fieldNames, new boolean[]{true, false});
+        }
+        String[] elements = selectList.split(",");
+        String[] outputNames = new String[elements.length];
+        boolean[] outputValues = new boolean[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            Matcher elementMatcher = SELECT_ELEMENT_PATTERN.matcher(elements[i]);
+            if (!elementMatcher.matches()) {
+                return null;
+            }
+            String field = CEPPredicateCompiler.resolveField(elementMatcher.group(1), streamName);
+            if (field == null) {
+                return null;
+            }
+            outputNames[i] = (elementMatcher.group(2) == null) ? elementMatcher.group(1) : elementMatcher.group(2);
+            outputValues[i] = field.equals(CEPValueLogEvent.FIELD_VALUE);
+        }
+        return new CEPFastPathTrigger(eventTypeName, predicate, outputNames, outputValues);
+    }
+
+    /**
+     * Evaluates the query for a value log of the component and notifies the subscriber in case it matches.
+     *
+     * @param value The value of the value log
+     * @param time  The time of the value log in epoch seconds
+     */
+    void evaluate(double value, long time) {
+        if (!active) {
+            return;
+        }
+        eventsProcessed.increment();
+
+        //Check predicate
+        if (!predicate.test(value, time)) {
+            return;
+        }
+        outputEvents.increment();
+
+        //Create output only in case of a match
+        CEPQuerySubscriber currentSubscriber = subscriber;
+        if (currentSubscriber == null) {
+            return;
+        }
+        Map<Object, Object> outputMap = new HashMap<>();
+        for (int i = 0; i < outputNames.length; i++) {
+            outputMap.put(outputNames[i], outputValues[i] ? (Object) value : (Object) time);
+        }
+        currentSubscriber.onQueryTriggered(new CEPOutput(outputMap));
+    }
+
+    /**
+     * Returns the metrics of the query. Since the predicate is evaluated without the CEP engine, only the number
+     * of processed and output events is available.
+     *
+     * @param name The name of the query
+     * @return The metrics of the query
+     */
+    CEPQueryMetrics getMetrics(String name) {
+        CEPQueryMetrics metrics = new CEPQueryMetrics(name);
+        metrics.setEventsProcessed(eventsProcessed.sum());
+        metrics.setOutputEvents(outputEvents.sum());
+        return metrics;
+    }
+
+    /**
+     * Returns the name of the event type the query selects from.
+     *
+     * @return The event type name
+     */
+    String getEventTypeName() {
+        return eventTypeName;
+    }
+
+    @Override
+    public void setSubscriber(CEPQuerySubscriber subscriber) {
+        //Sanity check
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber must not be null.");
+        }
+        this.subscriber = subscriber;
+    }
+
+    @Override
+    public void unregister() {
+        active = false;
+        subscriber = null;
+    }
+
+    @Override
+    public void enable() {
+        active = true;
+    }
+
+    @Override
+    public void disable() {
+        active = false;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+}
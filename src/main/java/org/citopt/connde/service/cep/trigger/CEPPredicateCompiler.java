@@ -0,0 +1,376 @@
+package org.citopt.connde.service.cep.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiler for the where clauses of simple trigger queries. Stateless expressions over the value and the time
+ * field of value log events are compiled into predicates that can be evaluated directly, without passing events
+ * through the CEP engine. Supported are numeric literals, the fields "value" and "time" (optionally qualified by
+ * the stream name), the arithmetic operators +, -, *, /, %, the comparison operators =, !=, &lt;&gt;, &lt;,
+ * &lt;=, &gt;, &gt;= and the logical operators AND, OR, NOT with parentheses. As in the CEP engine, division always
+ * yields a floating point result.
+ */
+final class CEPPredicateCompiler {
+    //Pattern for the tokens of expressions
+    private static final Pattern TOKEN_PATTERN = Pattern.compile(
+            "\\s*(\\d+(?:\\.\\d+)?|[A-Za-z_$][A-Za-z0-9_$]*(?:\\.[A-Za-z_$][A-Za-z0-9_$]*)?|" +
+                    "<=|>=|<>|!=|[<>=+\\-*/%()])");
+
+    /**
+     * Predicate over the fields of a value log event.
+     */
+    interface Predicate {
+        /**
+         * Evaluates the predicate for a given event.
+         *
+         * @param value The value of the event
+         * @param time  The time of the event in epoch seconds
+         * @return True, if the event satisfies the predicate; false otherwise
+         */
+        boolean test(double value, long time);
+    }
+
+    /**
+     * Numeric expression over the fields of a value log event.
+     */
+    private interface NumericExpression {
+        /**
+         * Evaluates the expression for a given event.
+         *
+         * @param value The value of the event
+         * @param time  The time of the event in epoch seconds
+         * @return The result of the expression
+         */
+        double evaluate(double value, long time);
+    }
+
+    //Tokens of the expression and current position
+    private final List<String> tokens;
+    private final String streamName;
+    private int position = 0;
+
+    /**
+     * Creates a new compiler for the given tokens.
+     *
+     * @param tokens     The tokens of the expression
+     * @param streamName The name of the stream by which fields may be qualified
+     */
+    private CEPPredicateCompiler(List<String> tokens, String streamName) {
+        this.tokens = tokens;
+        this.streamName = streamName;
+    }
+
+    /**
+     * Compiles a given where clause into a predicate.
+     *
+     * @param expression The where clause to compile
+     * @param streamName The name of the stream by which fields may be qualified
+     * @return The compiled predicate; null, if the expression is not supported
+     */
+    static Predicate compile(String expression, String streamName) {
+        //Sanity check
+        if ((expression == null) || (streamName == null)) {
+            throw new IllegalArgumentException("Expression and stream name must not be null.");
+        }
+
+        //Split expression into tokens
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN_PATTERN.matcher(expression);
+        int end = 0;
+        while (matcher.find() && (matcher.start() == end)) {
+            tokens.add(matcher.group(1));
+            end = matcher.end();
+        }
+        if (!expression.substring(end).trim().isEmpty()) {
+            return null;
+        }
+
+        //Parse tokens
+        CEPPredicateCompiler compiler = new CEPPredicateCompiler(tokens, streamName);
+        try {
+            Predicate predicate = compiler.parseOr();
+            return compiler.isAtEnd() ? predicate : null;
+        } catch (UnsupportedExpressionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a field name, optionally qualified by the stream name, to the name of a value log event field.
+     *
+     * @param identifier The identifier to resolve
+     * @param streamName The name of the stream
+     * @return The field name; null, if the identifier does not denote a field
+     */
+    static String resolveField(String identifier, String streamName) {
+        String field = identifier;
+        if (identifier.contains(".")) {
+            String[] parts = identifier.split("\\.");
+            if (!parts[0].equals(streamName)) {
+                return null;
+            }
+            field = parts[1];
+        }
+        boolean isField = CEPValueLogEvent.FIELD_VALUE.equals(field) || CEPValueLogEvent.FIELD_TIME.equals(field);
+        return isField ? field : null;
+    }
+
+    /**
+     * Parses a disjunction of predicates.
+     *
+     * @return The parsed predicate
+     */
+    private Predicate parseOr() {
+        Predicate left = parseAnd();
+        while (acceptKeyword("OR")) {
+            Predicate first = left;
+            Predicate second = parseAnd();
+            left = (value, time) -> first.test(value, time) || second.test(value, time);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a conjunction of predicates.
+     *
+     * @return The parsed predicate
+     */
+    private Predicate parseAnd() {
+        Predicate left = parseNot();
+        while (acceptKeyword("AND")) {
+            Predicate first = left;
+            Predicate second = parseNot();
+            left = (value, time) -> first.test(value, time) && second.test(value, time);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a negated predicate, a predicate in parentheses or a comparison.
+     *
+     * @return The parsed predicate
+     */
+    private Predicate parseNot() {
+        if (acceptKeyword("NOT")) {
+            Predicate operand = parseNot();
+            return (value, time) -> !operand.test(value, time);
+        }
+
+        //Parentheses may either enclose a predicate or a numeric expression
+        if ("(".equals(peek())) {
+            int start = position;
+            try {
+                position++;
+                Predicate predicate = parseOr();
+                expect(")");
+                if (!isComparisonOperator(peek()) && !isArithmeticOperator(peek())) {
+                    return predicate;
+                }
+            } catch (UnsupportedExpressionException e) {
+                //Not a predicate, try numeric expression
+            }
+            position = start;
+        }
+        return parseComparison();
+    }
+
+    /**
+     * Parses a comparison of two numeric expressions.
+     *
+     * @return The parsed predicate
+     */
+    private Predicate parseComparison() {
+        NumericExpression left = parseSum();
+        String operator = next();
+        NumericExpression right = parseSum();
+        switch (operator) {
+            case "=":
+                return (value, time) -> left.evaluate(value, time) == right.evaluate(value, time);
+            case "!=":
+            case "<>":
+                return (value, time) -> left.evaluate(value, time) != right.evaluate(value, time);
+            case "<":
+                return (value, time) -> left.evaluate(value, time) < right.evaluate(value, time);
+            case "<=":
+                return (value, time) -> left.evaluate(value, time) <= right.evaluate(value, time);
+            case ">":
+                return (value, time) -> left.evaluate(value, time) > right.evaluate(value, time);
+            case ">=":
+                return (value, time) -> left.evaluate(value, time) >= right.evaluate(value, time);
+            default:
+                throw new UnsupportedExpressionException();
+        }
+    }
+
+    /**
+     * Parses a sum or difference of numeric expressions.
+     *
+     * @return The parsed expression
+     */
+    private NumericExpression parseSum() {
+        NumericExpression left = parseProduct();
+        while ("+".equals(peek()) || "-".equals(peek())) {
+            String operator = next();
+            NumericExpression first = left;
+            NumericExpression second = parseProduct();
+            left = operator.equals("+") ? (value, time) -> first.evaluate(value, time) + second.evaluate(value, time) :
+                    (value, time) -> first.evaluate(value, time) - second.evaluate(value, time);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a product, quotient or remainder of numeric expressions.
+     *
+     * @return The parsed expression
+     */
+    private NumericExpression parseProduct() {
+        NumericExpression left = parseUnary();
+        while ("*".equals(peek()) || "/".equals(peek()) || "%".equals(peek())) {
+            String operator = next();
+            NumericExpression first = left;
+            NumericExpression second = parseUnary();
+            switch (operator) {
+                case "*":
+                    left = (value, time) -> first.evaluate(value, time) * second.evaluate(value, time);
+                    break;
+                case "/":
+                    left = (value, time) -> first.evaluate(value, time) / second.evaluate(value, time);
+                    break;
+                default:
+                    left = (value, time) -> first.evaluate(value, time) % second.evaluate(value, time);
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Parses a numeric expression with an optional unary minus.
+     *
+     * @return The parsed expression
+     */
+    private NumericExpression parseUnary() {
+        if ("-".equals(peek())) {
+            position++;
+            NumericExpression operand = parseUnary();
+            return (value, time) -> -operand.evaluate(value, time);
+        }
+        return parsePrimary();
+    }
+
+    /**
+     * Parses a numeric literal, a field or a numeric expression in parentheses.
+     *
+     * @return The parsed expression
+     */
+    private NumericExpression parsePrimary() {
+        String token = next();
+
+        //Nested numeric expression
+        if (token.equals("(")) {
+            NumericExpression expression = parseSum();
+            expect(")");
+            return expression;
+        }
+
+        //Numeric literal
+        if (Character.isDigit(token.charAt(0))) {
+            double constant = Double.parseDouble(token);
+            return (value, time) -> constant;
+        }
+
+        //Field of the event
+        String field = resolveField(token, streamName);
+        if (CEPValueLogEvent.FIELD_VALUE.equals(field)) {
+            return (value, time) -> value;
+        } else if (CEPValueLogEvent.FIELD_TIME.equals(field)) {
+            return (value, time) -> time;
+        }
+        throw new UnsupportedExpressionException();
+    }
+
+    /**
+     * Consumes the next token if it equals a given keyword (case-insensitive).
+     *
+     * @param keyword The keyword
+     * @return True, if the keyword was consumed; false otherwise
+     */
+    private boolean acceptKeyword(String keyword) {
+        if (keyword.equalsIgnoreCase(peek())) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the next token and checks whether it equals an expected token.
+     *
+     * @param token The expected token
+     */
+    private void expect(String token) {
+        if (!token.equals(next())) {
+            throw new UnsupportedExpressionException();
+        }
+    }
+
+    /**
+     * Returns the next token without consuming it.
+     *
+     * @return The next token; null, if all tokens were consumed
+     */
+    private String peek() {
+        return isAtEnd() ? null : tokens.get(position);
+    }
+
+    /**
+     * Consumes and returns the next token.
+     *
+     * @return The next token
+     */
+    private String next() {
+        if (isAtEnd()) {
+            throw new UnsupportedExpressionException();
+        }
+        return tokens.get(position++);
+    }
+
+    /**
+     * Returns whether all tokens were consumed.
+     *
+     * @return True, if all tokens were consumed; false otherwise
+     */
+    private boolean isAtEnd() {
+        return position >= tokens.size();
+    }
+
+    /**
+     * Checks whether a given token is a comparison operator.
+     *
+     * @param token The token to check
+     * @return True, if the token is a comparison operator; false otherwise
+     */
+    private static boolean isComparisonOperator(String token) {
+        return "=".equals(token) || "!=".equals(token) || "<>".equals(token) || "<".equals(token) ||
+                "<=".equals(token) || ">".equals(token) || ">=".equals(token);
+    }
+
+    /**
+     * Checks whether a given token is an arithmetic operator.
+     *
+     * @param token The token to check
+     * @return True, if the token is an arithmetic operator; false otherwise
+     */
+    private static boolean isArithmeticOperator(String token) {
+        return "+".equals(token) || "-".equals(token) || "*".equals(token) || "/".equals(token) || "%".equals(token);
+    }
+
+    /**
+     * Exception that indicates that an expression uses constructs that are not supported by the compiler.
+     */
+    private static class UnsupportedExpressionException extends RuntimeException {
+    }
+}
@@ -0,0 +1,220 @@
+package org.citopt.connde.service.cep.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parameterised template of a trigger query. Trigger queries that only differ in the numeric constants of their
+ * comparisons (e.g. "value > 20" and "value > 25" on the same sensor) share the same template, which is identified
+ * by the query string in which these constants are replaced by placeholders. Only stateless queries that select
+ * from a single event type without data windows, aggregations or patterns are supported as templates, since
+ * only their firings can be attributed to single parameter sets without changing their semantics.
+ */
+final class CEPQueryTemplate {
+    //Placeholder for the parameters within the template shape
+    private static final String PLACEHOLDER = "?";
+
+    //Alias and field names of the parameter stream within the shared statement
+    static final String PARAMS_ALIAS = "tpl_params";
+    static final String FIELD_TRIGGER_ID = "tpl_trigger_id";
+    static final String FIELD_ACTIVE = "tpl_active";
+    static final String FIELD_PARAMETER_PREFIX = "tpl_p";
+
+    //Pattern for simple single-stream queries (select list, event type, optional alias, where clause)
+    private static final Pattern QUERY_PATTERN = Pattern.compile(
+            "^\\s*SELECT\\s+(.+?)\\s+FROM\\s+([A-Za-z_$][A-Za-z0-9_$]*)(?:\\s+(?:AS\\s+)?([A-Za-z_$][A-Za-z0-9_$]*))?" +
+                    "\\s+WHERE\\s+(.+?)\\s*;?\\s*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    //Pattern for constructs that make a query stateful or otherwise unsuitable for templates
+    private static final Pattern UNSUPPORTED_PATTERN = Pattern.compile(
+            "[#:?'\"\\[]|->|\\b(pattern|every|having|output|limit|join|unidirectional|insert|into|istream|rstream|" +
+                    "irstream|distinct)\\b|\\b(group|order)\\s+by\\b|\\(\\s*select\\b|\\b(prev|prior|prevtail|" +
+                    "prevwindow|prevcount|count|sum|avg|min|max|median|stddev|avedev|first|last|window|rate|" +
+                    "leaving|nth|maxby|minby|sorted)\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    //Pattern for numeric literals
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("(?<![A-Za-z0-9_$.])\\d+(?:\\.\\d+)?(?![A-Za-z0-9_$.])");
+
+    //Template shape of the query with placeholders instead of constants
+    private final String shape;
+
+    //Parts of the query
+    private final String selectList;
+    private final String eventTypeName;
+    private final String streamName;
+    private final String whereClause;
+
+    //Values of the parameters in the order of their placeholders
+    private final double[] parameters;
+
+    /**
+     * Creates a new query template.
+     *
+     * @param selectList    The select list of the query
+     * @param eventTypeName The name of the event type the query selects from
+     * @param alias         The alias of the event type within the query or null, if no alias is used
+     * @param whereClause   The where clause of the query with placeholders instead of constants
+     * @param parameters    The values of the parameters
+     */
+    private CEPQueryTemplate(String selectList, String eventTypeName, String alias, String whereClause,
+                             double[] parameters) {
+        this.selectList = selectList;
+        this.eventTypeName = eventTypeName;
+        this.streamName = (alias == null) ? eventTypeName : alias;
+        this.whereClause = whereClause;
+        this.parameters = parameters;
+        this.shape = "SELECT " + selectList + " FROM " + eventTypeName + ((alias == null) ? "" : " AS " + alias) +
+                " WHERE " + whereClause;
+    }
+
+    /**
+     * Derives the template of a given query string. The numeric constants that are operands of comparisons
+     * within the where clause become the parameters of the template.
+     *
+     * @param query The query string
+     * @return The template of the query; null, if the query is not suitable for templates
+     */
+    static CEPQueryTemplate fromQuery(String query) {
+        //Sanity check
+        if (query == null) {
+            throw new IllegalArgumentException("Query must not be null.");
+        }
+
+        //Check for simple single-stream query without stateful constructs
+        Matcher queryMatcher = QUERY_PATTERN.matcher(query);
+        if ((!queryMatcher.matches()) || UNSUPPORTED_PATTERN.matcher(query).find()) {
+            return null;
+        }
+
+        //Wildcards are only supported as sole element of the select list
+        String selectList = normalize(queryMatcher.group(1));
+        if (selectList.contains("*") && (!selectList.equals("*"))) {
+            return null;
+        }
+
+        //The alias must not collide with the parameter stream
+        String alias = queryMatcher.group(3);
+        if (PARAMS_ALIAS.equalsIgnoreCase(alias)) {
+            return null;
+        }
+
+        //Replace constants of comparisons by placeholders
+        String whereClause = normalize(queryMatcher.group(4));
+        List<Double> parameterList = new ArrayList<>();
+        StringBuilder whereBuilder = new StringBuilder();
+        Matcher numberMatcher = NUMBER_PATTERN.matcher(whereClause);
+        int position = 0;
+        while (numberMatcher.find()) {
+            if (!isComparisonOperand(whereClause, numberMatcher.start(), numberMatcher.end())) {
+                continue;
+            }
+            whereBuilder.append(whereClause, position, numberMatcher.start()).append(PLACEHOLDER);
+            parameterList.add(Double.parseDouble(numberMatcher.group()));
+            position = numberMatcher.end();
+        }
+        whereBuilder.append(whereClause.substring(position));
+
+        //Queries without parameters do not benefit from templates
+        if (parameterList.isEmpty()) {
+            return null;
+        }
+
+        double[] parameters = parameterList.stream().mapToDouble(Double::doubleValue).toArray();
+        return new CEPQueryTemplate(selectList, queryMatcher.group(2), alias, whereBuilder.toString(), parameters);
+    }
+
+    /**
+     * Builds the query string of the shared statement of the template. The statement joins each event of the
+     * template event type with the parameter sets of all active triggers of the template and outputs the id
+     * of the matching trigger together with the selected fields.
+     *
+     * @param paramsTypeName The name of the event type of the parameter sets
+     * @return The query string of the shared statement
+     */
+    String buildSharedStatement(String paramsTypeName) {
+        //Replace placeholders by the fields of the parameter stream
+        StringBuilder where = new StringBuilder();
+        int parameterIndex = 0;
+        for (char c : whereClause.toCharArray()) {
+            if (c == PLACEHOLDER.charAt(0)) {
+                where.append(PARAMS_ALIAS).append('.').append(FIELD_PARAMETER_PREFIX).append(parameterIndex++);
+            } else {
+                where.append(c);
+            }
+        }
+
+        String select = selectList.equals("*") ? (streamName + ".*") : selectList;
+        return "SELECT " + select + ", " + PARAMS_ALIAS + "." + FIELD_TRIGGER_ID + " AS " + FIELD_TRIGGER_ID +
+                " FROM " + eventTypeName + " AS " + streamName + " unidirectional, " +
+                paramsTypeName + "#unique(" + FIELD_TRIGGER_ID + ") AS " + PARAMS_ALIAS +
+                " WHERE " + PARAMS_ALIAS + "." + FIELD_ACTIVE + " AND (" + where + ")";
+    }
+
+    /**
+     * Returns the shape of the template, i.e. the normalized query string with placeholders instead of
+     * the constants. Queries with the same shape share the same template.
+     *
+     * @return The shape
+     */
+    String getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns the name of the event type the template selects from.
+     *
+     * @return The event type name
+     */
+    String getEventTypeName() {
+        return eventTypeName;
+    }
+
+    /**
+     * Returns the values of the parameters of the query from which the template was derived.
+     *
+     * @return The parameter values
+     */
+    double[] getParameters() {
+        return parameters.clone();
+    }
+
+    /**
+     * Returns the number of parameters of the template.
+     *
+     * @return The number of parameters
+     */
+    int getNumberParameters() {
+        return parameters.length;
+    }
+
+    /**
+     * Checks whether a numeric literal at a given position within an expression is a direct operand
+     * of a comparison, possibly with a unary minus.
+     *
+     * @param expression The expression
+     * @param start      The start index of the literal
+     * @param end        The end index of the literal
+     * @return True, if the literal is operand of a comparison; false otherwise
+     */
+    private static boolean isComparisonOperand(String expression, int start, int end) {
+        String before = expression.substring(0, start).trim();
+        if (before.endsWith("-")) {
+            before = before.substring(0, before.length() - 1).trim();
+        }
+        String after = expression.substring(end).trim();
+        return before.endsWith("<") || before.endsWith(">") || before.endsWith("=") ||
+                after.startsWith("<") || after.startsWith(">") || after.startsWith("=") || after.startsWith("!=");
+    }
+
+    /**
+     * Normalizes the whitespace of a given part of a query string.
+     *
+     * @param part The part to normalize
+     * @return The normalized part
+     */
+    private static String normalize(String part) {
+        return part.trim().replaceAll("\\s+", " ");
+    }
+}
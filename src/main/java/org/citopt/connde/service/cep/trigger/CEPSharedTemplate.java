@@ -0,0 +1,238 @@
+package org.citopt.connde.service.cep.trigger;
+
+import org.citopt.connde.service.cep.engine.core.CEPEngine;
+import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventRepresentation;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
+import org.citopt.connde.service.cep.engine.core.events.CEPPrimitiveDataTypes;
+import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQuery;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQuerySubscriber;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared evaluation of all triggers whose queries have the same template. Instead of one statement per trigger,
+ * a single statement is registered at the CEP engine for the template. The parameter sets of the triggers are
+ * passed to this statement as events of a dedicated parameter event type and retained in a window, which
+ * the events of the template event type are joined with. Firings of the shared statement carry the id of the
+ * matching trigger and are dispatched to the subscriber of this trigger. This way, the cost of evaluation grows
+ * with the number of distinct templates instead of the number of triggers.
+ */
+class CEPSharedTemplate {
+    //The CEP engine at which the shared statement is registered
+    private final CEPEngine engine;
+
+    //The template and the name of the shared statement
+    private final CEPQueryTemplate template;
+    private final String statementName;
+
+    //The event type of the parameter sets
+    private final CEPEventType paramsType;
+
+    //The shared statement
+    private CEPQuery query;
+
+    //Map (trigger id --> member) of the triggers that share this template
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new shared template. The shared statement is not registered before the template is started.
+     *
+     * @param engine         The CEP engine to use
+     * @param template       The template
+     * @param statementName  The name of the shared statement
+     * @param paramsTypeName The name of the event type of the parameter sets
+     */
+    CEPSharedTemplate(CEPEngine engine, CEPQueryTemplate template, String statementName, String paramsTypeName) {
+        this.engine = engine;
+        this.template = template;
+        this.statementName = statementName;
+        this.paramsType = createParamsType(paramsTypeName, template.getNumberParameters());
+    }
+
+    /**
+     * Registers the shared statement at the CEP engine and subscribes to it. The parameter event type needs
+     * to be registered at the engine before.
+     */
+    synchronized void start() {
+        query = engine.createQuery(statementName, template.buildSharedStatement(paramsType.getName()));
+        query.setSubscriber(this::dispatch);
+    }
+
+    /**
+     * Unregisters the shared statement from the CEP engine.
+     */
+    synchronized void stop() {
+        if (query != null) {
+            query.disable();
+            query.unregister();
+            query = null;
+        }
+    }
+
+    /**
+     * Adds a trigger with a certain parameter set to this template and returns a query object that represents
+     * the trigger within the shared statement. The trigger is active as soon as it has been added.
+     *
+     * @param triggerId  The id of the trigger
+     * @param parameters The parameter values of the trigger
+     * @return The query object of the trigger
+     */
+    CEPQuery addMember(String triggerId, double[] parameters) {
+        //Sanity check
+        if (parameters.length != template.getNumberParameters()) {
+            throw new IllegalArgumentException("Number of parameters does not match the template.");
+        }
+
+        Member member = new Member(triggerId, parameters);
+        members.put(triggerId, member);
+        member.enable();
+        return member;
+    }
+
+    /**
+     * Returns whether triggers are still members of this template.
+     *
+     * @return True, if the template has no members; false otherwise
+     */
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * Returns the name of the shared statement.
+     *
+     * @return The statement name
+     */
+    String getStatementName() {
+        return statementName;
+    }
+
+    /**
+     * Returns the event type of the parameter sets.
+     *
+     * @return The parameter event type
+     */
+    CEPEventType getParamsType() {
+        return paramsType;
+    }
+
+    /**
+     * Dispatches a firing of the shared statement to the subscriber of the matching trigger.
+     *
+     * @param output The output of the shared statement
+     */
+    private void dispatch(CEPOutput output) {
+        //Remove trigger id from output and look up the trigger
+        Object triggerId = output.getOutputMap().remove(CEPQueryTemplate.FIELD_TRIGGER_ID);
+        Member member = (triggerId == null) ? null : members.get(triggerId.toString());
+
+        //Skip firings of removed, inactive or not yet subscribed triggers
+        if ((member == null) || (!member.active)) {
+            return;
+        }
+        CEPQuerySubscriber subscriber = member.subscriber;
+        if (subscriber != null) {
+            subscriber.onQueryTriggered(output);
+        }
+    }
+
+    /**
+     * Creates the event type of the parameter sets of a template.
+     *
+     * @param name             The name of the event type
+     * @param numberParameters The number of parameters of the template
+     * @return The created event type
+     */
+    private static CEPEventType createParamsType(String name, int numberParameters) {
+        CEPEventType eventType = new CEPEventType(name, CEPEventRepresentation.OBJECT_ARRAY);
+        eventType.addField(CEPQueryTemplate.FIELD_TRIGGER_ID, CEPPrimitiveDataTypes.STRING);
+        eventType.addField(CEPQueryTemplate.FIELD_ACTIVE, CEPPrimitiveDataTypes.BOOLEAN);
+        for (int i = 0; i < numberParameters; i++) {
+            eventType.addField(CEPQueryTemplate.FIELD_PARAMETER_PREFIX + i, CEPPrimitiveDataTypes.DOUBLE);
+        }
+        return eventType;
+    }
+
+    /**
+     * A trigger within a shared template. Enabling and disabling the trigger updates its parameter set within
+     * the shared statement; unregistering it removes it from the template.
+     */
+    private class Member implements CEPQuery {
+        private final String triggerId;
+        private final double[] parameters;
+        private volatile CEPQuerySubscriber subscriber = null;
+        private volatile boolean active = false;
+
+        /**
+         * Creates a new member.
+         *
+         * @param triggerId  The id of the trigger
+         * @param parameters The parameter values of the trigger
+         */
+        private Member(String triggerId, double[] parameters) {
+            this.triggerId = triggerId;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void setSubscriber(CEPQuerySubscriber subscriber) {
+            //Sanity check
+            if (subscriber == null) {
+                throw new IllegalArgumentException("Subscriber must not be null.");
+            }
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void unregister() {
+            disable();
+            members.remove(triggerId, this);
+        }
+
+        @Override
+        public void enable() {
+            active = true;
+            sendParameters(true);
+        }
+
+        @Override
+        public void disable() {
+            active = false;
+            sendParameters(false);
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        /**
+         * Sends the parameter set of the trigger to the shared statement, replacing its previous parameter set.
+         *
+         * @param active Whether the trigger is active
+         */
+        private void sendParameters(boolean active) {
+            CEPEvent event = new CEPEvent() {
+                @Override
+                public String getEventTypeName() {
+                    return paramsType.getName();
+                }
+            };
+            event.addValue(CEPQueryTemplate.FIELD_TRIGGER_ID, triggerId);
+            event.addValue(CEPQueryTemplate.FIELD_ACTIVE, active);
+            for (int i = 0; i < parameters.length; i++) {
+                event.addValue(CEPQueryTemplate.FIELD_PARAMETER_PREFIX + i, parameters[i]);
+            }
+
+            try {
+                engine.sendEvent(event);
+            } catch (EventNotRegisteredException e) {
+                System.err.println("Parameter event not registered: " + e.getMessage());
+            }
+        }
+    }
+}
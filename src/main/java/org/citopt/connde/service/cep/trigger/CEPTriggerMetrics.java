@@ -0,0 +1,226 @@
+package org.citopt.connde.service.cep.trigger;
+
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Objects of this class hold the cost metrics of a certain rule trigger within the CEP engine, together with
+ * the state of the protection against expensive queries. They can be used as DTOs in order to retrieve
+ * the metrics to the client.
+ */
+public class CEPTriggerMetrics {
+    //Id and name of the trigger
+    private String triggerId = null;
+    private String triggerName = null;
+
+    //Metrics of the query of the trigger
+    private CEPQueryMetrics queryMetrics = null;
+
+    //Whether the query is evaluated by a statement that is shared with other triggers of the same template
+    private boolean shared = false;
+
+    //Whether the query is evaluated on the fast path without the CEP engine
+    private boolean fastPath = false;
+
+    //State of the protection
+    private boolean disabled = false;
+    private boolean throttled = false;
+    private long suppressedFirings = 0;
+
+    //Number of firings that were dropped, since too many callbacks were pending
+    private long droppedFirings = 0;
+
+    //Warnings of the query validation
+    private List<String> warnings = new ArrayList<>();
+
+    /**
+     * Creates a new and empty metrics object.
+     */
+    public CEPTriggerMetrics() {
+    }
+
+    /**
+     * Returns the id of the trigger.
+     *
+     * @return The trigger id
+     */
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    /**
+     * Sets the id of the trigger.
+     *
+     * @param triggerId The trigger id
+     */
+    public void setTriggerId(String triggerId) {
+        this.triggerId = triggerId;
+    }
+
+    /**
+     * Returns the name of the trigger.
+     *
+     * @return The trigger name
+     */
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    /**
+     * Sets the name of the trigger.
+     *
+     * @param triggerName The trigger name
+     */
+    public void setTriggerName(String triggerName) {
+        this.triggerName = triggerName;
+    }
+
+    /**
+     * Returns the metrics of the query of the trigger within the CEP engine.
+     *
+     * @return The query metrics
+     */
+    public CEPQueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Sets the metrics of the query of the trigger within the CEP engine.
+     *
+     * @param queryMetrics The query metrics
+     */
+    public void setQueryMetrics(CEPQueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    /**
+     * Returns whether the query of the trigger is evaluated by a statement that is shared with other triggers
+     * of the same template. In this case, the query metrics refer to the shared statement.
+     *
+     * @return True, if the statement is shared; false otherwise
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Sets whether the query of the trigger is evaluated by a statement that is shared with other triggers
+     * of the same template.
+     *
+     * @param shared True, if the statement is shared; false otherwise
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Returns whether the query of the trigger is evaluated on the fast path without the CEP engine. In this case,
+     * the query metrics only comprise the numbers of processed and output events.
+     *
+     * @return True, if the query is evaluated on the fast path; false otherwise
+     */
+    public boolean isFastPath() {
+        return fastPath;
+    }
+
+    /**
+     * Sets whether the query of the trigger is evaluated on the fast path without the CEP engine.
+     *
+     * @param fastPath True, if the query is evaluated on the fast path; false otherwise
+     */
+    public void setFastPath(boolean fastPath) {
+        this.fastPath = fastPath;
+    }
+
+    /**
+     * Returns whether the query of the trigger was disabled automatically, since it exceeded its CPU budget.
+     *
+     * @return True, if the query was disabled; false otherwise
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    /**
+     * Sets whether the query of the trigger was disabled automatically, since it exceeded its CPU budget.
+     *
+     * @param disabled True, if the query was disabled; false otherwise
+     */
+    public void setDisabled(boolean disabled) {
+        this.disabled = disabled;
+    }
+
+    /**
+     * Returns whether firings of the trigger were suppressed within the last second, since it exceeded its firing rate budget.
+     *
+     * @return True, if the trigger is throttled; false otherwise
+     */
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Sets whether firings of the trigger were suppressed within the last second, since it exceeded its firing rate budget.
+     *
+     * @param throttled True, if the trigger is throttled; false otherwise
+     */
+    public void setThrottled(boolean throttled) {
+        this.throttled = throttled;
+    }
+
+    /**
+     * Returns the total number of firings of the trigger that were suppressed due to throttling.
+     *
+     * @return The number of suppressed firings
+     */
+    public long getSuppressedFirings() {
+        return suppressedFirings;
+    }
+
+    /**
+     * Sets the total number of firings of the trigger that were suppressed due to throttling.
+     *
+     * @param suppressedFirings The number of suppressed firings
+     */
+    public void setSuppressedFirings(long suppressedFirings) {
+        this.suppressedFirings = suppressedFirings;
+    }
+
+    /**
+     * Returns the total number of firings of the trigger that were dropped, since too many callbacks were pending.
+     *
+     * @return The number of dropped firings
+     */
+    public long getDroppedFirings() {
+        return droppedFirings;
+    }
+
+    /**
+     * Sets the total number of firings of the trigger that were dropped, since too many callbacks were pending.
+     *
+     * @param droppedFirings The number of dropped firings
+     */
+    public void setDroppedFirings(long droppedFirings) {
+        this.droppedFirings = droppedFirings;
+    }
+
+    /**
+     * Returns the warnings that were raised on validation of the query of the trigger.
+     *
+     * @return The list of warnings
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * Sets the warnings that were raised on validation of the query of the trigger.
+     *
+     * @param warnings The list of warnings
+     */
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings;
+    }
+}
@@ -1,9 +1,6 @@
 package org.citopt.connde.service.cep.trigger;
 
 import org.citopt.connde.domain.component.Component;
-import org.citopt.connde.domain.device.Device;
-import org.citopt.connde.domain.monitoring.MonitoringAdapter;
-import org.citopt.connde.domain.monitoring.MonitoringComponent;
 import org.citopt.connde.domain.rules.RuleTrigger;
 import org.citopt.connde.domain.valueLog.ValueLog;
 import org.citopt.connde.repository.ActuatorRepository;
@@ -12,44 +9,206 @@ import org.citopt.connde.repository.MonitoringAdapterRepository;
 import org.citopt.connde.repository.SensorRepository;
 import org.citopt.connde.service.cep.engine.core.CEPEngine;
 import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
-import org.citopt.connde.service.cep.engine.core.events.CEPPrimitiveDataTypes;
 import org.citopt.connde.service.cep.engine.core.exceptions.EventNotRegisteredException;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackLane;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQuery;
+import org.citopt.connde.service.cep.engine.core.queries.CEPQueryMetrics;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
-import org.citopt.connde.service.receiver.ValueLogReceiver;
+import org.citopt.connde.service.compression.ValueLogCompressionService;
 import org.citopt.connde.service.receiver.ValueLogReceiverObserver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * This service provides means for registering rule triggers with callbacks at the CEP engine. Furthermore,
- * it takes care about registering event types for different the different components entities at the CEP engine
- * and works as a observer for the received value logs.
+ * it takes care about registering event types for the components at the CEP engine and works as a observer
+ * for the received value logs. Event types are registered on demand, as soon as they are referenced
+ * by the query of a registered rule trigger, and are unregistered when their components are deleted. Value logs
+ * of components whose event types are not referenced by any registered trigger are not passed to the engine
+ * at all. Triggers whose queries only differ in the constants of their comparisons share a single statement at
+ * the engine (see {@link CEPSharedTemplate}). Simple filter triggers on the value and time of a single component
+ * bypass the engine entirely and are evaluated directly on the thread that receives the value logs
+ * (see {@link CEPFastPathTrigger}).
  */
 @Service
 public class CEPTriggerService implements ValueLogReceiverObserver {
+    //Pattern for identifiers within query strings
+    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    //Maximum time to wait for the processing of replayed events in milliseconds
+    private static final long RESTORE_PROCESSING_TIMEOUT = 30000;
+
+    //Maximum number of received value logs that are held back while the window state is being restored
+    private static final int MAX_RESTORE_BACKLOG = 100000;
+
+    //Property keys and defaults of the budgets of the triggers
+    private static final String PROPERTY_MAX_CPU_LOAD = "cep.trigger.max_cpu_load";
+    private static final String PROPERTY_MAX_FIRING_RATE = "cep.trigger.max_firing_rate";
+    private static final String PROPERTY_BUDGET_CHECK_INTERVAL = "cep.trigger.budget_check_interval";
+
+    //Maximum CPU time in milliseconds per second that the query of a trigger may consume before it is disabled
+    private static final double DEFAULT_MAX_CPU_LOAD = 200;
+
+    //Maximum number of firings per second of a trigger beyond which firings are suppressed (0 = unlimited)
+    private static final int DEFAULT_MAX_FIRING_RATE = 0;
+
+    //Interval between two checks of the CPU budgets of the triggers in seconds
+    private static final long DEFAULT_BUDGET_CHECK_INTERVAL = 10;
+
+    //Pattern for data windows that retain all events and hence grow without bounds
+    private static final Pattern UNBOUNDED_WINDOW_PATTERN = Pattern.compile("(win:|#)\\s*keepall\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    //Pattern for views that grow with the number of distinct values of their keys
+    private static final Pattern KEYED_VIEW_PATTERN = Pattern.compile("(std:|#)\\s*(groupwin|unique|firstunique)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    //Patterns for repeating pattern expressions and for their time limitation
+    private static final Pattern EVERY_PATTERN = Pattern.compile("\\bevery\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WITHIN_PATTERN = Pattern.compile("timer:within\\b", Pattern.CASE_INSENSITIVE);
+
+    //Patterns for time periods (e.g. "5 min 30 sec") and their components
+    private static final Pattern TIME_PERIOD_PATTERN = Pattern.compile("(?:\\b\\d+(?:\\.\\d+)?\\s*" +
+            "(?:milliseconds?|msec|minutes?|min|seconds?|sec|hours?|days?|weeks?|months?|years?)\\b\\s*)+",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern TIME_PERIOD_COMPONENT_PATTERN = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*" +
+            "(milliseconds?|msec|minutes?|min|seconds?|sec|hours?|days?|weeks?|months?|years?)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    //Pattern for time windows whose size is given in seconds without unit
+    private static final Pattern TIME_WINDOW_SECONDS_PATTERN = Pattern.compile(
+            "(?:win:|#)\\s*(?:time|time_batch|firsttime|time_accum)\\s*\\(\\s*(\\d+(?:\\.\\d+)?)\\s*\\)",
+            Pattern.CASE_INSENSITIVE);
+
+    //Pattern for views that retain events independently of their age
+    private static final Pattern COUNT_VIEW_PATTERN = Pattern.compile(
+            "(?:win:|std:|#)\\s*(?:length|length_batch|firstlength|lastevent|firstevent|unique|firstunique)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    //Pattern for names of value log event types (component type name and normalized component id)
+    private static final Pattern EVENT_TYPE_NAME_PATTERN = Pattern.compile("^(sensor|actuator|monitoring)_([a-z0-9_]+)$");
 
     //The CEP engine instance to use
     private CEPEngine engine;
 
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ActuatorRepository actuatorRepository;
+
+    @Autowired
+    private MonitoringAdapterRepository monitoringAdapterRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private CEPWindowCheckpointService checkpointService;
+
+    //Map (component id --> event type name) of the event type names of the components
+    private Map<String, String> eventTypeNames = new ConcurrentHashMap<>();
+
+    //Names of the event types that have been registered at the engine
+    private Set<String> registeredEventTypes = ConcurrentHashMap.newKeySet();
+
+    //Map (event type name --> number of triggers) of event types that are referenced by registered triggers
+    private Map<String, Integer> activeEventTypes = new ConcurrentHashMap<>();
+
+    //Map (query name --> event type names) of the event types that are referenced by the registered triggers
+    private Map<String, Set<String>> triggerEventTypes = new ConcurrentHashMap<>();
+
+    //Map (event type name --> component id) of the components the registered event types belong to
+    private Map<String, String> eventTypeComponents = new ConcurrentHashMap<>();
+
+    //Event types of deleted components that are unregistered as soon as no registered trigger references them
+    private Set<String> orphanedEventTypes = ConcurrentHashMap.newKeySet();
+
+    //Whether the window state of the triggers is currently being restored
+    private volatile boolean restoring = false;
+
+    //Start time (epoch milliseconds) of the current restore
+    private long restoreStartTime = 0;
+
+    //Subscriptions of triggers that are deferred until the restore is completed
+    private List<Runnable> deferredSubscriptions = new ArrayList<>();
+
+    //Events of received value logs that are held back until the restore is completed
+    private List<CEPValueLogEvent> restoreBacklog = new ArrayList<>();
+
+    //Number of received value logs that were discarded, since the backlog of the restore was full
+    private long discardedBacklogEvents = 0;
+
+    //Map (query name --> accounting) of the cost accounting of the registered triggers
+    private Map<String, TriggerAccounting> triggerAccountings = new ConcurrentHashMap<>();
+
+    //Executor for the periodic checks of the CPU budgets
+    private ScheduledExecutorService budgetExecutor;
+
+    //Budgets of the triggers: CPU time in milliseconds per second and firings per second (0 = unlimited)
+    private final double maxCpuLoad;
+    private final int maxFiringRate;
+
+    //Map (template shape --> shared template) of the templates that are shared by registered triggers
+    private final Map<String, CEPSharedTemplate> sharedTemplates = new HashMap<>();
+
+    //Map (template shape --> template number) of all templates that have been used so far
+    private final Map<String, Integer> templateNumbers = new HashMap<>();
+
+    //Counter for the numbers of templates
+    private final AtomicInteger templateCounter = new AtomicInteger();
+
+    //Map (event type name --> triggers) of the fast path triggers of the components, replaced on each change
+    private final Map<String, CEPFastPathTrigger[]> fastPathTriggers = new ConcurrentHashMap<>();
+
     /**
-     * Creates and initializes the CEP trigger service by passing a certain rule engine and a value log receiver
-     * instance (autowired).
+     * Creates and initializes the CEP trigger service by passing a certain rule engine and a value log compression
+     * service instance (autowired). The budgets of the triggers may be overridden within the config.properties file.
      *
-     * @param engine           The rule engine to use
-     * @param valueLogReceiver The value log receiver instance to use
+     * @param engine             The rule engine to use
+     * @param compressionService The value log compression service instance to use
+     * @param environment        The environment providing the configuration properties
      */
     @Autowired
-    private CEPTriggerService(CEPEngine engine, ValueLogReceiver valueLogReceiver) {
+    private CEPTriggerService(CEPEngine engine, ValueLogCompressionService compressionService,
+                              Environment environment) {
         this.engine = engine;
 
-        //Register as observer at the ValueLogReceiver
-        valueLogReceiver.registerObserver(this);
+        //Read budgets of the triggers
+        this.maxCpuLoad = environment.getProperty(PROPERTY_MAX_CPU_LOAD, Double.class, DEFAULT_MAX_CPU_LOAD);
+        this.maxFiringRate = environment.getProperty(PROPERTY_MAX_FIRING_RATE, Integer.class,
+                DEFAULT_MAX_FIRING_RATE);
+        long budgetCheckInterval = Math.max(1, environment.getProperty(PROPERTY_BUDGET_CHECK_INTERVAL, Long.class,
+                DEFAULT_BUDGET_CHECK_INTERVAL));
+
+        //Register as CEP observer, so that compression only applies if the adapter requests it
+        compressionService.registerCEPObserver(this);
+
+        //Check the CPU budgets of the triggers periodically
+        budgetExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cep-budget-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        budgetExecutor.scheduleWithFixedDelay(this::checkBudgets, budgetCheckInterval, budgetCheckInterval,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic checks of the CPU budgets.
+     */
+    @PreDestroy
+    public void shutdown() {
+        budgetExecutor.shutdownNow();
     }
 
     /**
@@ -67,14 +226,270 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
         //Generate query name
         String name = getQueryNameFromTrigger(ruleTrigger);
 
-        //Create query
-        CEPQuery query = engine.createQuery(name, ruleTrigger.getQuery());
+        //Evaluate simple filters on existing components directly, without the engine
+        CEPFastPathTrigger fastPathTrigger = CEPFastPathTrigger.fromQuery(ruleTrigger.getQuery());
+        if ((fastPathTrigger != null) && resolveReferencedComponents(ruleTrigger.getQuery())
+                .containsKey(fastPathTrigger.getEventTypeName())) {
+            registerFastPathTrigger(name, ruleTrigger, callback, fastPathTrigger);
+            return;
+        }
+
+        //Register the event types the query refers to
+        Set<String> eventTypes = registerReferencedEventTypes(ruleTrigger.getQuery());
+
+        //Join the shared statement of the query template or create a dedicated query
+        CEPQuery query;
+        String statementName;
+        TriggerMode mode;
+        CEPQueryTemplate template = CEPQueryTemplate.fromQuery(ruleTrigger.getQuery());
+        if (template != null) {
+            CEPSharedTemplate sharedTemplate = acquireSharedTemplate(template);
+            query = sharedTemplate.addMember(ruleTrigger.getId(), template.getParameters());
+            statementName = sharedTemplate.getStatementName();
+            mode = TriggerMode.SHARED;
+        } else {
+            query = engine.createQuery(name, ruleTrigger.getQuery());
+            statementName = name;
+            mode = TriggerMode.DEDICATED;
+        }
+
+        //Set up cost accounting
+        TriggerAccounting accounting = new TriggerAccounting(ruleTrigger, callback, query, statementName, mode);
+        accounting.warnings.addAll(getQueryWarnings(ruleTrigger.getQuery()));
+        triggerAccountings.put(name, accounting);
 
         //Set query subscriber
-        query.setSubscriber(output -> {
+        Runnable subscription = () -> query.setSubscriber(output -> {
+            //Suppress firings that exceed the firing rate budget
+            if (!accounting.tryFire(maxFiringRate)) {
+                return;
+            }
+
             //Execute rule trigger callback method
             callback.onTriggerFired(ruleTrigger, output);
         });
+
+        //Let value logs of the referenced event types pass
+        triggerEventTypes.put(name, eventTypes);
+        for (String eventType : eventTypes) {
+            activeEventTypes.merge(eventType, 1, Integer::sum);
+        }
+
+        //Defer subscription while restoring, so that replayed events do not fire the trigger
+        synchronized (this) {
+            if (restoring) {
+                deferredSubscriptions.add(subscription);
+                return;
+            }
+        }
+        subscription.run();
+    }
+
+    /**
+     * Registers a rule trigger whose query is evaluated on the fast path. Since fast path triggers are stateless,
+     * they neither need the CEP engine nor a restore of their state and are subscribed immediately. Their callbacks
+     * are executed within a dedicated lane of the callback executor of the engine, like those of engine queries.
+     *
+     * @param name            The query name of the trigger
+     * @param ruleTrigger     The rule trigger to register
+     * @param callback        The callback to call in case the trigger fires
+     * @param fastPathTrigger The compiled query of the trigger
+     */
+    private void registerFastPathTrigger(String name, RuleTrigger ruleTrigger, RuleTriggerCallback callback,
+                                         CEPFastPathTrigger fastPathTrigger) {
+        //Set up cost accounting
+        TriggerAccounting accounting = new TriggerAccounting(ruleTrigger, callback, fastPathTrigger, name,
+                TriggerMode.FAST_PATH);
+        triggerAccountings.put(name, accounting);
+
+        //Hand firings over to the lane of the trigger, so that the receiving thread is not blocked
+        CEPCallbackLane lane = engine.createCallbackLane();
+        fastPathTrigger.setSubscriber(output -> {
+            //Suppress firings that exceed the firing rate budget
+            if (!accounting.tryFire(maxFiringRate)) {
+                return;
+            }
+
+            if (!lane.submit(() -> callback.onTriggerFired(ruleTrigger, output))) {
+                accounting.countDroppedFiring();
+            }
+        });
+
+        //Add trigger to the triggers of the component
+        fastPathTriggers.compute(fastPathTrigger.getEventTypeName(), (eventTypeName, triggers) -> {
+            if (triggers == null) {
+                return new CEPFastPathTrigger[]{fastPathTrigger};
+            }
+            CEPFastPathTrigger[] newTriggers = Arrays.copyOf(triggers, triggers.length + 1);
+            newTriggers[triggers.length] = fastPathTrigger;
+            return newTriggers;
+        });
+    }
+
+    /**
+     * Removes a fast path trigger from the triggers of its component.
+     *
+     * @param fastPathTrigger The trigger to remove
+     */
+    private void removeFastPathTrigger(CEPFastPathTrigger fastPathTrigger) {
+        fastPathTriggers.computeIfPresent(fastPathTrigger.getEventTypeName(), (eventTypeName, triggers) -> {
+            CEPFastPathTrigger[] newTriggers = Arrays.stream(triggers)
+                    .filter(trigger -> trigger != fastPathTrigger)
+                    .toArray(CEPFastPathTrigger[]::new);
+            return (newTriggers.length == 0) ? null : newTriggers;
+        });
+    }
+
+    /**
+     * Starts the restore of the window state of triggers after a restart. The clock of the CEP engine is set back
+     * to the beginning of the retention period of the checkpoints, so that the statements of triggers that are
+     * registered from now on can be fed with the events before the restart at their original times. Until the
+     * restore is completed, these triggers do not fire and received value logs are held back.
+     */
+    public void beginWindowRestore() {
+        long startTime = System.currentTimeMillis();
+        synchronized (this) {
+            if (restoring) {
+                return;
+            }
+            restoring = true;
+            restoreStartTime = startTime;
+        }
+
+        //Switch to an external clock before the statements are created
+        engine.useExternalTime(startTime - checkpointService.getRetentionPeriod());
+        if (!engine.awaitEventProcessing(RESTORE_PROCESSING_TIMEOUT)) {
+            System.err.println("Clock of the CEP engine was not switched in time.");
+        }
+    }
+
+    /**
+     * Completes the restore of the window state of triggers after a restart. For all event types that are
+     * referenced by the registered triggers, the recent events within the window spans of the triggers are replayed
+     * to the CEP engine in the order of their time, while the clock of the engine is advanced along their times.
+     * This way, the windows of the triggers are filled as before the restart. Afterwards, the engine returns to the
+     * system time, the triggers are subscribed and the value logs that were held back are passed to the engine.
+     */
+    public void completeWindowRestore() {
+        long startTime;
+        synchronized (this) {
+            if (!restoring) {
+                return;
+            }
+            startTime = restoreStartTime;
+        }
+
+        //Collect the components and replay spans of all event types that are referenced by triggers
+        Map<String, String> replayEventTypes = new HashMap<>();
+        Map<String, Long> replaySpans = new HashMap<>();
+        for (Map.Entry<String, TriggerAccounting> entry : triggerAccountings.entrySet()) {
+            Set<String> eventTypes = triggerEventTypes.get(entry.getKey());
+            if ((eventTypes == null) || (entry.getValue().mode == TriggerMode.FAST_PATH)) {
+                continue;
+            }
+            long span = getWindowSpan(entry.getValue().trigger.getQuery());
+            for (String eventTypeName : eventTypes) {
+                String componentId = eventTypeComponents.get(eventTypeName);
+                if (componentId != null) {
+                    replayEventTypes.put(eventTypeName, componentId);
+                    replaySpans.merge(eventTypeName, span, Math::max);
+                }
+            }
+        }
+
+        //Replay recent events to the engine at their original times
+        long replayedEvents = checkpointService.replay(replayEventTypes, replaySpans, startTime,
+                (eventTypeName, time, value) -> {
+                    engine.advanceTime(time);
+                    try {
+                        engine.sendEvent(new CEPValueLogEvent(eventTypeName, value, time / 1000));
+                    } catch (EventNotRegisteredException e) {
+                        System.err.println("Event not registered: " + e.getMessage());
+                    }
+                });
+
+        //Return to the system time and wait until the replayed events have been processed
+        engine.useInternalTime();
+        if (!engine.awaitEventProcessing(RESTORE_PROCESSING_TIMEOUT)) {
+            System.err.println("Replayed events were not processed in time.");
+        }
+        System.out.println("Window state of the triggers restored from " + replayedEvents + " events.");
+
+        //Subscribe triggers and pass the held back value logs before further ones
+        synchronized (this) {
+            deferredSubscriptions.forEach(Runnable::run);
+            for (CEPValueLogEvent event : restoreBacklog) {
+                sendToEngine(event);
+            }
+            if (discardedBacklogEvents > 0) {
+                System.err.println(discardedBacklogEvents + " value logs were discarded during the restore.");
+            }
+            deferredSubscriptions = new ArrayList<>();
+            restoreBacklog = new ArrayList<>();
+            discardedBacklogEvents = 0;
+            restoring = false;
+        }
+    }
+
+    /**
+     * Determines the time span of the recent events that are needed in order to restore the window and pattern
+     * state of a given query. The span is given by the longest time period within the query. For queries with
+     * views that retain events independently of their age or without any time period, the span is unbounded.
+     *
+     * @param query The query string to analyze
+     * @return The time span in milliseconds; {@link Long#MAX_VALUE}, if the span is unbounded
+     */
+    private static long getWindowSpan(String query) {
+        if (COUNT_VIEW_PATTERN.matcher(query).find()) {
+            return Long.MAX_VALUE;
+        }
+
+        double span = -1;
+
+        //Check time periods with units
+        Matcher periodMatcher = TIME_PERIOD_PATTERN.matcher(query);
+        while (periodMatcher.find()) {
+            double period = 0;
+            Matcher componentMatcher = TIME_PERIOD_COMPONENT_PATTERN.matcher(periodMatcher.group());
+            while (componentMatcher.find()) {
+                period += Double.parseDouble(componentMatcher.group(1)) *
+                        getTimeUnitMillis(componentMatcher.group(2).toLowerCase());
+            }
+            span = Math.max(span, period);
+        }
+
+        //Check time windows with sizes in seconds
+        Matcher windowMatcher = TIME_WINDOW_SECONDS_PATTERN.matcher(query);
+        while (windowMatcher.find()) {
+            span = Math.max(span, Double.parseDouble(windowMatcher.group(1)) * 1000);
+        }
+
+        return (span < 0) ? Long.MAX_VALUE : (long) Math.ceil(span);
+    }
+
+    /**
+     * Returns the length of a time unit of time periods within queries.
+     *
+     * @param unit The name of the time unit in lower case
+     * @return The length of the unit in milliseconds
+     */
+    private static long getTimeUnitMillis(String unit) {
+        if (unit.startsWith("ms") || unit.startsWith("milli")) {
+            return 1;
+        } else if (unit.startsWith("s")) {
+            return TimeUnit.SECONDS.toMillis(1);
+        } else if (unit.startsWith("min")) {
+            return TimeUnit.MINUTES.toMillis(1);
+        } else if (unit.startsWith("h")) {
+            return TimeUnit.HOURS.toMillis(1);
+        } else if (unit.startsWith("d")) {
+            return TimeUnit.DAYS.toMillis(1);
+        } else if (unit.startsWith("w")) {
+            return TimeUnit.DAYS.toMillis(7);
+        } else if (unit.startsWith("mo")) {
+            return TimeUnit.DAYS.toMillis(30);
+        }
+        return TimeUnit.DAYS.toMillis(365);
     }
 
     /**
@@ -91,17 +506,100 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
         //Generate query name
         String name = getQueryNameFromTrigger(ruleTrigger);
 
-        //Get query with this name from engine
-        CEPQuery query = engine.getQueryByName(name);
+        //Remove cost accounting
+        TriggerAccounting accounting = triggerAccountings.remove(name);
 
-        //Sanity check
-        if (query == null) {
-            return;
+        //Stop passing value logs of event types that are no longer referenced
+        Set<String> eventTypes = triggerEventTypes.remove(name);
+        List<String> releasedEventTypes = new ArrayList<>();
+        if (eventTypes != null) {
+            for (String eventType : eventTypes) {
+                Integer remaining = activeEventTypes.computeIfPresent(eventType,
+                        (type, count) -> (count <= 1) ? null : count - 1);
+                if (remaining == null) {
+                    //Recent events of the event type are no longer needed
+                    checkpointService.release(eventType);
+                    releasedEventTypes.add(eventType);
+                }
+            }
+        }
+
+        //Get query of the trigger
+        CEPQuery query = (accounting != null) ? accounting.query : engine.getQueryByName(name);
+        if (query != null) {
+            //Unregister query
+            query.disable();
+            query.unregister();
+
+            //Remove shared statement of the template if it is no longer used
+            if ((accounting != null) && (accounting.mode == TriggerMode.SHARED)) {
+                releaseSharedTemplate(accounting.statementName);
+            } else if ((accounting != null) && (accounting.mode == TriggerMode.FAST_PATH)) {
+                removeFastPathTrigger((CEPFastPathTrigger) query);
+            }
+        }
+
+        //Unregister event types of deleted components that were only kept for this trigger
+        synchronized (this) {
+            for (String eventType : releasedEventTypes) {
+                if (orphanedEventTypes.remove(eventType)) {
+                    unregisterEventType(eventType);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the shared template for a given query template and creates it, if no registered trigger
+     * uses this template yet.
+     *
+     * @param template The query template
+     * @return The shared template
+     */
+    private CEPSharedTemplate acquireSharedTemplate(CEPQueryTemplate template) {
+        synchronized (sharedTemplates) {
+            CEPSharedTemplate sharedTemplate = sharedTemplates.get(template.getShape());
+            if (sharedTemplate != null) {
+                return sharedTemplate;
+            }
+
+            //Templates keep their number, so that their parameter event types are only registered once
+            Integer number = templateNumbers.get(template.getShape());
+            boolean newTemplate = (number == null);
+            if (newTemplate) {
+                number = templateCounter.incrementAndGet();
+                templateNumbers.put(template.getShape(), number);
+            }
+
+            //Create shared template and register its statement
+            sharedTemplate = new CEPSharedTemplate(engine, template, "template-" + number,
+                    "template_" + number + "_params");
+            if (newTemplate) {
+                engine.registerEventType(sharedTemplate.getParamsType());
+            }
+            sharedTemplate.start();
+            sharedTemplates.put(template.getShape(), sharedTemplate);
+            return sharedTemplate;
         }
+    }
 
-        //Unregister query
-        query.disable();
-        query.unregister();
+    /**
+     * Unregisters the shared statement of a template with a given statement name, if no registered trigger
+     * uses the template anymore.
+     *
+     * @param statementName The name of the shared statement
+     */
+    private void releaseSharedTemplate(String statementName) {
+        synchronized (sharedTemplates) {
+            Iterator<CEPSharedTemplate> iterator = sharedTemplates.values().iterator();
+            while (iterator.hasNext()) {
+                CEPSharedTemplate sharedTemplate = iterator.next();
+                if (sharedTemplate.getStatementName().equals(statementName) && sharedTemplate.isEmpty()) {
+                    sharedTemplate.stop();
+                    iterator.remove();
+                }
+            }
+        }
     }
 
     /**
@@ -112,10 +610,54 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
      */
     @Override
     public void onValueReceived(ValueLog valueLog) {
+        //Get event type name of the component (computed only once per component)
+        String eventTypeName = eventTypeNames.computeIfAbsent(valueLog.getIdref(),
+                id -> CEPValueLogEvent.generateEventTypeName(id, valueLog.getComponent()));
+
+        //Evaluate fast path triggers of the component directly
+        CEPFastPathTrigger[] componentTriggers = fastPathTriggers.get(eventTypeName);
+        if (componentTriggers != null) {
+            long time = valueLog.getTime().getEpochSecond();
+            for (CEPFastPathTrigger fastPathTrigger : componentTriggers) {
+                fastPathTrigger.evaluate(valueLog.getValue(), time);
+            }
+        }
+
+        //Skip value logs that are not referenced by any trigger of the engine
+        if (!activeEventTypes.containsKey(eventTypeName)) {
+            return;
+        }
+
         //Create event from value log
-        CEPValueLogEvent valueLogEvent = new CEPValueLogEvent(valueLog);
+        CEPValueLogEvent valueLogEvent = new CEPValueLogEvent(valueLog, eventTypeName);
+
+        //Keep event for restoring the window state after a restart
+        checkpointService.record(eventTypeName, valueLog.getIdref(), valueLog.getTime().toEpochMilli(),
+                valueLog.getValue());
 
-        //Send event to engine
+        //Hold event back while the engine processes replayed events
+        if (restoring) {
+            synchronized (this) {
+                if (restoring) {
+                    if (restoreBacklog.size() < MAX_RESTORE_BACKLOG) {
+                        restoreBacklog.add(valueLogEvent);
+                    } else {
+                        discardedBacklogEvents++;
+                    }
+                    return;
+                }
+            }
+        }
+
+        sendToEngine(valueLogEvent);
+    }
+
+    /**
+     * Sends a value log event to the CEP engine.
+     *
+     * @param valueLogEvent The event to send
+     */
+    private void sendToEngine(CEPValueLogEvent valueLogEvent) {
         try {
             engine.sendEvent(valueLogEvent);
         } catch (EventNotRegisteredException e) {
@@ -123,6 +665,99 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
         }
     }
 
+    /**
+     * Returns statistics about the execution of the callbacks of registered triggers, such as the number
+     * of pending callbacks and the callback latencies.
+     *
+     * @return The callback statistics
+     */
+    public CEPCallbackStats getCallbackStats() {
+        return engine.getCallbackStats();
+    }
+
+    /**
+     * Returns the cost metrics of a certain registered rule trigger within the CEP engine, together with the state
+     * of the protection against expensive queries.
+     *
+     * @param ruleTrigger The rule trigger
+     * @return The metrics of the trigger; null, if the trigger is not registered
+     */
+    public CEPTriggerMetrics getTriggerMetrics(RuleTrigger ruleTrigger) {
+        //Sanity check
+        if (ruleTrigger == null) {
+            throw new IllegalArgumentException("Rule trigger must not be null.");
+        }
+
+        //Get accounting of the trigger
+        String name = getQueryNameFromTrigger(ruleTrigger);
+        TriggerAccounting accounting = triggerAccountings.get(name);
+        if (accounting == null) {
+            return null;
+        }
+        return accounting.toMetrics(getQueryMetrics(accounting));
+    }
+
+    /**
+     * Returns the cost metrics of all registered rule triggers within the CEP engine.
+     *
+     * @return The list of trigger metrics
+     */
+    public List<CEPTriggerMetrics> getAllTriggerMetrics() {
+        List<CEPTriggerMetrics> metricsList = new ArrayList<>();
+        for (Map.Entry<String, TriggerAccounting> entry : triggerAccountings.entrySet()) {
+            TriggerAccounting accounting = entry.getValue();
+            metricsList.add(accounting.toMetrics(getQueryMetrics(accounting)));
+        }
+        return metricsList;
+    }
+
+    /**
+     * Returns the metrics of the query of a registered trigger, either from the CEP engine or, for fast path
+     * triggers, from the trigger itself.
+     *
+     * @param accounting The accounting of the trigger
+     * @return The query metrics
+     */
+    private CEPQueryMetrics getQueryMetrics(TriggerAccounting accounting) {
+        if (accounting.mode == TriggerMode.FAST_PATH) {
+            return ((CEPFastPathTrigger) accounting.query).getMetrics(accounting.statementName);
+        }
+        return engine.getQueryMetrics(accounting.statementName);
+    }
+
+    /**
+     * Checks the CPU budgets of all registered triggers and disables the queries of triggers that exceeded
+     * their budget within the last reporting interval of the engine. The callbacks of these triggers are notified,
+     * so that the rules using them can be disabled as well. Only triggers with dedicated statements are checked,
+     * since the cost of shared statements cannot be attributed to single triggers and fast path triggers are not
+     * evaluated by the engine, which therefore does not measure their CPU time.
+     */
+    private void checkBudgets() {
+        for (TriggerAccounting accounting : triggerAccountings.values()) {
+            if (accounting.disabled || (accounting.mode != TriggerMode.DEDICATED)) {
+                continue;
+            }
+
+            //Check CPU load of the query
+            CEPQueryMetrics metrics = engine.getQueryMetrics(accounting.statementName);
+            if (metrics.getCpuLoad() <= maxCpuLoad) {
+                continue;
+            }
+            accounting.disabled = true;
+            accounting.query.disable();
+            String reason = "The trigger exceeded its CPU budget (" + metrics.getCpuLoad() + " ms/s).";
+            System.err.println("Trigger \"" + accounting.trigger.getName() + "\" disabled: " + reason);
+
+            //Let the rules of the trigger be disabled
+            try {
+                accounting.callback.onTriggerDisabled(accounting.trigger, reason);
+            } catch (RuntimeException e) {
+                System.err.println("Rules of trigger \"" + accounting.trigger.getName() +
+                        "\" could not be disabled: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Generates a query name from a given rule trigger.
      *
@@ -140,7 +775,8 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
 
     /**
      * Registers a separate event type for a certain component at the CEP engine so that derived events for this
-     * component may be sent to the CEP engine in the future.
+     * component may be sent to the CEP engine in the future. Nothing happens if the event type has already
+     * been registered.
      *
      * @param component The component for which the event type is supposed to be registered
      */
@@ -152,16 +788,157 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
 
         //Get generated event type name for this component
         String eventName = CEPValueLogEvent.generateEventTypeName(component.getId(), component.getComponentTypeName());
+        eventTypeNames.put(component.getId(), eventName);
+        eventTypeComponents.put(eventName, component.getId());
 
-        //Create new event type (a "template" for such events) for this component
-        CEPEventType eventType = new CEPEventType(eventName);
+        //Register event type
+        registerEventType(eventName);
+    }
+
+    /**
+     * Unregisters the event type of a certain component from the CEP engine, e.g. because the component was
+     * deleted. If registered triggers still reference the event type, it is unregistered together with the last
+     * of these triggers.
+     *
+     * @param component The component whose event type is supposed to be unregistered
+     */
+    public synchronized void unregisterComponentEventType(Component component) {
+        //Sanity check
+        if (component == null) {
+            throw new IllegalArgumentException("Component must not be null.");
+        }
 
-        //Add fields to this event type that all derived events need to implement
-        eventType.addField("value", CEPPrimitiveDataTypes.DOUBLE);
-        eventType.addField("time", CEPPrimitiveDataTypes.LONG);
+        //Forget the component of the event type
+        String eventName = CEPValueLogEvent.generateEventTypeName(component.getId(), component.getComponentTypeName());
+        eventTypeNames.remove(component.getId());
+        eventTypeComponents.remove(eventName);
 
-        //Register event type
-        engine.registerEventType(eventType);
+        //Keep event types that are still referenced by registered triggers until these are unregistered
+        if (activeEventTypes.containsKey(eventName)) {
+            orphanedEventTypes.add(eventName);
+            return;
+        }
+        unregisterEventType(eventName);
+    }
+
+    /**
+     * Unregisters an event type for value log events with a given name from the CEP engine and from the
+     * query validation.
+     *
+     * @param eventName The name of the event type
+     */
+    private synchronized void unregisterEventType(String eventName) {
+        registeredEventTypes.remove(eventName);
+        engine.unregisterEventType(eventName);
+    }
+
+    /**
+     * Registers an event type for value log events with a given name at the CEP engine, if it has not been
+     * registered yet.
+     *
+     * @param eventName The name of the event type
+     */
+    private synchronized void registerEventType(String eventName) {
+        //Check if already registered
+        if (registeredEventTypes.contains(eventName)) {
+            return;
+        }
+
+        //Create new event type (a "template" for such events) for this component and register it
+        engine.registerEventType(CEPValueLogEvent.createEventType(eventName));
+        registeredEventTypes.add(eventName);
+    }
+
+    /**
+     * Determines the value log event types that are referenced within a given query string and registers them
+     * at the CEP engine, provided that the corresponding components exist.
+     *
+     * @param query The query string to analyze
+     * @return The set of names of the referenced event types
+     */
+    private Set<String> registerReferencedEventTypes(String query) {
+        Set<String> eventTypes = resolveReferencedComponents(query).keySet();
+
+        //Register event types
+        for (String eventType : eventTypes) {
+            registerEventType(eventType);
+        }
+
+        return eventTypes;
+    }
+
+    /**
+     * Determines the value log event types that are referenced within a given query string and the existing
+     * components they belong to. The event types are not registered at the CEP engine.
+     *
+     * @param query The query string to analyze
+     * @return Map (event type name --> component id) of the referenced event types
+     */
+    public Map<String, String> resolveReferencedComponents(String query) {
+        //Sanity check
+        if (query == null) {
+            throw new IllegalArgumentException("Query must not be null.");
+        }
+
+        Map<String, String> components = new HashMap<>();
+
+        //Check all identifiers of the query
+        Matcher identifierMatcher = IDENTIFIER_PATTERN.matcher(query);
+        while (identifierMatcher.find()) {
+            String identifier = identifierMatcher.group();
+
+            //Check if identifier is an event type name of an existing component
+            if (components.containsKey(identifier) || (!isEventTypeOfExistingComponent(identifier))) {
+                continue;
+            }
+
+            components.put(identifier, eventTypeComponents.get(identifier));
+        }
+
+        return components;
+    }
+
+    /**
+     * Checks whether a given identifier is the name of the value log event type of an existing component.
+     *
+     * @param identifier The identifier to check
+     * @return True, if the identifier names the event type of an existing component; false otherwise
+     */
+    private boolean isEventTypeOfExistingComponent(String identifier) {
+        //Event types whose components were found before belong to existing components until these are deleted
+        if (eventTypeComponents.containsKey(identifier)) {
+            return true;
+        }
+
+        //Check for valid event type name
+        Matcher matcher = EVENT_TYPE_NAME_PATTERN.matcher(identifier);
+        if (!matcher.matches()) {
+            return false;
+        }
+        String componentId = matcher.group(2);
+
+        //Look up component depending on its type
+        boolean exists;
+        switch (matcher.group(1)) {
+            case "sensor":
+                exists = sensorRepository.exists(componentId);
+                break;
+            case "actuator":
+                exists = actuatorRepository.exists(componentId);
+                break;
+            default:
+                //Monitoring components are identified by monitoring adapter and device
+                String[] ids = componentId.split("_");
+                exists = (ids.length == 2) && monitoringAdapterRepository.exists(ids[0]) &&
+                        deviceRepository.exists(ids[1]);
+                componentId = exists ? (ids[0] + "@" + ids[1]) : componentId;
+        }
+
+        //Remember the component of the event type
+        if (exists) {
+            eventTypeComponents.put(identifier, componentId);
+        }
+        return exists;
     }
 
     /**
@@ -185,48 +962,151 @@ public class CEPTriggerService implements ValueLogReceiverObserver {
             return new CEPQueryValidation(query, false, "Query must start with a \"SELECT\" clause.");
         }
 
+        //Reject data windows that grow without bounds
+        if (UNBOUNDED_WINDOW_PATTERN.matcher(query).find()) {
+            return new CEPQueryValidation(query, false,
+                    "Unbounded data windows (keepall) are not allowed, use a length or time window instead.");
+        }
+
+        //Make the event types the query refers to known to the validation, without registering them at the engine
+        List<CEPEventType> eventTypes = new ArrayList<>();
+        for (String eventTypeName : resolveReferencedComponents(query).keySet()) {
+            eventTypes.add(CEPValueLogEvent.createEventType(eventTypeName));
+        }
+
         //Validity check
-        return engine.validateQuery(query);
+        CEPQueryValidation validation = engine.validateQuery(query, eventTypes);
+
+        //Attach warnings about potentially expensive constructs
+        if (validation.isValid()) {
+            getQueryWarnings(query).forEach(validation::addWarning);
+        }
+        return validation;
     }
 
     /**
-     * Registers all components that are currently stored in their repositories (auto-wired)
-     * as event types at the CEP engine.
+     * Determines warnings about constructs of a given query string that may consume a growing amount of memory.
      *
-     * @param actuatorRepository          The actuator repository
-     * @param sensorRepository            The sensor repository
-     * @param monitoringAdapterRepository The monitoring adapter repository
-     * @param deviceRepository            The device repository
+     * @param query The query string to analyze
+     * @return The list of warnings
      */
-    @Autowired
-    private void registerAvailableEventTypes(ActuatorRepository actuatorRepository, SensorRepository sensorRepository,
-                                             MonitoringAdapterRepository monitoringAdapterRepository,
-                                             DeviceRepository deviceRepository) {
-        //Create set of available components
-        Set<Component> componentSet = new HashSet<>();
+    private List<String> getQueryWarnings(String query) {
+        List<String> warnings = new ArrayList<>();
+        if (KEYED_VIEW_PATTERN.matcher(query).find()) {
+            warnings.add("The query uses views that grow with the number of distinct key values.");
+        }
+        if (EVERY_PATTERN.matcher(query).find() && (!WITHIN_PATTERN.matcher(query).find())) {
+            warnings.add("The query uses repeating patterns without time limitation (timer:within).");
+        }
+        return warnings;
+    }
+
+    /**
+     * Modes in which the queries of triggers are evaluated.
+     */
+    private enum TriggerMode {
+        //Dedicated statement at the CEP engine
+        DEDICATED,
+        //Statement at the CEP engine that is shared by the triggers of the same template
+        SHARED,
+        //Compiled predicate that is evaluated without the CEP engine
+        FAST_PATH
+    }
+
+    /**
+     * Cost accounting of a registered trigger, consisting of the state of its protection against expensive queries.
+     */
+    private static class TriggerAccounting {
+        private final RuleTrigger trigger;
+        private final RuleTriggerCallback callback;
+        private final CEPQuery query;
+        private final String statementName;
+        private final TriggerMode mode;
+        private final List<String> warnings = new ArrayList<>();
+
+        //Whether the query was disabled due to an exceeded CPU budget
+        private volatile boolean disabled = false;
 
-        //Add actuators and sensors
-        componentSet.addAll(actuatorRepository.findAll());
-        componentSet.addAll(sensorRepository.findAll());
+        //Firings within the current second
+        private long currentSecond = 0;
+        private int currentFirings = 0;
+        private long lastSuppression = 0;
+        private long suppressedFirings = 0;
 
-        //Get all monitoring adapters and devices
-        List<MonitoringAdapter> monitoringAdapters = monitoringAdapterRepository.findAll();
-        List<Device> deviceAdapters = deviceRepository.findAll();
+        //Firings that were dropped, since too many callbacks were pending
+        private long droppedFirings = 0;
 
-        //Iterate over all monitoring adapters and devices and create monitoring components for them
-        for (MonitoringAdapter monitoringAdapter : monitoringAdapters) {
-            for (Device device : deviceAdapters) {
-                //Create monitoring component
-                MonitoringComponent monitoringComponent = new MonitoringComponent(monitoringAdapter, device);
+        /**
+         * Creates a new accounting for a trigger.
+         *
+         * @param trigger       The trigger
+         * @param callback      The callback of the trigger
+         * @param query         The query of the trigger
+         * @param statementName The name of the statement that evaluates the query
+         * @param mode          The mode in which the query is evaluated
+         */
+        private TriggerAccounting(RuleTrigger trigger, RuleTriggerCallback callback, CEPQuery query,
+                                  String statementName, TriggerMode mode) {
+            this.trigger = trigger;
+            this.callback = callback;
+            this.query = query;
+            this.statementName = statementName;
+            this.mode = mode;
+        }
+
+        /**
+         * Checks whether the trigger may fire without exceeding its firing rate budget and counts the firing.
+         *
+         * @param maxFiringRate The maximum number of firings per second (0 = unlimited)
+         * @return True, if the trigger may fire; false, if the firing is suppressed
+         */
+        private synchronized boolean tryFire(int maxFiringRate) {
+            if (maxFiringRate <= 0) {
+                return true;
+            }
 
-                //Add component to component set
-                componentSet.add(monitoringComponent);
+            long second = System.currentTimeMillis() / 1000;
+            if (second != currentSecond) {
+                currentSecond = second;
+                currentFirings = 0;
             }
+
+            //Suppress firings beyond the budget
+            if (currentFirings >= maxFiringRate) {
+                suppressedFirings++;
+                lastSuppression = second;
+                return false;
+            }
+            currentFirings++;
+            return true;
+        }
+
+        /**
+         * Counts a firing that was dropped, since too many firings were pending.
+         */
+        private synchronized void countDroppedFiring() {
+            droppedFirings++;
         }
 
-        //Iterate over all stored components and register the dedicated event types
-        for (Component component : componentSet) {
-            registerComponentEventType(component);
+        /**
+         * Creates a metrics object from this accounting and the metrics of the query.
+         *
+         * @param queryMetrics The metrics of the query
+         * @return The resulting trigger metrics
+         */
+        private synchronized CEPTriggerMetrics toMetrics(CEPQueryMetrics queryMetrics) {
+            CEPTriggerMetrics metrics = new CEPTriggerMetrics();
+            metrics.setTriggerId(trigger.getId());
+            metrics.setTriggerName(trigger.getName());
+            metrics.setQueryMetrics(queryMetrics);
+            metrics.setShared(mode == TriggerMode.SHARED);
+            metrics.setFastPath(mode == TriggerMode.FAST_PATH);
+            metrics.setDisabled(disabled);
+            metrics.setThrottled(lastSuppression >= (System.currentTimeMillis() / 1000) - 1);
+            metrics.setSuppressedFirings(suppressedFirings);
+            metrics.setDroppedFirings(droppedFirings);
+            metrics.setWarnings(new ArrayList<>(warnings));
+            return metrics;
         }
     }
-}
\ No newline at end of file
+}
@@ -2,44 +2,121 @@ package org.citopt.connde.service.cep.trigger;
 
 import org.citopt.connde.domain.valueLog.ValueLog;
 import org.citopt.connde.service.cep.engine.core.events.CEPEvent;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventRepresentation;
+import org.citopt.connde.service.cep.engine.core.events.CEPEventType;
+import org.citopt.connde.service.cep.engine.core.events.CEPPrimitiveDataTypes;
 
-import java.time.Instant;
+import java.util.Map;
 
 /**
  * CEP event wrapping a value log that was received for a certain component. This event may be used in order to be
  * further processed by the CEP engine.
  */
 public class CEPValueLogEvent extends CEPEvent {
+    //Names of the fields of value log events
+    static final String FIELD_VALUE = "value";
+    static final String FIELD_TIME = "time";
 
     //Value log to wrap
     private ValueLog valueLog;
 
+    //Field values of the event
+    private double value;
+    private long time;
+
+    //Name of the event type of this event
+    private String eventTypeName;
+
     /**
      * Creates a new CEP value log event from a given value log.
      *
      * @param valueLog The value log to use
      */
     CEPValueLogEvent(ValueLog valueLog) {
+        this(valueLog, generateEventTypeName(valueLog.getIdref(), valueLog.getComponent()));
+    }
+
+    /**
+     * Creates a new CEP value log event from a given value log and the already known name of the event type
+     * of the corresponding component.
+     *
+     * @param valueLog      The value log to use
+     * @param eventTypeName The name of the event type
+     */
+    CEPValueLogEvent(ValueLog valueLog, String eventTypeName) {
         super();
 
-        //Sanity check
+        //Sanity checks
         if (valueLog == null) {
             throw new IllegalArgumentException("Value log must not be null.");
+        } else if ((eventTypeName == null) || eventTypeName.isEmpty()) {
+            throw new IllegalArgumentException("Event type name must not be null or empty.");
         }
         this.valueLog = valueLog;
+        this.eventTypeName = eventTypeName;
 
-        //Convert value string of value log to double
-        double value = valueLog.getValue();
+        //Set event fields from value and epoch seconds of the value log
+        this.value = valueLog.getValue();
+        this.time = valueLog.getTime().getEpochSecond();
+    }
+
+    /**
+     * Creates a new CEP value log event from a value and a time that were restored from a previous run or
+     * read from the stored value logs, without wrapping an actual value log.
+     *
+     * @param eventTypeName The name of the event type
+     * @param value         The value of the event
+     * @param time          The time of the event in epoch seconds
+     */
+    CEPValueLogEvent(String eventTypeName, double value, long time) {
+        super();
+
+        //Sanity check
+        if ((eventTypeName == null) || eventTypeName.isEmpty()) {
+            throw new IllegalArgumentException("Event type name must not be null or empty.");
+        }
+        this.valueLog = null;
+        this.eventTypeName = eventTypeName;
+        this.value = value;
+        this.time = time;
+    }
 
-        //Get Instant object from value log
-        Instant time = valueLog.getTime();
+    /**
+     * Returns a map (field name --> field value) of the field values of this event. The map is only
+     * created on demand, since it is only required for event types that are represented as maps.
+     *
+     * @return The map of field values
+     */
+    @Override
+    public synchronized Map<String, Object> getFieldValues() {
+        Map<String, Object> fieldValues = super.getFieldValues();
 
-        //Get epoch seconds
-        long unixSeconds = time.getEpochSecond();
+        //Fill map on first access
+        if (fieldValues.isEmpty()) {
+            fieldValues.put(FIELD_VALUE, value);
+            fieldValues.put(FIELD_TIME, time);
+        }
+        return fieldValues;
+    }
 
-        //Set event fields
-        this.addValue("value", value);
-        this.addValue("time", unixSeconds);
+    /**
+     * Returns the values of the fields of this event as an array, ordered according to a given field layout.
+     * The values are taken from the value and time of the event.
+     *
+     * @param fieldNames The names of the fields in the order in which their values are supposed to be returned
+     * @return The array of field values
+     */
+    @Override
+    public Object[] getFieldValueArray(String[] fieldNames) {
+        Object[] valueArray = new Object[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (FIELD_VALUE.equals(fieldNames[i])) {
+                valueArray[i] = value;
+            } else if (FIELD_TIME.equals(fieldNames[i])) {
+                valueArray[i] = time;
+            }
+        }
+        return valueArray;
     }
 
     /**
@@ -51,18 +128,32 @@ public class CEPValueLogEvent extends CEPEvent {
      */
     @Override
     public String getEventTypeName() {
-        return generateEventTypeName(valueLog.getIdref(), valueLog.getComponent());
+        return eventTypeName;
     }
 
     /**
      * Returns the value log that is wrapped by the value log event.
      *
-     * @return The value log
+     * @return The value log; null, if the event was not created from a value log object
      */
     public ValueLog getValueLog() {
         return valueLog;
     }
 
+    /**
+     * Creates the event type of value log events with a given name, consisting of the fields that all
+     * value log events implement.
+     *
+     * @param eventTypeName The name of the event type
+     * @return The created event type
+     */
+    static CEPEventType createEventType(String eventTypeName) {
+        CEPEventType eventType = new CEPEventType(eventTypeName, CEPEventRepresentation.OBJECT_ARRAY);
+        eventType.addField(FIELD_VALUE, CEPPrimitiveDataTypes.DOUBLE);
+        eventType.addField(FIELD_TIME, CEPPrimitiveDataTypes.LONG);
+        return eventType;
+    }
+
     /**
      * Generates a name for a value log event of a certain component.
      *
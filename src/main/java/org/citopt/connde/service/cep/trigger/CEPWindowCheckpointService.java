@@ -0,0 +1,517 @@
+package org.citopt.connde.service.cep.trigger;
+
+import org.citopt.connde.repository.ValueLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that keeps the recent value log events of all event types that are referenced by registered triggers and
+ * periodically writes them as checkpoints to the local disk. Since the window and pattern state of the CEP engine is
+ * derived from these events, it can be rebuilt after a restart by replaying the checkpointed events to the engine.
+ * Each checkpoint records the time from which on it contains all events of its event type. Events before this time,
+ * e.g. because the buffer of the event type overflowed or the event type was referenced only recently, and the
+ * interval between the last checkpoint and the restart are replayed from the stored value logs. Only event types
+ * whose events changed since the last checkpoint are written again.
+ */
+@Service
+public class CEPWindowCheckpointService {
+    //Directory in which the checkpoints are stored
+    private static final Path CHECKPOINT_DIRECTORY = Paths.get(System.getProperty("user.home"), ".connde",
+            "cep-checkpoints");
+
+    //File extension of checkpoint files
+    private static final String CHECKPOINT_FILE_EXTENSION = ".ckpt";
+
+    //Version of the checkpoint file format
+    private static final int CHECKPOINT_FORMAT_VERSION = 2;
+
+    //Interval between two checkpoints in seconds
+    private static final long CHECKPOINT_INTERVAL = 30;
+
+    //Maximum age of the events that are kept and replayed in milliseconds
+    private static final long RETENTION_PERIOD = TimeUnit.MINUTES.toMillis(60);
+
+    //Maximum number of events that are kept per event type
+    private static final int MAX_EVENTS_PER_TYPE = 10000;
+
+    //Maximum duration of a replay in milliseconds
+    private static final long MAX_REPLAY_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+    //Number of value logs to retrieve per query during replay
+    private static final int REPLAY_CHUNK_SIZE = 5000;
+
+    @Autowired
+    private ValueLogRepository valueLogRepository;
+
+    //Map (event type name --> event buffer) of the recent events of all event types
+    private final Map<String, EventBuffer> buffers = new ConcurrentHashMap<>();
+
+    //Executor for the periodic checkpoints
+    private final ScheduledExecutorService checkpointExecutor;
+
+    /**
+     * Creates and starts the service.
+     */
+    public CEPWindowCheckpointService() {
+        this.checkpointExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cep-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checkpointExecutor.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL, CHECKPOINT_INTERVAL,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records an event of a certain event type so that it becomes part of the next checkpoint.
+     *
+     * @param eventTypeName The name of the event type
+     * @param componentId   The id of the component the event belongs to
+     * @param time          The time of the event in epoch milliseconds
+     * @param value         The value of the event
+     */
+    public void record(String eventTypeName, String componentId, long time, double value) {
+        buffers.computeIfAbsent(eventTypeName, name -> new EventBuffer(componentId, System.currentTimeMillis()))
+                .add(time, value);
+    }
+
+    /**
+     * Discards the recorded events and the checkpoint of a certain event type, since it is no longer referenced
+     * by any trigger.
+     *
+     * @param eventTypeName The name of the event type
+     */
+    public void release(String eventTypeName) {
+        buffers.remove(eventTypeName);
+        try {
+            Files.deleteIfExists(getCheckpointFile(eventTypeName));
+        } catch (IOException e) {
+            System.err.println("Checkpoint of \"" + eventTypeName + "\" could not be deleted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the maximum age of the events that are kept and replayed.
+     *
+     * @return The retention period in milliseconds
+     */
+    public long getRetentionPeriod() {
+        return RETENTION_PERIOD;
+    }
+
+    /**
+     * Replays the recent events of a set of event types to a given consumer in ascending order of time, merged
+     * across all event types. For each event type, only the events within its replay span before a given end time
+     * are replayed, taken from its checkpoint and from the value logs that were stored before the checkpoint covered
+     * all events of the event type or after the time of the checkpoint. Replay spans are limited to the retention
+     * period and the replay is aborted if it exceeds its maximum duration.
+     *
+     * @param eventTypes  Map (event type name --> component id) of the event types to replay
+     * @param replaySpans Map (event type name --> span in milliseconds) of the time spans to replay per event type;
+     *                    the retention period is used for event types without a span
+     * @param until       The exclusive end of the replayed time range in epoch milliseconds
+     * @param consumer    The consumer to which the events are replayed
+     * @return The number of replayed events
+     */
+    public long replay(Map<String, String> eventTypes, Map<String, Long> replaySpans, long until,
+                       ReplayConsumer consumer) {
+        //Sanity checks
+        if (eventTypes == null) {
+            throw new IllegalArgumentException("Event types must not be null.");
+        } else if (replaySpans == null) {
+            throw new IllegalArgumentException("Replay spans must not be null.");
+        } else if (consumer == null) {
+            throw new IllegalArgumentException("Consumer must not be null.");
+        }
+
+        long deadline = System.currentTimeMillis() + MAX_REPLAY_DURATION;
+        long replayedEvents = 0;
+
+        //Open one cursor per event type and order them by the time of their current event
+        PriorityQueue<ReplayCursor> cursors = new PriorityQueue<>(Comparator.comparingLong(ReplayCursor::getTime));
+        for (Map.Entry<String, String> eventType : eventTypes.entrySet()) {
+            String eventTypeName = eventType.getKey();
+            String componentId = eventType.getValue();
+            long span = Math.min(replaySpans.getOrDefault(eventTypeName, RETENTION_PERIOD), RETENTION_PERIOD);
+
+            //Recorded events will be replaced by the replayed ones
+            EventBuffer buffer = new EventBuffer(componentId, until - span);
+            buffers.put(eventTypeName, buffer);
+
+            ReplayCursor cursor = openCursor(eventTypeName, componentId, buffer, until - span, until);
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+
+        //Replay events in the order of their time
+        while (!cursors.isEmpty()) {
+            if (System.currentTimeMillis() > deadline) {
+                System.err.println("Replay of CEP events aborted after " + replayedEvents + " events.");
+                break;
+            }
+
+            ReplayCursor cursor = cursors.poll();
+            cursor.buffer.add(cursor.getTime(), cursor.getValue());
+            consumer.accept(cursor.eventTypeName, cursor.getTime(), cursor.getValue());
+            replayedEvents++;
+
+            //Move cursor to its next event
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+
+        return replayedEvents;
+    }
+
+    /**
+     * Writes the events of all event types whose events changed since their last checkpoint to the local disk.
+     */
+    public void checkpoint() {
+        for (Map.Entry<String, EventBuffer> entry : buffers.entrySet()) {
+            try {
+                entry.getValue().writeIfDirty(entry.getKey(), System.currentTimeMillis() - RETENTION_PERIOD);
+            } catch (IOException e) {
+                System.err.println("Checkpoint of \"" + entry.getKey() + "\" failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the periodic checkpoints and writes a final checkpoint.
+     */
+    @PreDestroy
+    public void shutdown() {
+        checkpointExecutor.shutdownNow();
+        checkpoint();
+    }
+
+    /**
+     * Opens a cursor over the events of a certain event type within a given time range. The cursor covers the value
+     * logs that were stored before the checkpoint of the event type covered all of its events, followed by the events
+     * of the checkpoint and the value logs that were stored after the checkpoint.
+     *
+     * @param eventTypeName The name of the event type
+     * @param componentId   The id of the component the event type belongs to
+     * @param buffer        The buffer to which the replayed events are supposed to be added
+     * @param from          The inclusive start of the time range in epoch milliseconds
+     * @param until         The exclusive end of the time range in epoch milliseconds
+     * @return The cursor, positioned before the first event
+     */
+    private ReplayCursor openCursor(String eventTypeName, String componentId, EventBuffer buffer, long from,
+                                    long until) {
+        ReplayCursor cursor = new ReplayCursor(eventTypeName, buffer);
+        long coverageStart = until;
+        long gapStart = from;
+
+        Path checkpointFile = getCheckpointFile(eventTypeName);
+        if (Files.exists(checkpointFile)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+                //Check whether the checkpoint is compatible and belongs to the component
+                if ((input.readInt() == CHECKPOINT_FORMAT_VERSION) && componentId.equals(input.readUTF())) {
+                    long coveredTime = input.readLong();
+
+                    //Events before the coverage start are taken from the value logs
+                    coverageStart = Math.min(Math.max(from, input.readLong()), until);
+
+                    //Read events within the covered time range
+                    int numberEvents = input.readInt();
+                    long[] times = new long[numberEvents];
+                    double[] values = new double[numberEvents];
+                    int size = 0;
+                    for (int i = 0; i < numberEvents; i++) {
+                        long time = input.readLong();
+                        double value = input.readDouble();
+                        if ((time >= coverageStart) && (time < until)) {
+                            times[size] = time;
+                            values[size] = value;
+                            size++;
+                            coveredTime = Math.max(coveredTime, time + 1);
+                        }
+                    }
+                    cursor.checkpointTimes = times;
+                    cursor.checkpointValues = values;
+                    cursor.checkpointSize = size;
+                    gapStart = Math.max(coverageStart, coveredTime);
+                }
+            } catch (IOException e) {
+                System.err.println("Checkpoint of \"" + eventTypeName + "\" could not be read: " + e.getMessage());
+                cursor.checkpointSize = 0;
+                coverageStart = until;
+                gapStart = from;
+            }
+        }
+
+        //Value logs that were stored before the checkpoint covered all events are retrieved lazily
+        if ((from < coverageStart) && (gapStart > from)) {
+            System.out.println("Replaying uncovered events of \"" + eventTypeName + "\" from the value logs.");
+            cursor.leadingCursor = valueLogRepository.openValueCursorByIdRef(componentId,
+                    Instant.ofEpochMilli(from), Instant.ofEpochMilli(coverageStart), REPLAY_CHUNK_SIZE);
+        }
+
+        //Value logs that were stored after the checkpoint are retrieved lazily
+        if (gapStart < until) {
+            cursor.valueCursor = valueLogRepository.openValueCursorByIdRef(componentId,
+                    Instant.ofEpochMilli(gapStart), Instant.ofEpochMilli(until), REPLAY_CHUNK_SIZE);
+        }
+        return cursor;
+    }
+
+    /**
+     * Returns the path of the checkpoint file of a certain event type.
+     *
+     * @param eventTypeName The name of the event type
+     * @return The path of the checkpoint file
+     */
+    private static Path getCheckpointFile(String eventTypeName) {
+        return CHECKPOINT_DIRECTORY.resolve(eventTypeName + CHECKPOINT_FILE_EXTENSION);
+    }
+
+    /**
+     * Consumer for replayed events.
+     */
+    @FunctionalInterface
+    public interface ReplayConsumer {
+        /**
+         * Called for each replayed event.
+         *
+         * @param eventTypeName The name of the event type
+         * @param time          The time of the event in epoch milliseconds
+         * @param value         The value of the event
+         */
+        void accept(String eventTypeName, long time, double value);
+    }
+
+    /**
+     * Cursor over the replayed events of an event type, consisting of the value logs that were stored before the
+     * checkpoint covered all events, followed by the events of its checkpoint and the value logs that were stored
+     * after the checkpoint.
+     */
+    private static class ReplayCursor {
+        private final String eventTypeName;
+        private final EventBuffer buffer;
+
+        //Events of the checkpoint
+        private long[] checkpointTimes = new long[0];
+        private double[] checkpointValues = new double[0];
+        private int checkpointSize = 0;
+
+        //Cursors over the value logs before the coverage of the checkpoint and after the checkpoint (may be null)
+        private ValueLogRepository.ValueCursor leadingCursor = null;
+        private ValueLogRepository.ValueCursor valueCursor = null;
+
+        //Current position within the checkpoint events (beyond them, if the value log cursor is used)
+        private int index = -1;
+
+        //Time and value of the current event
+        private long time;
+        private double value;
+
+        /**
+         * Creates a new replay cursor without events.
+         *
+         * @param eventTypeName The name of the event type
+         * @param buffer        The buffer to which the replayed events are supposed to be added
+         */
+        private ReplayCursor(String eventTypeName, EventBuffer buffer) {
+            this.eventTypeName = eventTypeName;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Advances the cursor to the next event.
+         *
+         * @return True, if the cursor points to an event; false, if all events were replayed
+         */
+        private boolean next() {
+            //Move to the next value log before the coverage of the checkpoint
+            if (leadingCursor != null) {
+                if (nextValueLog(leadingCursor)) {
+                    return true;
+                }
+                leadingCursor = null;
+            }
+
+            //Move within the events of the checkpoint
+            if (index + 1 < checkpointSize) {
+                index++;
+                time = checkpointTimes[index];
+                value = checkpointValues[index];
+                return true;
+            }
+            index = checkpointSize;
+
+            //Move to the next value log after the checkpoint
+            if (valueCursor == null) {
+                return false;
+            } else if (nextValueLog(valueCursor)) {
+                return true;
+            }
+            valueCursor = null;
+            return false;
+        }
+
+        /**
+         * Advances the cursor to the next value log of a given value log cursor.
+         *
+         * @param cursor The value log cursor
+         * @return True, if the cursor points to a value log; false, if all value logs were replayed
+         */
+        private boolean nextValueLog(ValueLogRepository.ValueCursor cursor) {
+            try {
+                if (cursor.next()) {
+                    time = cursor.getTime();
+                    value = cursor.getValue();
+                    return true;
+                }
+            } catch (IllegalStateException e) {
+                System.err.println("Value logs of \"" + eventTypeName + "\" could not be replayed: " +
+                        e.getMessage());
+            }
+            return false;
+        }
+
+        /**
+         * Returns the time of the current event.
+         *
+         * @return The time in epoch milliseconds
+         */
+        private long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the value of the current event.
+         *
+         * @return The value
+         */
+        private double getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Bounded ring buffer for the recent events of an event type.
+     */
+    private static class EventBuffer {
+        private final String componentId;
+        private final long[] times = new long[MAX_EVENTS_PER_TYPE];
+        private final double[] values = new double[MAX_EVENTS_PER_TYPE];
+        private int start = 0;
+        private int size = 0;
+
+        //Time from which on the buffer contains all events in epoch milliseconds
+        private long coverageStart;
+
+        //Whether events were added since the last checkpoint
+        private boolean dirty = false;
+
+        /**
+         * Creates a new and empty event buffer.
+         *
+         * @param componentId   The id of the component the events belong to
+         * @param coverageStart The time from which on the buffer will contain all events in epoch milliseconds
+         */
+        private EventBuffer(String componentId, long coverageStart) {
+            this.componentId = componentId;
+            this.coverageStart = coverageStart;
+        }
+
+        /**
+         * Adds an event to the buffer and replaces the oldest event if the buffer is full. In this case, the buffer
+         * only covers the events after the replaced one.
+         *
+         * @param time  The time of the event in epoch milliseconds
+         * @param value The value of the event
+         */
+        private synchronized void add(long time, double value) {
+            int index = (start + size) % MAX_EVENTS_PER_TYPE;
+            times[index] = time;
+            values[index] = value;
+            if (size < MAX_EVENTS_PER_TYPE) {
+                size++;
+            } else {
+                coverageStart = Math.max(coverageStart, times[start] + 1);
+                start = (start + 1) % MAX_EVENTS_PER_TYPE;
+            }
+            dirty = true;
+        }
+
+        /**
+         * Writes the events of the buffer that are not older than a given time to the checkpoint file
+         * of the event type together with the start of their coverage, if events were added since the last
+         * checkpoint. The file is replaced atomically.
+         *
+         * @param eventTypeName The name of the event type
+         * @param minTime       The minimum time of the events to write in epoch milliseconds
+         * @throws IOException In case of an I/O issue
+         */
+        private void writeIfDirty(String eventTypeName, long minTime) throws IOException {
+            long[] snapshotTimes;
+            double[] snapshotValues;
+            long snapshotCoverageStart;
+            long checkpointTime = System.currentTimeMillis();
+
+            //Take snapshot of the events within the retention period
+            synchronized (this) {
+                if (!dirty) {
+                    return;
+                }
+                while ((size > 0) && (times[start] < minTime)) {
+                    start = (start + 1) % MAX_EVENTS_PER_TYPE;
+                    size--;
+                }
+                snapshotTimes = new long[size];
+                snapshotValues = new double[size];
+                for (int i = 0; i < size; i++) {
+                    int index = (start + i) % MAX_EVENTS_PER_TYPE;
+                    snapshotTimes[i] = times[index];
+                    snapshotValues[i] = values[index];
+                }
+                coverageStart = Math.max(coverageStart, minTime);
+                snapshotCoverageStart = coverageStart;
+                dirty = false;
+            }
+
+            //Write snapshot to a temporary file and replace the checkpoint file by it
+            Files.createDirectories(CHECKPOINT_DIRECTORY);
+            Path checkpointFile = getCheckpointFile(eventTypeName);
+            Path temporaryFile = CHECKPOINT_DIRECTORY.resolve(eventTypeName + CHECKPOINT_FILE_EXTENSION + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(CHECKPOINT_FORMAT_VERSION);
+                output.writeUTF(componentId);
+                output.writeLong(checkpointTime);
+                output.writeLong(snapshotCoverageStart);
+                output.writeInt(snapshotTimes.length);
+                for (int i = 0; i < snapshotTimes.length; i++) {
+                    output.writeLong(snapshotTimes[i]);
+                    output.writeDouble(snapshotValues[i]);
+                }
+            } catch (IOException e) {
+                //Write again with the next checkpoint
+                synchronized (this) {
+                    dirty = true;
+                }
+                throw e;
+            }
+            Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
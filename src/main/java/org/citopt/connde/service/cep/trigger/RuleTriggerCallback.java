@@ -14,4 +14,13 @@ public interface RuleTriggerCallback {
      * @param output      The output of the CEP query of the rule trigger
      */
     void onTriggerFired(RuleTrigger ruleTrigger, CEPOutput output);
+
+    /**
+     * This method is called in case a dedicated trigger was disabled, since it exceeded its budget.
+     *
+     * @param ruleTrigger The rule trigger which was disabled
+     * @param reason      The reason why the trigger was disabled
+     */
+    default void onTriggerDisabled(RuleTrigger ruleTrigger, String reason) {
+    }
 }
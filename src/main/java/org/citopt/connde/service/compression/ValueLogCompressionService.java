@@ -0,0 +1,254 @@
+package org.citopt.connde.service.compression;
+
+import org.citopt.connde.domain.adapter.Adapter;
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.valueLog.ValueLog;
+import org.citopt.connde.domain.valueLog.ValueLogCompression;
+import org.citopt.connde.repository.ActuatorRepository;
+import org.citopt.connde.repository.MonitoringAdapterRepository;
+import org.citopt.connde.repository.SensorRepository;
+import org.citopt.connde.service.compression.model.ValueLogCompressionStats;
+import org.citopt.connde.service.receiver.ValueLogReceiver;
+import org.citopt.connde.service.receiver.ValueLogReceiverObserver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service that registers itself as observer at the ValueLogReceiver and applies the lossy compression which is
+ * configured at the adapters of the components to the stream of incoming value logs. Other components may register
+ * themselves at this service in order to get notified about the value logs that passed the compression. Observers
+ * that are registered as CEP observers only receive the compressed stream for adapters that request it and
+ * the raw stream otherwise.
+ */
+@Service
+public class ValueLogCompressionService implements ValueLogReceiverObserver {
+    //Settings that are used for components without adapter or unknown component types
+    private static final ValueLogCompression NO_COMPRESSION = new ValueLogCompression();
+
+    //Component type names as they are used in value logs
+    private static final String COMPONENT_TYPE_SENSOR = "sensor";
+    private static final String COMPONENT_TYPE_ACTUATOR = "actuator";
+    private static final String COMPONENT_TYPE_MONITORING = "monitoring";
+
+    //Autowired repositories
+    private SensorRepository sensorRepository;
+    private ActuatorRepository actuatorRepository;
+    private MonitoringAdapterRepository monitoringAdapterRepository;
+
+    //Observers that want to be notified about compressed value logs
+    private Set<ValueLogReceiverObserver> observerSet;
+
+    //Observers that only want to be notified about compressed value logs if the adapter requests it for CEP
+    private Set<ValueLogReceiverObserver> cepObserverSet;
+
+    //Map (component id --> filter) of compression filters
+    private Map<String, ValueLogFilter> filterMap;
+
+    //Map (component id --> compression settings) of cached compression settings
+    private Map<String, ValueLogCompression> settingsMap;
+
+    /**
+     * Creates and starts the service by passing references to the value log receiver service and the repositories
+     * that are required to resolve the compression settings of components (auto-wired).
+     *
+     * @param valueLogReceiver            The instance of the value log receiver service
+     * @param sensorRepository            The sensor repository
+     * @param actuatorRepository          The actuator repository
+     * @param monitoringAdapterRepository The monitoring adapter repository
+     */
+    @Autowired
+    public ValueLogCompressionService(ValueLogReceiver valueLogReceiver, SensorRepository sensorRepository,
+                                      ActuatorRepository actuatorRepository,
+                                      MonitoringAdapterRepository monitoringAdapterRepository) {
+        this.sensorRepository = sensorRepository;
+        this.actuatorRepository = actuatorRepository;
+        this.monitoringAdapterRepository = monitoringAdapterRepository;
+
+        //Initialize observer sets and maps
+        this.observerSet = new HashSet<>();
+        this.cepObserverSet = new HashSet<>();
+        this.filterMap = new ConcurrentHashMap<>();
+        this.settingsMap = new ConcurrentHashMap<>();
+
+        //Register as observer at the ValueLogReceiver
+        valueLogReceiver.registerObserver(this);
+    }
+
+    /**
+     * Called in case a new value message arrives at the ValueLogReceiver. The value log is passed to the
+     * compression filter of its component and the observers are notified about the outcome.
+     *
+     * @param valueLog The corresponding value log that arrived
+     */
+    @Override
+    public void onValueReceived(ValueLog valueLog) {
+        //Sanity check
+        if (valueLog == null) {
+            throw new IllegalArgumentException("Value log must not be null.");
+        }
+
+        //Get compression settings and filter of the component
+        ValueLogCompression compression = getCompression(valueLog);
+        ValueLogFilter filter = filterMap.computeIfAbsent(valueLog.getIdref(), id -> new ValueLogFilter());
+
+        //Apply compression
+        List<ValueLog> passedLogs = filter.offer(valueLog, compression);
+
+        //Notify observers of the compressed stream
+        for (ValueLog passedLog : passedLogs) {
+            notifyObservers(observerSet, passedLog);
+        }
+
+        //Notify CEP observers with respect to the settings
+        if (compression.isApplyToCEP()) {
+            for (ValueLog passedLog : passedLogs) {
+                notifyObservers(cepObserverSet, passedLog);
+            }
+        } else {
+            notifyObservers(cepObserverSet, valueLog);
+        }
+    }
+
+    /**
+     * Registers an observer that will be notified about all value logs that passed the compression.
+     *
+     * @param observer The observer to register
+     */
+    public void registerObserver(ValueLogReceiverObserver observer) {
+        //Sanity check
+        if (observer == null) {
+            throw new IllegalArgumentException("Observer must not be null.");
+        }
+
+        observerSet.add(observer);
+    }
+
+    /**
+     * Registers an observer that will be notified about the value logs that passed the compression only for
+     * components whose adapters want the compression to be applied to CEP. For all other components, the observer
+     * is notified about all received value logs.
+     *
+     * @param observer The observer to register
+     */
+    public void registerCEPObserver(ValueLogReceiverObserver observer) {
+        //Sanity check
+        if (observer == null) {
+            throw new IllegalArgumentException("Observer must not be null.");
+        }
+
+        cepObserverSet.add(observer);
+    }
+
+    /**
+     * Discards all cached compression settings, e.g. after an adapter was modified. The settings are then
+     * resolved again as soon as the next value log of a component arrives.
+     */
+    public void invalidateSettings() {
+        settingsMap.clear();
+    }
+
+    /**
+     * Returns the compression counters of all components for which value logs were received so far.
+     *
+     * @return The list of compression stats
+     */
+    public List<ValueLogCompressionStats> getCompressionStats() {
+        List<ValueLogCompressionStats> statsList = new ArrayList<>();
+
+        //Iterate over all filters and collect their counters
+        for (Map.Entry<String, ValueLogFilter> entry : filterMap.entrySet()) {
+            ValueLogFilter filter = entry.getValue();
+            statsList.add(new ValueLogCompressionStats(entry.getKey(), filter.getReceivedCount(),
+                    filter.getPassedCount()));
+        }
+
+        return statsList;
+    }
+
+    /**
+     * Returns the compression counters of a certain component.
+     *
+     * @param componentId The id of the component
+     * @return The compression stats of the component
+     */
+    public ValueLogCompressionStats getCompressionStats(String componentId) {
+        ValueLogFilter filter = filterMap.get(componentId);
+
+        //Check if value logs were received for this component
+        if (filter == null) {
+            return new ValueLogCompressionStats(componentId, 0, 0);
+        }
+        return new ValueLogCompressionStats(componentId, filter.getReceivedCount(), filter.getPassedCount());
+    }
+
+    /**
+     * Returns the compression settings that apply to a given value log. The settings are cached per component.
+     *
+     * @param valueLog The value log
+     * @return The compression settings to apply
+     */
+    private ValueLogCompression getCompression(ValueLog valueLog) {
+        String componentId = valueLog.getIdref();
+
+        //Check cache first
+        ValueLogCompression compression = settingsMap.get(componentId);
+        if (compression != null) {
+            return compression;
+        }
+
+        //Resolve adapter of the component
+        Adapter adapter = findAdapter(componentId, valueLog.getComponent());
+
+        //Use settings of the adapter if available
+        compression = ((adapter == null) || (adapter.getCompression() == null)) ?
+                NO_COMPRESSION : adapter.getCompression();
+
+        settingsMap.put(componentId, compression);
+        return compression;
+    }
+
+    /**
+     * Looks up the adapter that is used by a component of a given id and type.
+     *
+     * @param componentId   The id of the component
+     * @param componentType The type name of the component
+     * @return The adapter of the component or null, if it could not be found
+     */
+    private Adapter findAdapter(String componentId, String componentType) {
+        //Sanity check
+        if ((componentId == null) || (componentType == null)) {
+            return null;
+        }
+
+        Component component = null;
+        switch (componentType.toLowerCase()) {
+            case COMPONENT_TYPE_SENSOR:
+                component = sensorRepository.get(componentId);
+                break;
+            case COMPONENT_TYPE_ACTUATOR:
+                component = actuatorRepository.get(componentId);
+                break;
+            case COMPONENT_TYPE_MONITORING:
+                //Ids of monitoring components consist out of the monitoring adapter id and the device id
+                String adapterId = componentId.split("@")[0];
+                return monitoringAdapterRepository.get(adapterId);
+        }
+
+        return (component == null) ? null : component.getAdapter();
+    }
+
+    /**
+     * Notifies a set of observers about a value log.
+     *
+     * @param observers The observers to notify
+     * @param valueLog  The value log to pass
+     */
+    private void notifyObservers(Set<ValueLogReceiverObserver> observers, ValueLog valueLog) {
+        for (ValueLogReceiverObserver observer : observers) {
+            observer.onValueReceived(valueLog);
+        }
+    }
+}
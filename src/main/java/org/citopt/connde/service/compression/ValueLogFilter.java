@@ -0,0 +1,232 @@
+package org.citopt.connde.service.compression;
+
+import org.citopt.connde.domain.valueLog.ValueLog;
+import org.citopt.connde.domain.valueLog.ValueLogCompression;
+import org.citopt.connde.domain.valueLog.ValueLogCompressionMode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Objects of this class hold the compression state for the value log stream of a single component and decide
+ * which of the offered value logs are supposed to be passed through. Swinging door trending needs to hold back the
+ * most recent value log, as it can only decide about it after the next value log arrived. Therefore, offering a
+ * value log may result in zero, one or two value logs that are passed through.
+ */
+class ValueLogFilter {
+    //Last value log that was passed through
+    private ValueLog lastPassed = null;
+
+    //Most recent value log that was held back (swinging door only)
+    private ValueLog held = null;
+
+    //Slopes of the upper and lower door (swinging door only)
+    private double upperSlope = Double.NEGATIVE_INFINITY;
+    private double lowerSlope = Double.POSITIVE_INFINITY;
+
+    //Counters
+    private long receivedCount = 0;
+    private long passedCount = 0;
+
+    /**
+     * Offers a value log to the filter and returns the list of value logs that are supposed to be passed through
+     * with respect to given compression settings.
+     *
+     * @param valueLog    The value log to offer
+     * @param compression The compression settings to apply
+     * @return The list of value logs to pass through
+     */
+    synchronized List<ValueLog> offer(ValueLog valueLog, ValueLogCompression compression) {
+        //Sanity check
+        if (valueLog == null) {
+            throw new IllegalArgumentException("Value log must not be null.");
+        }
+
+        receivedCount++;
+
+        //Pass everything if compression is not desired
+        if ((compression == null) || (!compression.isEnabled())) {
+            return passAll(valueLog);
+        }
+
+        //Always pass the very first value log and the ones that exceed the maximum gap
+        if ((lastPassed == null) || exceedsMaxGap(valueLog, compression.getMaxGap())) {
+            return passAll(valueLog);
+        }
+
+        //Distinguish between the compression modes
+        if (compression.getMode() == ValueLogCompressionMode.SWINGING_DOOR) {
+            return offerSwingingDoor(valueLog, compression.getDeviation());
+        }
+        return offerDeadband(valueLog, compression);
+    }
+
+    /**
+     * Returns the total number of value logs that were offered to the filter.
+     *
+     * @return The number of received value logs
+     */
+    synchronized long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * Returns the total number of value logs that were passed through by the filter.
+     *
+     * @return The number of passed value logs
+     */
+    synchronized long getPassedCount() {
+        return passedCount;
+    }
+
+    /**
+     * Applies an absolute or relative deadband to a given value log.
+     *
+     * @param valueLog    The value log to check
+     * @param compression The compression settings to apply
+     * @return The list of value logs to pass through
+     */
+    private List<ValueLog> offerDeadband(ValueLog valueLog, ValueLogCompression compression) {
+        //Calculate difference to the last passed value
+        double lastValue = lastPassed.getValue();
+        double difference = Math.abs(valueLog.getValue() - lastValue);
+
+        //Determine threshold with respect to the mode
+        double threshold = compression.getDeviation();
+        if (compression.getMode() == ValueLogCompressionMode.RELATIVE_DEADBAND) {
+            threshold *= Math.abs(lastValue);
+        }
+
+        //Drop value log if it lies within the deadband
+        if (difference <= threshold) {
+            return Collections.emptyList();
+        }
+        return passAll(valueLog);
+    }
+
+    /**
+     * Applies swinging door trending to a given value log.
+     *
+     * @param valueLog  The value log to check
+     * @param deviation The compression deviation to use
+     * @return The list of value logs to pass through
+     */
+    private List<ValueLog> offerSwingingDoor(ValueLog valueLog, double deviation) {
+        double elapsed = secondsBetween(lastPassed, valueLog);
+
+        //Value logs without time progress can not be interpolated, only keep them on significant changes
+        if (elapsed <= 0) {
+            if (Math.abs(valueLog.getValue() - lastPassed.getValue()) > deviation) {
+                return passAll(valueLog);
+            }
+            held = valueLog;
+            return Collections.emptyList();
+        }
+
+        //Check if the new value log still fits through the doors
+        if (updateDoors(valueLog, deviation)) {
+            held = valueLog;
+            return Collections.emptyList();
+        }
+
+        //Doors are closed, the held value log becomes the new pivot
+        List<ValueLog> passedList = new ArrayList<>(1);
+        if (held == null) {
+            //Nothing to interpolate from, thus pass the new value log itself
+            passedList.add(valueLog);
+            markPassed(valueLog);
+            return passedList;
+        }
+
+        passedList.add(held);
+        markPassed(held);
+
+        //Re-open the doors at the new pivot for the current value log
+        if (secondsBetween(lastPassed, valueLog) > 0) {
+            updateDoors(valueLog, deviation);
+        }
+        held = valueLog;
+        return passedList;
+    }
+
+    /**
+     * Updates the slopes of both doors with a given value log and checks whether they are still open.
+     *
+     * @param valueLog  The value log to use
+     * @param deviation The compression deviation to use
+     * @return True, if the doors are still open; false otherwise
+     */
+    private boolean updateDoors(ValueLog valueLog, double deviation) {
+        double elapsed = secondsBetween(lastPassed, valueLog);
+        double pivotValue = lastPassed.getValue();
+
+        //Slopes from the upper and the lower pivot point to the new value
+        double newUpperSlope = Math.max(upperSlope, (valueLog.getValue() - (pivotValue + deviation)) / elapsed);
+        double newLowerSlope = Math.min(lowerSlope, (valueLog.getValue() - (pivotValue - deviation)) / elapsed);
+
+        //Doors are closed as soon as the upper slope exceeds the lower slope
+        if (newUpperSlope > newLowerSlope) {
+            return false;
+        }
+
+        upperSlope = newUpperSlope;
+        lowerSlope = newLowerSlope;
+        return true;
+    }
+
+    /**
+     * Passes a given value log together with a possibly held value log through and resets the filter state.
+     *
+     * @param valueLog The value log to pass
+     * @return The list of value logs to pass through
+     */
+    private List<ValueLog> passAll(ValueLog valueLog) {
+        List<ValueLog> passedList = new ArrayList<>(2);
+
+        //Flush held value log first in order to keep the time order
+        if (held != null) {
+            passedList.add(held);
+            passedCount++;
+        }
+        passedList.add(valueLog);
+        markPassed(valueLog);
+        return passedList;
+    }
+
+    /**
+     * Marks a given value log as passed and resets the door state.
+     *
+     * @param valueLog The passed value log
+     */
+    private void markPassed(ValueLog valueLog) {
+        lastPassed = valueLog;
+        held = null;
+        upperSlope = Double.NEGATIVE_INFINITY;
+        lowerSlope = Double.POSITIVE_INFINITY;
+        passedCount++;
+    }
+
+    /**
+     * Checks whether the time gap between the last passed value log and a given value log exceeds a maximum.
+     *
+     * @param valueLog The value log to check
+     * @param maxGap   The maximum gap in seconds (0 for no limit)
+     * @return True, if the maximum gap is exceeded; false otherwise
+     */
+    private boolean exceedsMaxGap(ValueLog valueLog, long maxGap) {
+        return (maxGap > 0) && (secondsBetween(lastPassed, valueLog) >= maxGap);
+    }
+
+    /**
+     * Returns the number of seconds that elapsed between two value logs.
+     *
+     * @param from The earlier value log
+     * @param to   The later value log
+     * @return The number of elapsed seconds
+     */
+    private static double secondsBetween(ValueLog from, ValueLog to) {
+        return Duration.between(from.getTime(), to.getTime()).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,66 @@
+package org.citopt.connde.service.compression.model;
+
+/**
+ * Objects of this class are models that hold the counters of the value log compression for a certain component.
+ * They can be used as DTOs in order to retrieve the counters to the client.
+ */
+public class ValueLogCompressionStats {
+    //Id of the component
+    private String componentId;
+
+    //Counters
+    private long receivedLogs = 0;
+    private long passedLogs = 0;
+
+    /**
+     * Creates a new stats object for a certain component from given counters.
+     *
+     * @param componentId  The id of the component
+     * @param receivedLogs The number of received value logs
+     * @param passedLogs   The number of value logs that passed the compression
+     */
+    public ValueLogCompressionStats(String componentId, long receivedLogs, long passedLogs) {
+        this.componentId = componentId;
+        this.receivedLogs = receivedLogs;
+        this.passedLogs = passedLogs;
+    }
+
+    /**
+     * Returns the id of the component to which the counters belong.
+     *
+     * @return The component id
+     */
+    public String getComponentId() {
+        return componentId;
+    }
+
+    /**
+     * Returns the number of value logs that were received for the component.
+     *
+     * @return The number of received value logs
+     */
+    public long getReceivedLogs() {
+        return receivedLogs;
+    }
+
+    /**
+     * Returns the number of value logs that passed the compression.
+     *
+     * @return The number of passed value logs
+     */
+    public long getPassedLogs() {
+        return passedLogs;
+    }
+
+    /**
+     * Returns the compression ratio that was achieved, i.e. the number of received value logs per passed value log.
+     *
+     * @return The compression ratio
+     */
+    public double getCompressionRatio() {
+        if (passedLogs == 0) {
+            return 1;
+        }
+        return ((double) receivedLogs) / ((double) passedLogs);
+    }
+}
@@ -2,14 +2,14 @@ package org.citopt.connde.service.log_writer;
 
 import org.citopt.connde.domain.valueLog.ValueLog;
 import org.citopt.connde.repository.ValueLogRepository;
-import org.citopt.connde.service.receiver.ValueLogReceiver;
+import org.citopt.connde.service.compression.ValueLogCompressionService;
 import org.citopt.connde.service.receiver.ValueLogReceiverObserver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
- * Service that registers itself as observer at the ValueLogReceiver and writes all arrived value logs
- * into the InfluxDB time series database.
+ * Service that registers itself as observer at the ValueLogCompressionService and writes all value logs
+ * that passed the compression into the InfluxDB time series database.
  */
 @Service
 public class ValueLogWriter implements ValueLogReceiverObserver {
@@ -18,25 +18,24 @@ public class ValueLogWriter implements ValueLogReceiverObserver {
     private ValueLogRepository valueLogRepository;
 
     /**
-     * Creates and starts the service by passing references to a value log receiver service
+     * Creates and starts the service by passing references to a value log compression service
      * and the repository component that is supposed to be used for storing the received value logs in (auto-wired).
      *
-     * @param valueLogReceiver   The instance of the value log receiver service
+     * @param compressionService The instance of the value log compression service
      * @param valueLogRepository The repository component to use
      */
     @Autowired
-    public ValueLogWriter(ValueLogReceiver valueLogReceiver, ValueLogRepository valueLogRepository) {
+    public ValueLogWriter(ValueLogCompressionService compressionService, ValueLogRepository valueLogRepository) {
         this.valueLogRepository = valueLogRepository;
 
-        //Register as observer at the ValueLogReceiver
-        valueLogReceiver.registerObserver(this);
+        //Register as observer for compressed value logs
+        compressionService.registerObserver(this);
     }
 
     /**
-     * Called in case a new value message arrives at the ValueLogReceiver. The transformed message is passed
-     * as value log.
+     * Called in case a value log passed the compression.
      *
-     * @param valueLog The corresponding value log that arrived
+     * @param valueLog The corresponding value log that passed
      */
     @Override
     public void onValueReceived(ValueLog valueLog) {
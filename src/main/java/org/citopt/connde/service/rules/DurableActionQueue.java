@@ -0,0 +1,428 @@
+package org.citopt.connde.service.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.citopt.connde.domain.rules.Rule;
+import org.citopt.connde.domain.rules.RuleAction;
+import org.citopt.connde.domain.rules.RuleExecutionResult;
+import org.citopt.connde.repository.RuleRepository;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that provides at-least-once semantics for the executions of rule actions. Each invocation of a rule action
+ * is appended to a local append-only log before it is executed and acknowledged after it completed. Failed
+ * invocations are retried with exponential backoff, and invocations that were not acknowledged before a crash or
+ * shutdown are replayed after the restart. Retries and replays are executed by the rule executor, so that they are
+ * subject to the timeouts of the actions, and are dropped as soon as the rule is disabled. The queue is the only
+ * layer that retries rule actions. Each invocation carries an idempotency key within its CEP output, which allows
+ * receivers to detect duplicates.
+ */
+@Service
+public class DurableActionQueue implements ApplicationListener<ContextRefreshedEvent> {
+    //Path of the log file
+    private static final Path LOG_FILE = Paths.get(System.getProperty("user.home"), ".connde", "action-queue",
+            "actions.log");
+
+    //Key of the idempotency key within the CEP output passed to the actions
+    public static final String OUTPUT_KEY_IDEMPOTENCY_KEY = "idempotency_key";
+
+    //Types of log records
+    private static final String RECORD_ENQUEUE = "E";
+    private static final String RECORD_ACK = "A";
+
+    //Field names of log records
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_RULE_ID = "ruleId";
+    private static final String FIELD_ACTION_ID = "actionId";
+    private static final String FIELD_OUTPUT = "output";
+
+    //Retry policy: maximum number of attempts and backoff before the first retry in milliseconds
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long INITIAL_BACKOFF = 1000;
+
+    //Number of threads that dispatch retries to the rule executor
+    private static final int RETRY_THREADS = 2;
+
+    //Number of log records after which the log is compacted
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    //Mapper for the log records
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private RuleRepository ruleRepository;
+
+    //Lazy, since the rule executor depends on the queue
+    @Lazy
+    @Autowired
+    private RuleExecutor ruleExecutor;
+
+    //Map (idempotency key --> invocation) of the invocations that were not acknowledged yet
+    private final Map<String, Invocation> pendingInvocations = new ConcurrentHashMap<>();
+
+    //Invocations that were read from the log on startup and need to be replayed
+    private final List<Invocation> replayInvocations = new ArrayList<>();
+    private final AtomicBoolean replayed = new AtomicBoolean(false);
+
+    //Writer of the log and number of records in the log, guarded by the lock of the writer
+    private final Object logLock = new Object();
+    private BufferedWriter logWriter = null;
+    private int logRecords = 0;
+
+    //Executor for retries
+    private final ScheduledExecutorService retryExecutor;
+
+    /**
+     * Creates the queue and recovers the invocations that were not acknowledged before the last shutdown.
+     */
+    public DurableActionQueue() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        retryExecutor = Executors.newScheduledThreadPool(RETRY_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "action-retry-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        //Recover pending invocations and start with a compacted log
+        synchronized (logLock) {
+            try {
+                replayInvocations.addAll(readLog());
+                replayInvocations.forEach(invocation -> pendingInvocations.put(invocation.key, invocation));
+                compactLog();
+            } catch (IOException e) {
+                System.err.println("Action queue log could not be opened, actions are not durable: " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replays the recovered invocations as soon as the application context is available.
+     *
+     * @param event The event of the refreshed context
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!replayed.compareAndSet(false, true)) {
+            return;
+        }
+        if (!replayInvocations.isEmpty()) {
+            System.out.println("Replaying " + replayInvocations.size() + " unacknowledged rule action invocations.");
+        }
+        for (Invocation invocation : replayInvocations) {
+            scheduleAttempt(invocation, 0);
+        }
+        replayInvocations.clear();
+    }
+
+    /**
+     * Stops the retries and closes the log. Pending invocations remain in the log and are replayed on restart.
+     */
+    @PreDestroy
+    public void shutdown() {
+        retryExecutor.shutdownNow();
+        synchronized (logLock) {
+            closeLog();
+        }
+    }
+
+    /**
+     * Appends the invocation of an action of a rule to the log, before it is executed. The returned invocation
+     * provides the CEP output that is supposed to be passed to the action, which carries the idempotency key of
+     * the invocation.
+     *
+     * @param rule   The rule that holds the action
+     * @param action The rule action to invoke
+     * @param output The output of the CEP engine that triggered the execution (may be null)
+     * @return The invocation
+     */
+    public Invocation enqueue(Rule rule, RuleAction action, CEPOutput output) {
+        //Sanity checks
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        } else if (action == null) {
+            throw new IllegalArgumentException("Rule action must not be null.");
+        }
+
+        //Copy output, since it is shared among all actions of the firing
+        Map<Object, Object> outputMap = new HashMap<>();
+        if (output != null) {
+            outputMap.putAll(output.getOutputMap());
+        }
+        String key = UUID.randomUUID().toString();
+        outputMap.put(OUTPUT_KEY_IDEMPOTENCY_KEY, key);
+
+        Invocation invocation = new Invocation(key, rule.getId(), action.getId(), outputMap);
+        pendingInvocations.put(key, invocation);
+
+        //Write record
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put(FIELD_TYPE, RECORD_ENQUEUE);
+        record.put(FIELD_KEY, key);
+        record.put(FIELD_RULE_ID, invocation.ruleId);
+        record.put(FIELD_ACTION_ID, invocation.actionId);
+        record.put(FIELD_OUTPUT, outputMap);
+        writeRecord(record);
+        return invocation;
+    }
+
+    /**
+     * Reports the completion of an attempt of an invocation. Successful invocations are acknowledged, failed
+     * invocations are retried with exponential backoff until the maximum number of attempts is reached.
+     *
+     * @param invocation The invocation
+     * @param success    True, if the attempt was successful; false otherwise
+     */
+    public void complete(Invocation invocation, boolean success) {
+        //Sanity check
+        if (invocation == null) {
+            throw new IllegalArgumentException("Invocation must not be null.");
+        }
+
+        int attempts = invocation.attempts.incrementAndGet();
+        if (success) {
+            acknowledge(invocation);
+        } else if (attempts >= MAX_ATTEMPTS) {
+            System.err.println("Giving up action \"" + invocation.actionId + "\" of rule \"" + invocation.ruleId +
+                    "\" after " + attempts + " attempts.");
+            acknowledge(invocation);
+        } else {
+            scheduleAttempt(invocation, INITIAL_BACKOFF << (attempts - 1));
+        }
+    }
+
+    /**
+     * Returns the number of invocations that were not acknowledged yet.
+     *
+     * @return The number of pending invocations
+     */
+    public int getPendingCount() {
+        return pendingInvocations.size();
+    }
+
+    /**
+     * Schedules a further attempt of an invocation.
+     *
+     * @param invocation The invocation
+     * @param delay      The delay before the attempt in milliseconds
+     */
+    private void scheduleAttempt(Invocation invocation, long delay) {
+        try {
+            retryExecutor.schedule(() -> attempt(invocation), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            //Queue is shut down, invocation is replayed on restart
+        }
+    }
+
+    /**
+     * Dispatches an attempt of an invocation to the rule executor, which cancels the attempt once it exceeds the
+     * timeout of the action, and reports its result. The rule is read from the repository before each attempt,
+     * so that invocations of rules that were disabled or deleted in the meantime are dropped.
+     *
+     * @param invocation The invocation
+     */
+    private void attempt(Invocation invocation) {
+        //Resolve the current state of the rule and the action
+        Rule rule = ruleRepository.findOne(invocation.ruleId);
+        RuleAction action = (rule == null) ? null : rule.getActions().stream()
+                .filter(ruleAction -> ruleAction.getId().equals(invocation.actionId)).findFirst().orElse(null);
+
+        //Drop invocations whose rule is disabled or whose rule or action no longer exists
+        if ((action == null) || (!rule.isEnabled())) {
+            acknowledge(invocation);
+            return;
+        }
+
+        //Execute the action without blocking the retry threads
+        ruleExecutor.executeAction(action, rule, invocation.getOutput()).whenComplete((result, throwable) ->
+                complete(invocation, (result != null) && (result.getResult() == RuleExecutionResult.SUCCESS)));
+    }
+
+    /**
+     * Acknowledges an invocation, so that it will not be replayed anymore.
+     *
+     * @param invocation The invocation to acknowledge
+     */
+    private void acknowledge(Invocation invocation) {
+        if (pendingInvocations.remove(invocation.key) == null) {
+            return;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put(FIELD_TYPE, RECORD_ACK);
+        record.put(FIELD_KEY, invocation.key);
+        writeRecord(record);
+    }
+
+    /**
+     * Appends a record to the log and compacts the log if it grew too large. The record is flushed to the
+     * operating system before the method returns, so that it survives a crash of the application.
+     *
+     * @param record The record to append
+     */
+    private void writeRecord(Map<String, Object> record) {
+        synchronized (logLock) {
+            if (logWriter == null) {
+                return;
+            }
+            try {
+                logWriter.write(MAPPER.writeValueAsString(record));
+                logWriter.newLine();
+                logWriter.flush();
+
+                if (++logRecords >= COMPACTION_THRESHOLD) {
+                    compactLog();
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write to the action queue log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the log and returns the invocations that were enqueued but not acknowledged. Incomplete records,
+     * e.g. due to a crash while writing, are skipped.
+     *
+     * @return The list of unacknowledged invocations in the order of their enqueueing
+     * @throws IOException In case of an I/O issue
+     */
+    @SuppressWarnings("unchecked")
+    private List<Invocation> readLog() throws IOException {
+        Map<String, Invocation> invocations = new LinkedHashMap<>();
+        if (!Files.exists(LOG_FILE)) {
+            return new ArrayList<>();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(LOG_FILE, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Map<String, Object> record;
+                try {
+                    record = MAPPER.readValue(line, Map.class);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                String key = (String) record.get(FIELD_KEY);
+                if (RECORD_ENQUEUE.equals(record.get(FIELD_TYPE))) {
+                    invocations.put(key, new Invocation(key, (String) record.get(FIELD_RULE_ID),
+                            (String) record.get(FIELD_ACTION_ID), (Map<Object, Object>) record.get(FIELD_OUTPUT)));
+                } else if (RECORD_ACK.equals(record.get(FIELD_TYPE))) {
+                    invocations.remove(key);
+                }
+            }
+        }
+        return new ArrayList<>(invocations.values());
+    }
+
+    /**
+     * Rewrites the log so that it only contains the records of the pending invocations and reopens it for
+     * appending. Must only be called while holding the lock of the log.
+     *
+     * @throws IOException In case of an I/O issue
+     */
+    private void compactLog() throws IOException {
+        closeLog();
+        Files.createDirectories(LOG_FILE.getParent());
+
+        //Write pending invocations to a temporary file and replace the log atomically
+        Path tempFile = LOG_FILE.resolveSibling(LOG_FILE.getFileName() + ".tmp");
+        int records = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Invocation invocation : pendingInvocations.values()) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put(FIELD_TYPE, RECORD_ENQUEUE);
+                record.put(FIELD_KEY, invocation.key);
+                record.put(FIELD_RULE_ID, invocation.ruleId);
+                record.put(FIELD_ACTION_ID, invocation.actionId);
+                record.put(FIELD_OUTPUT, invocation.outputMap);
+                writer.write(MAPPER.writeValueAsString(record));
+                writer.newLine();
+                records++;
+            }
+        }
+        Files.move(tempFile, LOG_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        //Reopen log for appending
+        logWriter = Files.newBufferedWriter(LOG_FILE, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        logRecords = records;
+    }
+
+    /**
+     * Closes the log writer. Must only be called while holding the lock of the log.
+     */
+    private void closeLog() {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close the action queue log: " + e.getMessage());
+        }
+        logWriter = null;
+    }
+
+    /**
+     * Invocation of an action of a rule, identified by its idempotency key.
+     */
+    public static class Invocation {
+        private final String key;
+        private final String ruleId;
+        private final String actionId;
+        private final Map<Object, Object> outputMap;
+        private final AtomicInteger attempts = new AtomicInteger(0);
+
+        /**
+         * Creates a new invocation.
+         *
+         * @param key       The idempotency key of the invocation
+         * @param ruleId    The id of the rule
+         * @param actionId  The id of the rule action
+         * @param outputMap The output map to pass to the action
+         */
+        private Invocation(String key, String ruleId, String actionId, Map<Object, Object> outputMap) {
+            this.key = key;
+            this.ruleId = ruleId;
+            this.actionId = actionId;
+            this.outputMap = (outputMap == null) ? new HashMap<>() : outputMap;
+        }
+
+        /**
+         * Returns the idempotency key of the invocation.
+         *
+         * @return The idempotency key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the CEP output that is supposed to be passed to the action, including the idempotency key.
+         *
+         * @return The CEP output
+         */
+        public CEPOutput getOutput() {
+            return new CEPOutput(new HashMap<>(outputMap));
+        }
+    }
+}
@@ -1,54 +1,103 @@
 package org.citopt.connde.service.rules;
 
 import org.citopt.connde.domain.rules.Rule;
+import org.citopt.connde.domain.rules.RuleAction;
 import org.citopt.connde.domain.rules.RuleTrigger;
-import org.citopt.connde.domain.testing.Testing;
 import org.citopt.connde.repository.RuleRepository;
-import org.citopt.connde.repository.TestRepository;
 import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
 import org.citopt.connde.service.cep.engine.core.queries.CEPQueryValidation;
 import org.citopt.connde.service.cep.trigger.CEPTriggerService;
+import org.citopt.connde.service.cep.trigger.RuleTriggerCallback;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The rule engine component manages all rules and provides means for enabling and disabling them. In addition,
  * it takes care about inducing the execution of a rule in case it was triggering.
  */
 @Component
-public class RuleEngine {
+public class RuleEngine implements ApplicationListener<ContextRefreshedEvent> {
+    //Names of the fields of rule documents
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ENABLED = "enabled";
 
     private RuleRepository ruleRepository;
 
+    private MongoTemplate mongoTemplate;
+
     private CEPTriggerService triggerService;
 
-    private RuleExecutor ruleExecutor;
+    private RuleExecutionGate executionGate;
+
+    //Immutable routing table (trigger id --> rules of the trigger), replaced as a whole on changes
+    private volatile Map<String, List<Rule>> triggerMap;
+
+    //Lock for serializing changes of the routing table
+    private final Object triggerMapLock = new Object();
+
+    private RuleFiringJournal firingJournal;
 
-    private Map<RuleTrigger, Set<Rule>> triggerMap;
+    private RuleFiringStreamService firingStreamService;
 
-    private TestRepository testRepo;
+    //Whether the enabled rules have already been loaded on startup
+    private final AtomicBoolean rulesLoaded = new AtomicBoolean(false);
 
     /**
-     * Initializes the rule engine component and activates all already enabled rules.
+     * Initializes the rule engine component. The already enabled rules are activated as soon as the application
+     * context is available.
      *
-     * @param ruleRepository The repository in which the rules are stored (autowired)
-     * @param triggerService The CEP trigger service to use (autowired)
-     * @param ruleExecutor   The rule executor to use (autowired)
+     * @param ruleRepository      The repository in which the rules are stored (autowired)
+     * @param mongoTemplate       The template for updating single fields of rules (autowired)
+     * @param triggerService      The CEP trigger service to use (autowired)
+     * @param executionGate       The gate for executing rules pursuant to their policies (autowired)
+     * @param firingJournal       The journal in which the firings are recorded (autowired)
+     * @param firingStreamService The service for streaming firings to clients (autowired)
      */
     @Autowired
-    private RuleEngine(RuleRepository ruleRepository, CEPTriggerService triggerService, RuleExecutor ruleExecutor, TestRepository testRepo) {
+    private RuleEngine(RuleRepository ruleRepository, MongoTemplate mongoTemplate, CEPTriggerService triggerService,
+                       RuleExecutionGate executionGate, RuleFiringJournal firingJournal,
+                       RuleFiringStreamService firingStreamService) {
         this.ruleRepository = ruleRepository;
+        this.mongoTemplate = mongoTemplate;
         this.triggerService = triggerService;
-        this.ruleExecutor = ruleExecutor;
-        this.testRepo = testRepo;
+        this.executionGate = executionGate;
+        this.firingJournal = firingJournal;
+        this.firingStreamService = firingStreamService;
 
         //Initialize trigger map
-        triggerMap = new HashMap<>();
+        triggerMap = Collections.emptyMap();
+    }
+
+    /**
+     * Activates the already enabled rules in the background as soon as the application context is available,
+     * so that the restore of the window state of their triggers does not block the startup.
+     *
+     * @param event The event of the refreshed context
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!rulesLoaded.compareAndSet(false, true)) {
+            return;
+        }
 
-        //Load available rules
-        loadRulesOnStartup();
+        Thread thread = new Thread(() -> {
+            try {
+                loadRulesOnStartup();
+            } catch (RuntimeException e) {
+                System.err.println("Rules could not be loaded on startup: " + e.getMessage());
+            }
+        }, "rule-engine-startup");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /**
@@ -71,31 +120,55 @@ public class RuleEngine {
         CEPQueryValidation validationResult = triggerService.isValidTriggerQuery(trigger);
 
         if (!validationResult.isValid()) {
-            //Trigger is not valid, mark it as disabled
-            rule.setEnabled(false);
-            ruleRepository.save(rule);
-
+            //Trigger is not valid, mark it as disabled unless a concurrent call enabled it in the meantime
+            synchronized (triggerMapLock) {
+                if (!isRouted(rule)) {
+                    persistEnabled(rule, false);
+                }
+            }
             return false;
         }
 
-        //Add the rule to the trigger map, if trigger is already registered
-        if (triggerMap.containsKey(trigger)) {
-            Set<Rule> rulesOfTrigger = triggerMap.get(trigger);
-            rulesOfTrigger.add(rule);
-        } else {
-            //Register trigger at the trigger service
-            triggerService.registerTrigger(trigger, (ruleTrigger, output) -> {
-                //Induce the executions of rules that use this trigger on callback
-                induceRuleExecution(ruleTrigger, output);
-            });
-
-            Set<Rule> rulesOfTrigger = new HashSet<>();
-            rulesOfTrigger.add(rule);
-            triggerMap.put(trigger, rulesOfTrigger);
+        //Let the executors prepare the actions of the rule before it may be triggered
+        for (RuleAction action : rule.getActions()) {
+            action.getType().getExecutor().prepare(action, rule);
         }
 
-        rule.setEnabled(true);
-        ruleRepository.save(rule);
+        synchronized (triggerMapLock) {
+            //Add the rule to the rules of the trigger or replace a previous version of it
+            Map<String, List<Rule>> oldMap = triggerMap;
+            List<Rule> oldRules = oldMap.getOrDefault(trigger.getId(), Collections.emptyList());
+            List<Rule> newRules = new ArrayList<>(oldRules);
+            newRules.removeIf(r -> r.getId().equals(rule.getId()));
+            newRules.add(rule);
+            publishTriggerMap(trigger.getId(), newRules);
+
+            //Register trigger at the trigger service, if it is not registered yet
+            if (oldRules.isEmpty()) {
+                try {
+                    triggerService.registerTrigger(trigger, new RuleTriggerCallback() {
+                        @Override
+                        public void onTriggerFired(RuleTrigger ruleTrigger, CEPOutput output) {
+                            //Induce the executions of rules that use this trigger on callback
+                            induceRuleExecution(ruleTrigger, output);
+                        }
+
+                        @Override
+                        public void onTriggerDisabled(RuleTrigger ruleTrigger, String reason) {
+                            //Disable the rules that use this trigger, so that their state is consistent
+                            disableRulesOfTrigger(ruleTrigger, reason);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    //Roll back the routing table
+                    triggerMap = oldMap;
+                    throw e;
+                }
+            }
+
+            //Persist the state together with the routing, so that concurrent calls cannot interleave
+            persistEnabled(rule, true);
+        }
 
         //Everything successful
         return true;
@@ -115,27 +188,75 @@ public class RuleEngine {
         //Get rule trigger
         RuleTrigger trigger = rule.getTrigger();
 
-        if (!triggerMap.containsKey(trigger)) {
-            return;
+        synchronized (triggerMapLock) {
+            //Check if the rule is routed at all
+            boolean routed = isRouted(rule);
+            if (routed) {
+                //Remove rule from the rules of the trigger
+                List<Rule> newRules = new ArrayList<>(triggerMap.get(trigger.getId()));
+                newRules.removeIf(r -> r.getId().equals(rule.getId()));
+                publishTriggerMap(trigger.getId(), newRules);
+
+                //Unregister trigger from trigger service if no rules are left
+                if (newRules.isEmpty()) {
+                    triggerService.unregisterTrigger(trigger);
+                }
+            }
+
+            //Persist the state together with the routing, so that concurrent calls cannot interleave
+            persistEnabled(rule, false);
+            if (!routed) {
+                return;
+            }
         }
 
-        //Get set of rules for this trigger
-        Set<Rule> rules = triggerMap.get(trigger);
+        //Discard deferred executions of the rule and the prepared data of its actions
+        executionGate.reset(rule);
+        for (RuleAction action : rule.getActions()) {
+            action.getType().getExecutor().release(action, rule);
+        }
+    }
 
-        //Remove rule from set
-        rules.remove(rule);
+    /**
+     * Checks whether a given rule is part of the current routing table.
+     *
+     * @param rule The rule to check
+     * @return True, if the rule is routed; false otherwise
+     */
+    private boolean isRouted(Rule rule) {
+        List<Rule> rules = triggerMap.get(rule.getTrigger().getId());
+        return (rules != null) && rules.stream().anyMatch(r -> r.getId().equals(rule.getId()));
+    }
 
-        //Check if rule set is now empty
-        if (rules.isEmpty()) {
-            //Unregister trigger from trigger service
-            triggerService.unregisterTrigger(trigger);
+    /**
+     * Sets the enabled state of a given rule and persists only this field, so that the execution statistics
+     * that are written concurrently by the statistics service are not overwritten. Must only be called while
+     * holding the lock of the routing table.
+     *
+     * @param rule    The rule to update
+     * @param enabled True, if the rule is enabled; false otherwise
+     */
+    private void persistEnabled(Rule rule, boolean enabled) {
+        rule.setEnabled(enabled);
+        mongoTemplate.updateFirst(Query.query(Criteria.where(FIELD_ID).is(rule.getId())),
+                Update.update(FIELD_ENABLED, enabled), Rule.class);
+    }
 
-            //Remove entry from trigger map
-            triggerMap.remove(trigger);
+    /**
+     * Disables all rules that use a certain rule trigger, since the trigger was disabled due to a given reason.
+     *
+     * @param ruleTrigger The rule trigger
+     * @param reason      The reason why the trigger was disabled
+     */
+    private void disableRulesOfTrigger(RuleTrigger ruleTrigger, String reason) {
+        List<Rule> rules = triggerMap.get(ruleTrigger.getId());
+        if (rules == null) {
+            return;
+        }
+        for (Rule rule : rules) {
+            System.err.println("Rule \"" + rule.getName() + "\" disabled: " + reason);
+            disableRule(rule);
         }
-
-        rule.setEnabled(false);
-        ruleRepository.save(rule);
     }
 
     /**
@@ -151,38 +272,76 @@ public class RuleEngine {
             throw new IllegalArgumentException("Rule object most not be null.");
         }
 
-        //Get all rules from the map that use the given trigger
-        Set<Rule> ruleSet = triggerMap.get(ruleTrigger);
+        //Get all rules from the current routing table that use the given trigger
+        List<Rule> rules = triggerMap.get(ruleTrigger.getId());
+        if (rules == null) {
+            //Trigger fired after all of its rules were disabled
+            return;
+        }
         Set<String> ruleNames = new HashSet<>();
+        List<String> ruleIds = new ArrayList<>();
 
         //Iterate over all rules and execute them
-        for (Rule rule : ruleSet) {
-            ruleExecutor.executeRule(rule, output);
+        for (Rule rule : rules) {
+            executionGate.submit(rule, output);
             ruleNames.add(rule.getName());
+            ruleIds.add(rule.getId());
         }
 
-        Testing testing = new Testing();
-        testing.setTrigger(ruleTrigger);
-        testing.setOutput(output);
-        testing.setRule(ruleNames);
-
+        //Stream firing to connected clients
+        RuleFiring firing = new RuleFiring();
+        firing.setTriggerId(ruleTrigger.getId());
+        firing.setTriggerName(ruleTrigger.getName());
+        firing.setRuleIds(ruleIds);
+        firing.setRuleNames(new ArrayList<>(ruleNames));
+        firing.setTime(System.currentTimeMillis());
+        firing.setOutput(output.getOutputMap());
+        firingStreamService.publish(firing);
+
+        //Record firing asynchronously
+        firingJournal.append(ruleTrigger, output, ruleNames);
+    }
 
-        testRepo.insert(testing);
+    /**
+     * Publishes a new routing table in which the rules of a given trigger are replaced by a given list of rules.
+     * The list is removed from the routing table, if it is empty. Must only be called while holding the lock
+     * of the routing table.
+     *
+     * @param triggerId The id of the trigger
+     * @param rules     The new rules of the trigger
+     */
+    private void publishTriggerMap(String triggerId, List<Rule> rules) {
+        Map<String, List<Rule>> newMap = new HashMap<>(triggerMap);
+        if (rules.isEmpty()) {
+            newMap.remove(triggerId);
+        } else {
+            newMap.put(triggerId, Collections.unmodifiableList(rules));
+        }
+        triggerMap = Collections.unmodifiableMap(newMap);
     }
 
     /**
-     * Ensures that enabled rules will be active and working after the startup of the application.
+     * Ensures that enabled rules will be active and working after the startup of the application. The window
+     * state of the triggers is restored from the events before the restart, before the triggers may fire.
      */
     private void loadRulesOnStartup() {
         //Get all rules
         List<Rule> rules = ruleRepository.findAll();
 
-        //Iterate over all rules
-        for (Rule rule : rules) {
-            //Enable rule if it is enabled
-            if (rule.isEnabled()) {
-                enableRule(rule);
+        //Defer firing of triggers until their windows are restored
+        triggerService.beginWindowRestore();
+
+        try {
+            //Iterate over all rules
+            for (Rule rule : rules) {
+                //Enable rule if it is enabled
+                if (rule.isEnabled()) {
+                    enableRule(rule);
+                }
             }
+        } finally {
+            //Restore windows and let triggers fire
+            triggerService.completeWindowRestore();
         }
     }
 }
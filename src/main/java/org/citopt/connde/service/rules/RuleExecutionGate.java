@@ -0,0 +1,378 @@
+package org.citopt.connde.service.rules;
+
+import org.citopt.connde.domain.rules.Rule;
+import org.citopt.connde.domain.rules.RuleExecutionPolicy;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Component that enforces the execution policies of rules before their actions are dispatched to the rule executor.
+ * Depending on the policy of a rule, firings of its trigger are executed immediately, suppressed or deferred.
+ * Deferred firings of a burst are coalesced into one execution whose output aggregates the outputs of all
+ * coalesced firings. Rules without an active execution policy are executed immediately.
+ */
+@Component
+public class RuleExecutionGate {
+    //Number of threads that perform deferred executions
+    private static final int SCHEDULER_THREADS = 4;
+
+    //Maximum number of outputs that are kept for one coalesced execution
+    private static final int MAX_COALESCED_OUTPUTS = 100;
+
+    //Keys of the aggregated output of coalesced executions
+    private static final String KEY_COALESCED_COUNT = "coalesced_count";
+    private static final String KEY_COALESCED_OUTPUTS = "coalesced_outputs";
+
+    private final RuleExecutor ruleExecutor;
+
+    private final RuleExecutionStatsService statsService;
+
+    //Map (rule id --> execution state) of rules with active execution policies
+    private final Map<String, RuleState> ruleStates = new ConcurrentHashMap<>();
+
+    //Executor for deferred executions
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Creates and initializes the execution gate.
+     *
+     * @param ruleExecutor The rule executor to use (autowired)
+     * @param statsService The service for recording execution statistics (autowired)
+     */
+    @Autowired
+    public RuleExecutionGate(RuleExecutor ruleExecutor, RuleExecutionStatsService statsService) {
+        this.ruleExecutor = ruleExecutor;
+        this.statsService = statsService;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "rule-gate-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops all deferred executions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Submits the execution of a given rule due to a firing of its trigger. Depending on the execution policy of
+     * the rule, it is either dispatched to the rule executor immediately, deferred or suppressed. This method does
+     * not wait for the actions of the rule.
+     *
+     * @param rule   The rule to execute
+     * @param output The output of the CEP engine that caused the firing
+     */
+    public void submit(Rule rule, CEPOutput output) {
+        //Sanity check
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        }
+
+        //Execute rules without active policy immediately
+        RuleExecutionPolicy policy = rule.getExecutionPolicy();
+        if ((policy == null) || (!policy.isActive())) {
+            ruleExecutor.executeRule(rule, output);
+            return;
+        }
+
+        //Apply policy
+        RuleState state = ruleStates.computeIfAbsent(rule.getId(), id -> new RuleState());
+        boolean execute;
+        synchronized (state) {
+            state.rule = rule;
+            execute = state.onFiring(policy, output, System.currentTimeMillis());
+        }
+
+        if (execute) {
+            ruleExecutor.executeRule(rule, output);
+        }
+    }
+
+    /**
+     * Discards the execution state of a given rule, including all of its deferred executions. This method should
+     * be called when a rule is disabled.
+     *
+     * @param rule The rule to reset
+     */
+    public void reset(Rule rule) {
+        //Sanity check
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        }
+
+        RuleState state = ruleStates.remove(rule.getId());
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.cancelPending();
+        }
+    }
+
+    /**
+     * Aggregates the outputs of coalesced firings to one output. The aggregated output consists of the entries of
+     * the latest output, the total number of coalesced firings and the list of the retained output maps.
+     *
+     * @param outputs The outputs to aggregate
+     * @param count   The total number of coalesced firings
+     * @return The aggregated output
+     */
+    private static CEPOutput aggregateOutputs(List<CEPOutput> outputs, int count) {
+        if ((outputs.size() == 1) && (count == 1)) {
+            return outputs.get(0);
+        }
+
+        //Take over the entries of the latest output
+        Map<Object, Object> outputMap = new HashMap<>(outputs.get(outputs.size() - 1).getOutputMap());
+
+        //Add the aggregation
+        List<Map<Object, Object>> outputMaps = new ArrayList<>();
+        for (CEPOutput output : outputs) {
+            outputMaps.add(output.getOutputMap());
+        }
+        outputMap.put(KEY_COALESCED_COUNT, count);
+        outputMap.put(KEY_COALESCED_OUTPUTS, outputMaps);
+        return new CEPOutput(outputMap);
+    }
+
+    /**
+     * Execution state of a rule with an active execution policy. Except for deferred executions, all methods must
+     * be called while holding the lock of the state object.
+     */
+    private class RuleState {
+        //Latest version of the rule
+        private Rule rule;
+
+        //Time of the last firing and of the last execution in epoch milliseconds (-1 = none)
+        private long lastFiring = -1;
+        private long lastExecution = -1;
+
+        //Times of the executions within the current window
+        private final Deque<Long> executionTimes = new ArrayDeque<>();
+
+        //Outputs of the firings waiting for a deferred execution and total number of these firings
+        private final LinkedList<CEPOutput> pendingOutputs = new LinkedList<>();
+        private int pendingCount = 0;
+
+        //Scheduled deferred execution and its generation, in order to detect outdated executions
+        private ScheduledFuture<?> pendingTask = null;
+        private long generation = 0;
+
+        /**
+         * Applies the execution policy to a firing and returns whether the rule needs to be executed immediately.
+         *
+         * @param policy The execution policy of the rule
+         * @param output The output of the firing
+         * @param now    The current time in epoch milliseconds
+         * @return True, if the rule needs to be executed immediately; false otherwise
+         */
+        private boolean onFiring(RuleExecutionPolicy policy, CEPOutput output, long now) {
+            //Apply debounce
+            if (policy.getDebounceDelay() > 0) {
+                boolean quiet = (lastFiring < 0) || (now - lastFiring >= policy.getDebounceDelay());
+                lastFiring = now;
+
+                //Trailing debounce: execute once the trigger is quiet
+                if (policy.getDebounceMode() == RuleExecutionPolicy.DebounceMode.TRAILING) {
+                    addPending(output);
+                    schedulePending(policy.getDebounceDelay(), true);
+                    return false;
+                }
+
+                //Leading debounce: execute on the first firing, coalesce the rest into a trailing execution
+                if (!quiet) {
+                    if (policy.isCoalesce()) {
+                        addPending(output);
+                        schedulePending(policy.getDebounceDelay(), true);
+                    } else {
+                        suppress(1);
+                    }
+                    return false;
+                }
+            }
+
+            //Apply rate limits
+            long delay = getRateLimitDelay(policy, now);
+            if (delay <= 0) {
+                recordExecution(policy, now);
+                return true;
+            }
+
+            //Defer or suppress
+            if (policy.isCoalesce()) {
+                addPending(output);
+                schedulePending(delay, false);
+            } else {
+                suppress(1);
+            }
+            return false;
+        }
+
+        /**
+         * Performs the deferred execution of the pending firings, unless the execution is outdated or still
+         * prohibited by the rate limits of the policy.
+         *
+         * @param taskGeneration The generation of the scheduled execution
+         */
+        private void executePending(long taskGeneration) {
+            Rule executedRule;
+            CEPOutput output;
+            synchronized (this) {
+                //Check if execution is outdated
+                if ((taskGeneration != generation) || pendingOutputs.isEmpty()) {
+                    return;
+                }
+                pendingTask = null;
+
+                //Check if the policy still applies to the rule
+                RuleExecutionPolicy policy = rule.getExecutionPolicy();
+                long now = System.currentTimeMillis();
+                if ((policy != null) && policy.isActive()) {
+                    //Check rate limits
+                    long delay = getRateLimitDelay(policy, now);
+                    if (delay > 0) {
+                        if (policy.isCoalesce()) {
+                            schedulePending(delay, false);
+                        } else {
+                            suppress(pendingCount);
+                            clearPending();
+                        }
+                        return;
+                    }
+                    recordExecution(policy, now);
+                }
+
+                //Coalesce pending firings
+                executedRule = rule;
+                output = aggregateOutputs(pendingOutputs, pendingCount);
+                suppress(pendingCount - 1);
+                clearPending();
+            }
+
+            ruleExecutor.executeRule(executedRule, output);
+        }
+
+        /**
+         * Returns the time that needs to elapse until the rate limits of a policy permit the next execution.
+         *
+         * @param policy The execution policy of the rule
+         * @param now    The current time in epoch milliseconds
+         * @return The delay in milliseconds; zero or negative, if the execution is permitted
+         */
+        private long getRateLimitDelay(RuleExecutionPolicy policy, long now) {
+            long delay = 0;
+
+            //Check minimum interval
+            if ((policy.getMinInterval() > 0) && (lastExecution >= 0)) {
+                delay = lastExecution + policy.getMinInterval() - now;
+            }
+
+            //Check maximum number of executions within the window
+            if ((policy.getMaxExecutions() > 0) && (policy.getWindow() > 0)) {
+                while ((!executionTimes.isEmpty()) && (executionTimes.peekFirst() <= now - policy.getWindow())) {
+                    executionTimes.pollFirst();
+                }
+                if (executionTimes.size() >= policy.getMaxExecutions()) {
+                    delay = Math.max(delay, executionTimes.peekFirst() + policy.getWindow() - now);
+                }
+            }
+            return delay;
+        }
+
+        /**
+         * Records an execution that is permitted by the policy.
+         *
+         * @param policy The execution policy of the rule
+         * @param now    The current time in epoch milliseconds
+         */
+        private void recordExecution(RuleExecutionPolicy policy, long now) {
+            lastExecution = now;
+            if ((policy.getMaxExecutions() > 0) && (policy.getWindow() > 0)) {
+                executionTimes.addLast(now);
+            } else {
+                executionTimes.clear();
+            }
+        }
+
+        /**
+         * Adds the output of a firing to the pending firings. Only the latest outputs are retained.
+         *
+         * @param output The output to add
+         */
+        private void addPending(CEPOutput output) {
+            pendingOutputs.addLast(output);
+            if (pendingOutputs.size() > MAX_COALESCED_OUTPUTS) {
+                pendingOutputs.removeFirst();
+            }
+            pendingCount++;
+        }
+
+        /**
+         * Schedules the deferred execution of the pending firings.
+         *
+         * @param delay      The delay of the execution in milliseconds
+         * @param reschedule True, if an already scheduled execution is supposed to be postponed; false, if it is
+         *                   supposed to be kept
+         */
+        private void schedulePending(long delay, boolean reschedule) {
+            if (pendingTask != null) {
+                if (!reschedule) {
+                    return;
+                }
+                pendingTask.cancel(false);
+            }
+
+            long taskGeneration = ++generation;
+            try {
+                pendingTask = scheduler.schedule(() -> executePending(taskGeneration), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                //Gate is shut down
+                pendingTask = null;
+            }
+        }
+
+        /**
+         * Cancels the deferred execution and discards the pending firings.
+         */
+        private void cancelPending() {
+            if (pendingTask != null) {
+                pendingTask.cancel(false);
+            }
+            generation++;
+            suppress(pendingCount);
+            clearPending();
+        }
+
+        /**
+         * Discards the pending firings.
+         */
+        private void clearPending() {
+            pendingOutputs.clear();
+            pendingCount = 0;
+            pendingTask = null;
+        }
+
+        /**
+         * Records a number of firings that were suppressed by the policy.
+         *
+         * @param count The number of suppressed firings
+         */
+        private void suppress(int count) {
+            if (count > 0) {
+                statsService.recordSuppression(rule, count);
+            }
+        }
+    }
+}
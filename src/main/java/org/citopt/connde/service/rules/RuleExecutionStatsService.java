@@ -0,0 +1,258 @@
+package org.citopt.connde.service.rules;
+
+import org.citopt.connde.domain.rules.Rule;
+import org.citopt.connde.domain.rules.RuleActionResult;
+import org.citopt.connde.domain.rules.RuleExecutionResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service that keeps the execution statistics of rules (number of executions and suppressed firings, time and
+ * result of the last execution) in memory and periodically flushes them to the database as partial updates.
+ * This way, frequently executed rules do not cause full rewrites of their documents on each execution, and
+ * concurrent modifications of other fields of the rules are not overwritten. Rules that are read from the
+ * repository can be merged with the statistics that have not been flushed yet.
+ */
+@Service
+public class RuleExecutionStatsService {
+    //Interval between two flushes in milliseconds
+    private static final long FLUSH_INTERVAL = 2000;
+
+    //Names of the fields of rule documents
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_EXECUTIONS = "executions";
+    private static final String FIELD_LAST_EXECUTION = "lastExecution";
+    private static final String FIELD_LAST_EXECUTION_RESULT = "lastExecutionResult";
+    private static final String FIELD_LAST_ACTION_RESULTS = "lastActionResults";
+    private static final String FIELD_SUPPRESSED_FIRINGS = "suppressedFirings";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    //Map (rule id --> statistics) of the statistics that have not been flushed yet
+    private final Map<String, PendingStats> pendingStats = new ConcurrentHashMap<>();
+
+    //Executor for the periodic flushes
+    private final ScheduledExecutorService flushExecutor;
+
+    /**
+     * Creates and initializes the service.
+     */
+    public RuleExecutionStatsService() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rule-stats-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records the start of an execution of a given rule.
+     *
+     * @param rule The rule that is executed
+     */
+    public void recordExecution(Rule rule) {
+        //Sanity check
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        }
+
+        //Update atomically, so that the update is not lost in case of a concurrent flush
+        Date now = new Date();
+        pendingStats.compute(rule.getId(), (id, stats) -> {
+            stats = (stats == null) ? new PendingStats() : stats;
+            stats.executions++;
+            stats.lastExecution = now;
+            return stats;
+        });
+    }
+
+    /**
+     * Records the result of an execution of a given rule.
+     *
+     * @param rule          The rule that was executed
+     * @param result        The aggregated result of the execution
+     * @param actionResults The results of the single actions
+     */
+    public void recordResult(Rule rule, RuleExecutionResult result, List<RuleActionResult> actionResults) {
+        //Sanity check
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        }
+
+        //Update atomically, so that the update is not lost in case of a concurrent flush
+        pendingStats.compute(rule.getId(), (id, stats) -> {
+            stats = (stats == null) ? new PendingStats() : stats;
+            stats.lastExecutionResult = result;
+            stats.lastActionResults = actionResults;
+            return stats;
+        });
+    }
+
+    /**
+     * Records firings of the trigger of a given rule that were suppressed by the execution policy of the rule.
+     *
+     * @param rule  The rule whose firings were suppressed
+     * @param count The number of suppressed firings
+     */
+    public void recordSuppression(Rule rule, int count) {
+        //Sanity check
+        if (rule == null) {
+            throw new IllegalArgumentException("Rule must not be null.");
+        }
+
+        //Update atomically, so that the update is not lost in case of a concurrent flush
+        pendingStats.compute(rule.getId(), (id, stats) -> {
+            stats = (stats == null) ? new PendingStats() : stats;
+            stats.suppressedFirings += count;
+            return stats;
+        });
+    }
+
+    /**
+     * Merges the statistics that have not been flushed yet into a given rule that was read from the repository.
+     *
+     * @param rule The rule to merge the statistics into
+     * @return The same rule object
+     */
+    public Rule merge(Rule rule) {
+        if ((rule == null) || (rule.getId() == null)) {
+            return rule;
+        }
+
+        //Merge consistently while the statistics are not updated
+        pendingStats.computeIfPresent(rule.getId(), (id, stats) -> {
+            rule.setExecutions(rule.getExecutions() + stats.executions);
+            rule.setSuppressedFirings(rule.getSuppressedFirings() + stats.suppressedFirings);
+            if ((stats.lastExecution != null) && ((rule.getLastExecution() == null) ||
+                    stats.lastExecution.after(rule.getLastExecution()))) {
+                rule.setLastExecution(stats.lastExecution);
+            }
+            if (stats.lastExecutionResult != null) {
+                rule.setLastExecutionResult(stats.lastExecutionResult);
+                rule.setLastActionResults(stats.lastActionResults);
+            }
+            return stats;
+        });
+        return rule;
+    }
+
+    /**
+     * Writes the pending statistics of all rules to the database as partial updates. The statistics are only
+     * discarded after they were written successfully, so that they remain visible to readers in the meantime
+     * and are retried with the next flush in case the write fails.
+     */
+    public synchronized void flush() {
+        for (String ruleId : pendingStats.keySet()) {
+            //Take a snapshot of the statistics, while new executions are still recorded in the same object
+            PendingStats[] snapshot = new PendingStats[1];
+            pendingStats.computeIfPresent(ruleId, (id, pending) -> {
+                snapshot[0] = pending.copy();
+                return pending;
+            });
+            PendingStats stats = snapshot[0];
+            if (stats == null) {
+                continue;
+            }
+
+            //Build partial update
+            Update update = new Update();
+            if (stats.executions > 0) {
+                update.inc(FIELD_EXECUTIONS, stats.executions);
+            }
+            if (stats.suppressedFirings > 0) {
+                update.inc(FIELD_SUPPRESSED_FIRINGS, stats.suppressedFirings);
+            }
+            if (stats.lastExecution != null) {
+                update.set(FIELD_LAST_EXECUTION, stats.lastExecution);
+            }
+            if (stats.lastExecutionResult != null) {
+                update.set(FIELD_LAST_EXECUTION_RESULT, stats.lastExecutionResult);
+                update.set(FIELD_LAST_ACTION_RESULTS, stats.lastActionResults);
+            }
+
+            //Write update and keep the statistics for the next flush in case of a failure
+            try {
+                mongoTemplate.updateFirst(Query.query(Criteria.where(FIELD_ID).is(ruleId)), update, Rule.class);
+            } catch (Exception e) {
+                System.err.println("Failed to flush execution statistics of rule " + ruleId + ": " + e.getMessage());
+                continue;
+            }
+
+            //Discard the written statistics, but keep the ones that were recorded during the write
+            pendingStats.computeIfPresent(ruleId, (id, pending) -> pending.subtract(stats) ? null : pending);
+        }
+    }
+
+    /**
+     * Flushes the pending statistics and stops the periodic flushes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Execution statistics of a rule that have not been flushed yet. The fields of objects within the map of pending
+     * statistics are only accessed within atomic operations of the map.
+     */
+    private static class PendingStats {
+        private int executions = 0;
+        private int suppressedFirings = 0;
+        private Date lastExecution = null;
+        private RuleExecutionResult lastExecutionResult = null;
+        private List<RuleActionResult> lastActionResults = null;
+
+        /**
+         * Creates a copy of these statistics.
+         *
+         * @return The copy
+         */
+        private PendingStats copy() {
+            PendingStats copy = new PendingStats();
+            copy.executions = executions;
+            copy.suppressedFirings = suppressedFirings;
+            copy.lastExecution = lastExecution;
+            copy.lastExecutionResult = lastExecutionResult;
+            copy.lastActionResults = lastActionResults;
+            return copy;
+        }
+
+        /**
+         * Removes statistics that were flushed from these statistics. Values that were replaced since the flushed
+         * statistics were taken are retained.
+         *
+         * @param flushed The flushed statistics
+         * @return True, if no statistics remain; false otherwise
+         */
+        private boolean subtract(PendingStats flushed) {
+            executions -= flushed.executions;
+            suppressedFirings -= flushed.suppressedFirings;
+            if (lastExecution == flushed.lastExecution) {
+                lastExecution = null;
+            }
+            if ((lastExecutionResult == flushed.lastExecutionResult) &&
+                    (lastActionResults == flushed.lastActionResults)) {
+                lastExecutionResult = null;
+                lastActionResults = null;
+            }
+            return (executions == 0) && (suppressedFirings == 0) && (lastExecution == null) &&
+                    (lastExecutionResult == null);
+        }
+    }
+}
@@ -2,23 +2,76 @@ package org.citopt.connde.service.rules;
 
 import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.domain.rules.RuleAction;
+import org.citopt.connde.domain.rules.RuleActionResult;
 import org.citopt.connde.domain.rules.RuleExecutionResult;
-import org.citopt.connde.repository.RuleRepository;
 import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
 import org.citopt.connde.service.rules.execution.RuleActionExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
- * Component which takes care about executing the actions of given rules on demand.
+ * Component which takes care about executing the actions of given rules on demand. The actions of a rule are
+ * executed concurrently on a bounded pool of threads, so that a slow action does not delay the other actions
+ * of the rule or the caller. Each action execution is cancelled as soon as it exceeds its timeout. The action
+ * invocations are recorded by the durable action queue, which retries failed invocations and replays them after
+ * a restart.
  */
 @Component
 public class RuleExecutor {
+    //Default timeout of action executions in milliseconds
+    private static final long DEFAULT_ACTION_TIMEOUT = 10000;
+
+    //Bounds of the thread pool for action executions
+    private static final int MIN_ACTION_THREADS = 4;
+    private static final int MAX_ACTION_THREADS = 32;
+    private static final int ACTION_QUEUE_CAPACITY = 1000;
+
+    @Autowired
+    private RuleExecutionStatsService statsService;
 
     @Autowired
-    private RuleRepository ruleRepository;
+    private DurableActionQueue actionQueue;
+
+    //Executor for the rule actions
+    private ThreadPoolExecutor actionExecutor;
+
+    //Scheduler for cancelling action executions that exceed their timeouts
+    private ScheduledExecutorService timeoutScheduler;
+
+    /**
+     * Creates the rule executor and its thread pools.
+     */
+    public RuleExecutor() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        actionExecutor = new ThreadPoolExecutor(MIN_ACTION_THREADS, MAX_ACTION_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(ACTION_QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "rule-action-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timeoutScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rule-action-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops all running action executions.
+     */
+    @PreDestroy
+    public void shutdown() {
+        actionExecutor.shutdownNow();
+        timeoutScheduler.shutdownNow();
+    }
 
     /**
      * Tests the execution of a given rule action and returns whether the execution was successful.
@@ -39,20 +92,20 @@ public class RuleExecutor {
         testRule.setEnabled(true);
         testRule.setActions(Collections.singletonList(ruleAction));
 
-        //Get executor for this rule action
-        RuleActionExecutor executor = ruleAction.getType().getExecutor();
-
-        //Execute rule action
-        return executor.execute(ruleAction, testRule, null);
+        //Execute rule action with its timeout and wait for the result
+        return executeAction(ruleAction, testRule, null).join().getResult() == RuleExecutionResult.SUCCESS;
     }
 
     /**
      * Executes all actions of a given rule. In addition, output of a CEP engine that triggered the rule execution is passed.
+     * The actions are executed concurrently and the method returns immediately without waiting for them. The returned
+     * future is completed as soon as all actions completed or were cancelled due to their timeouts.
      *
      * @param rule   The rule to execute
      * @param output The output to pass
+     * @return The future of the results of the single actions
      */
-    public void executeRule(Rule rule, CEPOutput output) {
+    public CompletableFuture<List<RuleActionResult>> executeRule(Rule rule, CEPOutput output) {
         //Sanity check
         if (rule == null) {
             throw new IllegalArgumentException("Rule object most not be null.");
@@ -61,24 +114,110 @@ public class RuleExecutor {
         //Update meta data
         updateRuleMetaData(rule);
 
-        //Remembers if all actions have been executed successfully
-        boolean success = true;
-
-        //Iterate over all rule actions of the rule
+        //Record the invocations and dispatch all rule actions of the rule concurrently
+        List<CompletableFuture<RuleActionResult>> futures = new ArrayList<>();
         for (RuleAction ruleAction : rule.getActions()) {
-            //Get responsible rule action executor
-            RuleActionExecutor executor = ruleAction.getType().getExecutor();
+            DurableActionQueue.Invocation invocation = actionQueue.enqueue(rule, ruleAction, output);
+            futures.add(executeAction(ruleAction, rule, invocation.getOutput()).thenApply(result -> {
+                //Let the queue acknowledge or retry the invocation
+                actionQueue.complete(invocation, result.getResult() == RuleExecutionResult.SUCCESS);
+                return result;
+            }));
+        }
 
-            //Execute rule using the executor
-            success &= executor.execute(ruleAction, rule, output);
+        //Update aftermath fields as soon as all actions completed
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<RuleActionResult> results = futures.stream().map(CompletableFuture::join)
+                    .collect(Collectors.toList());
+            updateAftermath(rule, results);
+            return results;
+        });
+    }
+
+    /**
+     * Executes a rule action asynchronously on the action executor. The execution is cancelled as soon as it exceeds
+     * the timeout of the action.
+     *
+     * @param ruleAction The rule action to execute
+     * @param rule       The rule that holds the action
+     * @param output     The output of a CEP engine that triggered the execution (may be null)
+     * @return The future of the result of the execution, completed once the execution finished or was cancelled
+     */
+    CompletableFuture<RuleActionResult> executeAction(RuleAction ruleAction, Rule rule, CEPOutput output) {
+        CompletableFuture<RuleActionResult> resultFuture = new CompletableFuture<>();
+
+        //Get responsible rule action executor and timeout
+        RuleActionExecutor executor = ruleAction.getType().getExecutor();
+        long timeout = (ruleAction.getTimeout() > 0) ? ruleAction.getTimeout() : DEFAULT_ACTION_TIMEOUT;
+        long startTime = System.currentTimeMillis();
+
+        //Complete the result as soon as the execution finished or was cancelled
+        FutureTask<Boolean> task = new FutureTask<Boolean>(() -> executor.execute(ruleAction, rule, output)) {
+            @Override
+            protected void done() {
+                resultFuture.complete(createResult(ruleAction, this, timeout, startTime));
+            }
+        };
+
+        //Submit the execution
+        try {
+            actionExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            RuleActionResult result = new RuleActionResult(ruleAction);
+            result.setResult(RuleExecutionResult.FAILURE);
+            result.setMessage("Too many pending action executions.");
+            resultFuture.complete(result);
+            return resultFuture;
+        }
+
+        //Cancel the execution once it exceeds its timeout
+        try {
+            ScheduledFuture<?> timeoutTask = timeoutScheduler.schedule(() -> task.cancel(true), timeout,
+                    TimeUnit.MILLISECONDS);
+            resultFuture.whenComplete((result, throwable) -> timeoutTask.cancel(false));
+        } catch (RejectedExecutionException e) {
+            //Executor is shut down
+            task.cancel(true);
         }
+        return resultFuture;
+    }
 
-        //Update aftermath fields
-        updateAftermath(rule, success);
+    /**
+     * Creates the result of a finished or cancelled rule action execution.
+     *
+     * @param ruleAction The executed rule action
+     * @param future     The completed future of the execution
+     * @param timeout    The timeout of the execution in milliseconds
+     * @param startTime  The time at which the execution was submitted in epoch milliseconds
+     * @return The result of the execution
+     */
+    private static RuleActionResult createResult(RuleAction ruleAction, Future<Boolean> future, long timeout,
+                                                 long startTime) {
+        RuleActionResult result = new RuleActionResult(ruleAction);
+        result.setResult(RuleExecutionResult.FAILURE);
+
+        //Cancelled executions exceeded their timeouts
+        if (future.isCancelled()) {
+            result.setTimedOut(true);
+            result.setMessage("Execution exceeded the timeout of " + timeout + " ms.");
+        } else {
+            try {
+                boolean success = Boolean.TRUE.equals(future.get());
+                result.setResult(success ? RuleExecutionResult.SUCCESS : RuleExecutionResult.FAILURE);
+            } catch (ExecutionException e) {
+                result.setMessage("Execution failed: " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.setMessage("Execution was interrupted.");
+            }
+        }
+        result.setDuration(System.currentTimeMillis() - startTime);
+        return result;
     }
 
     /**
      * Updates the meta data of a rule, such as the number of executions and the date of the last execution.
+     * The meta data is recorded by the statistics service, which writes it to the repository later on.
      *
      * @param rule The rule to update
      */
@@ -88,32 +227,28 @@ public class RuleExecutor {
             throw new IllegalArgumentException("Rule object most not be null.");
         }
 
-        //Increase number of executions
-        rule.increaseExecutions();
-
-        //Update date of last execution
-        rule.setLastExecutionToNow();
-
-        //Write modified rule to repository
-        ruleRepository.save(rule);
+        //Record execution
+        statsService.recordExecution(rule);
     }
 
     /**
-     * Updates the aftermath fields of a rule pursuant to the result of a rule execution.
+     * Updates the aftermath fields of a rule pursuant to the results of the actions of a rule execution.
+     * The execution is considered as successful if all actions were executed successfully. The results are
+     * recorded by the statistics service, which writes them to the repository later on.
      *
      * @param rule    The rule to update
-     * @param success True, if the rule execution was successful; false otherwise
+     * @param results The results of the actions
      */
-    private void updateAftermath(Rule rule, boolean success) {
+    private void updateAftermath(Rule rule, List<RuleActionResult> results) {
         //Sanity check
         if (rule == null) {
             throw new IllegalArgumentException("Rule object most not be null.");
         }
 
-        //Update execution result
-        rule.setLastExecutionResult(success ? RuleExecutionResult.SUCCESS : RuleExecutionResult.FAILURE);
+        //Aggregate action results
+        boolean success = results.stream().allMatch(result -> result.getResult() == RuleExecutionResult.SUCCESS);
 
-        //Write modified rule to repository
-        ruleRepository.save(rule);
+        //Record execution result
+        statsService.recordResult(rule, success ? RuleExecutionResult.SUCCESS : RuleExecutionResult.FAILURE, results);
     }
 }
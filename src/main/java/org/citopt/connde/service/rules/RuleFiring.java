@@ -0,0 +1,141 @@
+package org.citopt.connde.service.rules;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objects of this class represent the firing of a rule trigger, consisting of the trigger, the rules that were
+ * executed due to the firing and the output of the CEP engine. They can be used as DTOs in order to stream
+ * firings to clients.
+ */
+public class RuleFiring {
+    //Id and name of the trigger that fired
+    private String triggerId = null;
+    private String triggerName = null;
+
+    //Ids and names of the rules that were executed
+    private List<String> ruleIds = new ArrayList<>();
+    private List<String> ruleNames = new ArrayList<>();
+
+    //Time of the firing in epoch milliseconds
+    private long time = 0;
+
+    //Output of the CEP engine
+    private Map<Object, Object> output = new HashMap<>();
+
+    /**
+     * Creates a new and empty rule firing.
+     */
+    public RuleFiring() {
+    }
+
+    /**
+     * Returns the id of the trigger that fired.
+     *
+     * @return The trigger id
+     */
+    public String getTriggerId() {
+        return triggerId;
+    }
+
+    /**
+     * Sets the id of the trigger that fired.
+     *
+     * @param triggerId The trigger id
+     */
+    public void setTriggerId(String triggerId) {
+        this.triggerId = triggerId;
+    }
+
+    /**
+     * Returns the name of the trigger that fired.
+     *
+     * @return The trigger name
+     */
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    /**
+     * Sets the name of the trigger that fired.
+     *
+     * @param triggerName The trigger name
+     */
+    public void setTriggerName(String triggerName) {
+        this.triggerName = triggerName;
+    }
+
+    /**
+     * Returns the ids of the rules that were executed due to the firing.
+     *
+     * @return The list of rule ids
+     */
+    public List<String> getRuleIds() {
+        return ruleIds;
+    }
+
+    /**
+     * Sets the ids of the rules that were executed due to the firing.
+     *
+     * @param ruleIds The list of rule ids
+     */
+    public void setRuleIds(List<String> ruleIds) {
+        this.ruleIds = ruleIds;
+    }
+
+    /**
+     * Returns the names of the rules that were executed due to the firing.
+     *
+     * @return The list of rule names
+     */
+    public List<String> getRuleNames() {
+        return ruleNames;
+    }
+
+    /**
+     * Sets the names of the rules that were executed due to the firing.
+     *
+     * @param ruleNames The list of rule names
+     */
+    public void setRuleNames(List<String> ruleNames) {
+        this.ruleNames = ruleNames;
+    }
+
+    /**
+     * Returns the time of the firing.
+     *
+     * @return The time in epoch milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Sets the time of the firing.
+     *
+     * @param time The time in epoch milliseconds
+     */
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    /**
+     * Returns the output of the CEP engine that caused the firing.
+     *
+     * @return The output map
+     */
+    public Map<Object, Object> getOutput() {
+        return output;
+    }
+
+    /**
+     * Sets the output of the CEP engine that caused the firing.
+     *
+     * @param output The output map
+     */
+    public void setOutput(Map<Object, Object> output) {
+        this.output = output;
+    }
+}
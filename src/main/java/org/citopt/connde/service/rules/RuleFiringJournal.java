@@ -0,0 +1,256 @@
+package org.citopt.connde.service.rules;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.bson.types.ObjectId;
+import org.citopt.connde.domain.rules.RuleTrigger;
+import org.citopt.connde.domain.testing.Testing;
+import org.citopt.connde.repository.TestRepository;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous journal for the firings of rule triggers. Firings are appended to a bounded queue without blocking
+ * the execution of rules and are written to the repository in batches by a dedicated writer thread. In case the
+ * queue is full, further firings are dropped and counted. Before the first batch is written, entries in the legacy
+ * format (DBRef to the trigger, long field names, no time) are migrated to the current format.
+ */
+@Service
+public class RuleFiringJournal {
+    //Maximum number of firings waiting to be written
+    private static final int QUEUE_CAPACITY = 10000;
+
+    //Maximum number of firings that are written within one batch
+    private static final int BATCH_SIZE = 500;
+
+    //Maximum time in milliseconds a firing waits for further firings before its batch is written
+    private static final long BATCH_DELAY = 1000;
+
+    //Field names of journal entries in the legacy format
+    private static final String LEGACY_FIELD_TRIGGER = "trigger";
+    private static final String LEGACY_FIELD_OUTPUT = "output";
+    private static final String LEGACY_FIELD_RULES = "rule";
+
+    //Field names of journal entries in the current format
+    private static final String FIELD_ID = "_id";
+    private static final String FIELD_TRIGGER_ID = "tid";
+    private static final String FIELD_TIME = "ts";
+    private static final String FIELD_OUTPUT = "out";
+    private static final String FIELD_RULES = "rules";
+
+    private final TestRepository testRepo;
+
+    private final MongoTemplate mongoTemplate;
+
+    //Firings waiting to be written
+    private final BlockingQueue<Testing> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    //Number of firings that were dropped due to a full queue and number of drops that were already reported
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private long reportedDrops = 0;
+
+    //Thread writing the batches
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts the journal.
+     *
+     * @param testRepo      The repository in which the firings are recorded (autowired)
+     * @param mongoTemplate The template for migrating legacy entries (autowired)
+     */
+    @Autowired
+    public RuleFiringJournal(TestRepository testRepo, MongoTemplate mongoTemplate) {
+        this.testRepo = testRepo;
+        this.mongoTemplate = mongoTemplate;
+
+        writerThread = new Thread(this::writeBatches, "rule-firing-journal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Appends the firing of a rule trigger to the journal. This method does not block; in case the journal is
+     * overloaded, the firing is dropped.
+     *
+     * @param ruleTrigger The rule trigger that fired
+     * @param output      The output of the CEP engine that caused the firing
+     * @param ruleNames   The names of the rules that were executed due to the firing
+     */
+    public void append(RuleTrigger ruleTrigger, CEPOutput output, Set<String> ruleNames) {
+        //Sanity check
+        if (ruleTrigger == null) {
+            throw new IllegalArgumentException("Rule trigger must not be null.");
+        }
+
+        Testing testing = new Testing();
+        testing.setTriggerId(ruleTrigger.getId());
+        testing.setTime(new Date());
+        testing.setOutput(output);
+        testing.setRule(ruleNames);
+
+        //Drops are reported by the writer thread in order to avoid flooding the log
+        if (!queue.offer(testing)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of firings that were dropped due to an overloaded journal.
+     *
+     * @return The number of dropped firings
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Stops the writer thread and writes the remaining firings.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(BATCH_DELAY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        //Write remaining firings
+        List<Testing> batch = new ArrayList<>();
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            insertBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Collects firings from the queue and writes them in batches until the journal is shut down.
+     */
+    private void writeBatches() {
+        //Convert legacy entries, so that they are found by the queries for the current format
+        try {
+            migrateLegacyEntries();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to migrate legacy rule firing journal entries: " + e.getMessage());
+        }
+
+        List<Testing> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                //Wait for the first firing of the batch
+                Testing first = queue.poll(BATCH_DELAY, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                //Collect further firings until the batch is full or the delay elapsed
+                long deadline = System.currentTimeMillis() + BATCH_DELAY;
+                while (batch.size() < BATCH_SIZE) {
+                    queue.drainTo(batch, BATCH_SIZE - batch.size());
+                    long remainingTime = deadline - System.currentTimeMillis();
+                    if ((batch.size() >= BATCH_SIZE) || (remainingTime <= 0)) {
+                        break;
+                    }
+                    Testing next = queue.poll(remainingTime, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                //Shutdown requested, write collected firings below
+            }
+
+            insertBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Migrates journal entries in the legacy format to the current format. The trigger id is taken from the DBRef
+     * to the trigger and the time of the firing from the creation time of the entry id.
+     */
+    private void migrateLegacyEntries() {
+        DBCollection collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Testing.class));
+        DBObject legacyQuery = new BasicDBObject(LEGACY_FIELD_TRIGGER, new BasicDBObject("$exists", true));
+
+        int migrated = 0;
+        try (DBCursor cursor = collection.find(legacyQuery)) {
+            while (running && cursor.hasNext()) {
+                DBObject entry = cursor.next();
+
+                //Resolve trigger id from the reference
+                Object trigger = entry.get(LEGACY_FIELD_TRIGGER);
+                Object triggerId = null;
+                if (trigger instanceof DBRef) {
+                    triggerId = ((DBRef) trigger).getId();
+                } else if (trigger instanceof DBObject) {
+                    triggerId = ((DBObject) trigger).get("$id");
+                }
+
+                //Resolve time of the firing
+                Object id = entry.get(FIELD_ID);
+                Date time = (id instanceof ObjectId) ? ((ObjectId) id).getDate() : new Date();
+
+                //Convert entry
+                BasicDBObject update = new BasicDBObject("$set", new BasicDBObject(FIELD_TRIGGER_ID,
+                        (triggerId == null) ? null : triggerId.toString()).append(FIELD_TIME, time))
+                        .append("$unset", new BasicDBObject(LEGACY_FIELD_TRIGGER, ""));
+                BasicDBObject renames = new BasicDBObject();
+                if (entry.containsField(LEGACY_FIELD_OUTPUT)) {
+                    renames.append(LEGACY_FIELD_OUTPUT, FIELD_OUTPUT);
+                }
+                if (entry.containsField(LEGACY_FIELD_RULES)) {
+                    renames.append(LEGACY_FIELD_RULES, FIELD_RULES);
+                }
+                if (!renames.isEmpty()) {
+                    update.append("$rename", renames);
+                }
+                collection.update(new BasicDBObject(FIELD_ID, id), update);
+                migrated++;
+            }
+        }
+
+        if (migrated > 0) {
+            System.out.println("Migrated " + migrated + " rule firing journal entries to the current format.");
+        }
+    }
+
+    /**
+     * Writes a batch of firings to the repository.
+     *
+     * @param batch The batch to write
+     */
+    private void insertBatch(List<Testing> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            testRepo.insert(batch);
+        } catch (Exception e) {
+            System.err.println("Failed to write " + batch.size() + " rule firings to the journal: " + e.getMessage());
+        }
+
+        //Report firings that were dropped since the last batch
+        long drops = droppedCount.get();
+        if (drops > reportedDrops) {
+            System.err.println("Rule firing journal is overloaded and dropped " + (drops - reportedDrops) + " firings.");
+            reportedDrops = drops;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package org.citopt.connde.service.rules;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service that streams the firings of rule triggers to connected clients via Server-Sent Events. Clients may
+ * subscribe to the firings of a certain trigger, of a certain rule or to all firings. Each connection owns
+ * a bounded buffer of pending firings, which is drained by a pool of sender threads, so that publishing
+ * never blocks the execution of rules. Each connection occupies at most one sender thread at a time and the pool
+ * grows with the number of connections, so that a client whose writes block cannot stall the other clients.
+ * Heartbeats are sent by the sender threads as well. Connections whose buffer overflows or whose writes block
+ * for too long are considered as slow consumers and are disconnected.
+ */
+@Service
+public class RuleFiringStreamService {
+    //Maximum number of pending firings per connection
+    private static final int BUFFER_CAPACITY = 256;
+
+    //Maximum number of simultaneous connections
+    private static final int MAX_CONNECTIONS = 100;
+
+    //Timeout of connections in milliseconds, after which clients need to reconnect
+    private static final long CONNECTION_TIMEOUT = 30 * 60 * 1000;
+
+    //Interval between two heartbeats in seconds
+    private static final long HEARTBEAT_INTERVAL = 15;
+
+    //Maximum duration of a single write to a client in milliseconds
+    private static final long SEND_TIMEOUT = 10000;
+
+    //Time after which idle sender threads are stopped in seconds
+    private static final long SENDER_KEEP_ALIVE = 60;
+
+    //Name of the events that carry firings
+    private static final String EVENT_NAME = "firing";
+
+    //Currently open connections
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    //Executors for sending firings and heartbeats and for scheduling the heartbeats
+    private final ThreadPoolExecutor senderPool;
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    /**
+     * Creates and initializes the service.
+     */
+    public RuleFiringStreamService() {
+        //Create pool of daemon sender threads, one per busy connection at most
+        AtomicInteger threadCounter = new AtomicInteger();
+        senderPool = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS, SENDER_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "firing-stream-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        senderPool.allowCoreThreadTimeOut(true);
+
+        //Request heartbeats periodically in order to detect closed connections and slow consumers
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "firing-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(() -> connections.forEach(Connection::requestHeartbeat),
+                HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a new connection for streaming the firings of a certain trigger and/or rule. If neither a trigger id
+     * nor a rule id is given, all firings are streamed.
+     *
+     * @param triggerId The id of the trigger whose firings are supposed to be streamed (may be null)
+     * @param ruleId    The id of the rule whose executions are supposed to be streamed (may be null)
+     * @return The emitter of the connection
+     * @throws IllegalStateException In case the maximum number of connections is reached
+     */
+    public SseEmitter subscribe(String triggerId, String ruleId) {
+        if (connections.size() >= MAX_CONNECTIONS) {
+            throw new IllegalStateException("The maximum number of connections is reached.");
+        }
+
+        //Create connection and remove it as soon as it is closed
+        SseEmitter emitter = new SseEmitter(CONNECTION_TIMEOUT);
+        Connection connection = new Connection(emitter, triggerId, ruleId);
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        connections.add(connection);
+        return emitter;
+    }
+
+    /**
+     * Publishes a firing to all connections that are interested in it. This method does not block; connections
+     * whose buffer is full are disconnected.
+     *
+     * @param firing The firing to publish
+     */
+    public void publish(RuleFiring firing) {
+        //Sanity check
+        if (firing == null) {
+            throw new IllegalArgumentException("Firing must not be null.");
+        }
+
+        for (Connection connection : connections) {
+            if (connection.isInterestedIn(firing)) {
+                connection.offer(firing);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of currently open connections.
+     *
+     * @return The number of connections
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Closes all connections and stops the executors.
+     */
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        connections.forEach(Connection::close);
+        senderPool.shutdownNow();
+    }
+
+    /**
+     * Connection to a client with its own bounded buffer of pending firings. The buffer is drained by at most
+     * one sender thread at a time, so that the firings are sent in order.
+     */
+    private class Connection {
+        private final SseEmitter emitter;
+        private final String triggerId;
+        private final String ruleId;
+        private final BlockingQueue<RuleFiring> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        //Whether a heartbeat is supposed to be sent with the next drain
+        private final AtomicBoolean heartbeatRequested = new AtomicBoolean(false);
+
+        //Start time of the current write in epoch milliseconds (0 = no write in progress)
+        private volatile long sendStartTime = 0;
+
+        /**
+         * Creates a new connection.
+         *
+         * @param emitter   The emitter of the connection
+         * @param triggerId The id of the trigger of interest (may be null)
+         * @param ruleId    The id of the rule of interest (may be null)
+         */
+        private Connection(SseEmitter emitter, String triggerId, String ruleId) {
+            this.emitter = emitter;
+            this.triggerId = triggerId;
+            this.ruleId = ruleId;
+        }
+
+        /**
+         * Checks whether the client of this connection is interested in a given firing.
+         *
+         * @param firing The firing to check
+         * @return True, if the client is interested; false otherwise
+         */
+        private boolean isInterestedIn(RuleFiring firing) {
+            return ((triggerId == null) || triggerId.equals(firing.getTriggerId())) &&
+                    ((ruleId == null) || firing.getRuleIds().contains(ruleId));
+        }
+
+        /**
+         * Adds a firing to the buffer of the connection and schedules sending it. In case the buffer is full,
+         * the client is considered as slow consumer and disconnected.
+         *
+         * @param firing The firing to add
+         */
+        private void offer(RuleFiring firing) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(firing)) {
+                System.err.println("Closing firing stream of slow consumer.");
+                closeAsync();
+                return;
+            }
+            schedule();
+        }
+
+        /**
+         * Schedules draining the buffer, unless it is already scheduled.
+         */
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senderPool.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        /**
+         * Sends a requested heartbeat and all pending firings to the client.
+         */
+        private void drain() {
+            try {
+                if (heartbeatRequested.getAndSet(false)) {
+                    send(SseEmitter.event().comment("heartbeat"));
+                }
+                RuleFiring firing;
+                while ((!closed.get()) && ((firing = buffer.poll()) != null)) {
+                    send(SseEmitter.event().name(EVENT_NAME).data(firing, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                //Client disconnected
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+
+            //Drain firings that were added after the last poll
+            if ((!closed.get()) && ((!buffer.isEmpty()) || heartbeatRequested.get())) {
+                schedule();
+            }
+        }
+
+        /**
+         * Writes an event to the client and records the start time of the write, so that blocking writes
+         * can be detected.
+         *
+         * @param event The event to write
+         * @throws IOException In case of an I/O issue
+         */
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendStartTime = System.currentTimeMillis();
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartTime = 0;
+            }
+        }
+
+        /**
+         * Requests a heartbeat comment to be sent to the client by a sender thread, which also detects connections
+         * that were closed by the client. In case the current write to the client blocks for longer than the send
+         * timeout, the client is considered as slow consumer and disconnected instead.
+         */
+        private void requestHeartbeat() {
+            long startTime = sendStartTime;
+            if ((startTime > 0) && (System.currentTimeMillis() - startTime > SEND_TIMEOUT)) {
+                System.err.println("Closing firing stream of slow consumer.");
+                closeAsync();
+                return;
+            }
+            heartbeatRequested.set(true);
+            schedule();
+        }
+
+        /**
+         * Closes the connection and discards all pending firings. The emitter is completed by a sender thread,
+         * since completing it waits for a write that may be in progress.
+         */
+        private void closeAsync() {
+            if (!markClosed()) {
+                return;
+            }
+            try {
+                senderPool.execute(this::completeEmitter);
+            } catch (RejectedExecutionException e) {
+                //Service is shut down
+            }
+        }
+
+        /**
+         * Closes the connection and discards all pending firings.
+         */
+        private void close() {
+            if (markClosed()) {
+                completeEmitter();
+            }
+        }
+
+        /**
+         * Marks the connection as closed, removes it and discards all pending firings.
+         *
+         * @return True, if the connection was open before; false, if it was already closed
+         */
+        private boolean markClosed() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            connections.remove(this);
+            buffer.clear();
+            return true;
+        }
+
+        /**
+         * Completes the emitter of the connection.
+         */
+        private void completeEmitter() {
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                //Already completed
+            }
+        }
+    }
+}
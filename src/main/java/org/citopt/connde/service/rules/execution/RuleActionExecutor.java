@@ -33,4 +33,25 @@ public interface RuleActionExecutor {
      * @return True, if the execution of the rule action was successful; false otherwise
      */
     boolean execute(RuleAction action, Rule rule, CEPOutput output);
+
+    /**
+     * Prepares the execution of a given action of a given rule, e.g. by precompiling data that would otherwise
+     * need to be computed on each execution. This method is called when the rule is enabled. By default,
+     * nothing is prepared.
+     *
+     * @param action The rule action to prepare
+     * @param rule   The rule that holds the action
+     */
+    default void prepare(RuleAction action, Rule rule) {
+    }
+
+    /**
+     * Releases the data that was prepared for the execution of a given action of a given rule. This method is called
+     * when the rule is disabled. By default, nothing is released.
+     *
+     * @param action The rule action to release
+     * @param rule   The rule that holds the action
+     */
+    default void release(RuleAction action, Rule rule) {
+    }
 }
@@ -0,0 +1,419 @@
+package org.citopt.connde.service.rules.execution;
+
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for rule actions that call webhooks. Requests are performed asynchronously on a bounded pool
+ * of threads with connect and read timeouts. The number of concurrent requests per host is limited: requests beyond
+ * the limit wait in a queue of their host without occupying a thread and are dispatched to the pool as soon as
+ * a running request to the same host completes. Response bodies are always consumed completely, so that the
+ * underlying connections are kept alive and reused for subsequent requests to the same host. Each request is sent
+ * only once; failed invocations of rule actions are retried by the durable action queue. Cancelling the future of
+ * a request closes its connection, which aborts a pending read. PATCH requests are sent as POST requests with
+ * a method override header, since they are not supported by HttpURLConnection.
+ */
+@Component
+public class WebhookHttpClient {
+    //Timeouts in milliseconds
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 10000;
+
+    //Maximum number of concurrent requests per host, matching the default size of the keep-alive cache per host
+    private static final int MAX_REQUESTS_PER_HOST = 5;
+
+    //Maximum number of requests per host that wait for being dispatched
+    private static final int MAX_PENDING_PER_HOST = 1000;
+
+    //Bounds of the thread pool for requests
+    private static final int MAX_THREADS = 32;
+    private static final int QUEUE_CAPACITY = 1000;
+
+    //Maximum size of response bodies that are read in bytes
+    private static final int MAX_RESPONSE_SIZE = 64 * 1024;
+
+    //Method that is tunneled through POST requests and the header that carries it
+    private static final String METHOD_PATCH = "PATCH";
+    private static final String HEADER_METHOD_OVERRIDE = "X-HTTP-Method-Override";
+
+    //Executor for requests
+    private final ThreadPoolExecutor requestExecutor;
+
+    //Map (host --> host queue) of the queues limiting the concurrent requests per host
+    private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the HTTP client and its thread pool.
+     */
+    public WebhookHttpClient() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        requestExecutor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "webhook-http-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops all pending requests.
+     */
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdownNow();
+    }
+
+    /**
+     * Sends a HTTP request asynchronously. The request is not retried in case it fails.
+     *
+     * @param method  The HTTP method to use
+     * @param url     The URL to call
+     * @param headers The request headers (may be null)
+     * @param body    The request body (may be null)
+     * @return The future of the response; cancelling it aborts the request
+     */
+    public Future<Response> send(String method, String url, Map<String, String> headers, String body) {
+        //Sanity checks
+        if ((method == null) || method.isEmpty()) {
+            throw new IllegalArgumentException("Method must not be null or empty.");
+        } else if ((url == null) || url.isEmpty()) {
+            throw new IllegalArgumentException("URL must not be null or empty.");
+        }
+
+        //Parse URL in order to determine the host
+        URL requestURL;
+        try {
+            requestURL = new URL(url);
+        } catch (MalformedURLException e) {
+            CompletableFuture<Response> failedFuture = new CompletableFuture<>();
+            failedFuture.completeExceptionally(e);
+            return failedFuture;
+        }
+
+        //Enqueue request at the queue of its host
+        Map<String, String> requestHeaders = (headers == null) ? Collections.emptyMap() : headers;
+        Request request = new Request(method, requestURL, requestHeaders, body);
+        RequestFuture future = new RequestFuture(request);
+        HostQueue hostQueue = hostQueues.computeIfAbsent(requestURL.getHost(), host -> new HostQueue());
+        if (!hostQueue.enqueue(future)) {
+            future.fail(new RejectedExecutionException("Too many pending requests to " + requestURL.getHost() + "."));
+        }
+        return future;
+    }
+
+    /**
+     * Sends a HTTP request once. The connection is registered at the request, so that it can be closed in case
+     * the request is cancelled.
+     *
+     * @param request The request to send
+     * @return The response
+     * @throws IOException In case of an I/O error or if the request was cancelled
+     */
+    private Response sendOnce(Request request) throws IOException {
+        String method = request.method;
+        Map<String, String> headers = request.headers;
+        String body = request.body;
+        URL requestURL = request.url;
+
+        HttpURLConnection connection = null;
+        try {
+            //Open connection
+            connection = (HttpURLConnection) requestURL.openConnection();
+            if (!request.setConnection(connection)) {
+                throw new IOException("Request was cancelled.");
+            }
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            //Tunnel PATCH through POST, since HttpURLConnection rejects it
+            if (METHOD_PATCH.equalsIgnoreCase(method)) {
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty(HEADER_METHOD_OVERRIDE, METHOD_PATCH);
+            } else {
+                connection.setRequestMethod(method);
+            }
+
+            //Write body
+            if (body != null) {
+                connection.setDoOutput(true);
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            //Read response
+            int status = connection.getResponseCode();
+            InputStream inputStream = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+            return new Response(status, readFully(inputStream));
+        } catch (IOException e) {
+            //Discard connection, since its state is unknown
+            if (connection != null) {
+                connection.disconnect();
+            }
+            throw e;
+        } finally {
+            request.setConnection(null);
+        }
+    }
+
+    /**
+     * Reads an input stream completely and closes it, which allows to reuse the underlying connection. Only the
+     * beginning of the content is retained.
+     *
+     * @param inputStream The input stream to read (may be null)
+     * @return The retained content
+     * @throws IOException In case of an I/O error
+     */
+    private static String readFully(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return "";
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream stream = inputStream) {
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = stream.read(buffer)) != -1) {
+                int retained = Math.min(length, MAX_RESPONSE_SIZE - content.size());
+                if (retained > 0) {
+                    content.write(buffer, 0, retained);
+                }
+            }
+        }
+        return new String(content.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Queue of the requests to a certain host that wait for being dispatched to the thread pool. At most the
+     * maximum number of concurrent requests per host are dispatched at the same time.
+     */
+    private class HostQueue {
+        //Requests waiting for being dispatched
+        private final Queue<RequestFuture> pendingRequests = new ArrayDeque<>();
+
+        //Number of dispatched requests that did not complete yet
+        private int activeRequests = 0;
+
+        /**
+         * Enqueues a request and dispatches it right away if the limit of concurrent requests permits it.
+         *
+         * @param future The future of the request to enqueue
+         * @return True, if the request was enqueued; false, if too many requests are pending for the host
+         */
+        private boolean enqueue(RequestFuture future) {
+            synchronized (this) {
+                if (pendingRequests.size() >= MAX_PENDING_PER_HOST) {
+                    return false;
+                }
+                pendingRequests.add(future);
+            }
+            dispatch();
+            return true;
+        }
+
+        /**
+         * Dispatches pending requests to the thread pool as long as the limit of concurrent requests permits it.
+         * Requests that were cancelled while they were waiting are skipped.
+         */
+        private synchronized void dispatch() {
+            while ((activeRequests < MAX_REQUESTS_PER_HOST) && (!pendingRequests.isEmpty())) {
+                RequestFuture future = pendingRequests.poll();
+                if (future.isDone()) {
+                    continue;
+                }
+
+                //Run the request and dispatch the next one once it completed
+                activeRequests++;
+                try {
+                    requestExecutor.execute(() -> {
+                        try {
+                            future.run();
+                        } finally {
+                            complete();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    activeRequests--;
+                    future.fail(e);
+                }
+            }
+        }
+
+        /**
+         * Releases the slot of a completed request and dispatches the next pending request.
+         */
+        private void complete() {
+            synchronized (this) {
+                activeRequests--;
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * HTTP request together with its connection.
+     */
+    private class Request implements Callable<Response> {
+        private final String method;
+        private final URL url;
+        private final Map<String, String> headers;
+        private final String body;
+
+        //Connection of the request (may be null) and whether the request was cancelled
+        private HttpURLConnection connection = null;
+        private volatile boolean cancelled = false;
+
+        /**
+         * Creates a new request.
+         *
+         * @param method  The HTTP method to use
+         * @param url     The URL to call
+         * @param headers The request headers
+         * @param body    The request body (may be null)
+         */
+        private Request(String method, URL url, Map<String, String> headers, String body) {
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Sends the request.
+         *
+         * @return The response
+         * @throws Exception In case the request failed or was cancelled
+         */
+        @Override
+        public Response call() throws Exception {
+            return sendOnce(this);
+        }
+
+        /**
+         * Sets the connection of the request.
+         *
+         * @param connection The connection (may be null)
+         * @return True, if the connection was set; false, if the request was cancelled
+         */
+        private synchronized boolean setConnection(HttpURLConnection connection) {
+            this.connection = connection;
+            return !cancelled;
+        }
+
+        /**
+         * Cancels the request and closes its connection.
+         */
+        private synchronized void cancel() {
+            cancelled = true;
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Future of a HTTP request that aborts the request when it is cancelled.
+     */
+    private static class RequestFuture extends FutureTask<Response> {
+        private final Request request;
+
+        /**
+         * Creates a new future for a given request.
+         *
+         * @param request The request
+         */
+        private RequestFuture(Request request) {
+            super(request);
+            this.request = request;
+        }
+
+        /**
+         * Completes the future exceptionally without sending the request.
+         *
+         * @param throwable The cause of the failure
+         */
+        private void fail(Throwable throwable) {
+            setException(throwable);
+        }
+
+        /**
+         * Cancels the request, interrupts its thread and closes its connection.
+         *
+         * @param mayInterruptIfRunning Whether the thread of the request is supposed to be interrupted
+         * @return False, if the request could not be cancelled, since it is already completed; true otherwise
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                request.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Response of a HTTP request, consisting of the status code and the body.
+     */
+    public static class Response {
+        private final int status;
+        private final String body;
+
+        /**
+         * Creates a new response.
+         *
+         * @param status The status code
+         * @param body   The body
+         */
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        /**
+         * Returns the status code of the response.
+         *
+         * @return The status code
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Returns the body of the response.
+         *
+         * @return The body
+         */
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * Returns whether the status code indicates success.
+         *
+         * @return True, if the request was successful; false otherwise
+         */
+        public boolean isSuccessful() {
+            return (status >= 200) && (status < 300);
+        }
+    }
+}
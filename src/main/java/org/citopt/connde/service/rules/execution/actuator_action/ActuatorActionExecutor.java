@@ -5,9 +5,7 @@ import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.domain.rules.RuleAction;
 import org.citopt.connde.repository.ActuatorRepository;
 import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
-import org.citopt.connde.service.mqtt.MQTTService;
 import org.citopt.connde.service.rules.execution.RuleActionExecutor;
-import org.eclipse.paho.client.mqttv3.MqttException;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,9 +13,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
- * Executor for actuator actions.
+ * Executor for actuator actions. The actuator lookup, the MQTT topic and the static part of the message are
+ * compiled once per rule action when the rule is enabled, so that only the CEP output needs to be serialized
+ * on each execution. Compiled commands are invalidated when the involved entities change.
  */
 @Component
 public class ActuatorActionExecutor implements RuleActionExecutor {
@@ -36,22 +39,28 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
     //Regular expression describing permissible action names
     private static final String REGEX_ACTION_NAME = "[A-z0-9_\\- ]+";
 
+    //Key of the CEP output within the messages
+    private static final String MESSAGE_KEY_CEP_OUTPUT = "cep_output";
+
     //Autowired
     private ActuatorRepository actuatorRepository;
 
     //Autowired
-    private MQTTService mqttService;
+    private ActuatorCommandPublisher commandPublisher;
+
+    //Map (rule id/rule action id --> compiled command) of the compiled commands
+    private final Map<String, CompiledCommand> compiledCommands = new ConcurrentHashMap<>();
 
     /**
      * Initializes the actuator action executor component.
      *
      * @param actuatorRepository The actuator repository (autowired)
-     * @param mqttService        The MQTT service (autowired)
+     * @param commandPublisher   The publisher for actuator commands (autowired)
      */
     @Autowired
-    public ActuatorActionExecutor(ActuatorRepository actuatorRepository, MQTTService mqttService) {
+    public ActuatorActionExecutor(ActuatorRepository actuatorRepository, ActuatorCommandPublisher commandPublisher) {
         this.actuatorRepository = actuatorRepository;
-        this.mqttService = mqttService;
+        this.commandPublisher = commandPublisher;
     }
 
     /**
@@ -113,6 +122,103 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
      */
     @Override
     public boolean execute(RuleAction action, Rule rule, CEPOutput cepOutput) {
+        //Get compiled command or compile it if not available
+        String key = getCommandKey(action, rule);
+        CompiledCommand command = compiledCommands.get(key);
+        if (command == null) {
+            command = compileCommand(action, rule);
+
+            //Sanity check
+            if (command == null) {
+                return false;
+            }
+            compiledCommands.put(key, command);
+        }
+
+        //Sanitize CEP output
+        if (cepOutput == null) {
+            cepOutput = new CEPOutput();
+        }
+
+        //Complete message by the serialized CEP output
+        String message = command.messagePrefix + new JSONObject(cepOutput.getOutputMap()).toString() + "}";
+
+        //Publish message and wait for the result
+        Future<Boolean> future = commandPublisher.publish(command.topic, message);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            //Execution was cancelled, so the command must not be published anymore
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Compiles the command of a given action of a given rule when the rule is enabled.
+     *
+     * @param action The rule action to prepare
+     * @param rule   The rule that holds the action
+     */
+    @Override
+    public void prepare(RuleAction action, Rule rule) {
+        CompiledCommand command = compileCommand(action, rule);
+        if (command != null) {
+            compiledCommands.put(getCommandKey(action, rule), command);
+        }
+    }
+
+    /**
+     * Discards the compiled command of a given action of a given rule when the rule is disabled.
+     *
+     * @param action The rule action to release
+     * @param rule   The rule that holds the action
+     */
+    @Override
+    public void release(RuleAction action, Rule rule) {
+        compiledCommands.remove(getCommandKey(action, rule));
+    }
+
+    /**
+     * Invalidates all compiled commands that refer to a certain rule, e.g. because the rule was modified.
+     *
+     * @param ruleId The id of the rule
+     */
+    public void invalidateRule(String ruleId) {
+        compiledCommands.values().removeIf(command -> command.ruleId.equals(ruleId));
+    }
+
+    /**
+     * Invalidates all compiled commands that refer to a certain rule action, e.g. because the action was modified.
+     *
+     * @param actionId The id of the rule action
+     */
+    public void invalidateAction(String actionId) {
+        compiledCommands.values().removeIf(command -> command.actionId.equals(actionId));
+    }
+
+    /**
+     * Invalidates all compiled commands that refer to a certain actuator, e.g. because the actuator was modified
+     * or deleted.
+     *
+     * @param actuatorId The id of the actuator
+     */
+    public void invalidateActuator(String actuatorId) {
+        compiledCommands.values().removeIf(command -> command.actuatorId.equals(actuatorId));
+    }
+
+    /**
+     * Compiles the command of a given action of a given rule by looking up the actuator, generating the topic and
+     * building the static part of the message.
+     *
+     * @param action The rule action to compile
+     * @param rule   The rule that holds the action
+     * @return The compiled command; null, if the actuator does not exist or the message could not be built
+     */
+    private CompiledCommand compileCommand(RuleAction action, Rule rule) {
         //Get action parameters
         Map<String, String> parameters = action.getParameters();
         String actuatorId = parameters.get(PARAM_KEY_ACTUATOR);
@@ -124,7 +230,7 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
 
         //Sanity check
         if (actuator == null) {
-            return false;
+            return null;
         }
 
         //Sanitize data
@@ -132,12 +238,7 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
             data = "";
         }
 
-        //Sanitize CEP output
-        if (cepOutput == null) {
-            cepOutput = new CEPOutput();
-        }
-
-        //Build JSON object that carries all information
+        //Build JSON object that carries all static information
         JSONObject messageObject = new JSONObject();
         try {
             messageObject.put("rule_id", rule.getId());
@@ -147,25 +248,31 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
             messageObject.put("actuator_id", actuatorId);
             messageObject.put("action", actionName);
             messageObject.put("data", data);
-            messageObject.put("cep_output", cepOutput.getOutputMap());
         } catch (JSONException e) {
-            return false;
+            return null;
         }
 
+        //Open the JSON object again, so that the CEP output can be appended
+        String staticPart = messageObject.toString();
+        String messagePrefix = staticPart.substring(0, staticPart.length() - 1) +
+                "," + JSONObject.quote(MESSAGE_KEY_CEP_OUTPUT) + ":";
+
         //Generate MQTT topic for this actuator and action name
         String topic = generateMQTTTopic(actuator, actionName);
 
-        //Get string from JSON object
-        String message = messageObject.toString();
-
-        //Publish JSON object as sting
-        try {
-            mqttService.publish(topic, message);
-        } catch (MqttException e) {
-            return false;
-        }
+        return new CompiledCommand(String.valueOf(rule.getId()), String.valueOf(action.getId()), actuatorId, topic,
+                messagePrefix);
+    }
 
-        return true;
+    /**
+     * Returns the key of the compiled command of a given action of a given rule.
+     *
+     * @param action The rule action
+     * @param rule   The rule that holds the action
+     * @return The key of the compiled command
+     */
+    private static String getCommandKey(RuleAction action, Rule rule) {
+        return rule.getId() + "/" + action.getId();
     }
 
     /**
@@ -187,4 +294,33 @@ public class ActuatorActionExecutor implements RuleActionExecutor {
         //Format topic and return it
         return String.format(MQTT_TOPIC, actuator.getId(), actionName);
     }
+
+    /**
+     * Precompiled command of a rule action, consisting of the MQTT topic and the static beginning of the message.
+     */
+    private static class CompiledCommand {
+        private final String ruleId;
+        private final String actionId;
+        private final String actuatorId;
+        private final String topic;
+        private final String messagePrefix;
+
+        /**
+         * Creates a new compiled command.
+         *
+         * @param ruleId        The id of the rule
+         * @param actionId      The id of the rule action
+         * @param actuatorId    The id of the actuator
+         * @param topic         The MQTT topic to publish the command at
+         * @param messagePrefix The static beginning of the message, to which the CEP output is appended
+         */
+        private CompiledCommand(String ruleId, String actionId, String actuatorId, String topic,
+                                String messagePrefix) {
+            this.ruleId = ruleId;
+            this.actionId = actionId;
+            this.actuatorId = actuatorId;
+            this.topic = topic;
+            this.messagePrefix = messagePrefix;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package org.citopt.connde.service.rules.execution.actuator_action;
+
+import org.citopt.connde.service.mqtt.MQTTService;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Component that publishes actuator commands via MQTT in batches. Commands are distributed over several lanes by
+ * their topics, so that commands for the same topic keep their order while commands for different topics are
+ * published in parallel. Each lane collects its commands in a bounded queue and is served by a dedicated thread,
+ * which takes all commands that were produced in the meantime and publishes them as one batch. Commands whose
+ * publishing was cancelled in the meantime, e.g. because their action exceeded its timeout, are skipped.
+ */
+@Component
+public class ActuatorCommandPublisher {
+    //Maximum number of commands waiting to be published per lane
+    private static final int QUEUE_CAPACITY = 2500;
+
+    //Number of lanes, each served by its own publisher thread
+    private static final int NUMBER_LANES = 4;
+
+    //Maximum number of commands that are published within one batch
+    private static final int BATCH_SIZE = 500;
+
+    //Autowired
+    private MQTTService mqttService;
+
+    //Queues of the commands waiting to be published, one per lane
+    private final List<BlockingQueue<Command>> queues = new ArrayList<>(NUMBER_LANES);
+
+    //Threads publishing the batches, one per lane
+    private final List<Thread> publisherThreads = new ArrayList<>(NUMBER_LANES);
+
+    /**
+     * Creates and starts the command publisher.
+     *
+     * @param mqttService The MQTT service (autowired)
+     */
+    @Autowired
+    public ActuatorCommandPublisher(MQTTService mqttService) {
+        this.mqttService = mqttService;
+
+        //Create the lanes and start their publisher threads
+        for (int i = 0; i < NUMBER_LANES; i++) {
+            BlockingQueue<Command> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            Thread publisherThread = new Thread(() -> publishBatches(queue), "actuator-command-publisher-" + i);
+            publisherThread.setDaemon(true);
+            publisherThread.start();
+
+            queues.add(queue);
+            publisherThreads.add(publisherThread);
+        }
+    }
+
+    /**
+     * Stops the publisher threads. Commands that were not published yet are completed as failed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        publisherThreads.forEach(Thread::interrupt);
+
+        List<Command> remaining = new ArrayList<>();
+        queues.forEach(queue -> queue.drainTo(remaining));
+        remaining.forEach(command -> command.result.complete(false));
+    }
+
+    /**
+     * Enqueues a command for publishing it at a certain topic. The command is skipped if the returned future is
+     * cancelled before the command is published.
+     *
+     * @param topic   The topic to publish the command at
+     * @param message The message of the command
+     * @return The future of the publishing, completed with true, if the command was published successfully;
+     * false otherwise
+     */
+    public CompletableFuture<Boolean> publish(String topic, String message) {
+        //Sanity check
+        if ((topic == null) || topic.isEmpty()) {
+            throw new IllegalArgumentException("Topic must not be null or empty.");
+        } else if (message == null) {
+            throw new IllegalArgumentException("Message must not be null.");
+        }
+
+        Command command = new Command(topic, message);
+
+        //Enqueue at the lane of the topic and fail immediately if it is overloaded
+        BlockingQueue<Command> queue = queues.get(Math.floorMod(topic.hashCode(), NUMBER_LANES));
+        if (!queue.offer(command)) {
+            command.result.complete(false);
+        }
+        return command.result;
+    }
+
+    /**
+     * Takes the pending commands from the queue of a lane and publishes them in batches until the publisher is
+     * shut down.
+     *
+     * @param queue The queue of the lane
+     */
+    private void publishBatches(BlockingQueue<Command> queue) {
+        List<Command> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            //Wait for the first command and take all further pending commands
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+
+            //Publish batch
+            for (Command command : batch) {
+                //Skip commands that were cancelled or timed out in the meantime
+                if (command.result.isDone()) {
+                    continue;
+                }
+                try {
+                    mqttService.publish(command.topic, command.message);
+                    command.result.complete(true);
+                } catch (MqttException | RuntimeException e) {
+                    command.result.complete(false);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Actuator command waiting to be published.
+     */
+    private static class Command {
+        private final String topic;
+        private final String message;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        /**
+         * Creates a new command.
+         *
+         * @param topic   The topic to publish the command at
+         * @param message The message of the command
+         */
+        private Command(String topic, String message) {
+            this.topic = topic;
+            this.message = message;
+        }
+    }
+}
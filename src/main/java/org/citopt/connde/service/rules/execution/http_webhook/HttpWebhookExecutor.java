@@ -0,0 +1,280 @@
+package org.citopt.connde.service.rules.execution.http_webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.citopt.connde.domain.rules.Rule;
+import org.citopt.connde.domain.rules.RuleAction;
+import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
+import org.citopt.connde.service.rules.execution.RuleActionExecutor;
+import org.citopt.connde.service.rules.execution.WebhookHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executor for generic HTTP webhook actions. The executor sends a JSON body to a configurable URL. The body may
+ * be defined as template containing placeholders of the form ${path}, which are replaced by JSON values taken from
+ * the executed rule, the action or the output of the CEP engine that triggered the execution
+ * (e.g. ${output.event_0.value}). Since the placeholders are replaced by complete JSON values, they must not be
+ * placed within JSON strings. If no template is provided, the body consists of the rule name, the action name
+ * and the complete CEP output.
+ */
+@Component
+public class HttpWebhookExecutor implements RuleActionExecutor {
+    //Parameter keys
+    private static final String PARAM_KEY_URL = "webhook_url";
+    private static final String PARAM_KEY_METHOD = "webhook_method";
+    private static final String PARAM_KEY_BODY = "webhook_body";
+
+    //Permissible HTTP methods; the first one is the default
+    private static final List<String> METHODS = Arrays.asList("POST", "PUT", "PATCH");
+
+    //Permissible URL protocols
+    private static final Set<String> PROTOCOLS = new HashSet<>(Arrays.asList("http", "https"));
+
+    //Pattern of placeholders within body templates
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([A-Za-z0-9_]+(?:\\.[A-Za-z0-9_]+)*)}");
+
+    //Names of the placeholder roots
+    private static final String PLACEHOLDER_RULE_ID = "rule_id";
+    private static final String PLACEHOLDER_RULE_NAME = "rule_name";
+    private static final String PLACEHOLDER_ACTION_NAME = "action_name";
+    private static final String PLACEHOLDER_TIME = "time";
+    private static final String PLACEHOLDER_OUTPUT = "output";
+
+    //Headers of the requests
+    private static final Map<String, String> HEADERS = Collections.singletonMap("Content-Type", "application/json");
+
+    //Mapper for creating JSON values
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    //Autowired
+    private WebhookHttpClient httpClient;
+
+    /**
+     * Initializes the HTTP webhook executor.
+     *
+     * @param httpClient The HTTP client for calling webhooks (autowired)
+     */
+    @Autowired
+    public HttpWebhookExecutor(WebhookHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Validates a parameters map for the corresponding rule action type and updates
+     * an errors object accordingly.
+     *
+     * @param errors     The errors object to update
+     * @param parameters The parameters map (parameter name -> value) to validate
+     */
+    @Override
+    public void validateParameters(Errors errors, Map<String, String> parameters) {
+        //Check URL parameter
+        String url = parameters.get(PARAM_KEY_URL);
+        if ((url == null) || url.isEmpty()) {
+            errors.rejectValue("parameters", "ruleAction.parameters.missing",
+                    "A webhook URL needs to be provided.");
+        } else if (!isValidURL(url)) {
+            errors.rejectValue("parameters", "ruleAction.parameters.invalid",
+                    "The provided webhook URL seems to be invalid.");
+        }
+
+        //Check method parameter
+        String method = parameters.get(PARAM_KEY_METHOD);
+        if ((method != null) && (!method.isEmpty()) && (!METHODS.contains(method))) {
+            errors.rejectValue("parameters", "ruleAction.parameters.invalid",
+                    "The HTTP method must be one of " + METHODS + ".");
+        }
+
+        //Check body template parameter
+        String template = parameters.get(PARAM_KEY_BODY);
+        if ((template != null) && (!template.trim().isEmpty())) {
+            try {
+                //Replace all placeholders by null values and check if JSON is valid
+                MAPPER.readTree(PLACEHOLDER_PATTERN.matcher(template).replaceAll("null"));
+
+                //Placeholders within strings would be replaced by quoted values and break the strings
+                if (hasPlaceholderWithinString(template)) {
+                    errors.rejectValue("parameters", "ruleAction.parameters.invalid",
+                            "Placeholders of the body template must not be placed within JSON strings.");
+                }
+            } catch (IOException e) {
+                errors.rejectValue("parameters", "ruleAction.parameters.invalid",
+                        "The body template is not valid JSON.");
+            }
+        }
+    }
+
+    /**
+     * Executes an given action of a given rule that is of the corresponding rule action type. In addition, the output
+     * of a CEP engine that triggered the execution may be passed. The return value of this method indicates whether
+     * the execution of the rule action was successful.
+     *
+     * @param action The rule action to execute
+     * @param rule   The rule that holds the action that is supposed to be executed
+     * @param output The output of a CEP engine that triggered the execution of this rule action (may be null)
+     * @return True, if the execution of the rule action was successful; false otherwise
+     */
+    @Override
+    public boolean execute(RuleAction action, Rule rule, CEPOutput output) {
+        //Get action parameters
+        Map<String, String> parameters = action.getParameters();
+        String url = parameters.get(PARAM_KEY_URL);
+        String method = parameters.get(PARAM_KEY_METHOD);
+        if ((method == null) || method.isEmpty()) {
+            method = METHODS.get(0);
+        }
+
+        //Create body
+        Map<Object, Object> outputMap = (output == null) ? new HashMap<>() : output.getOutputMap();
+        String body;
+        try {
+            body = createBody(parameters.get(PARAM_KEY_BODY), action, rule, outputMap);
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+
+        //Send request and wait for the response
+        Future<WebhookHttpClient.Response> future = httpClient.send(method, url, HEADERS, body);
+        try {
+            return future.get().isSuccessful();
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            //Execution was cancelled
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Creates the body of a request from a template. If no template is provided, a default body is created.
+     *
+     * @param template  The template to use (may be null)
+     * @param action    The executed rule action
+     * @param rule      The executed rule
+     * @param outputMap The output map of the CEP engine
+     * @return The created body
+     * @throws JsonProcessingException In case a value could not be converted to JSON
+     */
+    private static String createBody(String template, RuleAction action, Rule rule, Map<Object, Object> outputMap)
+            throws JsonProcessingException {
+        //Create default body if no template is provided
+        if ((template == null) || template.trim().isEmpty()) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put(PLACEHOLDER_RULE_NAME, rule.getName());
+            body.put(PLACEHOLDER_ACTION_NAME, action.getName());
+            body.put(PLACEHOLDER_OUTPUT, outputMap);
+            return MAPPER.writeValueAsString(body);
+        }
+
+        //Replace placeholders by JSON values
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+        StringBuffer body = new StringBuffer();
+        while (matcher.find()) {
+            Object value = resolvePlaceholder(matcher.group(1), action, rule, outputMap);
+            matcher.appendReplacement(body, Matcher.quoteReplacement(MAPPER.writeValueAsString(value)));
+        }
+        matcher.appendTail(body);
+        return body.toString();
+    }
+
+    /**
+     * Checks whether a given body template contains placeholders within JSON string literals.
+     *
+     * @param template The template to check
+     * @return True, if a placeholder is placed within a string; false otherwise
+     */
+    private static boolean hasPlaceholderWithinString(String template) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+        boolean inString = false;
+        int position = 0;
+        while (matcher.find()) {
+            //Track the string literals up to the placeholder
+            for (; position < matcher.start(); position++) {
+                char character = template.charAt(position);
+                if (inString && (character == '\\')) {
+                    //Skip escaped character
+                    position++;
+                } else if (character == '"') {
+                    inString = !inString;
+                }
+            }
+            if (inString) {
+                return true;
+            }
+            position = matcher.end();
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the value of a placeholder path.
+     *
+     * @param path      The dot-separated path of the placeholder
+     * @param action    The executed rule action
+     * @param rule      The executed rule
+     * @param outputMap The output map of the CEP engine
+     * @return The resolved value; null, if the path could not be resolved
+     */
+    private static Object resolvePlaceholder(String path, RuleAction action, Rule rule, Map<Object, Object> outputMap) {
+        String[] segments = path.split("\\.");
+
+        //Resolve root
+        Object value;
+        switch (segments[0]) {
+            case PLACEHOLDER_RULE_ID:
+                value = rule.getId();
+                break;
+            case PLACEHOLDER_RULE_NAME:
+                value = rule.getName();
+                break;
+            case PLACEHOLDER_ACTION_NAME:
+                value = action.getName();
+                break;
+            case PLACEHOLDER_TIME:
+                value = System.currentTimeMillis();
+                break;
+            case PLACEHOLDER_OUTPUT:
+                value = outputMap;
+                break;
+            default:
+                return null;
+        }
+
+        //Descend into nested maps
+        for (int i = 1; i < segments.length; i++) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map<?, ?>) value).get(segments[i]);
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether a given URL is a valid HTTP or HTTPS URL.
+     *
+     * @param url The URL to check
+     * @return True, if the URL is valid; false otherwise
+     */
+    private static boolean isValidURL(String url) {
+        try {
+            URL parsedURL = new URL(url);
+            return PROTOCOLS.contains(parsedURL.getProtocol()) && (!parsedURL.getHost().isEmpty());
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+}
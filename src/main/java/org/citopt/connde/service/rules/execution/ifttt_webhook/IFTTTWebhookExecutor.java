@@ -4,17 +4,18 @@ import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.domain.rules.RuleAction;
 import org.citopt.connde.service.cep.engine.core.output.CEPOutput;
 import org.citopt.connde.service.rules.execution.RuleActionExecutor;
+import org.citopt.connde.service.rules.execution.WebhookHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
- * Executor for IFTTT webhook (https://ifttt.com/maker_webhooks) actions.
+ * Executor for IFTTT webhook (https://ifttt.com/maker_webhooks) actions. The webhooks are called via the shared
+ * webhook HTTP client.
  */
 @Component
 public class IFTTTWebhookExecutor implements RuleActionExecutor {
@@ -34,6 +35,22 @@ public class IFTTTWebhookExecutor implements RuleActionExecutor {
     //Name of the key under which the CEP output is stored in the JSON data object
     private static final String JSON_DATA_OUTPUT_KEY = "value1";
 
+    //Response prefix of successful requests
+    private static final String SUCCESS_RESPONSE_PREFIX = "Congratulations!";
+
+    //Autowired
+    private WebhookHttpClient httpClient;
+
+    /**
+     * Initializes the IFTTT webhook executor.
+     *
+     * @param httpClient The HTTP client for calling webhooks (autowired)
+     */
+    @Autowired
+    public IFTTTWebhookExecutor(WebhookHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
     /**
      * Validates a parameters map for the corresponding rule action type and updates
      * an errors object accordingly.
@@ -96,27 +113,19 @@ public class IFTTTWebhookExecutor implements RuleActionExecutor {
         //Generate webhook URL
         String webhookURL = generateWebhookURL(key, eventName);
 
+        //Send request and wait for the response
+        Future<WebhookHttpClient.Response> future = httpClient.send("GET", webhookURL, null, null);
         try {
-            //Open connection and send request
-            URL url = new URL(webhookURL);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setDoOutput(true);
-
-            //Establish reader for the result of the request
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-            //Read response line by line
-            StringBuilder result = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                result.append(line);
-            }
-            reader.close();
+            WebhookHttpClient.Response response = future.get();
 
             //Check if request was successful
-            return result.toString().startsWith("Congratulations!");
-        } catch (Exception e) {
+            return response.isSuccessful() && response.getBody().startsWith(SUCCESS_RESPONSE_PREFIX);
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            //Execution was cancelled
+            future.cancel(true);
+            Thread.currentThread().interrupt();
             return false;
         }
     }
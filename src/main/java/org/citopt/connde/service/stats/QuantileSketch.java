@@ -0,0 +1,430 @@
+package org.citopt.connde.service.stats;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable sketch for the approximation of quantiles and histograms of a stream of values. Values are mapped to
+ * logarithmically sized bins, so that each quantile is approximated with a bounded relative error. The bins are stored
+ * as contiguous arrays of counts and their range is limited; in case the limit is exceeded, the bins of the smallest
+ * magnitudes are collapsed. Sketches can be merged
+ * without any loss of accuracy, which allows to maintain them per time bucket and to combine them for arbitrary
+ * time ranges.
+ */
+public class QuantileSketch {
+    //Relative accuracy of the approximated quantiles
+    private static final double RELATIVE_ACCURACY = 0.01;
+
+    //Maximum number of bins per sign and initial capacity of the bin arrays
+    private static final int MAX_BINS = 1024;
+    private static final int INITIAL_CAPACITY = 32;
+
+    //Values with a smaller magnitude are counted as zeros
+    private static final double MIN_MAGNITUDE = 1e-9;
+
+    //Derived constants
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    //Bins for positive and negative values
+    private final BinArray positiveBins;
+    private final BinArray negativeBins;
+
+    //Number of values that are considered as zero
+    private long zeroCount = 0;
+
+    //Exact aggregates
+    private long count = 0;
+    private double sum = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates a new and empty sketch.
+     */
+    public QuantileSketch() {
+        this.positiveBins = new BinArray();
+        this.negativeBins = new BinArray();
+    }
+
+    /**
+     * Adds a value to the sketch.
+     *
+     * @param value The value to add
+     * @return The number of bins that had to be allocated additionally for the value
+     */
+    public synchronized int add(double value) {
+        //Ignore values that cannot be ordered
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return 0;
+        }
+        int capacity = getCapacity();
+
+        //Update exact aggregates
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+
+        //Update the matching bin
+        if (Math.abs(value) < MIN_MAGNITUDE) {
+            zeroCount++;
+        } else if (value > 0) {
+            positiveBins.add(binIndex(value), 1);
+        } else {
+            negativeBins.add(binIndex(-value), 1);
+        }
+
+        return getCapacity() - capacity;
+    }
+
+    /**
+     * Merges another sketch into this sketch. The other sketch remains unchanged.
+     *
+     * @param other The sketch to merge
+     */
+    public void merge(QuantileSketch other) {
+        //Sanity check
+        if ((other == null) || (other == this)) {
+            return;
+        }
+
+        //Take a consistent copy of the other sketch first in order to avoid nested locks
+        QuantileSketch copy = other.copy();
+
+        synchronized (this) {
+            count += copy.count;
+            sum += copy.sum;
+            min = Math.min(min, copy.min);
+            max = Math.max(max, copy.max);
+            zeroCount += copy.zeroCount;
+
+            //Merge bins
+            positiveBins.addAll(copy.positiveBins);
+            negativeBins.addAll(copy.negativeBins);
+        }
+    }
+
+    /**
+     * Creates an independent copy of this sketch.
+     *
+     * @return The copy
+     */
+    public synchronized QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.positiveBins.copyFrom(positiveBins);
+        copy.negativeBins.copyFrom(negativeBins);
+        copy.zeroCount = zeroCount;
+        copy.count = count;
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+
+    /**
+     * Returns an approximation of a certain quantile of all values that were added to the sketch.
+     *
+     * @param quantile The quantile to approximate, must be between 0 and 1
+     * @return The approximated value of the quantile or NaN, if the sketch is empty
+     */
+    public synchronized double getQuantile(double quantile) {
+        //Sanity check
+        if ((quantile < 0) || (quantile > 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        //The extremes are known exactly
+        if (quantile == 0) {
+            return min;
+        } else if (quantile == 1) {
+            return max;
+        }
+
+        //Rank of the requested value
+        long rank = (long) Math.floor(quantile * (count - 1));
+        long seen = 0;
+
+        //Negative values in ascending order, i.e. by descending magnitude
+        for (int index = negativeBins.maxIndex; index >= negativeBins.minIndex; index--) {
+            seen += negativeBins.get(index);
+            if (seen > rank) {
+                return clamp(-binValue(index));
+            }
+        }
+
+        //Zero values
+        seen += zeroCount;
+        if (seen > rank) {
+            return 0;
+        }
+
+        //Positive values in ascending order
+        for (int index = positiveBins.minIndex; index <= positiveBins.maxIndex; index++) {
+            seen += positiveBins.get(index);
+            if (seen > rank) {
+                return clamp(binValue(index));
+            }
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns an approximated histogram with equally sized bins between the minimum and the maximum value.
+     *
+     * @param numberBins The desired number of histogram bins
+     * @return Array holding the number of values per histogram bin
+     */
+    public synchronized long[] getHistogram(int numberBins) {
+        //Sanity check
+        if (numberBins <= 0) {
+            throw new IllegalArgumentException("Number of bins must be positive.");
+        }
+
+        long[] histogram = new long[numberBins];
+
+        if (count == 0) {
+            return histogram;
+        }
+
+        //Distribute the counts of the sketch bins
+        for (int index = negativeBins.minIndex; index <= negativeBins.maxIndex; index++) {
+            long binCount = negativeBins.get(index);
+            if (binCount > 0) {
+                histogram[histogramIndex(clamp(-binValue(index)), numberBins)] += binCount;
+            }
+        }
+        if (zeroCount > 0) {
+            histogram[histogramIndex(clamp(0), numberBins)] += zeroCount;
+        }
+        for (int index = positiveBins.minIndex; index <= positiveBins.maxIndex; index++) {
+            long binCount = positiveBins.get(index);
+            if (binCount > 0) {
+                histogram[histogramIndex(clamp(binValue(index)), numberBins)] += binCount;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Returns the number of bins that are currently allocated by the sketch, which determines its memory consumption.
+     *
+     * @return The number of allocated bins
+     */
+    public synchronized int getCapacity() {
+        return positiveBins.getCapacity() + negativeBins.getCapacity();
+    }
+
+    /**
+     * Returns the number of values that were added to the sketch.
+     *
+     * @return The number of values
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the exact sum of all values that were added to the sketch.
+     *
+     * @return The sum
+     */
+    public synchronized double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the exact minimum of all values that were added to the sketch.
+     *
+     * @return The minimum or NaN, if the sketch is empty
+     */
+    public synchronized double getMin() {
+        return (count == 0) ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the exact maximum of all values that were added to the sketch.
+     *
+     * @return The maximum or NaN, if the sketch is empty
+     */
+    public synchronized double getMax() {
+        return (count == 0) ? Double.NaN : max;
+    }
+
+    /**
+     * Returns the index of the histogram bin into which a given value falls.
+     *
+     * @param value      The value
+     * @param numberBins The number of histogram bins
+     * @return The index of the histogram bin
+     */
+    private int histogramIndex(double value, int numberBins) {
+        //All values are equal
+        if (max <= min) {
+            return 0;
+        }
+
+        int index = (int) ((value - min) / (max - min) * numberBins);
+        return Math.min(Math.max(index, 0), numberBins - 1);
+    }
+
+    /**
+     * Restricts a given value to the range of the exact minimum and maximum.
+     *
+     * @param value The value
+     * @return The restricted value
+     */
+    private double clamp(double value) {
+        return Math.min(Math.max(value, min), max);
+    }
+
+    /**
+     * Returns the index of the bin to which a positive value is mapped.
+     *
+     * @param magnitude The positive value
+     * @return The bin index
+     */
+    private static int binIndex(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    /**
+     * Returns the representative value of a bin, which lies within the relative accuracy of all values in the bin.
+     *
+     * @param index The bin index
+     * @return The representative value
+     */
+    private static double binValue(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    /**
+     * Contiguous array of bin counts that covers a range of bin indices. The range grows on demand, but never exceeds
+     * the maximum number of bins; counts that fall below the range are added to its lowest bin.
+     */
+    private static class BinArray {
+        //Counts of the bins and bin index of the first array element
+        private long[] counts = null;
+        private int offset = 0;
+
+        //Range of bin indices that is covered (empty, if minIndex > maxIndex)
+        private int minIndex = 0;
+        private int maxIndex = -1;
+
+        /**
+         * Returns the number of bins that are allocated by the array.
+         *
+         * @return The number of allocated bins
+         */
+        private int getCapacity() {
+            return (counts == null) ? 0 : counts.length;
+        }
+
+        /**
+         * Returns the count of a certain bin.
+         *
+         * @param index The index of the bin
+         * @return The count of the bin
+         */
+        private long get(int index) {
+            if ((counts == null) || (index < minIndex) || (index > maxIndex)) {
+                return 0;
+            }
+            return counts[index - offset];
+        }
+
+        /**
+         * Adds a count to a certain bin and collapses the bins of the smallest magnitudes if the maximum number
+         * of bins is exceeded.
+         *
+         * @param index The index of the bin
+         * @param delta The count to add
+         */
+        private void add(int index, long delta) {
+            //Initialize array around the first bin
+            if (counts == null) {
+                counts = new long[INITIAL_CAPACITY];
+                offset = index - INITIAL_CAPACITY / 2;
+                minIndex = index;
+                maxIndex = index;
+            }
+
+            if (index > maxIndex) {
+                //Collapse the bins that fall out of the range into the lowest remaining bin
+                int lowestIndex = index - MAX_BINS + 1;
+                long collapsed = 0;
+                for (int i = minIndex; (i < lowestIndex) && (i <= maxIndex); i++) {
+                    collapsed += counts[i - offset];
+                    counts[i - offset] = 0;
+                }
+                resize(Math.max(minIndex, lowestIndex), index);
+                counts[minIndex - offset] += collapsed;
+            } else if (index < minIndex) {
+                //Bins below the range are collapsed into the lowest bin
+                index = Math.max(index, maxIndex - MAX_BINS + 1);
+                resize(index, maxIndex);
+            }
+
+            counts[index - offset] += delta;
+        }
+
+        /**
+         * Adds the counts of all bins of another bin array to this bin array.
+         *
+         * @param other The other bin array
+         */
+        private void addAll(BinArray other) {
+            for (int index = other.minIndex; index <= other.maxIndex; index++) {
+                long count = other.get(index);
+                if (count > 0) {
+                    add(index, count);
+                }
+            }
+        }
+
+        /**
+         * Replaces the content of this bin array by a copy of the content of another bin array.
+         *
+         * @param other The other bin array
+         */
+        private void copyFrom(BinArray other) {
+            counts = (other.counts == null) ? null : Arrays.copyOf(other.counts, other.counts.length);
+            offset = other.offset;
+            minIndex = other.minIndex;
+            maxIndex = other.maxIndex;
+        }
+
+        /**
+         * Changes the covered range of bin indices and reallocates the array if it is too small. Counts outside
+         * of the new range are discarded.
+         *
+         * @param newMinIndex The new lowest bin index
+         * @param newMaxIndex The new highest bin index
+         */
+        private void resize(int newMinIndex, int newMaxIndex) {
+            if ((newMinIndex < offset) || (newMaxIndex >= offset + counts.length)) {
+                //Allocate larger array with spare capacity on both sides
+                int length = Math.max(Math.min(counts.length * 2, MAX_BINS), newMaxIndex - newMinIndex + 1);
+                long[] newCounts = new long[length];
+                int newOffset = newMinIndex - (length - (newMaxIndex - newMinIndex + 1)) / 2;
+
+                //Copy the counts of the overlapping range
+                int copyFrom = Math.max(minIndex, newMinIndex);
+                int copyTo = Math.min(maxIndex, newMaxIndex);
+                if (copyFrom <= copyTo) {
+                    System.arraycopy(counts, copyFrom - offset, newCounts, copyFrom - newOffset, copyTo - copyFrom + 1);
+                }
+
+                counts = newCounts;
+                offset = newOffset;
+            }
+            minIndex = newMinIndex;
+            maxIndex = newMaxIndex;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.citopt.connde.service.stats;
+
+import org.citopt.connde.InfluxDBConfiguration;
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.valueLog.ValueLogAggregate;
+import org.citopt.connde.repository.ValueLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service that provides means for retrieving time-bucketed aggregates (mean, min, max, count, sum, first, last)
+ * of the value logs of a certain component. The aggregation is executed by the value log database. If the requested
+ * buckets and time range are aligned to the interval of the precomputed hourly rollups, the rollups are used instead
+ * of the raw value logs for the part of the time range that is covered by the rollups.
+ */
+@Service
+public class ValueLogAggregationService {
+    //Pattern for permissible bucket durations
+    private static final Pattern BUCKET_PATTERN = Pattern.compile("^([1-9][0-9]{0,5})([smhdw])$");
+
+    //Pattern for permissible fill policies
+    private static final Pattern FILL_PATTERN = Pattern.compile("^(none|null|previous|linear|-?[0-9]+(\\.[0-9]+)?)$");
+
+    //Maximum number of buckets that may be requested at once
+    private static final long MAX_BUCKETS = 10000;
+
+    //Number of decimal places to spare from rounding
+    private static final int ROUNDING_DECIMAL_PLACES = 4;
+
+    @Autowired
+    private ValueLogRepository valueLogRepository;
+
+    /**
+     * Retrieves time-bucketed aggregates of the value logs of a certain component within a given time range.
+     * Additionally, the returned values can be converted to a given unit.
+     *
+     * @param component The component whose value logs are supposed to be aggregated
+     * @param from      The inclusive start of the time range
+     * @param to        The exclusive end of the time range
+     * @param bucket    The duration of the time buckets (e.g. "15m", "1h" or "1d")
+     * @param fill      The fill policy for empty buckets ("none", "null", "previous", "linear" or a number)
+     * @param unit      The unit to which the values are supposed to be converted (null for default)
+     * @return The list of aggregates, one per time bucket
+     * @throws IllegalArgumentException In case of invalid parameters
+     */
+    public List<ValueLogAggregate> aggregate(Component component, Instant from, Instant to, String bucket,
+                                             String fill, Unit unit) {
+        //Sanity checks
+        if (component == null) {
+            throw new IllegalArgumentException("Component must not be null.");
+        } else if ((from == null) || (to == null) || (!from.isBefore(to))) {
+            throw new IllegalArgumentException("Time range is invalid.");
+        } else if ((fill == null) || (!FILL_PATTERN.matcher(fill).matches())) {
+            throw new IllegalArgumentException("Fill policy is invalid.");
+        }
+
+        //Parse and check bucket duration
+        long bucketSeconds = parseBucketSeconds(bucket);
+        if (((to.getEpochSecond() - from.getEpochSecond()) / bucketSeconds) > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Too many buckets requested.");
+        }
+
+        //Retrieve aggregates from the repository, use raw value logs for the part that is not covered by rollups
+        Instant rollupFrom = getRollupFrom(from, to, bucketSeconds, fill);
+        List<ValueLogAggregate> aggregates;
+        if (rollupFrom == null) {
+            aggregates = valueLogRepository.findAggregatesByIdRef(component.getId(), from, to, bucket, fill, false);
+        } else if (!rollupFrom.isAfter(from)) {
+            aggregates = valueLogRepository.findAggregatesByIdRef(component.getId(), from, to, bucket, fill, true);
+        } else {
+            aggregates = new ArrayList<>(valueLogRepository.findAggregatesByIdRef(component.getId(), from,
+                    rollupFrom, bucket, fill, false));
+            aggregates.addAll(valueLogRepository.findAggregatesByIdRef(component.getId(), rollupFrom, to, bucket,
+                    fill, true));
+        }
+
+        //Check if value conversion is desired and possible
+        Unit adapterUnit = component.getAdapter().getUnitObject();
+        if ((unit != null) && (adapterUnit != null) && adapterUnit.isCompatible(unit)) {
+            UnitConverter converter = adapterUnit.getConverterTo(unit);
+
+            //Convert all aggregates
+            for (ValueLogAggregate aggregate : aggregates) {
+                convertAggregate(aggregate, converter);
+            }
+        }
+
+        return aggregates;
+    }
+
+    /**
+     * Determines from which point in time on the precomputed hourly rollups can be used for a given time range and
+     * bucket duration. This requires that the buckets are multiples of the rollup interval, the time range is aligned
+     * to the rollup interval and the rollups for the end of the time range have already been computed. Before the
+     * start of the rollups, the raw value logs need to be used; the time range is split at a bucket boundary,
+     * unless the fill policy depends on preceding buckets.
+     *
+     * @param from          The inclusive start of the time range
+     * @param to            The exclusive end of the time range
+     * @param bucketSeconds The bucket duration in seconds
+     * @param fill          The fill policy for empty buckets
+     * @return The point in time from which on the rollups can be used or null, if they cannot be used at all
+     */
+    private Instant getRollupFrom(Instant from, Instant to, long bucketSeconds, String fill) {
+        long interval = InfluxDBConfiguration.ROLLUP_INTERVAL_SECONDS;
+
+        //Check if rollups are available
+        Instant rollupStart = valueLogRepository.getRollupStart();
+        if (rollupStart == null) {
+            return null;
+        }
+
+        //Rollups of the current interval are not computed yet
+        long currentIntervalStart = Math.floorDiv(Instant.now().getEpochSecond(), interval) * interval;
+        if (((bucketSeconds % interval) != 0) || ((from.getEpochSecond() % interval) != 0) ||
+                ((to.getEpochSecond() % interval) != 0) || (to.getEpochSecond() > currentIntervalStart)) {
+            return null;
+        }
+
+        //Split at the first bucket boundary from which on the rollups are complete
+        long splitTime = Math.floorDiv(rollupStart.getEpochSecond() + bucketSeconds - 1, bucketSeconds) * bucketSeconds;
+        if (splitTime <= from.getEpochSecond()) {
+            return from;
+        } else if ((splitTime >= to.getEpochSecond()) || fill.equals("previous") || fill.equals("linear")) {
+            return null;
+        }
+        return Instant.ofEpochSecond(splitTime);
+    }
+
+    /**
+     * Parses a bucket duration string and returns the duration in seconds.
+     *
+     * @param bucket The bucket duration string to parse
+     * @return The duration in seconds
+     * @throws IllegalArgumentException In case the bucket duration is invalid
+     */
+    private static long parseBucketSeconds(String bucket) {
+        //Sanity check
+        if (bucket == null) {
+            throw new IllegalArgumentException("Bucket duration is invalid.");
+        }
+
+        //Match pattern
+        Matcher matcher = BUCKET_PATTERN.matcher(bucket);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Bucket duration is invalid.");
+        }
+
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "s":
+                return amount;
+            case "m":
+                return amount * 60;
+            case "h":
+                return amount * 60 * 60;
+            case "d":
+                return amount * 60 * 60 * 24;
+            default:
+                return amount * 60 * 60 * 24 * 7;
+        }
+    }
+
+    /**
+     * Converts the values of an aggregate by using a given unit converter. The sum is converted with respect to
+     * the number of values, so that it remains correct for converters with an offset.
+     *
+     * @param aggregate The aggregate to convert
+     * @param converter The unit converter to use
+     */
+    private static void convertAggregate(ValueLogAggregate aggregate, UnitConverter converter) {
+        aggregate.setMean(convert(aggregate.getMean(), converter));
+        aggregate.setMin(convert(aggregate.getMin(), converter));
+        aggregate.setMax(convert(aggregate.getMax(), converter));
+        aggregate.setFirst(convert(aggregate.getFirst(), converter));
+        aggregate.setLast(convert(aggregate.getLast(), converter));
+
+        //Convert sum by decomposing the converter into factor and offset
+        if ((aggregate.getSum() != null) && (aggregate.getCount() != null)) {
+            double offset = converter.convert(0);
+            double factor = converter.convert(1) - offset;
+            aggregate.setSum(round(factor * aggregate.getSum() + offset * aggregate.getCount()));
+        }
+    }
+
+    /**
+     * Converts a single value by using a given unit converter and applies rounding.
+     *
+     * @param value     The value to convert (may be null)
+     * @param converter The unit converter to use
+     * @return The converted value or null, if no value was given
+     */
+    private static Double convert(Double value, UnitConverter converter) {
+        if (value == null) {
+            return null;
+        }
+        return round(converter.convert(value));
+    }
+
+    /**
+     * Rounds a given value to the configured number of decimal places.
+     *
+     * @param value The value to round
+     * @return The rounded value
+     */
+    private static double round(double value) {
+        double roundingConst = Math.pow(10, ROUNDING_DECIMAL_PLACES);
+        return Math.round(value * roundingConst) / roundingConst;
+    }
+}
@@ -0,0 +1,247 @@
+package org.citopt.connde.service.stats;
+
+import org.citopt.connde.service.stats.model.ValueLogDownsamplingMode;
+import org.citopt.connde.service.stats.model.ValueLogPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Downsamples a stream of value log points that arrive in ascending order of time into a series with a bounded
+ * number of points that remains visually faithful when displayed in a chart. The time range is divided into
+ * buckets of equal duration; depending on the mode, either the largest-triangle-three-buckets point or the minimum
+ * and maximum point are kept per bucket. The memory consumption is independent of the number of points per bucket:
+ * for largest-triangle-three-buckets, only the running average of the current bucket and the first, last, minimum
+ * and maximum point of the bucket that awaits selection are kept. Since the triangle area is linear in the
+ * coordinates of a point, the largest triangle is spanned by one of these extreme points in almost all cases.
+ */
+class ValueLogDownsampler {
+    //Maximum number of selection candidates per bucket (first, last, minimum and maximum point)
+    private static final int MAX_CANDIDATES = 4;
+
+    //Downsampling mode to use
+    private final ValueLogDownsamplingMode mode;
+
+    //Bucket layout
+    private final long startTime;
+    private final long bucketDuration;
+    private final int numberBuckets;
+
+    //Resulting series
+    private final List<ValueLogPoint> result = new ArrayList<>();
+
+    //Index of the bucket that is currently filled
+    private long currentBucketIndex = -1;
+
+    //LTTB: Running sums for the average of the current bucket and its selection candidates
+    private double currentTimeSum = 0;
+    private double currentValueSum = 0;
+    private int currentCount = 0;
+    private final ValueLogPoint[] currentCandidates = new ValueLogPoint[MAX_CANDIDATES];
+
+    //LTTB: Most recently selected point and candidates of the complete bucket that awaits selection
+    private ValueLogPoint selectedPoint = null;
+    private ValueLogPoint[] pendingCandidates = null;
+
+    //LTTB: Most recently offered point, which is only added to its bucket once the next point arrives
+    private ValueLogPoint lastPoint = null;
+
+    //MIN_MAX: Extreme points of the current bucket
+    private ValueLogPoint bucketMinimum = null;
+    private ValueLogPoint bucketMaximum = null;
+
+    /**
+     * Creates a new downsampler for a given time range and maximum number of resulting points.
+     *
+     * @param mode      The downsampling mode to use
+     * @param startTime The inclusive start of the time range in epoch milliseconds
+     * @param endTime   The exclusive end of the time range in epoch milliseconds
+     * @param maxPoints The maximum number of points of the resulting series (at least 3)
+     */
+    ValueLogDownsampler(ValueLogDownsamplingMode mode, long startTime, long endTime, int maxPoints) {
+        this.mode = mode;
+        this.startTime = startTime;
+
+        //LTTB keeps the first and the last point additionally, MIN_MAX keeps up to two points per bucket
+        this.numberBuckets = Math.max(1, (mode == ValueLogDownsamplingMode.LTTB) ? maxPoints - 2 : maxPoints / 2);
+        this.bucketDuration = Math.max(1, (endTime - startTime + numberBuckets - 1) / numberBuckets);
+    }
+
+    /**
+     * Offers the next point of the series to the downsampler. Points must be offered in ascending order of time.
+     *
+     * @param time  The time of the point in epoch milliseconds
+     * @param value The value of the point
+     */
+    void offer(long time, double value) {
+        ValueLogPoint point = new ValueLogPoint(time, value);
+
+        if (mode == ValueLogDownsamplingMode.MIN_MAX) {
+            long bucketIndex = getBucketIndex(time);
+
+            //Emit extremes of the previous bucket if a new bucket starts
+            if ((bucketMinimum != null) && (bucketIndex != currentBucketIndex)) {
+                emitExtremes();
+            }
+            currentBucketIndex = bucketIndex;
+
+            //Update extremes
+            if (bucketMinimum == null) {
+                bucketMinimum = point;
+                bucketMaximum = point;
+            } else if (value < bucketMinimum.getValue()) {
+                bucketMinimum = point;
+            } else if (value > bucketMaximum.getValue()) {
+                bucketMaximum = point;
+            }
+            return;
+        }
+
+        //LTTB always keeps the first point
+        if (selectedPoint == null) {
+            selectedPoint = point;
+            result.add(point);
+            return;
+        }
+
+        //Hold the point back, since the last point of the series is kept separately
+        if (lastPoint != null) {
+            addToBucket(lastPoint);
+        }
+        lastPoint = point;
+    }
+
+    /**
+     * Finishes the downsampling after all points have been offered and returns the resulting series.
+     *
+     * @return The downsampled series
+     */
+    List<ValueLogPoint> finish() {
+        if (mode == ValueLogDownsamplingMode.MIN_MAX) {
+            if (bucketMinimum != null) {
+                emitExtremes();
+            }
+            return result;
+        }
+
+        //LTTB always keeps the last point
+        if (lastPoint != null) {
+            if (currentCount > 0) {
+                completeBucket();
+            }
+
+            //Select from the remaining bucket with respect to the last point
+            if (pendingCandidates != null) {
+                selectFromPendingBucket(lastPoint.getTime(), lastPoint.getValue());
+            }
+            result.add(lastPoint);
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds a point to the bucket it belongs to and completes the current bucket if a new bucket starts.
+     *
+     * @param point The point to add
+     */
+    private void addToBucket(ValueLogPoint point) {
+        long bucketIndex = getBucketIndex(point.getTime());
+        if ((currentCount > 0) && (bucketIndex != currentBucketIndex)) {
+            completeBucket();
+        }
+        currentBucketIndex = bucketIndex;
+
+        //Update running sums
+        currentTimeSum += point.getTime();
+        currentValueSum += point.getValue();
+        currentCount++;
+
+        //Update candidates: first, last, minimum and maximum point
+        if (currentCandidates[0] == null) {
+            currentCandidates[0] = point;
+        }
+        currentCandidates[1] = point;
+        if ((currentCandidates[2] == null) || (point.getValue() < currentCandidates[2].getValue())) {
+            currentCandidates[2] = point;
+        }
+        if ((currentCandidates[3] == null) || (point.getValue() > currentCandidates[3].getValue())) {
+            currentCandidates[3] = point;
+        }
+    }
+
+    /**
+     * Marks the current bucket as complete. If another bucket is still awaiting selection, its point is selected
+     * by using the average of the completed bucket as third triangle corner.
+     */
+    private void completeBucket() {
+        if (pendingCandidates != null) {
+            selectFromPendingBucket(currentTimeSum / currentCount, currentValueSum / currentCount);
+        }
+
+        //The completed bucket awaits selection
+        pendingCandidates = currentCandidates.clone();
+        for (int i = 0; i < MAX_CANDIDATES; i++) {
+            currentCandidates[i] = null;
+        }
+        currentTimeSum = 0;
+        currentValueSum = 0;
+        currentCount = 0;
+    }
+
+    /**
+     * Selects the candidate of the pending bucket that spans the largest triangle together with the previously
+     * selected point and a given third corner.
+     *
+     * @param nextTime  The time of the third corner
+     * @param nextValue The value of the third corner
+     */
+    private void selectFromPendingBucket(double nextTime, double nextValue) {
+        double previousTime = selectedPoint.getTime();
+        double previousValue = selectedPoint.getValue();
+
+        ValueLogPoint bestPoint = null;
+        double bestArea = -1;
+        for (ValueLogPoint point : pendingCandidates) {
+            double area = Math.abs((previousTime - nextTime) * (point.getValue() - previousValue) -
+                    (previousTime - point.getTime()) * (nextValue - previousValue));
+            if (area > bestArea) {
+                bestArea = area;
+                bestPoint = point;
+            }
+        }
+
+        result.add(bestPoint);
+        selectedPoint = bestPoint;
+        pendingCandidates = null;
+    }
+
+    /**
+     * Adds the extreme points of the current bucket to the result in ascending order of time.
+     */
+    private void emitExtremes() {
+        if (bucketMinimum == bucketMaximum) {
+            result.add(bucketMinimum);
+        } else if (bucketMinimum.getTime() <= bucketMaximum.getTime()) {
+            result.add(bucketMinimum);
+            result.add(bucketMaximum);
+        } else {
+            result.add(bucketMaximum);
+            result.add(bucketMinimum);
+        }
+
+        bucketMinimum = null;
+        bucketMaximum = null;
+    }
+
+    /**
+     * Returns the index of the bucket to which a given point in time belongs.
+     *
+     * @param time The point in time in epoch milliseconds
+     * @return The index of the bucket
+     */
+    private long getBucketIndex(long time) {
+        long index = (time - startTime) / bucketDuration;
+        return Math.max(0, Math.min(numberBuckets - 1, index));
+    }
+}
@@ -0,0 +1,92 @@
+package org.citopt.connde.service.stats;
+
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.repository.ValueLogRepository;
+import org.citopt.connde.service.stats.model.ValueLogDownsamplingMode;
+import org.citopt.connde.service.stats.model.ValueLogPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Service that provides means for retrieving downsampled value log series of components for display in charts.
+ * The value logs are streamed from the repository in chunks and downsampled on the fly, so that arbitrary long
+ * time ranges can be displayed without loading the full series into memory.
+ */
+@Service
+public class ValueLogDownsamplingService {
+    //Permissible range of the number of points of a downsampled series
+    private static final int MIN_POINTS = 3;
+    private static final int MAX_POINTS = 10000;
+
+    //Number of value logs that are retrieved from the repository per query
+    private static final int CHUNK_SIZE = 10000;
+
+    //Number of decimal places to spare from rounding
+    private static final int ROUNDING_DECIMAL_PLACES = 4;
+
+    @Autowired
+    private ValueLogRepository valueLogRepository;
+
+    /**
+     * Retrieves a downsampled series of the value logs of a certain component within a given time range.
+     * Additionally, the returned values can be converted to a given unit.
+     *
+     * @param component The component whose value logs are supposed to be downsampled
+     * @param from      The inclusive start of the time range
+     * @param to        The exclusive end of the time range
+     * @param maxPoints The maximum number of points of the series (e.g. the width of the chart in pixels)
+     * @param mode      The downsampling mode to use
+     * @param unit      The unit to which the values are supposed to be converted (null for default)
+     * @return The downsampled series
+     * @throws IllegalArgumentException In case of invalid parameters
+     */
+    public List<ValueLogPoint> downsample(Component component, Instant from, Instant to, int maxPoints,
+                                         ValueLogDownsamplingMode mode, Unit unit) {
+        //Sanity checks
+        if (component == null) {
+            throw new IllegalArgumentException("Component must not be null.");
+        } else if ((from == null) || (to == null) || (!from.isBefore(to))) {
+            throw new IllegalArgumentException("Time range is invalid.");
+        } else if ((maxPoints < MIN_POINTS) || (maxPoints > MAX_POINTS)) {
+            throw new IllegalArgumentException("Number of points is invalid.");
+        } else if (mode == null) {
+            throw new IllegalArgumentException("Downsampling mode must not be null.");
+        }
+
+        //Stream value logs through the downsampler
+        ValueLogDownsampler downsampler = new ValueLogDownsampler(mode, from.toEpochMilli(), to.toEpochMilli(),
+                maxPoints);
+        valueLogRepository.streamValuesByIdRef(component.getId(), from, to, CHUNK_SIZE, downsampler::offer);
+        List<ValueLogPoint> points = downsampler.finish();
+
+        //Get converter if value conversion is desired and possible
+        UnitConverter converter = UnitConverter.IDENTITY;
+        Unit adapterUnit = component.getAdapter().getUnitObject();
+        if ((unit != null) && (adapterUnit != null) && adapterUnit.isCompatible(unit)) {
+            converter = adapterUnit.getConverterTo(unit);
+        }
+
+        //Convert and round values
+        for (ValueLogPoint point : points) {
+            point.setValue(round(converter.convert(point.getValue())));
+        }
+
+        return points;
+    }
+
+    /**
+     * Rounds a given value to the configured number of decimal places.
+     *
+     * @param value The value to round
+     * @return The rounded value
+     */
+    private static double round(double value) {
+        double roundingConst = Math.pow(10, ROUNDING_DECIMAL_PLACES);
+        return Math.round(value * roundingConst) / roundingConst;
+    }
+}
@@ -0,0 +1,211 @@
+package org.citopt.connde.service.stats;
+
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.valueLog.ValueLogAggregate;
+import org.citopt.connde.repository.ValueLogRepository;
+import org.citopt.connde.service.stats.model.ValueLogGroupStats;
+import org.citopt.connde.service.stats.model.ValueLogSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Service that computes summary statistics for groups of components. The per-component summaries are retrieved
+ * from the value log repository in parallel, whereby the number of concurrent queries is bounded by a dedicated
+ * thread pool. The partial summaries are then merged exactly into a combined summary of the whole group. Since only
+ * values of the same unit can be combined meaningfully, all members are converted to one common unit before they are
+ * merged; members whose values cannot be converted to this unit are left out of the combined summary and flagged.
+ */
+@Service
+public class ValueLogGroupStatsService {
+    //Maximum number of summary queries that are executed concurrently
+    private static final int MAX_CONCURRENT_QUERIES = 8;
+
+    //Maximum number of components that may be part of a group
+    public static final int MAX_GROUP_SIZE = 500;
+
+    //Maximum time to wait for the summaries of a group in seconds
+    private static final long QUERY_TIMEOUT = 60;
+
+    @Autowired
+    private ValueLogRepository valueLogRepository;
+
+    //Executor for the summary queries
+    private ExecutorService executorService;
+
+    /**
+     * Creates and initializes the service.
+     */
+    public ValueLogGroupStatsService() {
+        this.executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_QUERIES);
+    }
+
+    /**
+     * Computes the summary statistics of a group of components within a given time range. The result contains
+     * one summary per component and a combined summary of the whole group. The combined summary is expressed in a
+     * common unit, which is either the given unit or, if no unit is given, the unit of the first component of the
+     * group. Members whose values cannot be converted to the common unit are left out of the combined summary and
+     * flagged as excluded.
+     *
+     * @param components The components that form the group
+     * @param from       The inclusive start of the time range (null for unbounded)
+     * @param to         The exclusive end of the time range (null for unbounded)
+     * @param unit       The common unit to which the values are supposed to be converted (null for default)
+     * @return The statistics of the group
+     * @throws IllegalArgumentException In case of invalid parameters
+     */
+    public ValueLogGroupStats calculateGroupStats(List<Component> components, Instant from, Instant to, Unit unit) {
+        //Sanity checks
+        if (components == null) {
+            throw new IllegalArgumentException("Component list must not be null.");
+        } else if (components.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("Too many components in the group.");
+        } else if ((from != null) && (to != null) && (!from.isBefore(to))) {
+            throw new IllegalArgumentException("Time range is invalid.");
+        }
+
+        //Determine the common unit of the group
+        Unit commonUnit = unit;
+        if ((commonUnit == null) && (!components.isEmpty())) {
+            commonUnit = getUnit(components.get(0));
+        }
+        final Unit targetUnit = commonUnit;
+
+        //Submit one summary query per component
+        List<CompletableFuture<ValueLogSummary>> futures = new ArrayList<>(components.size());
+        for (Component component : components) {
+            futures.add(CompletableFuture.supplyAsync(() -> summarize(component, from, to, targetUnit),
+                    executorService));
+        }
+
+        //Create group statistics object
+        ValueLogGroupStats groupStats = new ValueLogGroupStats();
+        groupStats.setStartTime((from == null) ? 0 : from.getEpochSecond());
+        groupStats.setEndTime((to == null) ? 0 : to.getEpochSecond());
+        groupStats.setUnit((targetUnit == null) ? null : targetUnit.toString());
+
+        //Wait for all summaries to complete
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(QUERY_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while computing group statistics.", e);
+        } catch (ExecutionException | TimeoutException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Failed to compute group statistics.", e);
+        }
+
+        //Collect member summaries and merge the ones that are expressed in the common unit
+        ValueLogSummary combined = new ValueLogSummary();
+        combined.setUnit(groupStats.getUnit());
+        for (CompletableFuture<ValueLogSummary> future : futures) {
+            ValueLogSummary summary = future.join();
+            groupStats.getMembers().add(summary);
+            if (!summary.isExcluded()) {
+                combined.merge(summary);
+            }
+        }
+        groupStats.setCombined(combined);
+
+        return groupStats;
+    }
+
+    /**
+     * Shuts down the executor of the summary queries.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Retrieves the summary of the value logs of a single component from the repository and converts it
+     * to the common unit of the group. If the values of the component cannot be converted to this unit, the summary
+     * is kept in the unit of the component and flagged as excluded from the combined summary.
+     *
+     * @param component The component to summarize
+     * @param from      The inclusive start of the time range (null for unbounded)
+     * @param to        The exclusive end of the time range (null for unbounded)
+     * @param unit      The common unit of the group (null if unknown)
+     * @return The summary of the component
+     */
+    private ValueLogSummary summarize(Component component, Instant from, Instant to, Unit unit) {
+        ValueLogSummary summary = new ValueLogSummary(component.getId(), component.getName());
+
+        //Check whether the values can be converted to the common unit; unknown units only match each other
+        Unit componentUnit = getUnit(component);
+        boolean convertible = (unit == null) ? (componentUnit == null) :
+                ((componentUnit != null) && componentUnit.isCompatible(unit));
+        summary.setExcluded(!convertible);
+        summary.setUnit(convertible ? ((unit == null) ? null : unit.toString()) :
+                ((componentUnit == null) ? null : componentUnit.toString()));
+
+        //Retrieve aggregate from the repository
+        ValueLogAggregate aggregate = valueLogRepository.findSummaryByIdRef(component.getId(), from, to);
+
+        //Return empty summary if no value logs are available
+        if ((aggregate == null) || (aggregate.getCount() == null) || (aggregate.getCount() == 0)) {
+            return summary;
+        }
+
+        //Recover the sum of squared deviations from the sample standard deviation
+        long count = aggregate.getCount();
+        double standardDeviation = (aggregate.getStandardDeviation() == null) ? 0 : aggregate.getStandardDeviation();
+
+        summary.setNumberLogs(count);
+        summary.setSum(aggregate.getSum());
+        summary.setMinimum(aggregate.getMin());
+        summary.setMaximum(aggregate.getMax());
+        summary.setAverage(aggregate.getMean());
+        summary.setSquaredDeviations(standardDeviation * standardDeviation * (count - 1));
+
+        //Convert the values to the common unit if possible
+        if (convertible && (unit != null)) {
+            convertSummary(summary, componentUnit.getConverterTo(unit));
+        }
+
+        return summary;
+    }
+
+    /**
+     * Returns the unit of the values of a given component, as defined by its adapter.
+     *
+     * @param component The component
+     * @return The unit or null if unknown
+     */
+    private static Unit getUnit(Component component) {
+        if (component.getAdapter() == null) {
+            return null;
+        }
+        return component.getAdapter().getUnitObject();
+    }
+
+    /**
+     * Converts the statistics of a summary by using a given unit converter. Since unit converters are linear,
+     * the converter is decomposed into factor and offset, so that all statistics remain exact.
+     *
+     * @param summary   The summary to convert
+     * @param converter The unit converter to use
+     */
+    private static void convertSummary(ValueLogSummary summary, UnitConverter converter) {
+        double offset = converter.convert(0);
+        double factor = converter.convert(1) - offset;
+
+        double minimum = converter.convert(summary.getMinimum());
+        double maximum = converter.convert(summary.getMaximum());
+
+        summary.setMinimum(Math.min(minimum, maximum));
+        summary.setMaximum(Math.max(minimum, maximum));
+        summary.setAverage(converter.convert(summary.getAverage()));
+        summary.setSum(factor * summary.getSum() + offset * summary.getNumberLogs());
+        summary.setSquaredDeviations(factor * factor * summary.getSquaredDeviations());
+    }
+}
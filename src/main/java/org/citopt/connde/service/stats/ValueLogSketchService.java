@@ -0,0 +1,354 @@
+package org.citopt.connde.service.stats;
+
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.valueLog.ValueLog;
+import org.citopt.connde.repository.ValueLogRepository;
+import org.citopt.connde.service.compression.ValueLogCompressionService;
+import org.citopt.connde.service.receiver.ValueLogReceiverObserver;
+import org.citopt.connde.service.stats.model.HistogramBin;
+import org.citopt.connde.service.stats.model.ValueLogDistribution;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service that registers itself as observer at the ValueLogCompressionService and maintains mergeable quantile
+ * sketches per component and per time bucket from the stream of compressed value logs. Quantiles and histograms for
+ * arbitrary time ranges can then be approximated by merging the sketches of the covered buckets, without loading
+ * the value logs from the repository. Time ranges are resolved with the granularity of the buckets. Since the sketches
+ * are kept in memory only, the buckets of value logs that were received before the service was started are
+ * backfilled from the repository once they are requested for the first time. The repository holds exactly the
+ * compressed value logs, so that received and backfilled buckets are based on the same values. The total number of
+ * allocated sketch bins is limited; if the limit is exceeded, the oldest buckets of all components are evicted and
+ * backfilled again on demand.
+ */
+@Service
+public class ValueLogSketchService implements ValueLogReceiverObserver {
+    //Duration of a time bucket in seconds
+    private static final long BUCKET_DURATION = 60 * 60;
+
+    //Number of buckets that are kept per component (matches the retention of the value log repository)
+    private static final int MAX_BUCKETS = 90 * 24;
+
+    //Number of decimal places to spare from rounding
+    private static final int ROUNDING_DECIMAL_PLACES = 2;
+
+    //Number of value logs that are retrieved per query when backfilling buckets
+    private static final int BACKFILL_CHUNK_SIZE = 10000;
+
+    //Maximum number of sketch bins that may be allocated for all components together
+    private static final long MAX_TOTAL_BINS = 8L * 1024 * 1024;
+
+    //Autowired
+    private ValueLogRepository valueLogRepository;
+
+    //Map (component id --> (bucket start --> sketch)) of sketches
+    private Map<String, ConcurrentNavigableMap<Long, QuantileSketch>> sketchMap;
+
+    //Start time of the service in epoch seconds; value logs before this time are not covered by received values
+    private final long coverageStart;
+
+    //Map (component id --> epoch seconds) of the start of the already backfilled time range per component
+    private Map<String, Long> backfillStarts;
+
+    //Map (component id --> lock) of the locks for backfilling
+    private Map<String, Object> backfillLocks;
+
+    //Map (component id --> epoch seconds) of the end of the most recent bucket that was evicted due to the bin limit
+    private Map<String, Long> evictionEnds;
+
+    //Number of sketch bins that are currently allocated
+    private final AtomicLong totalBins = new AtomicLong(0);
+
+    //Lock for evicting buckets
+    private final Object evictionLock = new Object();
+
+    /**
+     * Creates and starts the service by passing a reference to the value log compression service and the value log
+     * repository (auto-wired).
+     *
+     * @param compressionService The instance of the value log compression service
+     * @param valueLogRepository The value log repository to use for backfilling
+     */
+    @Autowired
+    public ValueLogSketchService(ValueLogCompressionService compressionService,
+                                 ValueLogRepository valueLogRepository) {
+        this.valueLogRepository = valueLogRepository;
+        this.sketchMap = new ConcurrentHashMap<>();
+        this.backfillStarts = new ConcurrentHashMap<>();
+        this.backfillLocks = new ConcurrentHashMap<>();
+        this.evictionEnds = new ConcurrentHashMap<>();
+        this.coverageStart = Instant.now().getEpochSecond();
+
+        //Register as observer for compressed value logs, which are the ones that end up in the repository
+        compressionService.registerObserver(this);
+    }
+
+    /**
+     * Called in case a value log passed the compression. The value is added to the sketch of the corresponding
+     * component and time bucket.
+     *
+     * @param valueLog The corresponding value log that passed
+     */
+    @Override
+    public void onValueReceived(ValueLog valueLog) {
+        //Sanity check
+        if (valueLog == null) {
+            throw new IllegalArgumentException("Value log must not be null.");
+        }
+
+        addValue(valueLog.getIdref(), valueLog.getTime().getEpochSecond(), valueLog.getValue());
+    }
+
+    /**
+     * Returns a sketch covering all values of a certain component within a given time range, created by merging
+     * the sketches of all buckets that overlap with the time range. Buckets before the start of the service are
+     * backfilled from the repository if necessary; if this fails, the sketch covers only the available buckets.
+     *
+     * @param componentId The id of the component
+     * @param from        The start of the time range (null for unbounded)
+     * @param to          The end of the time range (null for unbounded)
+     * @return The merged sketch
+     */
+    public QuantileSketch getSketch(String componentId, Instant from, Instant to) {
+        //Backfill buckets that predate the service
+        backfill(componentId, from);
+
+        return mergeBuckets(componentId, from, to);
+    }
+
+    /**
+     * Calculates the approximated distribution of the values of a certain component within a time range and
+     * returns it as a ValueLogDistribution object. Additionally, the returned values can be converted to a given unit.
+     *
+     * @param component  The component whose values should be used
+     * @param from       The start of the time range (null for unbounded)
+     * @param to         The end of the time range (null for unbounded)
+     * @param quantiles  The quantiles to approximate
+     * @param numberBins The number of histogram bins
+     * @param unit       The unit to which the values are supposed to be converted (null for default)
+     * @return ValueLogDistribution object that holds the calculated data
+     */
+    public ValueLogDistribution calculateDistribution(Component component, Instant from, Instant to,
+                                                      double[] quantiles, int numberBins, Unit unit) {
+        //Sanity check
+        if (component == null) {
+            throw new IllegalArgumentException("Component must not be null.");
+        }
+
+        //Create empty distribution object
+        ValueLogDistribution distribution = new ValueLogDistribution();
+        distribution.setStartTime((from == null) ? 0 : getBucketStart(from.getEpochSecond()));
+        distribution.setEndTime((to == null) ? Instant.now().getEpochSecond() :
+                getBucketStart(to.getEpochSecond()) + BUCKET_DURATION);
+
+        //Retrieve merged sketch, the distribution is incomplete if older value logs could not be backfilled
+        distribution.setComplete(backfill(component.getId(), from));
+        QuantileSketch sketch = mergeBuckets(component.getId(), from, to);
+
+        //Return object with default values if no values are available
+        if (sketch.getCount() == 0) {
+            return distribution;
+        }
+
+        //Get converter if value conversion is desired and possible
+        UnitConverter converter = UnitConverter.IDENTITY;
+        Unit adapterUnit = component.getAdapter().getUnitObject();
+        if ((unit != null) && (adapterUnit != null) && adapterUnit.isCompatible(unit)) {
+            converter = adapterUnit.getConverterTo(unit);
+        }
+
+        //Set exact aggregates
+        distribution.setNumberLogs(sketch.getCount());
+        distribution.setMinimum(round(converter.convert(sketch.getMin())));
+        distribution.setMaximum(round(converter.convert(sketch.getMax())));
+        distribution.setAverage(round(converter.convert(sketch.getSum() / sketch.getCount())));
+
+        //Approximate quantiles
+        Map<String, Double> quantileMap = new LinkedHashMap<>();
+        for (double quantile : quantiles) {
+            quantileMap.put(String.valueOf(quantile), round(converter.convert(sketch.getQuantile(quantile))));
+        }
+        distribution.setQuantiles(quantileMap);
+
+        //Approximate histogram
+        long[] counts = sketch.getHistogram(numberBins);
+        double binWidth = (sketch.getMax() - sketch.getMin()) / numberBins;
+        List<HistogramBin> histogram = new ArrayList<>(numberBins);
+        for (int i = 0; i < numberBins; i++) {
+            double lowerBound = converter.convert(sketch.getMin() + i * binWidth);
+            double upperBound = converter.convert(sketch.getMin() + (i + 1) * binWidth);
+            histogram.add(new HistogramBin(round(lowerBound), round(upperBound), counts[i]));
+        }
+        distribution.setHistogram(histogram);
+
+        return distribution;
+    }
+
+    /**
+     * Adds a value to the sketch of the matching bucket of a certain component.
+     *
+     * @param componentId  The id of the component
+     * @param epochSeconds The time of the value in epoch seconds
+     * @param value        The value to add
+     */
+    private void addValue(String componentId, long epochSeconds, double value) {
+        //Get buckets of the component
+        ConcurrentNavigableMap<Long, QuantileSketch> buckets =
+                sketchMap.computeIfAbsent(componentId, id -> new ConcurrentSkipListMap<>());
+
+        //Add value to the sketch of the matching bucket
+        int addedBins = buckets.computeIfAbsent(getBucketStart(epochSeconds), start -> new QuantileSketch()).add(value);
+
+        //Drop the buckets that are older than the retention period
+        while (buckets.size() > MAX_BUCKETS) {
+            Map.Entry<Long, QuantileSketch> entry = buckets.pollFirstEntry();
+            if (entry != null) {
+                totalBins.addAndGet(-entry.getValue().getCapacity());
+            }
+        }
+
+        //Evict the oldest buckets of all components if the bin limit is exceeded
+        if (totalBins.addAndGet(addedBins) > MAX_TOTAL_BINS) {
+            evictOldestBuckets();
+        }
+    }
+
+    /**
+     * Evicts the oldest buckets across all components until the number of allocated sketch bins is within the limit.
+     * The time ranges of the evicted buckets are marked as not covered, so that they are backfilled again on demand.
+     */
+    private void evictOldestBuckets() {
+        synchronized (evictionLock) {
+            while (totalBins.get() > MAX_TOTAL_BINS) {
+                //Find the component with the oldest bucket
+                String oldestComponentId = null;
+                long oldestBucket = Long.MAX_VALUE;
+                for (Map.Entry<String, ConcurrentNavigableMap<Long, QuantileSketch>> entry : sketchMap.entrySet()) {
+                    Map.Entry<Long, QuantileSketch> firstEntry = entry.getValue().firstEntry();
+                    if ((firstEntry != null) && (firstEntry.getKey() < oldestBucket)) {
+                        oldestComponentId = entry.getKey();
+                        oldestBucket = firstEntry.getKey();
+                    }
+                }
+
+                //Stop if no buckets are left
+                if (oldestComponentId == null) {
+                    return;
+                }
+
+                //Evict the bucket and mark its time range as not covered
+                QuantileSketch sketch = sketchMap.get(oldestComponentId).remove(oldestBucket);
+                if (sketch != null) {
+                    totalBins.addAndGet(-sketch.getCapacity());
+                }
+                long evictionEnd = oldestBucket + BUCKET_DURATION;
+                evictionEnds.merge(oldestComponentId, evictionEnd, Math::max);
+                backfillStarts.merge(oldestComponentId, evictionEnd, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Merges the sketches of all buckets of a certain component that overlap with a given time range.
+     *
+     * @param componentId The id of the component
+     * @param from        The start of the time range (null for unbounded)
+     * @param to          The end of the time range (null for unbounded)
+     * @return The merged sketch
+     */
+    private QuantileSketch mergeBuckets(String componentId, Instant from, Instant to) {
+        QuantileSketch result = new QuantileSketch();
+
+        //Get buckets of the component
+        ConcurrentNavigableMap<Long, QuantileSketch> buckets = sketchMap.get(componentId);
+        if (buckets == null) {
+            return result;
+        }
+
+        //Determine the range of relevant buckets
+        long fromBucket = (from == null) ? Long.MIN_VALUE : getBucketStart(from.getEpochSecond());
+        long toBucket = (to == null) ? Long.MAX_VALUE : getBucketStart(to.getEpochSecond());
+
+        //Merge sketches of all relevant buckets
+        for (QuantileSketch sketch : buckets.subMap(fromBucket, true, toBucket, true).values()) {
+            result.merge(sketch);
+        }
+
+        return result;
+    }
+
+    /**
+     * Backfills the buckets of a certain component that predate the start of the service or were evicted with value
+     * logs from the repository, so that the buckets cover all retained value logs from a given point in time on.
+     * Each time range is backfilled only once, unless its buckets are evicted again.
+     *
+     * @param componentId The id of the component
+     * @param from        The point in time from which the buckets need to be complete (null for unbounded)
+     * @return True, if the buckets are complete; false, if the value logs could not be retrieved
+     */
+    private boolean backfill(String componentId, Instant from) {
+        //Value logs older than the oldest bucket are not retained
+        long oldestBucket = getBucketStart(coverageStart) - (MAX_BUCKETS - 1) * BUCKET_DURATION;
+        long backfillFrom = (from == null) ? oldestBucket :
+                getBucketStart(Math.max(from.getEpochSecond(), oldestBucket));
+
+        //Check if the time range is already covered
+        if (backfillStarts.getOrDefault(componentId, coverageStart) <= backfillFrom) {
+            return true;
+        }
+
+        //Backfill once per component at a time
+        synchronized (backfillLocks.computeIfAbsent(componentId, id -> new Object())) {
+            long backfillTo = backfillStarts.getOrDefault(componentId, coverageStart);
+            if (backfillTo <= backfillFrom) {
+                return true;
+            }
+
+            //Add the values of all value logs between the requested start and the already covered range
+            evictionEnds.remove(componentId);
+            try {
+                valueLogRepository.streamValuesByIdRef(componentId, Instant.ofEpochSecond(backfillFrom),
+                        Instant.ofEpochSecond(backfillTo), BACKFILL_CHUNK_SIZE,
+                        (time, value) -> addValue(componentId, Math.floorDiv(time, 1000), value));
+            } catch (Exception e) {
+                System.err.println("Failed to backfill value log sketches of " + componentId + ": " + e.getMessage());
+                return false;
+            }
+
+            //Buckets that were evicted in the meantime are not covered
+            long newBackfillStart = Math.max(backfillFrom, evictionEnds.getOrDefault(componentId, Long.MIN_VALUE));
+            backfillStarts.put(componentId, newBackfillStart);
+            return newBackfillStart <= backfillFrom;
+        }
+    }
+
+    /**
+     * Returns the start of the time bucket to which a given point in time belongs.
+     *
+     * @param epochSeconds The point in time in epoch seconds
+     * @return The start of the bucket in epoch seconds
+     */
+    private static long getBucketStart(long epochSeconds) {
+        return Math.floorDiv(epochSeconds, BUCKET_DURATION) * BUCKET_DURATION;
+    }
+
+    /**
+     * Rounds a given value to the configured number of decimal places.
+     *
+     * @param value The value to round
+     * @return The rounded value
+     */
+    private static double round(double value) {
+        double roundingConst = Math.pow(10, ROUNDING_DECIMAL_PLACES);
+        return Math.round(value * roundingConst) / roundingConst;
+    }
+}
@@ -0,0 +1,54 @@
+package org.citopt.connde.service.stats.model;
+
+/**
+ * Objects of this class represent single bins of a value histogram, consisting out of a value range
+ * and the number of value logs whose values fall into this range.
+ */
+public class HistogramBin {
+    //Range of the bin
+    private double lowerBound;
+    private double upperBound;
+
+    //Number of value logs within the range
+    private long count;
+
+    /**
+     * Creates a new histogram bin.
+     *
+     * @param lowerBound The inclusive lower bound of the bin
+     * @param upperBound The upper bound of the bin
+     * @param count      The number of value logs within the bin
+     */
+    public HistogramBin(double lowerBound, double upperBound, long count) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.count = count;
+    }
+
+    /**
+     * Returns the inclusive lower bound of the bin.
+     *
+     * @return The lower bound
+     */
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Returns the upper bound of the bin.
+     *
+     * @return The upper bound
+     */
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Returns the number of value logs within the bin.
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return count;
+    }
+}
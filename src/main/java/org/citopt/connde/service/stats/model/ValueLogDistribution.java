@@ -0,0 +1,201 @@
+package org.citopt.connde.service.stats.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objects of this class are models that hold approximated distribution information, such as quantiles and
+ * a histogram, for the value logs of a certain component within a time range. They can be used as DTOs in order
+ * to retrieve the distribution to the client.
+ */
+public class ValueLogDistribution {
+    //Time range (epoch seconds) covered by the distribution
+    private long startTime = 0;
+    private long endTime = 0;
+
+    //Whether all value logs within the time range were considered
+    private boolean complete = true;
+
+    //Exact aggregates
+    private long numberLogs = 0;
+    private double minimum = 0;
+    private double maximum = 0;
+    private double average = 0;
+
+    //Map (quantile --> approximated value) of quantiles
+    private Map<String, Double> quantiles = new LinkedHashMap<>();
+
+    //Approximated histogram
+    private List<HistogramBin> histogram = new ArrayList<>();
+
+    /**
+     * Creates a new and empty distribution object.
+     */
+    public ValueLogDistribution() {
+    }
+
+    /**
+     * Returns the start of the covered time range in epoch seconds.
+     *
+     * @return The start time
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets the start of the covered time range in epoch seconds.
+     *
+     * @param startTime The start time
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Returns the end of the covered time range in epoch seconds.
+     *
+     * @return The end time
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Sets the end of the covered time range in epoch seconds.
+     *
+     * @param endTime The end time
+     */
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * Returns whether all value logs within the covered time range were considered. If not, the distribution
+     * is based only on the value logs that were available.
+     *
+     * @return True, if the distribution is complete; false otherwise
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Sets whether all value logs within the covered time range were considered.
+     *
+     * @param complete True, if the distribution is complete; false otherwise
+     */
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    /**
+     * Returns the number of logs considered in this distribution object.
+     *
+     * @return The number of logs
+     */
+    public long getNumberLogs() {
+        return numberLogs;
+    }
+
+    /**
+     * Sets the number of logs considered in this distribution object.
+     *
+     * @param numberLogs The number of logs
+     */
+    public void setNumberLogs(long numberLogs) {
+        this.numberLogs = numberLogs;
+    }
+
+    /**
+     * Returns the smallest value of all logs.
+     *
+     * @return The minimum
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Sets the smallest value of all logs.
+     *
+     * @param minimum The minimum
+     */
+    public void setMinimum(double minimum) {
+        this.minimum = minimum;
+    }
+
+    /**
+     * Returns the biggest value of all logs.
+     *
+     * @return The maximum
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Sets the biggest value of all logs.
+     *
+     * @param maximum The maximum
+     */
+    public void setMaximum(double maximum) {
+        this.maximum = maximum;
+    }
+
+    /**
+     * Returns the average value of all logs.
+     *
+     * @return The average
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Sets the average value of all logs.
+     *
+     * @param average The average
+     */
+    public void setAverage(double average) {
+        this.average = average;
+    }
+
+    /**
+     * Returns the map (quantile --> approximated value) of the requested quantiles.
+     *
+     * @return The quantiles map
+     */
+    public Map<String, Double> getQuantiles() {
+        return quantiles;
+    }
+
+    /**
+     * Sets the map (quantile --> approximated value) of the requested quantiles.
+     *
+     * @param quantiles The quantiles map
+     */
+    public void setQuantiles(Map<String, Double> quantiles) {
+        this.quantiles = quantiles;
+    }
+
+    /**
+     * Returns the approximated histogram as list of bins.
+     *
+     * @return The histogram
+     */
+    public List<HistogramBin> getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Sets the approximated histogram as list of bins.
+     *
+     * @param histogram The histogram
+     */
+    public void setHistogram(List<HistogramBin> histogram) {
+        this.histogram = histogram;
+    }
+}
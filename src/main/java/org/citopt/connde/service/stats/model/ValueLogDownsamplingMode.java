@@ -0,0 +1,11 @@
+package org.citopt.connde.service.stats.model;
+
+/**
+ * Enumeration of the available methods for downsampling value log series for display in charts.
+ */
+public enum ValueLogDownsamplingMode {
+    //Largest-triangle-three-buckets: keeps the point per bucket that spans the largest triangle with its neighbours
+    LTTB,
+    //Keeps the points with the smallest and the biggest value per bucket
+    MIN_MAX
+}
@@ -0,0 +1,120 @@
+package org.citopt.connde.service.stats.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Objects of this class are models that hold the summary statistics of a group of components, consisting of
+ * one summary per member component and a combined summary over the values of all members that share a common unit.
+ * They can be used as DTOs in order to retrieve the group statistics to the client.
+ */
+public class ValueLogGroupStats {
+    //Time range (epoch seconds) covered by the statistics (0 for unbounded)
+    private long startTime = 0;
+    private long endTime = 0;
+
+    //Summaries of the member components
+    private List<ValueLogSummary> members = new ArrayList<>();
+
+    //Combined summary of all members that share the common unit
+    private ValueLogSummary combined = new ValueLogSummary();
+
+    //Common unit of the combined summary (null if unknown)
+    private String unit = null;
+
+    /**
+     * Creates a new and empty group statistics object.
+     */
+    public ValueLogGroupStats() {
+    }
+
+    /**
+     * Returns the start of the covered time range in epoch seconds.
+     *
+     * @return The start time
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets the start of the covered time range in epoch seconds.
+     *
+     * @param startTime The start time
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Returns the end of the covered time range in epoch seconds.
+     *
+     * @return The end time
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Sets the end of the covered time range in epoch seconds.
+     *
+     * @param endTime The end time
+     */
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    /**
+     * Returns the summaries of the member components.
+     *
+     * @return The list of member summaries
+     */
+    public List<ValueLogSummary> getMembers() {
+        return members;
+    }
+
+    /**
+     * Sets the summaries of the member components.
+     *
+     * @param members The list of member summaries
+     */
+    public void setMembers(List<ValueLogSummary> members) {
+        this.members = members;
+    }
+
+    /**
+     * Returns the common unit of the combined summary.
+     *
+     * @return The unit or null if unknown
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Sets the common unit of the combined summary.
+     *
+     * @param unit The unit or null if unknown
+     */
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Returns the combined summary of all members.
+     *
+     * @return The combined summary
+     */
+    public ValueLogSummary getCombined() {
+        return combined;
+    }
+
+    /**
+     * Sets the combined summary of all members.
+     *
+     * @param combined The combined summary
+     */
+    public void setCombined(ValueLogSummary combined) {
+        this.combined = combined;
+    }
+}
@@ -0,0 +1,51 @@
+package org.citopt.connde.service.stats.model;
+
+/**
+ * Objects of this class represent single points of a (downsampled) value series, consisting out of a time
+ * and a value. They can be used as DTOs in order to retrieve chart data to the client.
+ */
+public class ValueLogPoint {
+    //Time in epoch milliseconds
+    private long time;
+
+    //Value at this time
+    private double value;
+
+    /**
+     * Creates a new point.
+     *
+     * @param time  The time in epoch milliseconds
+     * @param value The value at this time
+     */
+    public ValueLogPoint(long time, double value) {
+        this.time = time;
+        this.value = value;
+    }
+
+    /**
+     * Returns the time of the point in epoch milliseconds.
+     *
+     * @return The time
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the value of the point.
+     *
+     * @return The value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Sets the value of the point.
+     *
+     * @param value The value to set
+     */
+    public void setValue(double value) {
+        this.value = value;
+    }
+}
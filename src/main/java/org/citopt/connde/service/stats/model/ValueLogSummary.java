@@ -0,0 +1,275 @@
+package org.citopt.connde.service.stats.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Objects of this class are models that hold summary statistics (count, sum, minimum, maximum, average and variance)
+ * for the value logs of a certain component or a group of components. Summaries can be merged exactly, since
+ * the variance is kept in form of the sum of squared deviations from the mean, which can be combined pairwise.
+ * They can be used as DTOs in order to retrieve the statistics to the client.
+ */
+public class ValueLogSummary {
+    //Id and name of the summarized component (null for combined summaries)
+    private String componentId = null;
+    private String componentName = null;
+
+    //Summary statistics
+    private long numberLogs = 0;
+    private double sum = 0;
+    private double minimum = 0;
+    private double maximum = 0;
+    private double average = 0;
+
+    //Sum of squared deviations from the average
+    private double squaredDeviations = 0;
+
+    //Unit of the statistics (null if unknown)
+    private String unit = null;
+
+    //Whether the summary was left out of the combined summary of its group
+    private boolean excluded = false;
+
+    /**
+     * Creates a new and empty summary object.
+     */
+    public ValueLogSummary() {
+    }
+
+    /**
+     * Creates a new and empty summary object for a certain component.
+     *
+     * @param componentId   The id of the component
+     * @param componentName The name of the component
+     */
+    public ValueLogSummary(String componentId, String componentName) {
+        this.componentId = componentId;
+        this.componentName = componentName;
+    }
+
+    /**
+     * Merges the statistics of another summary into this summary. The result is identical to a summary
+     * that is computed over the values of both summaries at once.
+     *
+     * @param other The summary to merge
+     */
+    public void merge(ValueLogSummary other) {
+        //Sanity check
+        if (other == null) {
+            throw new IllegalArgumentException("Summary must not be null.");
+        }
+
+        //Nothing to merge for empty summaries
+        if (other.numberLogs == 0) {
+            return;
+        }
+
+        //Take over statistics if this summary is empty
+        if (this.numberLogs == 0) {
+            this.numberLogs = other.numberLogs;
+            this.sum = other.sum;
+            this.minimum = other.minimum;
+            this.maximum = other.maximum;
+            this.average = other.average;
+            this.squaredDeviations = other.squaredDeviations;
+            return;
+        }
+
+        //Combine averages and squared deviations pairwise
+        long totalLogs = this.numberLogs + other.numberLogs;
+        double delta = other.average - this.average;
+        this.squaredDeviations = this.squaredDeviations + other.squaredDeviations +
+                delta * delta * ((double) this.numberLogs * other.numberLogs / totalLogs);
+        this.average = this.average + delta * other.numberLogs / totalLogs;
+
+        //Combine the remaining statistics
+        this.numberLogs = totalLogs;
+        this.sum += other.sum;
+        this.minimum = Math.min(this.minimum, other.minimum);
+        this.maximum = Math.max(this.maximum, other.maximum);
+    }
+
+    /**
+     * Returns the id of the summarized component.
+     *
+     * @return The component id
+     */
+    public String getComponentId() {
+        return componentId;
+    }
+
+    /**
+     * Returns the name of the summarized component.
+     *
+     * @return The component name
+     */
+    public String getComponentName() {
+        return componentName;
+    }
+
+    /**
+     * Returns the unit in which the statistics of this summary are expressed.
+     *
+     * @return The unit or null if unknown
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Sets the unit in which the statistics of this summary are expressed.
+     *
+     * @param unit The unit or null if unknown
+     */
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Returns whether this summary was left out of the combined summary of its group, because its values
+     * cannot be converted to the common unit of the group.
+     *
+     * @return True, if the summary was left out; false otherwise
+     */
+    public boolean isExcluded() {
+        return excluded;
+    }
+
+    /**
+     * Sets whether this summary was left out of the combined summary of its group.
+     *
+     * @param excluded True, if the summary was left out; false otherwise
+     */
+    public void setExcluded(boolean excluded) {
+        this.excluded = excluded;
+    }
+
+    /**
+     * Returns the number of logs considered in this summary.
+     *
+     * @return The number of logs
+     */
+    public long getNumberLogs() {
+        return numberLogs;
+    }
+
+    /**
+     * Sets the number of logs considered in this summary.
+     *
+     * @param numberLogs The number of logs
+     */
+    public void setNumberLogs(long numberLogs) {
+        this.numberLogs = numberLogs;
+    }
+
+    /**
+     * Returns the sum of all values.
+     *
+     * @return The sum
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Sets the sum of all values.
+     *
+     * @param sum The sum
+     */
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    /**
+     * Returns the smallest value of all logs.
+     *
+     * @return The minimum
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Sets the smallest value of all logs.
+     *
+     * @param minimum The minimum
+     */
+    public void setMinimum(double minimum) {
+        this.minimum = minimum;
+    }
+
+    /**
+     * Returns the biggest value of all logs.
+     *
+     * @return The maximum
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Sets the biggest value of all logs.
+     *
+     * @param maximum The maximum
+     */
+    public void setMaximum(double maximum) {
+        this.maximum = maximum;
+    }
+
+    /**
+     * Returns the average value of all logs.
+     *
+     * @return The average
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Sets the average value of all logs.
+     *
+     * @param average The average
+     */
+    public void setAverage(double average) {
+        this.average = average;
+    }
+
+    /**
+     * Returns the sum of squared deviations of all values from the average.
+     *
+     * @return The sum of squared deviations
+     */
+    @JsonIgnore
+    public double getSquaredDeviations() {
+        return squaredDeviations;
+    }
+
+    /**
+     * Sets the sum of squared deviations of all values from the average.
+     *
+     * @param squaredDeviations The sum of squared deviations
+     */
+    public void setSquaredDeviations(double squaredDeviations) {
+        this.squaredDeviations = squaredDeviations;
+    }
+
+    /**
+     * Returns the sample variance of all values.
+     *
+     * @return The variance
+     */
+    public double getVariance() {
+        if (numberLogs < 2) {
+            return 0;
+        }
+        return squaredDeviations / (numberLogs - 1);
+    }
+
+    /**
+     * Returns the sample standard deviation of all values.
+     *
+     * @return The standard deviation
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
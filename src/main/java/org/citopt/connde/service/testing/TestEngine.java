@@ -14,6 +14,7 @@ import org.citopt.connde.domain.valueLog.ValueLog;
 import org.citopt.connde.repository.*;
 import org.citopt.connde.service.receiver.ValueLogReceiver;
 import org.citopt.connde.service.receiver.ValueLogReceiverObserver;
+import org.citopt.connde.service.rules.RuleExecutionStatsService;
 import org.citopt.connde.web.rest.RestDeploymentController;
 import org.citopt.connde.web.rest.RestRuleController;
 import org.citopt.connde.web.rest.response.ActionResponse;
@@ -34,6 +35,9 @@ import java.util.List;
 
 @Component
 public class TestEngine implements ValueLogReceiverObserver {
+    //Margin in seconds after the end of a test within which firings of the test are expected to be journaled
+    private static final long FIRING_MARGIN = 60;
+
     @Autowired
     private TestDetailsRepository testDetailsRepository;
 
@@ -58,6 +62,9 @@ public class TestEngine implements ValueLogReceiverObserver {
     @Autowired
     private RuleRepository ruleRepository;
 
+    @Autowired
+    private RuleExecutionStatsService statsService;
+
     @Autowired
     private RestRuleController restRuleController;
 
@@ -316,7 +323,9 @@ public class TestEngine implements ValueLogReceiverObserver {
         for (int i = 0; i < ruleNames.size(); i++) {
             List<Double> values = new ArrayList<>();
             String rulename = ruleNames.get(i);
-            List<Testing> test = testRepo.findAllByTriggerId(triggerID.get(i));
+            //Firings are journaled shortly after the triggering values, thus allow a margin after the end time
+            List<Testing> test = testRepo.findAllByTriggerIdAndTimeBetween(triggerID.get(i),
+                    new Date(startTime * 1000L), new Date((endTime + FIRING_MARGIN) * 1000L));
             for (Testing testing : test) {
                 if (testing.getRule().contains(rulename)) {
                     LinkedHashMap<String, Double> timeTiggerValue = (LinkedHashMap<String, Double>) testing.getOutput().getOutputMap().get("event_0");
@@ -358,7 +367,7 @@ public class TestEngine implements ValueLogReceiverObserver {
                     for (Rule nextRule : ruleRepository.findAll()) {
                         if (nextRule.getTrigger().getId().equals(trigger.getId())) {
                             if (!rulesbefore.contains(nextRule)) {
-                                rulesbefore.add(nextRule);
+                                rulesbefore.add(statsService.merge(nextRule));
                             }
                         }
                     }
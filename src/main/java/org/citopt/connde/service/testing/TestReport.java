@@ -8,6 +8,7 @@ import org.citopt.connde.domain.testing.TestDetails;
 import org.citopt.connde.repository.RuleRepository;
 import org.citopt.connde.repository.TestDetailsRepository;
 import org.citopt.connde.service.receiver.ValueLogReceiver;
+import org.citopt.connde.service.rules.RuleExecutionStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import com.itextpdf.text.pdf.PdfPCell;
@@ -36,6 +37,9 @@ public class TestReport {
     @Autowired
     RuleRepository ruleRepository;
 
+    @Autowired
+    RuleExecutionStatsService statsService;
+
     // Date formatter
     final String datePattern = "dd-MM-yyyy HH:mm:ss";
     final SimpleDateFormat simpleDateFormat = new SimpleDateFormat(datePattern);
@@ -348,7 +352,7 @@ public class TestReport {
         ruleInfos.addCell(c2);
 
         for (Rule rule : rulesBefore) {
-            Rule ruleAfter = ruleRepository.findByName(rule.getName());
+            Rule ruleAfter = statsService.merge(ruleRepository.findByName(rule.getName()));
             c0 = new PdfPCell(new Phrase(rule.getName()));
             c0.setHorizontalAlignment(Element.ALIGN_CENTER);
             c0.setColspan(4);
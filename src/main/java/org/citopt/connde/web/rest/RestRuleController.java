@@ -4,8 +4,15 @@ import org.citopt.connde.RestConfiguration;
 import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.domain.rules.RuleAction;
 import org.citopt.connde.domain.rules.RuleActionType;
+import org.citopt.connde.domain.rules.RuleTrigger;
 import org.citopt.connde.repository.RuleActionRepository;
 import org.citopt.connde.repository.RuleRepository;
+import org.citopt.connde.repository.RuleTriggerRepository;
+import org.citopt.connde.service.cep.engine.core.queries.CEPCallbackStats;
+import org.citopt.connde.service.cep.trigger.CEPBacktestResult;
+import org.citopt.connde.service.cep.trigger.CEPBacktestService;
+import org.citopt.connde.service.cep.trigger.CEPTriggerMetrics;
+import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.service.rules.RuleEngine;
 import org.citopt.connde.service.rules.RuleExecutor;
 import org.citopt.connde.web.rest.response.ActionResponse;
@@ -14,6 +21,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * REST Controller that exposes methods for the purpose of managing rules.
  */
@@ -27,12 +37,21 @@ public class RestRuleController {
     @Autowired
     private RuleRepository ruleRepository;
 
+    @Autowired
+    private RuleTriggerRepository ruleTriggerRepository;
+
     @Autowired
     private RuleEngine ruleEngine;
 
     @Autowired
     private RuleExecutor ruleExecutor;
 
+    @Autowired
+    private CEPTriggerService triggerService;
+
+    @Autowired
+    private CEPBacktestService backtestService;
+
     @GetMapping(value = "/rule-actions/types")
     public ResponseEntity<RuleActionType[]> getRuleActionTypes() {
         //Get all available action types
@@ -113,4 +132,60 @@ public class RestRuleController {
         //Return result
         return new ResponseEntity<>(new ActionResponse(result), HttpStatus.OK);
     }
+
+    @GetMapping(value = "/rule-triggers/callbacks/stats")
+    public ResponseEntity<CEPCallbackStats> getTriggerCallbackStats() {
+        //Get statistics about the execution of trigger callbacks
+        CEPCallbackStats stats = triggerService.getCallbackStats();
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/rule-triggers/metrics")
+    public ResponseEntity<List<CEPTriggerMetrics>> getAllTriggerMetrics() {
+        //Get cost metrics of all registered triggers
+        List<CEPTriggerMetrics> metrics = triggerService.getAllTriggerMetrics();
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/rule-triggers/{id}/metrics")
+    public ResponseEntity<CEPTriggerMetrics> getTriggerMetrics(@PathVariable(value = "id") String triggerId) {
+        //Get rule trigger from repository
+        RuleTrigger ruleTrigger = ruleTriggerRepository.findOne(triggerId);
+
+        //Check if rule trigger was found
+        if (ruleTrigger == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Get cost metrics of the trigger
+        CEPTriggerMetrics metrics = triggerService.getTriggerMetrics(ruleTrigger);
+
+        //Check if trigger is registered at the engine
+        if (metrics == null) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(metrics, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/rule-triggers/{id}/backtest")
+    public ResponseEntity<CEPBacktestResult> backtestTrigger(@PathVariable(value = "id") String triggerId,
+                                                             @RequestParam(value = "from") long from,
+                                                             @RequestParam(value = "to") long to) {
+        //Get rule trigger from repository
+        RuleTrigger ruleTrigger = ruleTriggerRepository.findOne(triggerId);
+
+        //Check if rule trigger was found
+        if (ruleTrigger == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Backtest the trigger against the stored value logs of the given time range (epoch seconds)
+        try {
+            CEPBacktestResult result = backtestService.backtest(ruleTrigger, Instant.ofEpochSecond(from),
+                    Instant.ofEpochSecond(to));
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
 }
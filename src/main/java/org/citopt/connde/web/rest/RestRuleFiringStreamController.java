@@ -0,0 +1,60 @@
+package org.citopt.connde.web.rest;
+
+import io.swagger.annotations.*;
+import org.citopt.connde.RestConfiguration;
+import org.citopt.connde.repository.RuleRepository;
+import org.citopt.connde.repository.RuleTriggerRepository;
+import org.citopt.connde.service.rules.RuleFiringStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST Controller for streaming the firings of rule triggers and the resulting outputs of the CEP engine
+ * to clients via Server-Sent Events, so that clients do not need to poll the recorded firings.
+ */
+@RestController
+@RequestMapping(RestConfiguration.BASE_PATH)
+@Api(tags = {"Rule firing stream"}, description = "Live streaming of the firings of rule triggers")
+public class RestRuleFiringStreamController {
+    @Autowired
+    private RuleRepository ruleRepository;
+
+    @Autowired
+    private RuleTriggerRepository ruleTriggerRepository;
+
+    @Autowired
+    private RuleFiringStreamService firingStreamService;
+
+    /**
+     * Opens a stream of the firings of a certain trigger, of a certain rule or of all triggers.
+     *
+     * @param triggerId The id of the trigger whose firings are supposed to be streamed (optional)
+     * @param ruleId    The id of the rule whose executions are supposed to be streamed (optional)
+     * @return The emitter of the stream
+     */
+    @GetMapping(value = "/rule-firings/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation(value = "Streams the firings of rule triggers as Server-Sent Events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 404, message = "Trigger or rule not found"), @ApiResponse(code = 503, message = "Maximum number of streams reached")})
+    public ResponseEntity<SseEmitter> streamFirings(@RequestParam(value = "trigger", required = false) @ApiParam(value = "ID of the trigger whose firings are streamed", example = "5c97dc2583aeb6078c5ab672") String triggerId,
+                                                    @RequestParam(value = "rule", required = false) @ApiParam(value = "ID of the rule whose executions are streamed", example = "5c97dc2583aeb6078c5ab672") String ruleId) {
+        //Check if trigger and rule exist
+        if (((triggerId != null) && (!ruleTriggerRepository.exists(triggerId))) ||
+                ((ruleId != null) && (!ruleRepository.exists(ruleId)))) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Open stream
+        try {
+            return new ResponseEntity<>(firingStreamService.subscribe(triggerId, ruleId), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
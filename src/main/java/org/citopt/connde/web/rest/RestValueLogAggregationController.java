@@ -0,0 +1,201 @@
+package org.citopt.connde.web.rest;
+
+import io.swagger.annotations.*;
+import org.citopt.connde.RestConfiguration;
+import org.citopt.connde.domain.component.Actuator;
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.component.Sensor;
+import org.citopt.connde.domain.monitoring.MonitoringComponent;
+import org.citopt.connde.domain.valueLog.ValueLogAggregate;
+import org.citopt.connde.repository.ActuatorRepository;
+import org.citopt.connde.repository.SensorRepository;
+import org.citopt.connde.service.UserEntityService;
+import org.citopt.connde.service.stats.ValueLogAggregationService;
+import org.citopt.connde.web.rest.helper.MonitoringHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * REST Controller for requests related to time-bucketed aggregates of the value logs of components.
+ */
+@RestController
+@RequestMapping(RestConfiguration.BASE_PATH)
+@Api(tags = {"Value logs aggregation"}, description = "Retrieval of time-bucketed aggregates of recorded value logs")
+public class RestValueLogAggregationController {
+    //Default parameters for aggregation requests
+    private static final String DEFAULT_BUCKET = "1h";
+    private static final String DEFAULT_FILL = "none";
+
+    @Autowired
+    private ActuatorRepository actuatorRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ValueLogAggregationService valueLogAggregationService;
+
+    @Autowired
+    private UserEntityService userEntityService;
+
+    @Autowired
+    private MonitoringHelper monitoringHelper;
+
+    /**
+     * Responds with time-bucketed aggregates of the value logs of a certain actuator.
+     *
+     * @param actuatorId The id of the actuator whose value logs are supposed to be aggregated
+     * @param from       The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to         The end of the time range in epoch seconds (optional, default: now)
+     * @param bucket     The duration of the time buckets
+     * @param fill       The fill policy for empty buckets
+     * @param unit       A string specifying the desired unit of the values
+     * @return The list of aggregates
+     */
+    @GetMapping("/actuators/{id}/aggregates")
+    @ApiOperation(value = "Retrieves time-bucketed aggregates of recorded actuator value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this actuator"), @ApiResponse(code = 404, message = "Actuator not found or not authorized to access the actuator")})
+    public ResponseEntity<List<ValueLogAggregate>> getActuatorAggregates(@PathVariable(value = "id") @ApiParam(value = "ID of the actuator to retrieve aggregates for", example = "5c97dc2583aeb6078c5ab672", required = true) String actuatorId,
+                                                                         @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                         @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                         @RequestParam(value = "bucket", defaultValue = DEFAULT_BUCKET) @ApiParam(value = "Duration of the time buckets", example = "1h") String bucket,
+                                                                         @RequestParam(value = "fill", defaultValue = DEFAULT_FILL) @ApiParam(value = "Fill policy for empty buckets (none, null, previous, linear or a number)", example = "none") String fill,
+                                                                         @RequestParam(value = "unit", required = false) String unit) {
+        //Get actuator
+        Actuator actuator = (Actuator) userEntityService.getUserEntityFromRepository(actuatorRepository, actuatorId);
+
+        //Validity check
+        if (actuator == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(actuator, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve aggregates
+        return aggregateValueLogs(actuator, from, to, bucket, fill, unit);
+    }
+
+    /**
+     * Responds with time-bucketed aggregates of the value logs of a certain sensor.
+     *
+     * @param sensorId The id of the sensor whose value logs are supposed to be aggregated
+     * @param from     The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to       The end of the time range in epoch seconds (optional, default: now)
+     * @param bucket   The duration of the time buckets
+     * @param fill     The fill policy for empty buckets
+     * @param unit     A string specifying the desired unit of the values
+     * @return The list of aggregates
+     */
+    @GetMapping("/sensors/{id}/aggregates")
+    @ApiOperation(value = "Retrieves time-bucketed aggregates of recorded sensor value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this sensor"), @ApiResponse(code = 404, message = "Sensor not found or not authorized to access the sensor")})
+    public ResponseEntity<List<ValueLogAggregate>> getSensorAggregates(@PathVariable(value = "id") @ApiParam(value = "ID of the sensor to retrieve aggregates for", example = "5c97dc2583aeb6078c5ab672", required = true) String sensorId,
+                                                                       @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                       @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                       @RequestParam(value = "bucket", defaultValue = DEFAULT_BUCKET) @ApiParam(value = "Duration of the time buckets", example = "1h") String bucket,
+                                                                       @RequestParam(value = "fill", defaultValue = DEFAULT_FILL) @ApiParam(value = "Fill policy for empty buckets (none, null, previous, linear or a number)", example = "none") String fill,
+                                                                       @RequestParam(value = "unit", required = false) String unit) {
+        //Get sensor object
+        Sensor sensor = (Sensor) userEntityService.getUserEntityFromRepository(sensorRepository, sensorId);
+
+        //Validity check
+        if (sensor == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(sensor, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve aggregates
+        return aggregateValueLogs(sensor, from, to, bucket, fill, unit);
+    }
+
+    /**
+     * Responds with time-bucketed aggregates of the value logs of a certain monitoring component.
+     *
+     * @param deviceId            The id of the device for which the aggregates are supposed to be retrieved
+     * @param monitoringAdapterId The id of the monitoring adapter for which the aggregates are supposed to be retrieved
+     * @param from                The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to                  The end of the time range in epoch seconds (optional, default: now)
+     * @param bucket              The duration of the time buckets
+     * @param fill                The fill policy for empty buckets
+     * @param unit                A string specifying the desired unit of the values
+     * @return The list of aggregates
+     */
+    @GetMapping("/monitoring/{deviceId}/aggregates")
+    @ApiOperation(value = "Retrieves time-bucketed aggregates of recorded monitoring value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this monitoring"), @ApiResponse(code = 404, message = "Device or monitoring adapter not found or not authorized to access them")})
+    public ResponseEntity<List<ValueLogAggregate>> getMonitoringAggregates(@PathVariable(value = "deviceId") @ApiParam(value = "ID of the device to retrieve aggregates for", example = "5c97dc2583aeb6078c5ab672", required = true) String deviceId,
+                                                                           @RequestParam("adapter") @ApiParam(value = "ID of the monitoring adapter to retrieve aggregates for", example = "5c97dc2583aeb6078c5ab672", required = true) String monitoringAdapterId,
+                                                                           @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                           @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                           @RequestParam(value = "bucket", defaultValue = DEFAULT_BUCKET) @ApiParam(value = "Duration of the time buckets", example = "1h") String bucket,
+                                                                           @RequestParam(value = "fill", defaultValue = DEFAULT_FILL) @ApiParam(value = "Fill policy for empty buckets (none, null, previous, linear or a number)", example = "none") String fill,
+                                                                           @RequestParam(value = "unit", required = false) @ApiParam(value = "The desired unit of the monitoring values", example = "°C", required = false) String unit) {
+        //Create new monitoring component from parameters
+        MonitoringComponent monitoringComponent = monitoringHelper.createMonitoringComponent(deviceId, monitoringAdapterId);
+
+        //Validity check
+        if (monitoringComponent == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(monitoringComponent.getDevice(), "monitor")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve aggregates
+        return aggregateValueLogs(monitoringComponent, from, to, bucket, fill, unit);
+    }
+
+    /**
+     * Aggregates the value logs of a certain component in order to satisfy a server request.
+     *
+     * @param component The component whose value logs are supposed to be aggregated
+     * @param from      The start of the time range in epoch seconds (null for default)
+     * @param to        The end of the time range in epoch seconds (null for default)
+     * @param bucket    The duration of the time buckets
+     * @param fill      The fill policy for empty buckets
+     * @param unit      A string specifying the unit to which the values are supposed to be converted
+     * @return The server response containing the list of aggregates
+     */
+    private ResponseEntity<List<ValueLogAggregate>> aggregateValueLogs(Component component, Long from, Long to,
+                                                                       String bucket, String fill, String unit) {
+        //Convert given unit to object (if possible)
+        Unit convertUnit = null;
+        if ((unit != null) && (!unit.isEmpty())) {
+            //Try to parse unit
+            try {
+                convertUnit = Unit.valueOf(unit);
+            } catch (Exception e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        //Resolve time range
+        Instant toInstant = (to == null) ? Instant.now() : Instant.ofEpochSecond(to);
+        Instant fromInstant = (from == null) ? toInstant.minus(1, ChronoUnit.DAYS) : Instant.ofEpochSecond(from);
+
+        //Aggregate value logs by using the corresponding service
+        try {
+            List<ValueLogAggregate> aggregates = valueLogAggregationService.aggregate(component, fromInstant,
+                    toInstant, bucket, fill, convertUnit);
+            return new ResponseEntity<>(aggregates, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.citopt.connde.web.rest;
+
+import io.swagger.annotations.*;
+import org.citopt.connde.RestConfiguration;
+import org.citopt.connde.service.compression.ValueLogCompressionService;
+import org.citopt.connde.service.compression.model.ValueLogCompressionStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST Controller for requests related to the compression of incoming value logs.
+ */
+@RestController
+@RequestMapping(RestConfiguration.BASE_PATH)
+@Api(tags = {"Value log compression"}, description = "Retrieval of counters for the compression of received value logs")
+public class RestValueLogCompressionController {
+
+    @Autowired
+    private ValueLogCompressionService compressionService;
+
+    /**
+     * Responds with the compression counters of all components for which value logs were received.
+     *
+     * @return The list of compression stats
+     */
+    @GetMapping("/compression/stats")
+    @ApiOperation(value = "Retrieves the value log compression counters of all components", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success")})
+    public ResponseEntity<List<ValueLogCompressionStats>> getCompressionStats() {
+        return new ResponseEntity<>(compressionService.getCompressionStats(), HttpStatus.OK);
+    }
+
+    /**
+     * Responds with the compression counters of a certain component.
+     *
+     * @param componentId The id of the component
+     * @return The compression stats of the component
+     */
+    @GetMapping("/compression/stats/{id}")
+    @ApiOperation(value = "Retrieves the value log compression counters of a certain component", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success")})
+    public ResponseEntity<ValueLogCompressionStats> getComponentCompressionStats(@PathVariable(value = "id") @ApiParam(value = "ID of the component to retrieve the compression counters for", example = "5c97dc2583aeb6078c5ab672", required = true) String componentId) {
+        return new ResponseEntity<>(compressionService.getCompressionStats(componentId), HttpStatus.OK);
+    }
+}
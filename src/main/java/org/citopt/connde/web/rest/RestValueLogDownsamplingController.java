@@ -0,0 +1,210 @@
+package org.citopt.connde.web.rest;
+
+import io.swagger.annotations.*;
+import org.citopt.connde.RestConfiguration;
+import org.citopt.connde.domain.component.Actuator;
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.component.Sensor;
+import org.citopt.connde.domain.monitoring.MonitoringComponent;
+import org.citopt.connde.repository.ActuatorRepository;
+import org.citopt.connde.repository.SensorRepository;
+import org.citopt.connde.service.UserEntityService;
+import org.citopt.connde.service.stats.ValueLogDownsamplingService;
+import org.citopt.connde.service.stats.model.ValueLogDownsamplingMode;
+import org.citopt.connde.service.stats.model.ValueLogPoint;
+import org.citopt.connde.web.rest.helper.MonitoringHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * REST Controller for requests related to downsampled value log series of components, as used for charts.
+ */
+@RestController
+@RequestMapping(RestConfiguration.BASE_PATH)
+@Api(tags = {"Value logs downsampling"}, description = "Retrieval of downsampled series of recorded value logs for charts")
+public class RestValueLogDownsamplingController {
+    //Default parameters for downsampling requests
+    private static final String DEFAULT_WIDTH = "1000";
+    private static final String DEFAULT_MODE = "lttb";
+
+    @Autowired
+    private ActuatorRepository actuatorRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ValueLogDownsamplingService valueLogDownsamplingService;
+
+    @Autowired
+    private UserEntityService userEntityService;
+
+    @Autowired
+    private MonitoringHelper monitoringHelper;
+
+    /**
+     * Responds with a downsampled series of the value logs of a certain actuator.
+     *
+     * @param actuatorId The id of the actuator whose value logs are supposed to be downsampled
+     * @param from       The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to         The end of the time range in epoch seconds (optional, default: now)
+     * @param width      The maximum number of points of the series (e.g. the chart width in pixels)
+     * @param mode       The downsampling mode (lttb or min_max)
+     * @param unit       A string specifying the desired unit of the values
+     * @return The downsampled series
+     */
+    @GetMapping("/actuators/{id}/valueLogs/downsampled")
+    @ApiOperation(value = "Retrieves a downsampled series of recorded actuator value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this actuator"), @ApiResponse(code = 404, message = "Actuator not found or not authorized to access the actuator")})
+    public ResponseEntity<List<ValueLogPoint>> getActuatorDownsampledValueLogs(@PathVariable(value = "id") @ApiParam(value = "ID of the actuator to retrieve the series for", example = "5c97dc2583aeb6078c5ab672", required = true) String actuatorId,
+                                                                               @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                               @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                               @RequestParam(value = "width", defaultValue = DEFAULT_WIDTH) @ApiParam(value = "Maximum number of points, e.g. the chart width in pixels", example = "1000") int width,
+                                                                               @RequestParam(value = "mode", defaultValue = DEFAULT_MODE) @ApiParam(value = "Downsampling mode (lttb or min_max)", example = "lttb") String mode,
+                                                                               @RequestParam(value = "unit", required = false) String unit) {
+        //Get actuator
+        Actuator actuator = (Actuator) userEntityService.getUserEntityFromRepository(actuatorRepository, actuatorId);
+
+        //Validity check
+        if (actuator == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(actuator, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve downsampled series
+        return downsampleValueLogs(actuator, from, to, width, mode, unit);
+    }
+
+    /**
+     * Responds with a downsampled series of the value logs of a certain sensor.
+     *
+     * @param sensorId The id of the sensor whose value logs are supposed to be downsampled
+     * @param from     The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to       The end of the time range in epoch seconds (optional, default: now)
+     * @param width    The maximum number of points of the series (e.g. the chart width in pixels)
+     * @param mode     The downsampling mode (lttb or min_max)
+     * @param unit     A string specifying the desired unit of the values
+     * @return The downsampled series
+     */
+    @GetMapping("/sensors/{id}/valueLogs/downsampled")
+    @ApiOperation(value = "Retrieves a downsampled series of recorded sensor value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this sensor"), @ApiResponse(code = 404, message = "Sensor not found or not authorized to access the sensor")})
+    public ResponseEntity<List<ValueLogPoint>> getSensorDownsampledValueLogs(@PathVariable(value = "id") @ApiParam(value = "ID of the sensor to retrieve the series for", example = "5c97dc2583aeb6078c5ab672", required = true) String sensorId,
+                                                                             @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                             @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                             @RequestParam(value = "width", defaultValue = DEFAULT_WIDTH) @ApiParam(value = "Maximum number of points, e.g. the chart width in pixels", example = "1000") int width,
+                                                                             @RequestParam(value = "mode", defaultValue = DEFAULT_MODE) @ApiParam(value = "Downsampling mode (lttb or min_max)", example = "lttb") String mode,
+                                                                             @RequestParam(value = "unit", required = false) String unit) {
+        //Get sensor object
+        Sensor sensor = (Sensor) userEntityService.getUserEntityFromRepository(sensorRepository, sensorId);
+
+        //Validity check
+        if (sensor == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(sensor, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve downsampled series
+        return downsampleValueLogs(sensor, from, to, width, mode, unit);
+    }
+
+    /**
+     * Responds with a downsampled series of the value logs of a certain monitoring component.
+     *
+     * @param deviceId            The id of the device for which the series is supposed to be retrieved
+     * @param monitoringAdapterId The id of the monitoring adapter for which the series is supposed to be retrieved
+     * @param from                The start of the time range in epoch seconds (optional, default: one day before the end)
+     * @param to                  The end of the time range in epoch seconds (optional, default: now)
+     * @param width               The maximum number of points of the series (e.g. the chart width in pixels)
+     * @param mode                The downsampling mode (lttb or min_max)
+     * @param unit                A string specifying the desired unit of the values
+     * @return The downsampled series
+     */
+    @GetMapping("/monitoring/{deviceId}/valueLogs/downsampled")
+    @ApiOperation(value = "Retrieves a downsampled series of recorded monitoring value logs in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access value logs of this monitoring"), @ApiResponse(code = 404, message = "Device or monitoring adapter not found or not authorized to access them")})
+    public ResponseEntity<List<ValueLogPoint>> getMonitoringDownsampledValueLogs(@PathVariable(value = "deviceId") @ApiParam(value = "ID of the device to retrieve the series for", example = "5c97dc2583aeb6078c5ab672", required = true) String deviceId,
+                                                                                 @RequestParam("adapter") @ApiParam(value = "ID of the monitoring adapter to retrieve the series for", example = "5c97dc2583aeb6078c5ab672", required = true) String monitoringAdapterId,
+                                                                                 @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                                 @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                                 @RequestParam(value = "width", defaultValue = DEFAULT_WIDTH) @ApiParam(value = "Maximum number of points, e.g. the chart width in pixels", example = "1000") int width,
+                                                                                 @RequestParam(value = "mode", defaultValue = DEFAULT_MODE) @ApiParam(value = "Downsampling mode (lttb or min_max)", example = "lttb") String mode,
+                                                                                 @RequestParam(value = "unit", required = false) @ApiParam(value = "The desired unit of the monitoring values", example = "°C", required = false) String unit) {
+        //Create new monitoring component from parameters
+        MonitoringComponent monitoringComponent = monitoringHelper.createMonitoringComponent(deviceId, monitoringAdapterId);
+
+        //Validity check
+        if (monitoringComponent == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(monitoringComponent.getDevice(), "monitor")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve downsampled series
+        return downsampleValueLogs(monitoringComponent, from, to, width, mode, unit);
+    }
+
+    /**
+     * Downsamples the value logs of a certain component in order to satisfy a server request.
+     *
+     * @param component The component whose value logs are supposed to be downsampled
+     * @param from      The start of the time range in epoch seconds (null for default)
+     * @param to        The end of the time range in epoch seconds (null for default)
+     * @param width     The maximum number of points of the series
+     * @param mode      A string specifying the downsampling mode
+     * @param unit      A string specifying the unit to which the values are supposed to be converted
+     * @return The server response containing the downsampled series
+     */
+    private ResponseEntity<List<ValueLogPoint>> downsampleValueLogs(Component component, Long from, Long to,
+                                                                    int width, String mode, String unit) {
+        //Convert given unit to object (if possible)
+        Unit convertUnit = null;
+        if ((unit != null) && (!unit.isEmpty())) {
+            //Try to parse unit
+            try {
+                convertUnit = Unit.valueOf(unit);
+            } catch (Exception e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        //Parse downsampling mode
+        ValueLogDownsamplingMode downsamplingMode;
+        try {
+            downsamplingMode = ValueLogDownsamplingMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        //Resolve time range
+        Instant toInstant = (to == null) ? Instant.now() : Instant.ofEpochSecond(to);
+        Instant fromInstant = (from == null) ? toInstant.minus(1, ChronoUnit.DAYS) : Instant.ofEpochSecond(from);
+
+        //Downsample value logs by using the corresponding service
+        try {
+            List<ValueLogPoint> points = valueLogDownsamplingService.downsample(component, fromInstant, toInstant,
+                    width, downsamplingMode, convertUnit);
+            return new ResponseEntity<>(points, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.citopt.connde.web.rest;
+
+import io.swagger.annotations.*;
+import org.citopt.connde.RestConfiguration;
+import org.citopt.connde.domain.component.Component;
+import org.citopt.connde.domain.device.Device;
+import org.citopt.connde.domain.monitoring.MonitoringAdapter;
+import org.citopt.connde.domain.monitoring.MonitoringComponent;
+import org.citopt.connde.domain.user_entity.UserEntity;
+import org.citopt.connde.repository.ActuatorRepository;
+import org.citopt.connde.repository.DeviceRepository;
+import org.citopt.connde.repository.SensorRepository;
+import org.citopt.connde.service.UserEntityService;
+import org.citopt.connde.service.stats.ValueLogGroupStatsService;
+import org.citopt.connde.service.stats.model.ValueLogGroupStats;
+import org.citopt.connde.web.rest.helper.MonitoringHelper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.measure.unit.Unit;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * REST Controller for requests related to summary statistics of groups of components. Groups are described
+ * by a selector consisting of a device, an adapter, a component type, a device type or an explicit list of
+ * component ids. All given selector criteria must be fulfilled by the member components of a group.
+ */
+@RestController
+@RequestMapping(RestConfiguration.BASE_PATH)
+@Api(tags = {"Value logs group statistics"}, description = "Retrieval of statistics for groups of components")
+public class RestValueLogGroupStatsController {
+    @Autowired
+    private ActuatorRepository actuatorRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private ValueLogGroupStatsService valueLogGroupStatsService;
+
+    @Autowired
+    private UserEntityService userEntityService;
+
+    @Autowired
+    private MonitoringHelper monitoringHelper;
+
+    /**
+     * Responds with the summary statistics of the sensors and actuators that match a given selector.
+     *
+     * @param deviceId      The id of the device the components need to belong to (optional)
+     * @param adapterId     The id of the adapter the components need to use (optional)
+     * @param componentType The type the components need to be of (optional)
+     * @param ids           An explicit list of component ids (optional)
+     * @param from          The start of the time range in epoch seconds (optional)
+     * @param to            The end of the time range in epoch seconds (optional)
+     * @param unit          A string specifying the desired unit of the values
+     * @return The statistics of the group
+     */
+    @GetMapping("/components/stats")
+    @ApiOperation(value = "Retrieves the statistics of a group of sensors and actuators in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters or too many components selected"), @ApiResponse(code = 404, message = "One of the explicitly selected components not found or not authorized to access it")})
+    public ResponseEntity<ValueLogGroupStats> getComponentGroupStats(@RequestParam(value = "device", required = false) @ApiParam(value = "ID of the device the components belong to", example = "5c97dc2583aeb6078c5ab672") String deviceId,
+                                                                     @RequestParam(value = "adapter", required = false) @ApiParam(value = "ID of the adapter the components use", example = "5c97dc2583aeb6078c5ab672") String adapterId,
+                                                                     @RequestParam(value = "type", required = false) @ApiParam(value = "Type of the components", example = "Temperature") String componentType,
+                                                                     @RequestParam(value = "ids", required = false) @ApiParam(value = "Explicit list of component IDs", example = "5c97dc2583aeb6078c5ab672,5c97dc2583aeb6078c5ab673") List<String> ids,
+                                                                     @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                     @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                     @RequestParam(value = "unit", required = false) @ApiParam(value = "The desired unit of the values", example = "°C") String unit) {
+        //Collect all candidate components
+        List<Component> candidates = new ArrayList<>();
+        if ((ids != null) && (!ids.isEmpty())) {
+            //Resolve explicitly selected components
+            for (String id : new LinkedHashSet<>(ids)) {
+                Component component = (Component) userEntityService.getUserEntityFromRepository(sensorRepository, id);
+                if (component == null) {
+                    component = (Component) userEntityService.getUserEntityFromRepository(actuatorRepository, id);
+                }
+                if (component == null) {
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                }
+                candidates.add(component);
+            }
+        } else {
+            //Use all sensors and actuators of the user
+            for (UserEntity entity : userEntityService.getUserEntitiesFromRepository(sensorRepository)) {
+                candidates.add((Component) entity);
+            }
+            for (UserEntity entity : userEntityService.getUserEntitiesFromRepository(actuatorRepository)) {
+                candidates.add((Component) entity);
+            }
+        }
+
+        //Filter candidates by the selector and the permissions of the user
+        List<Component> members = new ArrayList<>();
+        for (Component component : candidates) {
+            if (((deviceId == null) || ((component.getDevice() != null) && deviceId.equals(component.getDevice().getId()))) &&
+                    ((adapterId == null) || ((component.getAdapter() != null) && adapterId.equals(component.getAdapter().getId()))) &&
+                    ((componentType == null) || componentType.equalsIgnoreCase(component.getComponentType())) &&
+                    userEntityService.isUserPermitted(component, "deploy")) {
+                members.add(component);
+            }
+        }
+
+        //Calculate statistics
+        return calculateGroupStats(members, from, to, unit);
+    }
+
+    /**
+     * Responds with the summary statistics of the monitoring components that match a given selector.
+     *
+     * @param deviceId   The id of the device to monitor (optional)
+     * @param deviceType The type of the devices to monitor (optional)
+     * @param adapterId  The id of the monitoring adapter to use (optional)
+     * @param from       The start of the time range in epoch seconds (optional)
+     * @param to         The end of the time range in epoch seconds (optional)
+     * @param unit       A string specifying the desired unit of the values
+     * @return The statistics of the group
+     */
+    @GetMapping("/monitoring/stats")
+    @ApiOperation(value = "Retrieves the statistics of a group of monitoring components in a certain unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters or too many components selected")})
+    public ResponseEntity<ValueLogGroupStats> getMonitoringGroupStats(@RequestParam(value = "device", required = false) @ApiParam(value = "ID of the device to monitor", example = "5c97dc2583aeb6078c5ab672") String deviceId,
+                                                                      @RequestParam(value = "deviceType", required = false) @ApiParam(value = "Type of the devices to monitor", example = "Raspberry Pi") String deviceType,
+                                                                      @RequestParam(value = "adapter", required = false) @ApiParam(value = "ID of the monitoring adapter", example = "5c97dc2583aeb6078c5ab672") String adapterId,
+                                                                      @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                      @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                      @RequestParam(value = "unit", required = false) @ApiParam(value = "The desired unit of the monitoring values", example = "°C") String unit) {
+        List<Component> members = new ArrayList<>();
+
+        //Iterate over all devices of the user that match the selector
+        for (UserEntity entity : userEntityService.getUserEntitiesFromRepository(deviceRepository)) {
+            Device device = (Device) entity;
+            if (((deviceId != null) && (!deviceId.equals(device.getId()))) ||
+                    ((deviceType != null) && (!deviceType.equalsIgnoreCase(device.getComponentType()))) ||
+                    (!userEntityService.isUserPermitted(device, "monitor"))) {
+                continue;
+            }
+
+            //Add one monitoring component per compatible monitoring adapter
+            for (MonitoringAdapter adapter : monitoringHelper.getCompatibleAdapters(device)) {
+                if ((adapterId != null) && (!adapterId.equals(adapter.getId()))) {
+                    continue;
+                }
+                members.add(new MonitoringComponent(adapter, device));
+            }
+        }
+
+        //Calculate statistics
+        return calculateGroupStats(members, from, to, unit);
+    }
+
+    /**
+     * Calculates the summary statistics of a group of components in order to satisfy a server request.
+     *
+     * @param members The member components of the group
+     * @param from    The start of the time range in epoch seconds (null for unbounded)
+     * @param to      The end of the time range in epoch seconds (null for unbounded)
+     * @param unit    A string specifying the unit to which the values are supposed to be converted
+     * @return The server response containing the group statistics
+     */
+    private ResponseEntity<ValueLogGroupStats> calculateGroupStats(List<Component> members, Long from, Long to,
+                                                                   String unit) {
+        //Convert given unit to object (if possible)
+        Unit convertUnit = null;
+        if ((unit != null) && (!unit.isEmpty())) {
+            //Try to parse unit
+            try {
+                convertUnit = Unit.valueOf(unit);
+            } catch (Exception e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        //Resolve time range
+        Instant fromInstant = (from == null) ? null : Instant.ofEpochSecond(from);
+        Instant toInstant = (to == null) ? null : Instant.ofEpochSecond(to);
+
+        //Calculate statistics by using the corresponding service
+        try {
+            ValueLogGroupStats groupStats = valueLogGroupStatsService.calculateGroupStats(members, fromInstant,
+                    toInstant, convertUnit);
+            return new ResponseEntity<>(groupStats, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
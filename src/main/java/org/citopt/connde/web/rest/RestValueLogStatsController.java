@@ -9,7 +9,9 @@ import org.citopt.connde.domain.monitoring.MonitoringComponent;
 import org.citopt.connde.repository.ActuatorRepository;
 import org.citopt.connde.repository.SensorRepository;
 import org.citopt.connde.service.UserEntityService;
+import org.citopt.connde.service.stats.ValueLogSketchService;
 import org.citopt.connde.service.stats.ValueLogStatsService;
+import org.citopt.connde.service.stats.model.ValueLogDistribution;
 import org.citopt.connde.service.stats.model.ValueLogStats;
 import org.citopt.connde.web.rest.helper.MonitoringHelper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.measure.unit.Unit;
+import java.time.Instant;
 
 /**
  * REST Controller for requests related to the value log stats of components.
@@ -26,6 +29,10 @@ import javax.measure.unit.Unit;
 @RequestMapping(RestConfiguration.BASE_PATH)
 @Api(tags = {"Value logs statistics"}, description = "Retrieval of statistics for recorded value logs")
 public class RestValueLogStatsController {
+    //Default parameters for distribution requests
+    private static final String DEFAULT_QUANTILES = "0.5,0.9,0.95,0.99";
+    private static final int DEFAULT_HISTOGRAM_BINS = 10;
+    private static final int MAX_HISTOGRAM_BINS = 1000;
 
     @Autowired
     private ActuatorRepository actuatorRepository;
@@ -36,6 +43,9 @@ public class RestValueLogStatsController {
     @Autowired
     private ValueLogStatsService valueLogStatsService;
 
+    @Autowired
+    private ValueLogSketchService valueLogSketchService;
+
     @Autowired
     private UserEntityService userEntityService;
 
@@ -131,6 +141,119 @@ public class RestValueLogStatsController {
         return calculateValueLogStats(monitoringComponent, unit);
     }
 
+    /**
+     * Responds with the approximated value distribution (quantiles and histogram) for a certain actuator.
+     *
+     * @param actuatorId The id of the actuator whose value distribution is supposed to be retrieved
+     * @param from       The start of the time range in epoch seconds (optional)
+     * @param to         The end of the time range in epoch seconds (optional)
+     * @param quantiles  A comma-separated list of the desired quantiles
+     * @param bins       The desired number of histogram bins
+     * @param unit       A string specifying the desired unit of the values
+     * @return The value distribution of the actuator
+     */
+    @GetMapping("/actuators/{id}/stats/distribution")
+    @ApiOperation(value = "Retrieves approximated quantiles and a histogram for recorded actuator value logs in a certain time range and unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access statistics for value logs of this actuator"), @ApiResponse(code = 404, message = "Actuator not found or not authorized to access the actuator")})
+    public ResponseEntity<ValueLogDistribution> getActuatorValueLogDistribution(@PathVariable(value = "id") @ApiParam(value = "ID of the actuator to retrieve the value distribution for", example = "5c97dc2583aeb6078c5ab672", required = true) String actuatorId,
+                                                                                @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                                @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                                @RequestParam(value = "quantiles", defaultValue = DEFAULT_QUANTILES) @ApiParam(value = "Comma-separated list of quantiles", example = "0.5,0.95") String quantiles,
+                                                                                @RequestParam(value = "bins", defaultValue = "" + DEFAULT_HISTOGRAM_BINS) @ApiParam(value = "Number of histogram bins", example = "10") int bins,
+                                                                                @RequestParam(value = "unit", required = false) String unit) {
+        //Get actuator
+        Actuator actuator = (Actuator) userEntityService.getUserEntityFromRepository(actuatorRepository, actuatorId);
+
+        //Validity check
+        if (actuator == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(actuator, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve value distribution
+        return calculateValueLogDistribution(actuator, from, to, quantiles, bins, unit);
+    }
+
+    /**
+     * Responds with the approximated value distribution (quantiles and histogram) for a certain sensor.
+     *
+     * @param sensorId  The id of the sensor whose value distribution is supposed to be retrieved
+     * @param from      The start of the time range in epoch seconds (optional)
+     * @param to        The end of the time range in epoch seconds (optional)
+     * @param quantiles A comma-separated list of the desired quantiles
+     * @param bins      The desired number of histogram bins
+     * @param unit      A string specifying the desired unit of the values
+     * @return The value distribution of the sensor
+     */
+    @GetMapping("/sensors/{id}/stats/distribution")
+    @ApiOperation(value = "Retrieves approximated quantiles and a histogram for recorded sensor value logs in a certain time range and unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access statistics for value logs of this sensor"), @ApiResponse(code = 404, message = "Sensor not found or not authorized to access the sensor")})
+    public ResponseEntity<ValueLogDistribution> getSensorValueLogDistribution(@PathVariable(value = "id") @ApiParam(value = "ID of the sensor to retrieve the value distribution for", example = "5c97dc2583aeb6078c5ab672", required = true) String sensorId,
+                                                                              @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                              @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                              @RequestParam(value = "quantiles", defaultValue = DEFAULT_QUANTILES) @ApiParam(value = "Comma-separated list of quantiles", example = "0.5,0.95") String quantiles,
+                                                                              @RequestParam(value = "bins", defaultValue = "" + DEFAULT_HISTOGRAM_BINS) @ApiParam(value = "Number of histogram bins", example = "10") int bins,
+                                                                              @RequestParam(value = "unit", required = false) String unit) {
+        //Get sensor object
+        Sensor sensor = (Sensor) userEntityService.getUserEntityFromRepository(sensorRepository, sensorId);
+
+        //Validity check
+        if (sensor == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(sensor, "deploy")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve value distribution
+        return calculateValueLogDistribution(sensor, from, to, quantiles, bins, unit);
+    }
+
+    /**
+     * Responds with the approximated value distribution (quantiles and histogram) for a certain monitoring component.
+     *
+     * @param deviceId            The id of the device for which the distribution is supposed to be retrieved
+     * @param monitoringAdapterId The id of the monitoring adapter for which the distribution is supposed to be retrieved
+     * @param from                The start of the time range in epoch seconds (optional)
+     * @param to                  The end of the time range in epoch seconds (optional)
+     * @param quantiles           A comma-separated list of the desired quantiles
+     * @param bins                The desired number of histogram bins
+     * @param unit                A string specifying the desired unit of the values
+     * @return The value distribution of the monitoring component
+     */
+    @GetMapping("/monitoring/{deviceId}/stats/distribution")
+    @ApiOperation(value = "Retrieves approximated quantiles and a histogram for recorded monitoring value logs in a certain time range and unit", produces = "application/hal+json")
+    @ApiResponses({@ApiResponse(code = 200, message = "Success"), @ApiResponse(code = 400, message = "Invalid parameters"), @ApiResponse(code = 403, message = "Not authorized to access statistics for value logs of this monitoring"), @ApiResponse(code = 404, message = "Device or monitoring adapter not found or not authorized to access them")})
+    public ResponseEntity<ValueLogDistribution> getMonitoringValueLogDistribution(@PathVariable(value = "deviceId") @ApiParam(value = "ID of the device to retrieve the value distribution for", example = "5c97dc2583aeb6078c5ab672", required = true) String deviceId,
+                                                                                  @RequestParam("adapter") @ApiParam(value = "ID of the monitoring adapter to retrieve the value distribution for", example = "5c97dc2583aeb6078c5ab672", required = true) String monitoringAdapterId,
+                                                                                  @RequestParam(value = "from", required = false) @ApiParam(value = "Start of the time range in epoch seconds", example = "1570635657") Long from,
+                                                                                  @RequestParam(value = "to", required = false) @ApiParam(value = "End of the time range in epoch seconds", example = "1570722057") Long to,
+                                                                                  @RequestParam(value = "quantiles", defaultValue = DEFAULT_QUANTILES) @ApiParam(value = "Comma-separated list of quantiles", example = "0.5,0.95") String quantiles,
+                                                                                  @RequestParam(value = "bins", defaultValue = "" + DEFAULT_HISTOGRAM_BINS) @ApiParam(value = "Number of histogram bins", example = "10") int bins,
+                                                                                  @RequestParam(value = "unit", required = false) @ApiParam(value = "The desired unit of the monitoring values", example = "°C", required = false) String unit) {
+        //Create new monitoring component from parameters
+        MonitoringComponent monitoringComponent = monitoringHelper.createMonitoringComponent(deviceId, monitoringAdapterId);
+
+        //Validity check
+        if (monitoringComponent == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        //Check if user is permitted
+        if (!userEntityService.isUserPermitted(monitoringComponent.getDevice(), "monitor")) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+
+        //Retrieve value distribution
+        return calculateValueLogDistribution(monitoringComponent, from, to, quantiles, bins, unit);
+    }
+
     /**
      * Calculates the stats from value logs of a certain component in order to satisfy a server request.
      *
@@ -155,4 +278,60 @@ public class RestValueLogStatsController {
 
         return new ResponseEntity<>(stats, HttpStatus.OK);
     }
+
+    /**
+     * Approximates the value distribution of a certain component in order to satisfy a server request.
+     *
+     * @param component The component for which the distribution should be retrieved
+     * @param from      The start of the time range in epoch seconds (null for unbounded)
+     * @param to        The end of the time range in epoch seconds (null for unbounded)
+     * @param quantiles A comma-separated list of the desired quantiles
+     * @param bins      The desired number of histogram bins
+     * @param unit      A string specifying the unit to which the values are supposed to be converted
+     * @return The server response containing an object that holds the calculated data
+     */
+    private ResponseEntity<ValueLogDistribution> calculateValueLogDistribution(Component component, Long from, Long to,
+                                                                               String quantiles, int bins, String unit) {
+        //Check number of bins
+        if ((bins <= 0) || (bins > MAX_HISTOGRAM_BINS)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        //Parse quantiles
+        String[] quantileStrings = quantiles.split(",");
+        double[] quantileValues = new double[quantileStrings.length];
+        try {
+            for (int i = 0; i < quantileStrings.length; i++) {
+                quantileValues[i] = Double.parseDouble(quantileStrings[i].trim());
+
+                //Quantiles must be between 0 and 1
+                if ((quantileValues[i] < 0) || (quantileValues[i] > 1)) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        //Convert given unit to object (if possible)
+        Unit convertUnit = null;
+        if ((unit != null) && (!unit.isEmpty())) {
+            //Try to parse unit
+            try {
+                convertUnit = Unit.valueOf(unit);
+            } catch (Exception e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+        }
+
+        //Convert time range
+        Instant fromInstant = (from == null) ? null : Instant.ofEpochSecond(from);
+        Instant toInstant = (to == null) ? null : Instant.ofEpochSecond(to);
+
+        //Calculate distribution by using the corresponding service
+        ValueLogDistribution distribution = valueLogSketchService.calculateDistribution(component, fromInstant,
+                toInstant, quantileValues, bins, convertUnit);
+
+        return new ResponseEntity<>(distribution, HttpStatus.OK);
+    }
 }
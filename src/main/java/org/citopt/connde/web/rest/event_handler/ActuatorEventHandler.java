@@ -1,13 +1,14 @@
 package org.citopt.connde.web.rest.event_handler;
 
 import org.citopt.connde.domain.component.Actuator;
-import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.domain.valueLog.ValueLog;
 import org.citopt.connde.repository.ValueLogRepository;
+import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.service.deploy.SSHDeployer;
+import org.citopt.connde.service.rules.execution.actuator_action.ActuatorActionExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.rest.core.annotation.HandleAfterCreate;
 import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -25,20 +26,23 @@ public class ActuatorEventHandler {
     private ValueLogRepository valueLogRepository;
 	
     @Autowired
-    private CEPTriggerService triggerService;
+    private SSHDeployer sshDeployer;
 
     @Autowired
-    private SSHDeployer sshDeployer;
+    private ActuatorActionExecutor actuatorActionExecutor;
+
+    @Autowired
+    private CEPTriggerService triggerService;
 
     /**
-     * Called in case an actuator was created. This method then takes care of registering a corresponding
-     * event type at the CEP engine.
+     * Called in case an actuator was modified. This method then takes care of invalidating the compiled
+     * actuator commands that refer to this actuator.
      *
-     * @param actuator The created actuator
+     * @param actuator The actuator that was modified
      */
-    @HandleAfterCreate
-    public void afterActuatorCreate(Actuator actuator) {
-        triggerService.registerComponentEventType(actuator);
+    @HandleAfterSave
+    public void afterActuatorSave(Actuator actuator) {
+        actuatorActionExecutor.invalidateActuator(actuator.getId());
     }
 
     /**
@@ -54,12 +58,16 @@ public class ActuatorEventHandler {
     
      /**
      * Called in case an actuator is supposed to be deleted. This method then takes care of deleting all
-     * value logs that are associated with this actuator.
+     * value logs that are associated with this actuator, of invalidating the compiled actuator commands and
+     * of unregistering its CEP event type.
      *
      * @param actuator The actuator that is supposed to be deleted
      */
     @HandleAfterDelete
     public void afterActuatorDelete(Actuator actuator) {
+        actuatorActionExecutor.invalidateActuator(actuator.getId());
+        triggerService.unregisterComponentEventType(actuator);
+
         //TODO Delete value logs with idref actuator.getId()
     }
 }
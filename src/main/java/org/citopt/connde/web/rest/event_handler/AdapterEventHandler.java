@@ -7,8 +7,10 @@ import org.citopt.connde.repository.ActuatorRepository;
 import org.citopt.connde.repository.SensorRepository;
 import org.citopt.connde.repository.ValueLogRepository;
 import org.citopt.connde.repository.projection.ComponentExcerpt;
+import org.citopt.connde.service.compression.ValueLogCompressionService;
 import org.citopt.connde.service.deploy.SSHDeployer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -34,6 +36,20 @@ public class AdapterEventHandler {
     @Autowired
     private SSHDeployer sshDeployer;
 
+    @Autowired
+    private ValueLogCompressionService compressionService;
+
+    /**
+     * Called in case an adapter was modified. This method then takes care of discarding the cached
+     * value log compression settings, since they might have changed.
+     *
+     * @param adapter The adapter that was modified
+     */
+    @HandleAfterSave
+    public void afterAdapterSave(Adapter adapter) {
+        compressionService.invalidateSettings();
+    }
+
     /**
      * Called in case an adapter is supposed to be deleted. This method then takes care of deleting
      * the components which use this adapter and the associated value logs.
@@ -6,7 +6,6 @@ import org.citopt.connde.domain.device.Device;
 import org.citopt.connde.domain.monitoring.MonitoringAdapter;
 import org.citopt.connde.domain.monitoring.MonitoringComponent;
 import org.citopt.connde.repository.ActuatorRepository;
-import org.citopt.connde.repository.MonitoringAdapterRepository;
 import org.citopt.connde.repository.SensorRepository;
 import org.citopt.connde.repository.ValueLogRepository;
 import org.citopt.connde.repository.projection.ComponentExcerpt;
@@ -14,7 +13,6 @@ import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.service.deploy.SSHDeployer;
 import org.citopt.connde.web.rest.helper.MonitoringHelper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.rest.core.annotation.HandleAfterCreate;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -37,35 +35,14 @@ public class DeviceEventHandler {
     @Autowired
     private ValueLogRepository valueLogRepository;
 
-    @Autowired
-    private MonitoringAdapterRepository monitoringAdapterRepository;
-
-    @Autowired
-    private CEPTriggerService triggerService;
-
     @Autowired
     private MonitoringHelper monitoringHelper;
 
     @Autowired
     private SSHDeployer sshDeployer;
 
-    /**
-     * Called in case a device was created. This method then takes care of registering corresponding
-     * event types for monitoring components at the CEP engine.
-     *
-     * @param device The created device
-     */
-    @HandleAfterCreate
-    public void afterDeviceCreate(Device device) {
-        //Get all monitoring adapters
-        List<MonitoringAdapter> monitoringAdapters = monitoringAdapterRepository.findAll();
-
-        //Iterate over all monitoring adapters and register an event type for the resulting monitoring component
-        for (MonitoringAdapter monitoringAdapter : monitoringAdapters) {
-            MonitoringComponent monitoringComponent = new MonitoringComponent(monitoringAdapter, device);
-            triggerService.registerComponentEventType(monitoringComponent);
-        }
-    }
+    @Autowired
+    private CEPTriggerService triggerService;
 
     /**
      * Called in case a device is supposed to be deleted. This method then takes care of deleting
@@ -88,8 +65,9 @@ public class DeviceEventHandler {
 
             //TODO Delete value logs with idref monitoringComponent.getId()
 
-            //Delete actuator
+            //Delete actuator and unregister its event type
             actuatorRepository.delete(projection.getId());
+            triggerService.unregisterComponentEventType(actuator);
         }
 
         //Find sensors that use the device and delete them after undeployment
@@ -102,8 +80,9 @@ public class DeviceEventHandler {
 
             //TODO Delete value logs with idref sensor.getId()
 
-            //Delete sensor
+            //Delete sensor and unregister its event type
             sensorRepository.delete(projection.getId());
+            triggerService.unregisterComponentEventType(sensor);
         }
 
         //Get all monitoring adapters that are compatible to the device
@@ -117,6 +96,9 @@ public class DeviceEventHandler {
             //Undeploy monitoring component if necessary
             sshDeployer.undeployIfRunning(monitoringComponent);
 
+            //Unregister event type of the monitoring component
+            triggerService.unregisterComponentEventType(monitoringComponent);
+
             //TODO Delete value logs with idref monitoringComponent.getId()
         }
     }
@@ -3,13 +3,11 @@ package org.citopt.connde.web.rest.event_handler;
 import org.citopt.connde.domain.device.Device;
 import org.citopt.connde.domain.monitoring.MonitoringAdapter;
 import org.citopt.connde.domain.monitoring.MonitoringComponent;
-import org.citopt.connde.repository.DeviceRepository;
 import org.citopt.connde.repository.ValueLogRepository;
 import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.service.deploy.SSHDeployer;
 import org.citopt.connde.web.rest.helper.MonitoringHelper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.rest.core.annotation.HandleAfterCreate;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -24,39 +22,19 @@ import java.util.List;
 @RepositoryEventHandler
 public class MonitoringAdapterEventHandler {
 
-    @Autowired
-    private DeviceRepository deviceRepository;
-
-    @Autowired
-    private CEPTriggerService triggerService;
-
     @Autowired
     private MonitoringHelper monitoringHelper;
 
     @Autowired
     private SSHDeployer sshDeployer;
 
-    /**
-     * Called in case a monitoring adapter was created. This method then takes care of registering corresponding
-     * event types for monitoring components at the CEP engine.
-     *
-     * @param monitoringAdapter The created monitoring adapter
-     */
-    @HandleAfterCreate
-    public void afterMonitoringAdapterCreate(MonitoringAdapter monitoringAdapter) {
-        //Get all devices
-        List<Device> devices = deviceRepository.findAll();
-
-        //Iterate over all devices and register an event type for the resulting monitoring component
-        for (Device device : devices) {
-            MonitoringComponent monitoringComponent = new MonitoringComponent(monitoringAdapter, device);
-            triggerService.registerComponentEventType(monitoringComponent);
-        }
-    }
+    @Autowired
+    private CEPTriggerService triggerService;
 
     /**
      * Called in case a monitoring adapter is supposed to be deleted. This method then takes care of undeploying
-     * the corresponding monitoring components (if necessary) and deleting the associated value logs.
+     * the corresponding monitoring components (if necessary), unregistering their CEP event types and deleting
+     * the associated value logs.
      *
      * @param adapter The adapter that is supposed to be deleted
      */
@@ -73,6 +51,9 @@ public class MonitoringAdapterEventHandler {
             //Undeploy monitoring component if necessary
             sshDeployer.undeployIfRunning(monitoringComponent);
 
+            //Unregister event type of the monitoring component
+            triggerService.unregisterComponentEventType(monitoringComponent);
+
             //TODO Delete value logs by idref monitoringComponent.getId()
         }
     }
@@ -4,7 +4,9 @@ import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.domain.rules.RuleAction;
 import org.citopt.connde.repository.RuleRepository;
 import org.citopt.connde.service.rules.RuleEngine;
+import org.citopt.connde.service.rules.execution.actuator_action.ActuatorActionExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -24,6 +26,20 @@ public class RuleActionEventHandler {
     @Autowired
     private RuleEngine ruleEngine;
 
+    @Autowired
+    private ActuatorActionExecutor actuatorActionExecutor;
+
+    /**
+     * Called, when a rule action was modified. This method then takes care of invalidating the compiled
+     * actuator commands of this rule action.
+     *
+     * @param ruleAction The rule action that was modified
+     */
+    @HandleAfterSave
+    public void afterRuleActionSave(RuleAction ruleAction) {
+        actuatorActionExecutor.invalidateAction(ruleAction.getId());
+    }
+
     /**
      * Called, when a rule action is supposed to be deleted. This method then takes care of deleting
      * the rules as well that make use of this rule action.
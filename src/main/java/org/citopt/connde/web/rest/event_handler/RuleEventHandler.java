@@ -2,7 +2,9 @@ package org.citopt.connde.web.rest.event_handler;
 
 import org.citopt.connde.domain.rules.Rule;
 import org.citopt.connde.service.rules.RuleEngine;
+import org.citopt.connde.service.rules.execution.actuator_action.ActuatorActionExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
 import org.springframework.stereotype.Component;
@@ -17,6 +19,20 @@ public class RuleEventHandler {
     @Autowired
     private RuleEngine ruleEngine;
 
+    @Autowired
+    private ActuatorActionExecutor actuatorActionExecutor;
+
+    /**
+     * Called, when a rule was modified. This method then takes care of invalidating the compiled
+     * actuator commands of this rule.
+     *
+     * @param rule The rule that was modified
+     */
+    @HandleAfterSave
+    public void afterRuleSave(Rule rule) {
+        actuatorActionExecutor.invalidateRule(rule.getId());
+    }
+
     /**
      * Called, when a rule is supposed to be deleted. This method then takes care of disabling the rule
      * at the rule engine in an ordinary way.
@@ -6,7 +6,6 @@ import org.citopt.connde.repository.ValueLogRepository;
 import org.citopt.connde.service.cep.trigger.CEPTriggerService;
 import org.citopt.connde.service.deploy.SSHDeployer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.rest.core.annotation.HandleAfterCreate;
 import org.springframework.data.rest.core.annotation.HandleAfterDelete;
 import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
 import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
@@ -24,22 +23,11 @@ public class SensorEventHandler {
     @Autowired
     private ValueLogRepository valueLogRepository;
 
-    @Autowired
-    private CEPTriggerService triggerService;
-
     @Autowired
     private SSHDeployer sshDeployer;
 
-    /**
-     * Called in case a sensor was created. This method then takes care of registering a corresponding
-     * event type at the CEP engine.
-     *
-     * @param sensor The created sensor
-     */
-    @HandleAfterCreate
-    public void afterSensorCreate(Sensor sensor) {
-        triggerService.registerComponentEventType(sensor);
-    }
+    @Autowired
+    private CEPTriggerService triggerService;
 
     /**
      * Called in case a sensor is supposed to be deleted. This method then takes care of undeploying it before.
@@ -54,12 +42,14 @@ public class SensorEventHandler {
 
     /**
      * Called in case a sensor is supposed to be deleted. This method then takes care of deleting all
-     * value logs that are associated with this sensor.
+     * value logs that are associated with this sensor and of unregistering its CEP event type.
      *
      * @param sensor The sensor that is supposed to be deleted
      */
     @HandleAfterDelete
     public void afterSensorDelete(Sensor sensor) {
+        triggerService.unregisterComponentEventType(sensor);
+
         //TODO Delete value logs with idref sensor.getId()
     }
 }